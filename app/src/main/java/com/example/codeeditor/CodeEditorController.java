@@ -1,8 +1,10 @@
 package com.example.codeeditor;
 
+import android.text.Editable;
 import android.view.View;
 
 import com.amrdeveloper.codeview.CodeView;
+import com.example.codeeditor.model.TextFinder;
 
 import java.util.Objects;
 
@@ -42,6 +44,34 @@ public class CodeEditorController {
         codeEditor.setText(code);
     }
 
+    public static void goToLine(int line, int column, int length, MainActivity mainScreen){
+        CodeView codeEditor = mainScreen.findViewById(R.id.codeView);
+        String code = Objects.requireNonNull(codeEditor.getText()).toString();
+        int offset = 0;
+        for (int i = 1; i < line && offset >= 0; i++) {
+            offset = code.indexOf('\n', offset);
+            if (offset >= 0) {
+                offset++;
+            }
+        }
+        if (offset < 0) {
+            return;
+        }
+        int start = Math.min(code.length(), offset + column);
+        int end = Math.min(code.length(), start + length);
+        codeEditor.requestFocus();
+        codeEditor.setSelection(start, end);
+    }
+
+    public static void applyReplacement(TextFinder finder, String replacement, MainActivity mainScreen){
+        CodeView codeEditor = mainScreen.findViewById(R.id.codeView);
+        Editable code = codeEditor.getText();
+        TextFinder.Replacement edit = finder.replaceAll(code, replacement);
+        if (edit != null) {
+            code.replace(edit.start, edit.end, edit.text);
+        }
+    }
+
     public static String getCode(MainActivity mainScreen){
         CodeView codeEditor = mainScreen.findViewById(R.id.codeView);
         return Objects.requireNonNull(codeEditor.getText()).toString();
@@ -0,0 +1,95 @@
+package com.example.codeeditor;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.codeeditor.model.FlatTree;
+
+
+public class DirectoryTreeAdapter extends RecyclerView.Adapter<DirectoryTreeAdapter.NodeViewHolder> implements FlatTree.Listener {
+
+    private final FlatTree tree;
+    private final OnNodeClickListener onNodeClickListener;
+    private final int indentPixels;
+    private final int directoryColor;
+    private final int fileColor;
+
+    public DirectoryTreeAdapter(FlatTree tree, MainActivity mainScreen, OnNodeClickListener onNodeClickListener) {
+        this.tree = tree;
+        this.onNodeClickListener = onNodeClickListener;
+        this.indentPixels = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        this.directoryColor = mainScreen.getColor(R.color.cool_blue);
+        this.fileColor = mainScreen.getColor(R.color.white);
+        tree.setListener(this);
+    }
+
+    @NonNull
+    @Override
+    public NodeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_tree_node, parent, false);
+        return new NodeViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull NodeViewHolder holder, int position) {
+        FlatTree.Node node = tree.get(position);
+        String marker = node.directory ? (node.isExpanded() ? "▾ " : "▸ ") : "   ";
+        holder.nameTextView.setText(marker + node.file.getName());
+        holder.nameTextView.setTextColor(node.directory ? directoryColor : fileColor);
+        holder.nameTextView.setPaddingRelative(indentPixels / 2 + node.depth * indentPixels,
+                holder.nameTextView.getPaddingTop(), holder.nameTextView.getPaddingEnd(),
+                holder.nameTextView.getPaddingBottom());
+    }
+
+    @Override
+    public int getItemCount() {
+        return tree.size();
+    }
+
+    @Override
+    public void onRangeInserted(int start, int count) {
+        notifyItemRangeInserted(start, count);
+    }
+
+    @Override
+    public void onRangeRemoved(int start, int count) {
+        notifyItemRangeRemoved(start, count);
+    }
+
+    @Override
+    public void onChanged(int position) {
+        notifyItemChanged(position);
+    }
+
+    @Override
+    public void onRangeChanged(int start, int count) {
+        notifyItemRangeChanged(start, count);
+    }
+
+    public class NodeViewHolder extends RecyclerView.ViewHolder {
+        TextView nameTextView;
+
+        public NodeViewHolder(@NonNull View itemView) {
+            super(itemView);
+            nameTextView = itemView.findViewById(R.id.treeNodeTextView);
+            itemView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        onNodeClickListener.onNodeClick(tree.get(position), position);
+                    }
+                }
+            });
+        }
+    }
+
+    public interface OnNodeClickListener {
+        void onNodeClick(FlatTree.Node node, int position);
+    }
+}
@@ -1,86 +1,212 @@
 package com.example.codeeditor;
 
-import android.view.Gravity;
+import static android.content.Context.MODE_PRIVATE;
+
+import android.content.SharedPreferences;
 import android.view.View;
-import android.widget.Button;
-import android.widget.LinearLayout;
 import android.widget.Toast;
 
-import com.google.android.material.textfield.TextInputEditText;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.codeeditor.model.DirectoryEnumerator;
+import com.example.codeeditor.model.ExpansionState;
+import com.example.codeeditor.model.FlatTree;
+import com.example.codeeditor.model.IgnoreMatcher;
+import com.example.codeeditor.model.PathIndex;
+import com.example.codeeditor.model.ProjectWatcher;
+import com.example.codeeditor.model.SymbolIndex;
+import com.example.codeeditor.model.TrigramIndex;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DirectoryTreeController {
 
-    private static Map<String, Boolean> directoryColapsed;
+    private static FlatTree tree;
+    private static String treeProjectPath;
+    private static ProjectWatcher watcher;
+    private static PathIndex pathIndex;
+    private static TrigramIndex trigramIndex;
+    private static SymbolIndex symbolIndex;
+    private static final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
 
-    static {
-        directoryColapsed = new HashMap<String, Boolean>();
+    private static void generateExplorerTree(MainActivity mainScreen){
+        RecyclerView explorer = mainScreen.findViewById(R.id.ExplorerRecycler);
+        if (explorer.getLayoutManager() == null) {
+            explorer.setLayoutManager(new LinearLayoutManager(mainScreen));
+        }
+        File directory = FilesController.getFileByPath(mainScreen.getCurrentProjectPath(), mainScreen);
+        treeProjectPath = mainScreen.getCurrentProjectPath();
+        IgnoreMatcher ignoreMatcher = IgnoreMatcher.forRoot(directory);
+        tree = new FlatTree(directory, ignoreMatcher, loadExpansionState(treeProjectPath, mainScreen),
+                DirectoryEnumerator.shared(), mainScreen.getMainExecutor());
+        tree.restore();
+        startWatching(directory, ignoreMatcher, mainScreen);
+        explorer.setAdapter(new DirectoryTreeAdapter(tree, mainScreen, new DirectoryTreeAdapter.OnNodeClickListener() {
+            @Override
+            public void onNodeClick(FlatTree.Node node, int position) {
+                if (node.directory) {
+                    tree.toggle(position);
+                    saveExpansionState(mainScreen);
+                    return;
+                }
+                File currentFile = node.file;
+                try {
+                    mainScreen.setCurrentFileName(currentFile.getPath().substring(currentFile.getPath().indexOf("files/") + 6));
+                } catch (Exception e) {
+                    Toast.makeText(mainScreen, currentFile.getPath(), Toast.LENGTH_SHORT).show();
+                }
+            }
+        }));
     }
 
-    private static void generateTreeButtons(File currentFile, int depth, MainActivity mainScreen){
+    public static PathIndex getPathIndex() {
+        return pathIndex;
+    }
 
-        Button button = new Button(mainScreen);
-        String repeated = new String(new char[depth]).replace("\0", "   ");
-        button.setText( repeated + currentFile.getName());
-        button.setBackground(mainScreen.getDrawable(R.drawable.transperent));
+    /**
+     * The search index when it can be trusted to be current: built, and kept up to date by
+     * a watcher that covers every directory. Past the watch cap, changes in the unwatched
+     * directories never reach the index, so searches have to walk the tree instead.
+     */
+    public static TrigramIndex getCurrentTrigramIndex() {
+        TrigramIndex index = trigramIndex;
+        ProjectWatcher projectWatcher = watcher;
+        if (index == null || !index.isReady() || projectWatcher == null || projectWatcher.isCapReached()) {
+            return null;
+        }
+        return index;
+    }
 
-        if(currentFile.isDirectory()) button.setTextColor(mainScreen.getColor(R.color.cool_blue));
-        else button.setTextColor(mainScreen.getColor(R.color.white));
+    public static SymbolIndex getSymbolIndex() {
+        return symbolIndex;
+    }
 
-        button.setGravity(Gravity.LEFT);
-        button.setAllCaps(false);
-        String name = String.valueOf(currentFile.getName());
-        button.setOnClickListener(new View.OnClickListener() {
+    public static void rebuildSearchIndex() {
+        TrigramIndex index = trigramIndex;
+        SymbolIndex symbols = symbolIndex;
+        if (index == null) {
+            return;
+        }
+        indexExecutor.execute(new Runnable() {
             @Override
-            public void onClick(View v) {
-                if(currentFile.isDirectory()) {
-                    Boolean value = true;
-                    if(Boolean.TRUE.equals(directoryColapsed.get(name))){
-                        value = false;
-                    }
-                    directoryColapsed.put(name, value);
-                    generateExplorerTree(mainScreen);
+            public void run() {
+                try {
+                    index.build();
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
-                else{
-                    try {
-                        mainScreen.setCurrentFileName(currentFile.getPath().substring(currentFile.getPath().indexOf("files/") + 6));
-                    } catch (Exception e) {
-                        Toast.makeText(mainScreen, currentFile.getPath(), Toast.LENGTH_SHORT).show();
-                    }
+                try {
+                    symbols.refresh();
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
             }
         });
+    }
 
-        LinearLayout scroller = mainScreen.findViewById(R.id.ExplorerScrollLayout);
-        scroller.addView(button);
-
-        if(currentFile.isDirectory() && Boolean.TRUE.equals(directoryColapsed.get(currentFile.getName()))){
-            for(File item: currentFile.listFiles()){
-                generateTreeButtons(item, depth + 1, mainScreen);
-            }
+    private static void startWatching(File directory, IgnoreMatcher ignoreMatcher, MainActivity mainScreen) {
+        if (watcher != null) {
+            watcher.close();
         }
+        PathIndex index = new PathIndex(directory, ignoreMatcher);
+        pathIndex = index;
+        TrigramIndex searchIndex = new TrigramIndex(TrigramIndex.directoryFor(mainScreen.getNoBackupFilesDir(), directory),
+                directory, ignoreMatcher);
+        trigramIndex = searchIndex;
+        SymbolIndex symbols = new SymbolIndex(TrigramIndex.directoryFor(mainScreen.getNoBackupFilesDir(), directory),
+                directory, ignoreMatcher);
+        symbolIndex = symbols;
+        FlatTree shownTree = tree;
+        indexExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Rules edited while nothing watched the project; the tree is already showing.
+                if (ignoreMatcher.revalidate()) {
+                    mainScreen.getMainExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (tree == shownTree) {
+                                tree.refreshAll();
+                            }
+                        }
+                    });
+                }
+                index.build();
+                TrigramIndex.deleteLegacyIndexes(mainScreen.getFilesDir());
+                try {
+                    searchIndex.open();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                try {
+                    symbols.open();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        watcher = new ProjectWatcher(directory, ignoreMatcher, new FileObserverBackend(),
+                ProjectWatcher.DEFAULT_WINDOW_MILLIS, ProjectWatcher.DEFAULT_MAX_WATCHES,
+                mainScreen.getMainExecutor(), new ProjectWatcher.Listener() {
+            @Override
+            public void onChanges(ProjectWatcher.Batch batch) {
+                indexExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        index.apply(batch);
+                        try {
+                            searchIndex.apply(batch);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                        try {
+                            symbols.apply(batch);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                });
+                for (String path : batch.deleted) {
+                    FilesController.invalidatePath(new File(directory, path), mainScreen);
+                }
+                for (String path : batch.rescanned) {
+                    FilesController.invalidatePath(new File(directory, path), mainScreen);
+                }
+                if (batch.ignoreRulesChanged) {
+                    // The watcher already dropped the old rules and the indexes rebuild on this flag.
+                    tree.refreshAll();
+                    return;
+                }
+                for (String path : batch.changedDirectories()) {
+                    tree.refresh(path);
+                }
+            }
+        });
+        watcher.start();
     }
 
-    private static void generateExplorerTree(MainActivity mainScreen){
-        LinearLayout scroller = mainScreen.findViewById(R.id.ExplorerScrollLayout);
-        scroller.removeAllViews();
-        File directory = FilesController.getFileByPath(mainScreen.getCurrentProjectPath(), mainScreen);
-        generateTreeButtons(directory, 0, mainScreen);
+    private static ExpansionState loadExpansionState(String projectPath, MainActivity mainScreen) {
+        SharedPreferences sharedPreferences = mainScreen.getSharedPreferences("TreeExpansion", MODE_PRIVATE);
+        return ExpansionState.parse(sharedPreferences.getString(projectPath, null));
+    }
+
+    private static void saveExpansionState(MainActivity mainScreen) {
+        SharedPreferences sharedPreferences = mainScreen.getSharedPreferences("TreeExpansion", MODE_PRIVATE);
+        sharedPreferences.edit().putString(treeProjectPath, tree.getExpansionState().serialize()).apply();
     }
 
     public static void setEnabled(MainActivity mainScreen){
         mainScreen.findViewById(R.id.ExplorerLayout).setEnabled(true);
         mainScreen.findViewById(R.id.ExplorerLayout).setVisibility(View.VISIBLE);
-        directoryColapsed = new HashMap<>();
         generateExplorerTree(mainScreen);
     }
 
     public static void setDisabled(MainActivity mainScreen){
         mainScreen.findViewById(R.id.ExplorerLayout).setEnabled(false);
         mainScreen.findViewById(R.id.ExplorerLayout).setVisibility(View.INVISIBLE);
-        generateExplorerTree(mainScreen);
     }
 }
@@ -1,26 +1,59 @@
 package com.example.codeeditor;
 
-import android.annotation.SuppressLint;
+import android.text.format.DateFormat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.File;
+import com.example.codeeditor.model.CopyEngine;
+import com.example.codeeditor.model.DirectoryEnumerator;
+
 import java.util.List;
 
 
 public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder> {
 
-    private List<File> fileList;
-    private OnItemClickListener onItemClickListener;
+    // Same path and type, only size or modification time changed: rebind the details line only.
+    private static final Object PAYLOAD_METADATA = new Object();
+
+    private static final DiffUtil.ItemCallback<DirectoryEnumerator.Entry> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<DirectoryEnumerator.Entry>() {
+                @Override
+                public boolean areItemsTheSame(DirectoryEnumerator.Entry oldEntry, DirectoryEnumerator.Entry newEntry) {
+                    return oldEntry.file.equals(newEntry.file) && oldEntry.directory == newEntry.directory;
+                }
+
+                @Override
+                public boolean areContentsTheSame(DirectoryEnumerator.Entry oldEntry, DirectoryEnumerator.Entry newEntry) {
+                    return oldEntry.length == newEntry.length && oldEntry.lastModified == newEntry.lastModified;
+                }
 
-    public FileAdapter(List<File> fileList, OnItemClickListener onItemClickListener) {
-        this.fileList = fileList;
+                @Override
+                public Object getChangePayload(DirectoryEnumerator.Entry oldEntry, DirectoryEnumerator.Entry newEntry) {
+                    return PAYLOAD_METADATA;
+                }
+            };
+
+    private final AsyncListDiffer<DirectoryEnumerator.Entry> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final OnItemClickListener onItemClickListener;
+
+    public FileAdapter(OnItemClickListener onItemClickListener) {
         this.onItemClickListener = onItemClickListener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Diffs against the shown list on a background thread and dispatches only the changes.
+     * The list must not be modified afterwards.
+     */
+    public void submitList(List<DirectoryEnumerator.Entry> entries) {
+        differ.submitList(entries);
     }
 
     @NonNull
@@ -31,32 +64,69 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     }
 
     @Override
-    public void onBindViewHolder(@NonNull FileViewHolder holder, @SuppressLint("RecyclerView") int position) {
-        File file = fileList.get(position);
-        holder.fileNameTextView.setText(file.getName());
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                onItemClickListener.onItemClick(file, position);
-            }
-        });
+    public void onBindViewHolder(@NonNull FileViewHolder holder, int position) {
+        DirectoryEnumerator.Entry entry = differ.getCurrentList().get(position);
+        holder.fileNameTextView.setText(entry.getName());
+        bindDetails(holder, entry);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FileViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindDetails(holder, differ.getCurrentList().get(position));
+        }
     }
 
     @Override
     public int getItemCount() {
-        return fileList.size();
+        return differ.getCurrentList().size();
     }
 
-    public class FileViewHolder extends RecyclerView.ViewHolder {
+    @Override
+    public long getItemId(int position) {
+        return stableId(differ.getCurrentList().get(position).file.getPath());
+    }
+
+    private void bindDetails(FileViewHolder holder, DirectoryEnumerator.Entry entry) {
+        String modified = DateFormat.getDateFormat(holder.itemView.getContext()).format(entry.lastModified);
+        holder.fileDetailsTextView.setText(entry.directory ? "Folder, " + modified
+                : CopyEngine.formatBytes(entry.length) + ", " + modified);
+    }
+
+    // 64-bit FNV-1a, so two paths in one folder practically never share an id the way
+    // String.hashCode values sometimes do.
+    static long stableId(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public class FileViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         TextView fileNameTextView;
+        TextView fileDetailsTextView;
 
         public FileViewHolder(@NonNull View itemView) {
             super(itemView);
             fileNameTextView = itemView.findViewById(R.id.fileNameTextView);
+            fileDetailsTextView = itemView.findViewById(R.id.fileDetailsTextView);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                onItemClickListener.onItemClick(differ.getCurrentList().get(position), position);
+            }
         }
     }
 
     public interface OnItemClickListener {
-        void onItemClick(File file, int position);
+        void onItemClick(DirectoryEnumerator.Entry entry, int position);
     }
-}
\ No newline at end of file
+}
@@ -33,6 +33,14 @@ public class FileButton {
                     if (saveItem != null) {
                         saveItem.setEnabled(false);
                     }
+                    MenuItem findItem = popup.getMenu().findItem(R.id.action_find_replace);
+                    if (findItem != null) {
+                        findItem.setEnabled(false);
+                    }
+                    MenuItem outlineItem = popup.getMenu().findItem(R.id.action_outline);
+                    if (outlineItem != null) {
+                        outlineItem.setEnabled(false);
+                    }
                     // popup.getMenu().setGroupVisible(R.id.group3, false); // Это может вызывать ошибки, если группа не найдена
                 }
 
@@ -65,9 +73,24 @@ public class FileButton {
         } else if (id == R.id.action_save_file) {
             saveFile(mainScreen);
             return true;
+        } else if (id == R.id.action_find_replace) {
+            findReplace(mainScreen);
+            return true;
         } else if (id == R.id.action_open_project) {
             openProject(mainScreen);
             return true;
+        } else if (id == R.id.action_find_in_project) {
+            findInProject(mainScreen);
+            return true;
+        } else if (id == R.id.action_go_to_symbol) {
+            goToSymbol(mainScreen);
+            return true;
+        } else if (id == R.id.action_outline) {
+            outline(mainScreen);
+            return true;
+        } else if (id == R.id.action_file_operations) {
+            fileOperations(mainScreen);
+            return true;
         } else if (id == R.id.action_close_project) {
             closeProject(mainScreen);
             return true;
@@ -111,11 +134,31 @@ public class FileButton {
         FilesController.saveFile(fileName, content, mainScreen);
     }
 
+    static private void findReplace(MainActivity mainScreen) {
+        FindReplaceController.setEnabled(mainScreen);
+    }
+
     static private void openProject(MainActivity mainScreen) {
         mainScreen.disableMainLayout();
         OpenProjectController.setEnabled(mainScreen);
     }
 
+    static private void findInProject(MainActivity mainScreen) {
+        ProjectSearchController.showSearchDialog(mainScreen);
+    }
+
+    static private void goToSymbol(MainActivity mainScreen) {
+        SymbolController.showGoToSymbol(mainScreen);
+    }
+
+    static private void outline(MainActivity mainScreen) {
+        SymbolController.showOutline(mainScreen);
+    }
+
+    static private void fileOperations(MainActivity mainScreen) {
+        FileOperationsController.showQueue(mainScreen);
+    }
+
     static private void closeProject(MainActivity mainScreen){
         try {
             mainScreen.setCurrentProjectPath(null);
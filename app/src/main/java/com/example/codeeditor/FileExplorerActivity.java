@@ -17,12 +17,11 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.codeeditor.model.CopyEngine;
+import com.example.codeeditor.model.DirectoryEnumerator;
+import com.example.codeeditor.model.FileOperationQueue;
+
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -30,9 +29,9 @@ import java.util.List;
 public class FileExplorerActivity extends AppCompatActivity {
     private RecyclerView recyclerView;
     private FileAdapter fileAdapter;
-    private List<File> fileList;
     private TextView currentPathTextView;
     private File currentDirectory;
+    private int listingGeneration;
 
 
     private static final int REQUEST_EXTERNAL_STORAGE_PERMISSION = 1;
@@ -61,15 +60,14 @@ public class FileExplorerActivity extends AppCompatActivity {
         Button startingPointButton = findViewById(R.id.startingPointButton);
         Button backButton = findViewById(R.id.backButton);
 
-        fileList = new ArrayList<>();
-        fileAdapter = new FileAdapter(fileList, new FileAdapter.OnItemClickListener() {
+        fileAdapter = new FileAdapter(new FileAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(File file, int position) {
-                if (file.isDirectory()) {
-                    currentDirectory = file;
+            public void onItemClick(DirectoryEnumerator.Entry entry, int position) {
+                if (entry.directory) {
+                    currentDirectory = entry.file;
                     updateFileList(currentDirectory);
                 } else {
-                    copyFileToInternalStorage(file);
+                    copyFileToInternalStorage(entry.file);
                 }
             }
         });
@@ -109,32 +107,50 @@ public class FileExplorerActivity extends AppCompatActivity {
     }
 
     private void updateFileList(File directory) {
-        fileList.clear();
-        fileList.addAll(Arrays.asList(directory.listFiles()));
+        int generation = ++listingGeneration;
         currentPathTextView.setText(directory.getAbsolutePath());
-        fileAdapter.notifyDataSetChanged();
+        List<DirectoryEnumerator.Entry> listing = new ArrayList<>();
+        DirectoryEnumerator.shared().enumerate(directory, null, getMainExecutor(), new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                if (generation != listingGeneration) {
+                    return;
+                }
+                boolean first = listing.isEmpty();
+                listing.addAll(entries);
+                // Paint the first batch right away, then diff once more against the full folder.
+                if (last || (first && !entries.isEmpty())) {
+                    fileAdapter.submitList(new ArrayList<>(listing));
+                }
+            }
+        });
     }
 
     private void copyFileToInternalStorage(File sourceFile) {
-        try {
-            File internalFile = new File(getFilesDir(), sourceFile.getName());
-            copyFile(sourceFile, internalFile);
-            Toast.makeText(this, "File copied to internal storage", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error copying file", Toast.LENGTH_SHORT).show();
-        }
-    }
-
-    private void copyFile(File sourceFile, File destFile) throws IOException {
-        try (InputStream in = new FileInputStream(sourceFile);
-             OutputStream out = new FileOutputStream(destFile)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = in.read(buffer)) > 0) {
-                out.write(buffer, 0, length);
+        File internalFile = new File(getFilesDir(), sourceFile.getName());
+        CopyEngine.Stats stats = new CopyEngine.Stats();
+        FileOperationQueue.shared().submit("Import " + sourceFile.getName(), FileOperationQueue.Priority.BACKGROUND,
+                Arrays.asList(sourceFile, internalFile), new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                CopyEngine.copyFile(sourceFile, internalFile, stats);
             }
-        }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                if (ticket.getError() != null) {
+                    ticket.getError().printStackTrace();
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        String message = ticket.getState() == FileOperationQueue.State.DONE
+                                ? "File copied to internal storage, " + stats.describe() : "Error copying file";
+                        Toast.makeText(FileExplorerActivity.this, message, Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
     }
 
     public void onBackButtonClick(View view) {
@@ -0,0 +1,69 @@
+package com.example.codeeditor;
+
+import android.os.FileObserver;
+
+import com.example.codeeditor.model.ProjectWatcher;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileObserverBackend implements ProjectWatcher.Backend {
+
+    private static final int MASK = FileObserver.CREATE | FileObserver.DELETE | FileObserver.MOVED_FROM
+            | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE | FileObserver.DELETE_SELF;
+
+    private final Map<String, FileObserver> observers = new ConcurrentHashMap<>();
+    private ProjectWatcher.Sink sink;
+
+    @Override
+    public void start(ProjectWatcher.Sink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public boolean watch(String relativeDirectory, File directory) {
+        FileObserver observer = new FileObserver(directory, MASK) {
+            @Override
+            public void onEvent(int event, String path) {
+                switch (event & FileObserver.ALL_EVENTS) {
+                    case FileObserver.CREATE:
+                    case FileObserver.MOVED_TO:
+                        sink.onEvent(relativeDirectory, path, ProjectWatcher.CREATED);
+                        break;
+                    case FileObserver.DELETE:
+                    case FileObserver.MOVED_FROM:
+                        sink.onEvent(relativeDirectory, path, ProjectWatcher.DELETED);
+                        break;
+                    case FileObserver.CLOSE_WRITE:
+                        sink.onEvent(relativeDirectory, path, ProjectWatcher.MODIFIED);
+                        break;
+                    case FileObserver.DELETE_SELF:
+                        stopWatching();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        };
+        observer.startWatching();
+        observers.put(relativeDirectory, observer);
+        return true;
+    }
+
+    @Override
+    public void unwatch(String relativeDirectory) {
+        FileObserver observer = observers.remove(relativeDirectory);
+        if (observer != null) {
+            observer.stopWatching();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (FileObserver observer : observers.values()) {
+            observer.stopWatching();
+        }
+        observers.clear();
+    }
+}
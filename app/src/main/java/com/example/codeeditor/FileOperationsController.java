@@ -0,0 +1,92 @@
+package com.example.codeeditor;
+
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import com.example.codeeditor.model.FileOperationQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileOperationsController {
+
+    public static void showQueue(MainActivity mainScreen) {
+        FileOperationQueue queue = FileOperationQueue.shared();
+
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        layout.setPadding(padding, padding, padding, 0);
+        final TextView status = new TextView(mainScreen);
+        final ListView list = new ListView(mainScreen);
+        final ArrayAdapter<String> adapter = new ArrayAdapter<>(mainScreen, android.R.layout.simple_list_item_1);
+        list.setAdapter(adapter);
+        layout.addView(status);
+        layout.addView(list, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 0, 1));
+
+        final List<FileOperationQueue.Ticket> shown = new ArrayList<>();
+        final Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                shown.clear();
+                shown.addAll(queue.snapshot());
+                adapter.clear();
+                for (FileOperationQueue.Ticket ticket : shown) {
+                    adapter.add(ticket.describe());
+                }
+                int active = queue.activeCount();
+                status.setText(active == 0 ? "No operations running" : active + " operation(s) queued or running");
+            }
+        };
+        final FileOperationQueue.Listener listener = new FileOperationQueue.Listener() {
+            @Override
+            public void onQueueChanged() {
+                mainScreen.runOnUiThread(refresh);
+            }
+        };
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("File operations");
+        builder.setView(layout);
+        builder.setNegativeButton("Close", null);
+        builder.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialog) {
+                queue.removeListener(listener);
+            }
+        });
+        builder.show();
+        queue.addListener(listener);
+        refresh.run();
+
+        list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                if (position >= shown.size()) {
+                    return;
+                }
+                FileOperationQueue.Ticket ticket = shown.get(position);
+                FileOperationQueue.State state = ticket.getState();
+                if (state != FileOperationQueue.State.QUEUED && state != FileOperationQueue.State.RUNNING) {
+                    return;
+                }
+                new AlertDialog.Builder(mainScreen)
+                        .setTitle("Cancel " + ticket.label + "?")
+                        .setPositiveButton("Cancel operation", new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                ticket.cancel();
+                            }
+                        })
+                        .setNegativeButton("Keep", null)
+                        .show();
+            }
+        });
+    }
+}
@@ -6,6 +6,10 @@ import android.content.SharedPreferences;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.example.codeeditor.model.AtomicFileWriter;
+import com.example.codeeditor.model.FileOperationQueue;
+import com.example.codeeditor.model.PathResolver;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -17,9 +21,10 @@ import java.util.Map;
 public class FilesController {
 
     protected static void createFile(String fileName, MainActivity mainScreen) throws Exception {
-        File directory = FilesController.getDirectory(fileName, mainScreen);
-        String realFileName = FilesController.getFileName(fileName);
-        File file = new File(directory, realFileName);
+        File file = resolve(fileName, mainScreen);
+        if (file == null) {
+            throw new Exception("Folder for " + fileName + " does not exist");
+        }
         if (file.exists()) {
             throw new Exception("File " + fileName + " already exists");
         } else {
@@ -44,50 +49,94 @@ public class FilesController {
         }
     }
 
-    public static String getFilesInside(String fileName, MainActivity mainScreen) throws Exception {
-        File directory = FilesController.getDirectory(fileName, mainScreen);
-        String realFileName = FilesController.getFileName(fileName);
-        File file = new File(directory, realFileName);
-        if (!file.exists()) {
+    public interface ContentCallback {
+        /** Called on the UI thread. */
+        void onLoaded(String content);
+
+        /** Called on the UI thread. */
+        void onFailed(Exception error);
+    }
+
+    /**
+     * Read a file through the queue, so a save or delete of it still queued lands first. The
+     * read may wait behind a long operation on an enclosing folder, such as a branch switch,
+     * so the content is handed to the callback instead of blocking the UI thread.
+     */
+    public static void getFilesInside(String fileName, MainActivity mainScreen, ContentCallback callback)
+            throws Exception {
+        File file = resolve(fileName, mainScreen);
+        if (file == null) {
             throw new Exception("File " + fileName + " do not exists");
-        } else
-        {
-            StringBuilder stringBuilder = new StringBuilder();
-            FileInputStream fileInputStream = new FileInputStream(file);
-            InputStreamReader isr = new InputStreamReader(fileInputStream);
-            BufferedReader bufferedReader = new BufferedReader(isr);
-            String line;
-
-            while ((line = bufferedReader.readLine()) != null) {
-                stringBuilder.append(line).append('\n');
-            }
-            fileInputStream.close();
-            return stringBuilder.toString();
         }
+        final String[] content = new String[1];
+        FileOperationQueue.shared().submit("Open " + file.getName(),
+                FileOperationQueue.Priority.OPEN, file, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                if (!file.exists()) {
+                    throw new Exception("File " + fileName + " do not exists");
+                }
+                StringBuilder stringBuilder = new StringBuilder();
+                try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(file)))) {
+                    String line;
+                    while ((line = bufferedReader.readLine()) != null) {
+                        stringBuilder.append(line).append('\n');
+                    }
+                }
+                content[0] = stringBuilder.toString();
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ticket.getError() != null) {
+                            callback.onFailed(ticket.getError());
+                        } else if (ticket.isCancelled()) {
+                            callback.onFailed(new Exception("Opening " + file.getName() + " was cancelled"));
+                        } else {
+                            callback.onLoaded(content[0]);
+                        }
+                    }
+                });
+            }
+        });
     }
 
     public static void saveFile(String fileName, String content, MainActivity mainScreen) {
-        File directory = FilesController.getDirectory(fileName, mainScreen);
-        String realFileName = FilesController.getFileName(fileName);
-        File file = new File(directory, realFileName);
-        try {
-            FileOutputStream fileOutputStream = new FileOutputStream(file);
-            fileOutputStream.write(content.getBytes());
-            fileOutputStream.close();
-            Toast.makeText(mainScreen, "File saved", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            e.printStackTrace();
+        File file = resolve(fileName, mainScreen);
+        if (file == null) {
             Toast.makeText(mainScreen, "Error saving file", Toast.LENGTH_SHORT).show();
+            return;
         }
+        byte[] bytes = content.getBytes();
+        FileOperationQueue.shared().submit("Save " + file.getName(), FileOperationQueue.Priority.SAVE, file,
+                new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                AtomicFileWriter.write(file, bytes);
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                if (ticket.getError() != null) {
+                    ticket.getError().printStackTrace();
+                }
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(mainScreen, ticket.getError() == null ? "File saved" : "Error saving file",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
     }
 
     public static boolean isFileExist(String fileName, MainActivity mainScreen) {
-        File directory = FilesController.getDirectory(fileName, mainScreen);
-        if (directory == null) {
-            return false;
-        }
-        String realFileName = FilesController.getFileName(fileName);
-        return new File(directory, realFileName).exists();
+        File file = resolve(fileName, mainScreen);
+        return file != null && file.exists();
     }
 
     public static Map<String, ?> getAllLocalFiles(MainActivity mainScreen) {
@@ -96,10 +145,8 @@ public class FilesController {
     }
 
     public static File[] getAllLocalFiles(MainActivity mainScreen, String path) {
-        File directory = FilesController.getDirectory(path, mainScreen);
-        String realFileName = FilesController.getFileName(path);
-        File file = new File(directory, realFileName);
-        return file.listFiles();
+        File file = resolve(path, mainScreen);
+        return file == null ? null : file.listFiles();
     }
 
     public static void createProjectsDirectory(MainActivity mainScreen){
@@ -111,10 +158,8 @@ public class FilesController {
     }
 
     public static File getFileByPath(String path, MainActivity mainScreen) {
-        File directory = FilesController.getDirectory(path, mainScreen);
-        String realFileName = FilesController.getFileName(path);
-        File file = new File(directory, realFileName);
-        if(file.exists()){
+        File file = resolve(path, mainScreen);
+        if(file != null && file.exists()){
             return file;
         }
         else{
@@ -123,31 +168,24 @@ public class FilesController {
     }
 
     public static boolean isDirectory(String directoryPath, MainActivity mainScreen){
-        File directory = FilesController.getDirectory(directoryPath, mainScreen);
-        String realFileName = FilesController.getFileName(directoryPath);
-        File file = new File(directory, realFileName);
-        if(!file.exists() || !file.isDirectory()){
+        File file = resolve(directoryPath, mainScreen);
+        if(file == null || !file.isDirectory()){
             return false;
         }
         return true;
     }
 
-    private static File getDirectory(String fileName, MainActivity mainScreen) {
-        String fileNameCopy = String.copyValueOf(fileName.toCharArray());
-        File currentDirectory = mainScreen.getFilesDir();
-        while(fileNameCopy.contains("/")){
-            String subDirectoryName = fileNameCopy.substring(0, fileNameCopy.indexOf('/'));
-            File subDirectory = new File(currentDirectory, subDirectoryName);
-            if (!subDirectory.exists()) {
-                return null;
-            }
-            currentDirectory = subDirectory;
-            fileNameCopy = fileNameCopy.substring(fileNameCopy.indexOf('/') + 1);;
-        }
-        return currentDirectory;
+    /**
+     * The file an app relative path names, or null when its folder does not exist.
+     */
+    private static File resolve(String fileName, MainActivity mainScreen) {
+        return PathResolver.shared(mainScreen.getFilesDir()).file(fileName);
     }
 
-    private static String getFileName(String fileName){
-        return fileName.substring(fileName.lastIndexOf('/') + 1);
+    /**
+     * Drop cached resolutions for a file or folder that was deleted or renamed.
+     */
+    public static void invalidatePath(File file, MainActivity mainScreen) {
+        PathResolver.shared(mainScreen.getFilesDir()).invalidate(file);
     }
 }
@@ -0,0 +1,332 @@
+package com.example.codeeditor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextWatcher;
+import android.text.style.BackgroundColorSpan;
+import android.view.View;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.amrdeveloper.codeview.CodeView;
+import com.example.codeeditor.model.TextFinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+public class FindReplaceController {
+
+    private static final int COUNT_CHUNK = 256 * 1024;
+    private static final int MAX_VISIBLE_HIGHLIGHTS = 500;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final List<FindHighlightSpan> highlights = new ArrayList<>();
+    private static TextFinder finder;
+    private static int countGeneration;
+    private static Runnable pendingHighlight;
+
+    // Own span type, so only our highlights are removed again.
+    private static class FindHighlightSpan extends BackgroundColorSpan {
+        FindHighlightSpan(int color) {
+            super(color);
+        }
+    }
+
+    public static void findReplaceInitialization(MainActivity mainScreen) {
+        TextWatcher queryWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (isVisible(mainScreen)) {
+                    updateQuery(mainScreen);
+                }
+            }
+        };
+        ((EditText) mainScreen.findViewById(R.id.FindField)).addTextChangedListener(queryWatcher);
+        CompoundButton.OnCheckedChangeListener optionListener = new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                updateQuery(mainScreen);
+            }
+        };
+        ((CheckBox) mainScreen.findViewById(R.id.FindRegex)).setOnCheckedChangeListener(optionListener);
+        ((CheckBox) mainScreen.findViewById(R.id.FindMatchCase)).setOnCheckedChangeListener(optionListener);
+
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        codeView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (isVisible(mainScreen) && finder != null) {
+                    restartCount(mainScreen);
+                    scheduleHighlight(mainScreen);
+                }
+            }
+        });
+        codeView.setOnScrollChangeListener(new View.OnScrollChangeListener() {
+            @Override
+            public void onScrollChange(View v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+                if (isVisible(mainScreen)) {
+                    scheduleHighlight(mainScreen);
+                }
+            }
+        });
+
+        mainScreen.findViewById(R.id.FindNext).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                selectNext(true, mainScreen);
+            }
+        });
+        mainScreen.findViewById(R.id.FindPrevious).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                selectNext(false, mainScreen);
+            }
+        });
+        mainScreen.findViewById(R.id.FindReplace).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                replaceSelected(mainScreen);
+            }
+        });
+        mainScreen.findViewById(R.id.FindReplaceAll).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                replaceAll(mainScreen);
+            }
+        });
+        mainScreen.findViewById(R.id.FindUndo).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                CodeView codeView = mainScreen.findViewById(R.id.codeView);
+                codeView.onTextContextMenuItem(android.R.id.undo);
+            }
+        });
+        mainScreen.findViewById(R.id.FindClose).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                setDisabled(mainScreen);
+            }
+        });
+    }
+
+    public static void setEnabled(MainActivity mainScreen) {
+        mainScreen.findViewById(R.id.FindBarLayout).setVisibility(View.VISIBLE);
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        EditText findField = mainScreen.findViewById(R.id.FindField);
+        int start = codeView.getSelectionStart();
+        int end = codeView.getSelectionEnd();
+        if (start >= 0 && end > start && end - start < 200) {
+            findField.setText(codeView.getText().subSequence(start, end));
+        }
+        findField.requestFocus();
+        findField.selectAll();
+        updateQuery(mainScreen);
+    }
+
+    public static void setDisabled(MainActivity mainScreen) {
+        mainScreen.findViewById(R.id.FindBarLayout).setVisibility(View.GONE);
+        countGeneration++;
+        finder = null;
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        clearHighlights(codeView.getText());
+        ((TextView) mainScreen.findViewById(R.id.FindCount)).setText("");
+    }
+
+    private static boolean isVisible(MainActivity mainScreen) {
+        return mainScreen.findViewById(R.id.FindBarLayout).getVisibility() == View.VISIBLE;
+    }
+
+    private static void updateQuery(MainActivity mainScreen) {
+        String query = ((EditText) mainScreen.findViewById(R.id.FindField)).getText().toString();
+        boolean regex = ((CheckBox) mainScreen.findViewById(R.id.FindRegex)).isChecked();
+        boolean matchCase = ((CheckBox) mainScreen.findViewById(R.id.FindMatchCase)).isChecked();
+        TextView countView = mainScreen.findViewById(R.id.FindCount);
+        try {
+            finder = query.isEmpty() ? null : new TextFinder(query, regex, matchCase);
+        } catch (PatternSyntaxException e) {
+            finder = null;
+            countGeneration++;
+            countView.setText("Bad regex");
+            scheduleHighlight(mainScreen);
+            return;
+        }
+        restartCount(mainScreen);
+        scheduleHighlight(mainScreen);
+        if (finder != null) {
+            // Bring the first match at or after the caret into view while typing.
+            CodeView codeView = mainScreen.findViewById(R.id.codeView);
+            int[] match = finder.next(codeView.getText(), Math.max(0, codeView.getSelectionStart()), true);
+            if (match != null) {
+                codeView.bringPointIntoView(match[0]);
+            }
+        }
+    }
+
+    /**
+     * Counts in slices on the main thread, between frames, because the editor's Editable may
+     * only be read there; any text change starts over.
+     */
+    private static void restartCount(MainActivity mainScreen) {
+        int generation = ++countGeneration;
+        TextFinder current = finder;
+        TextView countView = mainScreen.findViewById(R.id.FindCount);
+        if (current == null) {
+            countView.setText("");
+            return;
+        }
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        TextFinder.Count count = new TextFinder.Count();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != countGeneration) {
+                    return;
+                }
+                boolean done = current.count(codeView.getText(), count, COUNT_CHUNK);
+                countView.setText(count.matches + (done ? "" : "+"));
+                if (!done) {
+                    handler.post(this);
+                }
+            }
+        });
+    }
+
+    private static void scheduleHighlight(MainActivity mainScreen) {
+        if (pendingHighlight != null) {
+            return;
+        }
+        pendingHighlight = new Runnable() {
+            @Override
+            public void run() {
+                pendingHighlight = null;
+                highlightViewport(mainScreen);
+            }
+        };
+        handler.post(pendingHighlight);
+    }
+
+    private static void highlightViewport(MainActivity mainScreen) {
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        Editable text = codeView.getText();
+        clearHighlights(text);
+        Layout layout = codeView.getLayout();
+        if (finder == null || layout == null || !isVisible(mainScreen)) {
+            return;
+        }
+        int top = Math.max(0, codeView.getScrollY() - codeView.getTotalPaddingTop());
+        int firstLine = layout.getLineForVertical(top);
+        int lastLine = layout.getLineForVertical(top + codeView.getHeight());
+        int[] matches = finder.findAll(text, layout.getLineStart(firstLine), layout.getLineEnd(lastLine),
+                MAX_VISIBLE_HIGHLIGHTS);
+        int color = mainScreen.getColor(R.color.find_highlight);
+        for (int i = 0; i < matches.length; i += 2) {
+            FindHighlightSpan span;
+            if (i / 2 < highlights.size()) {
+                span = highlights.get(i / 2);
+            } else {
+                span = new FindHighlightSpan(color);
+                highlights.add(span);
+            }
+            text.setSpan(span, matches[i], matches[i + 1], Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    private static void clearHighlights(Editable text) {
+        if (text == null) {
+            return;
+        }
+        for (FindHighlightSpan span : highlights) {
+            text.removeSpan(span);
+        }
+    }
+
+    private static void selectNext(boolean forward, MainActivity mainScreen) {
+        if (finder == null) {
+            return;
+        }
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        int from = forward ? codeView.getSelectionEnd() : codeView.getSelectionStart();
+        int[] match = finder.next(codeView.getText(), Math.max(0, from), forward);
+        if (match == null) {
+            Toast.makeText(mainScreen, "No matches", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        codeView.requestFocus();
+        codeView.setSelection(match[0], match[1]);
+        codeView.bringPointIntoView(match[0]);
+    }
+
+    private static void replaceSelected(MainActivity mainScreen) {
+        if (finder == null) {
+            return;
+        }
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        Editable text = codeView.getText();
+        int start = codeView.getSelectionStart();
+        int end = codeView.getSelectionEnd();
+        int[] match = start >= 0 ? finder.findAll(text, start, start + 1, 1) : new int[0];
+        if (match.length == 0 || match[1] != end) {
+            // Nothing selected yet: the first press only moves to the next match.
+            selectNext(true, mainScreen);
+            return;
+        }
+        String replacement = ((EditText) mainScreen.findViewById(R.id.ReplaceField)).getText().toString();
+        try {
+            replacement = finder.replacementFor(text, start, end, replacement);
+        } catch (RuntimeException e) {
+            Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        text.replace(start, end, replacement);
+        codeView.setSelection(start + replacement.length());
+        selectNext(true, mainScreen);
+    }
+
+    private static void replaceAll(MainActivity mainScreen) {
+        if (finder == null) {
+            return;
+        }
+        CodeView codeView = mainScreen.findViewById(R.id.codeView);
+        Editable text = codeView.getText();
+        String replacement = ((EditText) mainScreen.findViewById(R.id.ReplaceField)).getText().toString();
+        TextFinder.Replacement edit;
+        try {
+            edit = finder.replaceAll(text, replacement);
+        } catch (RuntimeException e) {
+            Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (edit == null) {
+            Toast.makeText(mainScreen, "No matches", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // One replace call: one text change for the highlighter and one undo step.
+        clearHighlights(text);
+        text.replace(edit.start, edit.end, edit.text);
+        codeView.setSelection(Math.min(text.length(), edit.start + edit.text.length()));
+        Toast.makeText(mainScreen, "Replaced " + edit.count + " occurrence(s)", Toast.LENGTH_SHORT).show();
+    }
+}
@@ -44,7 +44,13 @@ public class GitButton {
             gitFetch();
             return true;
         } else if (id == R.id.action_push) {
-            gitPush();
+            gitPush(mainScreen);
+            return true;
+        } else if (id == R.id.action_branches) {
+            gitBranches(mainScreen);
+            return true;
+        } else if (id == R.id.action_sparse_checkout) {
+            gitSparseCheckout(mainScreen);
             return true;
         } else if (id == R.id.action_clone) {
             gitClone(mainScreen);
@@ -60,7 +66,16 @@ public class GitButton {
     static private void gitFetch() {
     }
 
-    static private void gitPush() {
+    static private void gitPush(MainActivity mainScreen) {
+        GitController.gitPush(mainScreen);
+    }
+
+    static private void gitBranches(MainActivity mainScreen) {
+        GitController.gitShowBranches(mainScreen);
+    }
+
+    static private void gitSparseCheckout(MainActivity mainScreen) {
+        GitController.gitShowSparseCheckout(mainScreen);
     }
 
     static private void gitClone(MainActivity mainScreen) {
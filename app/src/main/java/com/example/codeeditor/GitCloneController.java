@@ -14,8 +14,9 @@ public class GitCloneController {
             @Override
             public void onClick(View v) {
                 String gitLink = GitCloneController.getEnteredText(mainScreen);
+                String sparsePaths = GitCloneController.getEnteredSparsePaths(mainScreen);
                 try {
-                    GitController.gitClone(gitLink, mainScreen);
+                    GitController.gitClone(gitLink, sparsePaths, mainScreen);
                 } catch (Exception e) {
                     GitCloneController.setError(e.getMessage(), mainScreen);
                 }
@@ -43,6 +44,12 @@ public class GitCloneController {
         mainScreen.findViewById(R.id.GitCloneEnterField).setEnabled(false);
         mainScreen.findViewById(R.id.GitCloneEnterField).setVisibility(View.INVISIBLE);
 
+        mainScreen.findViewById(R.id.GitCloneSparseBackground).setEnabled(false);
+        mainScreen.findViewById(R.id.GitCloneSparseBackground).setVisibility(View.INVISIBLE);
+
+        mainScreen.findViewById(R.id.GitCloneSparseField).setEnabled(false);
+        mainScreen.findViewById(R.id.GitCloneSparseField).setVisibility(View.INVISIBLE);
+
         mainScreen.findViewById(R.id.GitCloneButtonSubmit).setEnabled(false);
         mainScreen.findViewById(R.id.GitCloneButtonSubmit).setVisibility(View.INVISIBLE);
 
@@ -63,6 +70,12 @@ public class GitCloneController {
         mainScreen.findViewById(R.id.GitCloneEnterField).setEnabled(true);
         mainScreen.findViewById(R.id.GitCloneEnterField).setVisibility(View.VISIBLE);
 
+        mainScreen.findViewById(R.id.GitCloneSparseBackground).setEnabled(true);
+        mainScreen.findViewById(R.id.GitCloneSparseBackground).setVisibility(View.VISIBLE);
+
+        mainScreen.findViewById(R.id.GitCloneSparseField).setEnabled(true);
+        mainScreen.findViewById(R.id.GitCloneSparseField).setVisibility(View.VISIBLE);
+
         mainScreen.findViewById(R.id.GitCloneButtonSubmit).setEnabled(true);
         mainScreen.findViewById(R.id.GitCloneButtonSubmit).setVisibility(View.VISIBLE);
 
@@ -82,4 +95,9 @@ public class GitCloneController {
         TextInputEditText textInputer = mainScreen.findViewById(R.id.GitCloneEnterField);
         return Objects.requireNonNull(textInputer.getText()).toString();
     }
+
+    public static String getEnteredSparsePaths(MainActivity mainScreen){
+        TextInputEditText textInputer = mainScreen.findViewById(R.id.GitCloneSparseField);
+        return Objects.requireNonNull(textInputer.getText()).toString();
+    }
 }
@@ -1,60 +1,503 @@
 package com.example.codeeditor;
+import android.app.AlertDialog;
 import android.content.Context;
-import android.os.AsyncTask;
+import android.content.DialogInterface;
+import android.text.InputType;
 import android.util.Log;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.codeeditor.model.BranchSwitcher;
+import com.example.codeeditor.model.FileOperationQueue;
+import com.example.codeeditor.model.PushOperation;
+import com.example.codeeditor.model.SparseCheckout;
+import com.example.codeeditor.model.TrigramIndex;
+
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GitController {
 
+    // Repository reads and pushes, one at a time; work that changes the tree goes through FileOperationQueue.
+    private static final ExecutorService gitExecutor = Executors.newSingleThreadExecutor();
+
     public static void gitClone(String gitLink, MainActivity mainScreen) throws Exception {
+        gitClone(gitLink, "", mainScreen);
+    }
+
+    public static void gitClone(String gitLink, String sparsePaths, MainActivity mainScreen) throws Exception {
         if(gitLink.lastIndexOf('/') == -1 || gitLink.lastIndexOf('.') == -1) throw new Exception("Invalid format for git link");
         String gitName = gitLink.substring(gitLink.lastIndexOf('/') + 1, gitLink.lastIndexOf('.'));
+        List<String> sparsePatterns = SparseCheckout.parsePatterns(sparsePaths);
 
-        try {
-            new AsyncTask<Void, Void, String>() {
-                @Override
-                protected String doInBackground(Void... voids) {
-                    File directory = mainScreen.getFilesDir();
-                    File newDirectory = new File(directory, "Projects");
-                    File newProjectDirectory = new File(newDirectory, gitName);
-                    try {
-                        Git git = Git.cloneRepository()
-                                .setDirectory(newProjectDirectory)
-                                .setURI(gitLink)
-                                .setCloneAllBranches(true)
-                                .setTagOption(TagOpt.FETCH_TAGS)
-                                .call();
-                    } catch (Exception e) {
-                        return e.getMessage();
-                    }
-                    return "Git Clone Succeeded";
-                }
-
-                @Override
-                protected void onPostExecute(String result) {
-                    Toast.makeText(mainScreen, result, Toast.LENGTH_SHORT).show();
-                    if(result.equals("Git Clone Succeeded")) {
+        File directory = mainScreen.getFilesDir();
+        File newDirectory = new File(directory, "Projects");
+        File newProjectDirectory = new File(newDirectory, gitName);
+        Toast.makeText(mainScreen, "Cloning " + gitName + "...", Toast.LENGTH_SHORT).show();
+        FileOperationQueue.shared().submit("Clone " + gitName, FileOperationQueue.Priority.BACKGROUND,
+                newProjectDirectory, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                PushOperation.Monitor[] monitor = new PushOperation.Monitor[1];
+                monitor[0] = new PushOperation.Monitor(new PushOperation.Listener() {
+                    @Override
+                    public void onProgress(String task, int done, int total) {
+                        ticket.setProgress(done, Math.max(0, total), task);
+                        if (ticket.isCancelled()) {
+                            monitor[0].cancel();
+                        }
+                    }
+                });
+                Git git = Git.cloneRepository()
+                        .setDirectory(newProjectDirectory)
+                        .setURI(gitLink)
+                        .setCloneAllBranches(true)
+                        .setTagOption(TagOpt.FETCH_TAGS)
+                        .setNoCheckout(!sparsePatterns.isEmpty())
+                        .setProgressMonitor(monitor[0])
+                        .call();
+                git.close();
+                // A project cloned into the same folder before must not reuse the old search index.
+                TrigramIndex.delete(TrigramIndex.directoryFor(mainScreen.getNoBackupFilesDir(), newProjectDirectory));
+                if (!sparsePatterns.isEmpty()) {
+                    SparseCheckout.writePatterns(newProjectDirectory, sparsePatterns);
+                    SparseCheckout.apply(newProjectDirectory, sparsePatterns);
+                }
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ticket.getState() != FileOperationQueue.State.DONE) {
+                            Toast.makeText(mainScreen, ticket.getError() == null ? "Clone cancelled"
+                                    : ticket.getError().getMessage(), Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        Toast.makeText(mainScreen, "Git Clone Succeeded", Toast.LENGTH_SHORT).show();
                         try {
                             mainScreen.setCurrentProjectPath("Projects/" + gitName);
                         } catch (Exception e) {
                             return;
                         }
                     }
+                });
+            }
+        });
+    }
+
+    public static void gitFetch(String gitLink, MainActivity mainScreen){
+
+    }
+
+    public static void gitPush(MainActivity mainScreen) {
+        File projectRoot = getProjectRoot(mainScreen);
+        if (projectRoot == null) {
+            Toast.makeText(mainScreen, "Open a project first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        gitExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                PushOperation.AheadBehind aheadBehind;
+                try {
+                    aheadBehind = PushOperation.aheadBehind(projectRoot);
+                } catch (Exception e) {
+                    mainScreen.runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                    return;
+                }
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        showPushDialog(projectRoot, aheadBehind, mainScreen);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void showPushDialog(File projectRoot, PushOperation.AheadBehind aheadBehind, MainActivity mainScreen) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Push to " + aheadBehind.remote);
+        String message = aheadBehind.toString();
+        if (aheadBehind.behind > 0) {
+            message += "\nFetch and merge first, or the push will be rejected.";
+        }
+        builder.setMessage(message + "\n\nCredentials (optional - for HTTPS):");
+
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        final EditText username = new EditText(mainScreen);
+        username.setHint("Username");
+        username.setInputType(InputType.TYPE_CLASS_TEXT);
+        final EditText password = new EditText(mainScreen);
+        password.setHint("Password / Token");
+        password.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD);
+        layout.addView(username);
+        layout.addView(password);
+        builder.setView(layout);
+
+        builder.setPositiveButton("Push", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                CredentialsProvider credentials = null;
+                String user = username.getText().toString().trim();
+                String pass = password.getText().toString();
+                if (!user.isEmpty() && !pass.isEmpty()) {
+                    credentials = new UsernamePasswordCredentialsProvider(user, pass);
+                }
+                runPush(projectRoot, credentials, mainScreen);
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private static void runPush(File projectRoot, CredentialsProvider credentials, MainActivity mainScreen) {
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        layout.setPadding(padding, padding, padding, 0);
+        final TextView status = new TextView(mainScreen);
+        status.setText("Connecting...");
+        final ProgressBar progressBar = new ProgressBar(mainScreen, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setIndeterminate(true);
+        layout.addView(status);
+        layout.addView(progressBar);
+
+        final PushOperation.Monitor monitor = new PushOperation.Monitor(new PushOperation.Listener() {
+            @Override
+            public void onProgress(String task, int done, int total) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (total > 0) {
+                            status.setText(task + ": " + done + "/" + total);
+                            progressBar.setIndeterminate(false);
+                            progressBar.setMax(total);
+                            progressBar.setProgress(done);
+                        } else {
+                            status.setText(task + ": " + done);
+                            progressBar.setIndeterminate(true);
+                        }
+                    }
+                });
+            }
+        });
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Pushing...");
+        builder.setView(layout);
+        builder.setCancelable(false);
+        builder.setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                monitor.cancel();
+            }
+        });
+        AlertDialog dialog = builder.show();
+
+        gitExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                String result;
+                try {
+                    result = PushOperation.push(projectRoot, credentials, monitor);
+                } catch (Exception e) {
+                    String msg = e.getMessage();
+                    if (msg != null && msg.contains("not authorized")) {
+                        result = "Authentication failed. Check username/token.";
+                    } else {
+                        result = "Git push error: " + (msg != null ? msg : e.getClass().getSimpleName());
+                    }
+                }
+                if (result.equals(PushOperation.SUCCESS)) {
+                    result += " (" + (System.currentTimeMillis() - start) + " ms)";
+                }
+                final String message = result;
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        dialog.dismiss();
+                        Toast.makeText(mainScreen, message, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+    }
+
+    public static void gitShowBranches(MainActivity mainScreen) {
+        File projectRoot = getProjectRoot(mainScreen);
+        if (projectRoot == null) {
+            Toast.makeText(mainScreen, "Open a project first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        gitExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<String> branches;
+                String current;
+                try {
+                    branches = BranchSwitcher.listBranches(projectRoot);
+                    current = BranchSwitcher.currentBranch(projectRoot);
+                } catch (Exception e) {
+                    mainScreen.runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                    return;
                 }
-            }.execute();
-        }catch (Exception e) {
-            Toast.makeText(mainScreen, "Clone Error", Toast.LENGTH_SHORT).show();
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        showBranchDialog(branches, current, mainScreen);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void showBranchDialog(List<String> branches, String current, MainActivity mainScreen) {
+        CharSequence[] items = new CharSequence[branches.size() + 1];
+        items[0] = "+ New branch";
+        for (int i = 0; i < branches.size(); i++) {
+            String branch = branches.get(i);
+            items[i + 1] = branch.equals(current) ? "* " + branch : branch;
         }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Branches");
+        builder.setItems(items, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                if (which == 0) {
+                    showNewBranchDialog(mainScreen);
+                    return;
+                }
+                String branch = branches.get(which - 1);
+                if (!branch.equals(current)) {
+                    gitSwitchBranch(branch, false, mainScreen);
+                }
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
     }
 
-    public static void gitFetch(String gitLink, MainActivity mainScreen){
+    private static void showNewBranchDialog(MainActivity mainScreen) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Enter branch name:");
 
+        final EditText input = new EditText(mainScreen);
+        input.setInputType(InputType.TYPE_CLASS_TEXT);
+        builder.setView(input);
+
+        builder.setPositiveButton("Create", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                String branch = input.getText().toString().trim();
+                if (branch.isEmpty()) {
+                    Toast.makeText(mainScreen, "Please enter a branch name", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                gitSwitchBranch(branch, true, mainScreen);
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    public static void gitSwitchBranch(String branch, boolean create, MainActivity mainScreen) {
+        File projectRoot = getProjectRoot(mainScreen);
+        if (projectRoot == null) {
+            Toast.makeText(mainScreen, "Open a project first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // Flush the open buffer so the conflict check sees unsaved edits instead of overwriting them.
+        if (mainScreen.getCurrentFileName() != null) {
+            FilesController.saveFile(mainScreen.getCurrentFileName(), CodeEditorController.getCode(mainScreen), mainScreen);
+        }
+
+        // Queued on the project root, so it waits for the save above and any copy into the project.
+        final BranchSwitcher.SwitchResult[] result = new BranchSwitcher.SwitchResult[1];
+        FileOperationQueue.shared().submit("Switch to " + branch, FileOperationQueue.Priority.BACKGROUND,
+                projectRoot, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                result[0] = create
+                        ? BranchSwitcher.createBranch(projectRoot, branch)
+                        : BranchSwitcher.switchBranch(projectRoot, branch);
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ticket.getError() != null) {
+                            Toast.makeText(mainScreen, "Switch failed: " + ticket.getError().getMessage(),
+                                    Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        if (result[0] == null) {
+                            return;
+                        }
+                        // Folders may have come and gone with the checkout.
+                        FilesController.invalidatePath(projectRoot, mainScreen);
+                        reloadAffectedBuffers(result[0], mainScreen);
+                        DirectoryTreeController.rebuildSearchIndex();
+                        Toast.makeText(mainScreen, "Switched to " + result[0].branch + ": "
+                                + result[0].touchedFiles() + " file(s) updated in "
+                                + result[0].elapsedMillis + " ms", Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+    }
+
+    private static void reloadAffectedBuffers(BranchSwitcher.SwitchResult result, MainActivity mainScreen) {
+        File gitRoot = result.gitRoot;
+        String currentFileName = mainScreen.getCurrentFileName();
+        try {
+            if (currentFileName != null) {
+                String openPath = new File(mainScreen.getFilesDir(), currentFileName).getAbsolutePath();
+                if (containsPath(result.removedPaths, gitRoot, openPath)) {
+                    mainScreen.setCurrentFileName(null);
+                } else if (containsPath(result.updatedPaths, gitRoot, openPath)) {
+                    mainScreen.setCurrentFileName(currentFileName);
+                }
+            }
+            if (result.touchedFiles() > 0) {
+                mainScreen.setCurrentProjectPath(mainScreen.getCurrentProjectPath());
+            }
+        } catch (Exception e) {
+            Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private static boolean containsPath(List<String> repoPaths, File gitRoot, String absolutePath) {
+        String rootPath = gitRoot.getAbsolutePath() + File.separator;
+        if (!absolutePath.startsWith(rootPath)) {
+            return false;
+        }
+        return repoPaths.contains(absolutePath.substring(rootPath.length()));
+    }
+
+    public static void gitShowSparseCheckout(MainActivity mainScreen) {
+        File projectRoot = getProjectRoot(mainScreen);
+        if (projectRoot == null || !new File(projectRoot, ".git").isDirectory()) {
+            Toast.makeText(mainScreen, "Open a repository root first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Sparse checkout paths (one per line, empty for all):");
+
+        final EditText input = new EditText(mainScreen);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE);
+        try {
+            input.setText(String.join("\n", SparseCheckout.readPatterns(projectRoot)));
+        } catch (IOException e) {
+            // Left empty; applying replaces the patterns that could not be read.
+            builder.setMessage(e.getMessage());
+        }
+        builder.setView(input);
+
+        builder.setPositiveButton("Apply", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                List<String> patterns;
+                try {
+                    patterns = SparseCheckout.parsePatterns(input.getText().toString());
+                } catch (IllegalArgumentException e) {
+                    Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_LONG).show();
+                    return;
+                }
+                gitApplySparseCheckout(patterns, mainScreen);
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    public static void gitApplySparseCheckout(List<String> patterns, MainActivity mainScreen) {
+        File projectRoot = getProjectRoot(mainScreen);
+        if (projectRoot == null) {
+            return;
+        }
+        // Flush the open buffer so an unsaved edit keeps its file instead of being removed with it.
+        if (mainScreen.getCurrentFileName() != null) {
+            FilesController.saveFile(mainScreen.getCurrentFileName(), CodeEditorController.getCode(mainScreen), mainScreen);
+        }
+
+        // Queued on the project root, like a branch switch, since it writes and deletes across the tree.
+        final SparseCheckout.Result[] result = new SparseCheckout.Result[1];
+        FileOperationQueue.shared().submit("Sparse checkout", FileOperationQueue.Priority.BACKGROUND,
+                projectRoot, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                SparseCheckout.writePatterns(projectRoot, patterns);
+                result[0] = SparseCheckout.apply(projectRoot, patterns);
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ticket.getError() != null) {
+                            Toast.makeText(mainScreen, "Sparse checkout failed: " + ticket.getError().getMessage(),
+                                    Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        if (result[0] == null) {
+                            return;
+                        }
+                        String message = "Checked out " + result[0].materialized + " file(s), removed "
+                                + result[0].removed;
+                        if (!result[0].keptModified.isEmpty()) {
+                            message += ", kept " + result[0].keptModified.size() + " modified file(s)";
+                        }
+                        Toast.makeText(mainScreen, message, Toast.LENGTH_LONG).show();
+                        FilesController.invalidatePath(projectRoot, mainScreen);
+                        try {
+                            mainScreen.setCurrentProjectPath(mainScreen.getCurrentProjectPath());
+                        } catch (Exception e) {
+                            return;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static File getProjectRoot(MainActivity mainScreen) {
+        String projectPath = mainScreen.getCurrentProjectPath();
+        if (projectPath == null) {
+            return null;
+        }
+        return FilesController.getFileByPath(projectPath, mainScreen);
     }
 }
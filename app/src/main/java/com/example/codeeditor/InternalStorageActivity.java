@@ -3,47 +3,66 @@ package com.example.codeeditor;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.Manifest;
 import android.app.AlertDialog;
+import android.content.ClipData;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.UriPermission;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
-import android.graphics.Paint;
-import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
-import android.provider.MediaStore;
 import android.text.InputType;
 import android.util.Log;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.codeeditor.model.CopyEngine;
+import com.example.codeeditor.model.DirectoryEnumerator;
+import com.example.codeeditor.model.DocumentImportJob;
+import com.example.codeeditor.model.FileOperationQueue;
+import com.example.codeeditor.model.PathResolver;
+import com.example.codeeditor.model.TrashBin;
+import com.example.codeeditor.model.TreeCopyJob;
+import com.google.android.material.snackbar.Snackbar;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 public class InternalStorageActivity extends AppCompatActivity {
     private String currentDisplayedPath = null;
     private String copyDestinationPath = null;
+    // Bumped per listing, so batches of a folder the user already left are dropped.
+    private int listingGeneration;
+    private int folderListingGeneration;
 
     private static final int READ_REQUEST_CODE = 42;
+    private static final int OPEN_TREE_REQUEST_CODE = 43;
+    private static final int IMPORT_PARALLELISM = 2;
+    private static final String IMPORT_PREFERENCES = "Imports";
+    private static final String PENDING_TREE_IMPORT = "pendingTreeImport";
+    private static final String IMPORT_LABEL = "Import to Local Files";
     private static final int MY_PERMISSIONS_REQUEST_READ_EXTERNAL_STORAGE = 123;
 
 
     Button backButton;
-    private LinearLayout layout;
+    private StorageEntryAdapter entryAdapter;
     private LinearLayout layoutSmall;
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -93,8 +112,25 @@ public class InternalStorageActivity extends AppCompatActivity {
         });
 
 
-        layout = findViewById(R.id.filesLayout);
+        entryAdapter = new StorageEntryAdapter(this, new StorageEntryAdapter.OnEntryClickListener() {
+            @Override
+            public void onEntryClick(DirectoryEnumerator.Entry entry) {
+                if (entry.directory) {
+                    currentDisplayedPath = entry.file.getPath();
+                    generateAvailableFiles(entry.file);
+                }
+            }
+
+            @Override
+            public void onEntryLongClick(DirectoryEnumerator.Entry entry) {
+                showFileOptions(entry.file);
+            }
+        });
+        RecyclerView filesList = findViewById(R.id.filesList);
+        filesList.setLayoutManager(new LinearLayoutManager(this));
+        filesList.setAdapter(entryAdapter);
         generateAvailableFiles(new File(getFilesDir().getPath()));
+        offerPendingImport();
     }
 
     private void showCreateFileDialog() {
@@ -154,7 +190,7 @@ public class InternalStorageActivity extends AppCompatActivity {
                     File newFolder = new File(currentDisplayedPath, newFolderName);
                     if (newFolder.mkdir()) {
                         Toast.makeText(InternalStorageActivity.this, "Folder created: " + newFolderName, Toast.LENGTH_SHORT).show();
-                        generateAvailableFiles(new File(currentDisplayedPath));
+                        refreshCurrentFolder();
                     } else {
                         Toast.makeText(InternalStorageActivity.this, "Failed to create folder", Toast.LENGTH_SHORT).show();
                     }
@@ -174,33 +210,61 @@ public class InternalStorageActivity extends AppCompatActivity {
         generateAvailableFiles(new File(currentDisplayedPath));
     }
 
+    // After our own changes; a same-tick edit may leave the folder's mtime unchanged.
+    private void refreshCurrentFolder() {
+        File directory = new File(currentDisplayedPath);
+        DirectoryEnumerator.shared().invalidate(directory);
+        generateAvailableFiles(directory);
+    }
+
     public void generateAvailableFiles(File directory) {
-        layout.removeAllViews();
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if(file.isDirectory()) {
-                    addViewToLayout(createFileButton(file.getName(), file));
+        int generation = ++listingGeneration;
+        List<DirectoryEnumerator.Entry> listing = new ArrayList<>();
+        DirectoryEnumerator.shared().enumerate(directory, null, getMainExecutor(), new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                if (generation != listingGeneration) {
+                    return;
                 }
-            }
-            for (File file : files) {
-                if(!file.isDirectory()) {
-                    addViewToLayout(createFileButton(file.getName(), file));
+                listing.addAll(entries);
+                if (!last) {
+                    return;
+                }
+                List<DirectoryEnumerator.Entry> sorted = new ArrayList<>(listing.size());
+                for (DirectoryEnumerator.Entry entry : listing) {
+                    if (entry.directory) {
+                        sorted.add(entry);
+                    }
+                }
+                for (DirectoryEnumerator.Entry entry : listing) {
+                    if (!entry.directory) {
+                        sorted.add(entry);
+                    }
                 }
+                entryAdapter.setEntries(sorted);
             }
-        }
+        });
     }
 
     public void generateAvailableFoldersOnChooseForCopy(File directory) {
+        int generation = ++folderListingGeneration;
         layoutSmall.removeAllViews();
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    layoutSmall.addView(createFolderButtonOnChooseForCopy(file));
+        DirectoryEnumerator.shared().enumerate(directory, new Predicate<DirectoryEnumerator.Entry>() {
+            @Override
+            public boolean test(DirectoryEnumerator.Entry entry) {
+                return entry.directory;
+            }
+        }, getMainExecutor(), new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                if (generation != folderListingGeneration) {
+                    return;
+                }
+                for (DirectoryEnumerator.Entry entry : entries) {
+                    layoutSmall.addView(createFolderButtonOnChooseForCopy(entry.file));
                 }
             }
-        }
+        });
     }
 
     private Button createFolderButtonOnChooseForCopy(File file) {
@@ -219,86 +283,93 @@ public class InternalStorageActivity extends AppCompatActivity {
     }
 
     private void copyFolder(File sourceFolder, File destinationFolder) {
-       if (sourceFolder.isDirectory()) {
-            File newDestinationFolder = new File(destinationFolder, sourceFolder.getName());
-            newDestinationFolder.mkdir();
-
-            String[] files = sourceFolder.list();
-
-            for (String file : files) {
-                File srcFile = new File(sourceFolder, file);
-                File destFile = new File(newDestinationFolder, file);
-
-                copyFolder(srcFile, destFile);
-            }
-        } else {
-            try {
-                if (destinationFolder.isDirectory()) {
-                    destinationFolder = new File(destinationFolder, sourceFolder.getName());
-                }
-                FileInputStream in = new FileInputStream(sourceFolder);
-                FileOutputStream out = new FileOutputStream(destinationFolder);
+        LinearLayout progressLayout = new LinearLayout(this);
+        progressLayout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        progressLayout.setPadding(padding, padding, padding, 0);
+        final TextView status = new TextView(this);
+        status.setText("Waiting for other file operations...");
+        final ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(1000);
+        progressLayout.addView(status);
+        progressLayout.addView(progressBar);
 
-                byte[] buffer = new byte[1024];
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Copying " + sourceFolder.getName());
+        builder.setView(progressLayout);
+        builder.setCancelable(false);
+        builder.setNegativeButton("Cancel", null);
+        AlertDialog progressDialog = builder.show();
 
-                int length;
-                while ((length = in.read(buffer)) > 0) {
-                    out.write(buffer, 0, length);
-                }
+        final TreeCopyJob.Progress[] finalProgress = new TreeCopyJob.Progress[1];
+        final IOException[] copyError = new IOException[1];
+        FileOperationQueue.Task task = new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) {
+                new TreeCopyJob(sourceFolder, destinationFolder, TreeCopyJob.parallelismFor(destinationFolder),
+                        new TreeCopyJob.Listener() {
+                    @Override
+                    public void onProgress(TreeCopyJob.Progress progress) {
+                        ticket.setProgress(progress.permille(), 1000, progress.describe());
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                status.setText(progress.describe());
+                                progressBar.setProgress(progress.permille());
+                            }
+                        });
+                    }
 
-                in.close();
-                out.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                    @Override
+                    public void onFinished(TreeCopyJob.Progress progress, File target, IOException error,
+                                           boolean cancelled) {
+                        finalProgress[0] = progress;
+                        copyError[0] = error;
+                    }
+                }).run();
             }
-        }
-    }
-
-    private Button createFileButton(String fileName, File file) {
-        Button button = new Button(this);
-        button.setText(fileName);
-        button.setAllCaps(false);
-        button.setBackgroundResource(android.R.drawable.btn_default);
-
-        if (file.isDirectory()) {
-            Drawable contactCardIcon = getResources().getDrawable(android.R.drawable.sym_contact_card);
-            contactCardIcon.setBounds(0, 0, contactCardIcon.getIntrinsicWidth(), contactCardIcon.getIntrinsicHeight());
-            button.setCompoundDrawablesRelative(contactCardIcon, null, null, null);
-        }
-
-        int paddingHorizontal = 12;
-        int paddingVertical = 8;
-        button.setPadding(paddingHorizontal, paddingVertical, paddingHorizontal, paddingVertical);
-
-        Paint textPaint = button.getPaint();
-        int textWidth = (int) textPaint.measureText(fileName) * 2;
-        int extraWidth = 32;
-        int buttonWidth = textWidth + extraWidth;
-
-        ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(buttonWidth, ViewGroup.LayoutParams.WRAP_CONTENT);
-        button.setLayoutParams(params);
-
-        button.setOnClickListener(new View.OnClickListener() {
+        };
+        FileOperationQueue.Ticket copyTicket = FileOperationQueue.shared().submit("Copy " + sourceFolder.getName(),
+                FileOperationQueue.Priority.BACKGROUND,
+                Arrays.asList(sourceFolder, new File(destinationFolder, sourceFolder.getName())), task,
+                new FileOperationQueue.Callback() {
             @Override
-            public void onClick(View v) {
-                if (file.isDirectory()) {
-                    currentDisplayedPath = file.getPath();
-                    generateAvailableFiles(file);
-                } else {
-//                    openFileEditor(fileName);
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                IOException error = copyError[0];
+                if (error != null) {
+                    error.printStackTrace();
                 }
+                TreeCopyJob.Progress progress = finalProgress[0];
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        progressDialog.dismiss();
+                        String message;
+                        if (error != null) {
+                            message = "Copy failed: " + error.getMessage();
+                        } else if (ticket.isCancelled() || progress == null) {
+                            message = "Copy cancelled";
+                        } else {
+                            message = "Copied " + progress.files + " files, " + CopyEngine.formatBytes(progress.bytes)
+                                    + " at " + CopyEngine.formatBytes(progress.bytesPerSecond) + "/s";
+                            if (progress.skipped > 0) {
+                                message += ", skipped " + progress.skipped + " that cannot be copied here";
+                            }
+                        }
+                        Toast.makeText(InternalStorageActivity.this, message, Toast.LENGTH_SHORT).show();
+                        refreshCurrentFolder();
+                    }
+                });
             }
         });
-
-        button.setOnLongClickListener(new View.OnLongClickListener() {
+        progressDialog.getButton(AlertDialog.BUTTON_NEGATIVE).setOnClickListener(new View.OnClickListener() {
             @Override
-            public boolean onLongClick(View v) {
-                showFileOptions(file);
-                return true;
+            public void onClick(View v) {
+                status.setText("Cancelling...");
+                // Interrupting the job's thread makes it stop its workers and remove the partial copy.
+                copyTicket.cancel();
             }
         });
-
-        return button;
     }
 
     private void showFileOptions(final File file) {
@@ -338,7 +409,6 @@ public class InternalStorageActivity extends AppCompatActivity {
         builder.setPositiveButton("OK", new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                Toast.makeText(InternalStorageActivity.this, "Copying...", Toast.LENGTH_SHORT).show();
                 copyFolder(sourse, new File(copyDestinationPath));
             }
         });
@@ -370,10 +440,6 @@ public class InternalStorageActivity extends AppCompatActivity {
 //        Toast.makeText(InternalStorageActivity.this, "TODO", Toast.LENGTH_SHORT).show();
 //    }
 
-    private void addViewToLayout(View view) {
-        layout.addView(view);
-    }
-
     private void createFile(String fileName) {
         File newFile = new File(currentDisplayedPath, fileName);
         if (newFile.exists()) {
@@ -406,12 +472,48 @@ public class InternalStorageActivity extends AppCompatActivity {
         builder.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                if (file.delete()) {
-                    Toast.makeText(InternalStorageActivity.this, "File deleted", Toast.LENGTH_SHORT).show();
-                    generateAvailableFiles(new File(currentDisplayedPath));
-                } else {
-                    Toast.makeText(InternalStorageActivity.this, "Failed to delete file", Toast.LENGTH_SHORT).show();
-                }
+                TrashBin trashBin = TrashBin.shared(getDir("trash", MODE_PRIVATE));
+                TrashBin.Callback onPurged = new TrashBin.Callback() {
+                    @Override
+                    public void onPurged(File original, boolean success) {
+                        if (!success) {
+                            runOnUiThread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    Toast.makeText(InternalStorageActivity.this, "Failed to delete " + original.getName(),
+                                            Toast.LENGTH_SHORT).show();
+                                    refreshCurrentFolder();
+                                }
+                            });
+                        }
+                    }
+                };
+                final TrashBin.Entry[] entry = new TrashBin.Entry[1];
+                // The rename is quick and the user is waiting on it, so it shares the save lane.
+                FileOperationQueue.shared().submit("Delete " + file.getName(), FileOperationQueue.Priority.SAVE, file,
+                        new FileOperationQueue.Task() {
+                    @Override
+                    public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                        entry[0] = trashBin.moveToTrash(file, onPurged);
+                        PathResolver.shared(getFilesDir()).invalidate(file);
+                    }
+                }, new FileOperationQueue.Callback() {
+                    @Override
+                    public void onFinished(FileOperationQueue.Ticket ticket) {
+                        if (entry[0] == null) {
+                            // Not on the same volume as the trash, so it cannot be undone.
+                            deleteInBackground(file, trashBin);
+                            return;
+                        }
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                refreshCurrentFolder();
+                                showUndoDelete(entry[0], trashBin);
+                            }
+                        });
+                    }
+                });
             }
         });
         builder.setNegativeButton("No", null);
@@ -420,11 +522,69 @@ public class InternalStorageActivity extends AppCompatActivity {
 
 
 
+    private void deleteInBackground(File file, TrashBin trashBin) {
+        FileOperationQueue.shared().submit("Delete " + file.getName(), FileOperationQueue.Priority.BACKGROUND, file,
+                new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                PathResolver.shared(getFilesDir()).invalidate(file);
+                if (!trashBin.purge(file)) {
+                    throw new IOException("Failed to delete " + file.getName());
+                }
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ticket.getError() != null) {
+                            Toast.makeText(InternalStorageActivity.this, ticket.getError().getMessage(),
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                        refreshCurrentFolder();
+                    }
+                });
+            }
+        });
+    }
+
+    private void showUndoDelete(TrashBin.Entry entry, TrashBin trashBin) {
+        Snackbar.make(findViewById(android.R.id.content), entry.original.getName() + " deleted", Snackbar.LENGTH_LONG)
+                .setAction("Undo", new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        try {
+                            if (!trashBin.restore(entry)) {
+                                Toast.makeText(InternalStorageActivity.this, "Too late to undo", Toast.LENGTH_SHORT).show();
+                            }
+                        } catch (IOException e) {
+                            Toast.makeText(InternalStorageActivity.this, "Cannot undo: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                        refreshCurrentFolder();
+                    }
+                })
+                .show();
+    }
+
     private void openFileExplorer() {
-        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
-        intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("*/*");
-        startActivityForResult(intent, READ_REQUEST_CODE);
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Import from device");
+        builder.setItems(new CharSequence[]{"Files", "Folder"}, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                if (which == 0) {
+                    Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType("*/*");
+                    intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+                    startActivityForResult(intent, READ_REQUEST_CODE);
+                } else {
+                    startActivityForResult(new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE), OPEN_TREE_REQUEST_CODE);
+                }
+            }
+        });
+        builder.show();
 
         if (ContextCompat.checkSelfPermission(this,
                 android.Manifest.permission.READ_EXTERNAL_STORAGE)
@@ -438,57 +598,200 @@ public class InternalStorageActivity extends AppCompatActivity {
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null) {
+            return;
+        }
 
-        if (requestCode == READ_REQUEST_CODE && resultCode == RESULT_OK) {
-            Uri uri = data.getData();
-            if (uri != null) {
-                copyFileToInternalStorage(uri);
+        if (requestCode == READ_REQUEST_CODE) {
+            List<Uri> uris = new ArrayList<>();
+            ClipData clipData = data.getClipData();
+            if (clipData != null) {
+                for (int i = 0; i < clipData.getItemCount(); i++) {
+                    uris.add(clipData.getItemAt(i).getUri());
+                }
+            } else if (data.getData() != null) {
+                uris.add(data.getData());
+            }
+            if (!uris.isEmpty()) {
+                importDocuments(uris, null);
+            }
+        } else if (requestCode == OPEN_TREE_REQUEST_CODE && data.getData() != null) {
+            Uri treeUri = data.getData();
+            try {
+                // Keeps read access across restarts, so an interrupted import can be resumed.
+                getContentResolver().takePersistableUriPermission(treeUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                getSharedPreferences(IMPORT_PREFERENCES, MODE_PRIVATE).edit()
+                        .putString(PENDING_TREE_IMPORT, treeUri.toString()).apply();
+            } catch (SecurityException e) {
+                Log.w("InternalStorage", "No persistable access to " + treeUri, e);
             }
+            importDocuments(Collections.singletonList(treeUri), treeUri);
         }
     }
 
-    private void copyFileToInternalStorage(Uri uri) {
-        try {
-            InputStream inputStream = getContentResolver().openInputStream(uri);
-            String fileName = getFileNameFromUri(uri);
-
-            File localFilesFolder = new File(getFilesDir(), "Local Files");
-            if (!localFilesFolder.exists()) {
-                localFilesFolder.mkdir();
-            }
-            File internalFile = new File(localFilesFolder.getPath(), fileName);
-            OutputStream outputStream = new FileOutputStream(internalFile);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
-            inputStream.close();
-            outputStream.close();
-            Toast.makeText(this, "File copied to internal storage", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error copying file", Toast.LENGTH_SHORT).show();
+    private void offerPendingImport() {
+        SharedPreferences preferences = getSharedPreferences(IMPORT_PREFERENCES, MODE_PRIVATE);
+        String pending = preferences.getString(PENDING_TREE_IMPORT, null);
+        if (pending == null) {
+            return;
+        }
+        for (FileOperationQueue.Ticket ticket : FileOperationQueue.shared().snapshot()) {
+            FileOperationQueue.State state = ticket.getState();
+            if (ticket.label.equals(IMPORT_LABEL)
+                    && (state == FileOperationQueue.State.QUEUED || state == FileOperationQueue.State.RUNNING)) {
+                // Still going, e.g. the screen was recreated on rotation.
+                return;
+            }
         }
+        Uri treeUri = Uri.parse(pending);
+        boolean readable = false;
+        for (UriPermission permission : getContentResolver().getPersistedUriPermissions()) {
+            readable |= permission.getUri().equals(treeUri) && permission.isReadPermission();
+        }
+        if (!readable) {
+            forgetPendingImport(treeUri);
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Resume import?")
+                .setMessage("Importing " + treeUri.getLastPathSegment() + " did not finish.")
+                .setPositiveButton("Resume", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        importDocuments(Collections.singletonList(treeUri), treeUri);
+                    }
+                })
+                .setNegativeButton("Discard", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        checkpointFor(Collections.singletonList(treeUri)).delete();
+                        forgetPendingImport(treeUri);
+                    }
+                })
+                .show();
     }
 
-
-    private String getFileNameFromUri(Uri uri) {
-        Cursor cursor = null;
+    private void forgetPendingImport(Uri treeUri) {
+        getSharedPreferences(IMPORT_PREFERENCES, MODE_PRIVATE).edit().remove(PENDING_TREE_IMPORT).apply();
         try {
-            String[] projection = {MediaStore.MediaColumns.DISPLAY_NAME};
-            cursor = getContentResolver().query(uri, projection, null, null, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                int columnIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DISPLAY_NAME);
-                return cursor.getString(columnIndex);
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+            getContentResolver().releasePersistableUriPermission(treeUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Never granted or already released.
         }
-        return null;
     }
 
+    private File checkpointFor(List<Uri> uris) {
+        StringBuilder key = new StringBuilder();
+        for (Uri uri : uris) {
+            key.append(uri).append('\n');
+        }
+        return new File(new File(getNoBackupFilesDir(), "imports"),
+                Integer.toHexString(key.toString().hashCode()) + ".checkpoint");
+    }
+
+    private void importDocuments(List<Uri> uris, Uri treeUri) {
+        File localFilesFolder = new File(getFilesDir(), "Local Files");
+        File checkpoint = checkpointFor(uris);
+
+        LinearLayout progressLayout = new LinearLayout(this);
+        progressLayout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        progressLayout.setPadding(padding, padding, padding, 0);
+        final TextView status = new TextView(this);
+        status.setText("Waiting for other file operations...");
+        final ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(1000);
+        progressLayout.addView(status);
+        progressLayout.addView(progressBar);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Importing");
+        builder.setView(progressLayout);
+        builder.setCancelable(false);
+        builder.setNegativeButton("Cancel", null);
+        AlertDialog progressDialog = builder.show();
+
+        final TreeCopyJob.Progress[] finalProgress = new TreeCopyJob.Progress[1];
+        final IOException[] importError = new IOException[1];
+        final int[] resumed = new int[1];
+        FileOperationQueue.Task task = new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                SafDocumentSource source = treeUri == null ? SafDocumentSource.forDocuments(getContentResolver())
+                        : SafDocumentSource.forTree(getContentResolver(), treeUri);
+                List<DocumentImportJob.Document> roots = new ArrayList<>();
+                for (Uri uri : uris) {
+                    roots.add(source.root(uri));
+                }
+                DocumentImportJob job = new DocumentImportJob(source, roots, localFilesFolder, checkpoint,
+                        IMPORT_PARALLELISM, new TreeCopyJob.Listener() {
+                    @Override
+                    public void onProgress(TreeCopyJob.Progress progress) {
+                        ticket.setProgress(progress.permille(), 1000, progress.describe());
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                status.setText(progress.describe());
+                                progressBar.setProgress(progress.permille());
+                            }
+                        });
+                    }
 
+                    @Override
+                    public void onFinished(TreeCopyJob.Progress progress, File target, IOException error,
+                                           boolean cancelled) {
+                        finalProgress[0] = progress;
+                        importError[0] = error;
+                    }
+                });
+                job.run();
+                resumed[0] = job.getSkippedFiles();
+            }
+        };
+        FileOperationQueue.Ticket importTicket = FileOperationQueue.shared().submit(IMPORT_LABEL,
+                FileOperationQueue.Priority.BACKGROUND, localFilesFolder, task, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                IOException error = importError[0];
+                if (error == null && ticket.getError() instanceof IOException) {
+                    error = (IOException) ticket.getError();
+                }
+                if (error != null) {
+                    error.printStackTrace();
+                }
+                final IOException failure = error;
+                TreeCopyJob.Progress progress = finalProgress[0];
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        progressDialog.dismiss();
+                        String message;
+                        if (failure != null) {
+                            message = "Import failed: " + failure.getMessage() + ". Import again to resume.";
+                        } else if (ticket.isCancelled() || progress == null) {
+                            message = "Import cancelled";
+                        } else {
+                            message = "Imported " + progress.files + " files, " + CopyEngine.formatBytes(progress.bytes)
+                                    + " at " + CopyEngine.formatBytes(progress.bytesPerSecond) + "/s";
+                            if (resumed[0] > 0) {
+                                message += ", " + resumed[0] + " already there from an earlier run";
+                            }
+                        }
+                        if (failure == null && treeUri != null) {
+                            forgetPendingImport(treeUri);
+                        }
+                        Toast.makeText(InternalStorageActivity.this, message, Toast.LENGTH_LONG).show();
+                        refreshCurrentFolder();
+                    }
+                });
+            }
+        });
+        progressDialog.getButton(AlertDialog.BUTTON_NEGATIVE).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                status.setText("Cancelling...");
+                importTicket.cancel();
+            }
+        });
+    }
 }
@@ -51,6 +51,8 @@ public class MainActivity extends AppCompatActivity {
     private HashMap<Object, Boolean> canBeEnabled;
     private View openFileTextInput;
     private String currentFileName;
+    // Bumped per open, so a slow read does not replace a file opened after it.
+    private int openGeneration;
     private String currentProjectPath;
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,6 +77,7 @@ public class MainActivity extends AppCompatActivity {
         OpenProjectController.openProjectInitialization(this);
         GitCloneController.setDisabled(this);
         GitCloneController.gitCloneInitialization(this);
+        FindReplaceController.findReplaceInitialization(this);
 
         fileExplorerButton = findViewById(R.id.file_explorer);
         fileExplorerButton.setOnClickListener(new View.OnClickListener() {
@@ -88,6 +91,7 @@ public class MainActivity extends AppCompatActivity {
         currentFileName = null;
         currentProjectPath = null;
         FilesController.createProjectsDirectory(this);
+        RepositoryMaintenanceWorker.schedule(this);
 
     }
 
@@ -175,17 +179,49 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void setCurrentFileName(String fileName) throws Exception{
+        setCurrentFileName(fileName, null);
+    }
+
+    /**
+     * Opens the file once its content is read; onLoaded, if given, runs after that on the UI
+     * thread, e.g. to jump to a line. Until then the previous file stays current but cannot
+     * be edited.
+     */
+    public void setCurrentFileName(String fileName, Runnable onLoaded) throws Exception{
+        int generation = ++openGeneration;
         if(fileName == null){
             currentFileName = null;
+            FindReplaceController.setDisabled(this);
             enableOpenFileHint();
             CodeEditorController.setCode("", this);
             CodeEditorController.DisableCodeEditor(this);
             return;
         }
-        currentFileName = fileName;
-        disableOpenFileHint();
-        CodeEditorController.setCode(FilesController.getFilesInside(fileName, this), this);
-        CodeEditorController.EnableCodeEditor(this);
+        codeView.setEnabled(false);
+        FilesController.getFilesInside(fileName, this, new FilesController.ContentCallback() {
+            @Override
+            public void onLoaded(String content) {
+                if (generation != openGeneration) {
+                    return;
+                }
+                currentFileName = fileName;
+                disableOpenFileHint();
+                CodeEditorController.setCode(content, MainActivity.this);
+                CodeEditorController.EnableCodeEditor(MainActivity.this);
+                if (onLoaded != null) {
+                    onLoaded.run();
+                }
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                if (generation != openGeneration) {
+                    return;
+                }
+                Toast.makeText(MainActivity.this, error.getMessage(), Toast.LENGTH_SHORT).show();
+                codeView.setEnabled(currentFileName != null);
+            }
+        });
     }
 
     public void setCurrentProjectPath(String projectPath) throws Exception{
@@ -1,5 +1,7 @@
 package com.example.codeeditor;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,13 +9,22 @@ import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.example.codeeditor.model.PathIndex;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OpenFileController {
 
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private static final AtomicInteger searchGeneration = new AtomicInteger();
+
     public static void openFileInitialization(MainActivity mainScreen) {
         mainScreen.findViewById(R.id.OpenFileButtonSubmit).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -41,6 +52,24 @@ public class OpenFileController {
                 mainScreen.enableMainLayout();
             }
         });
+
+        TextInputEditText input = mainScreen.findViewById(R.id.OpenFileEnterField);
+        input.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (mainScreen.findViewById(R.id.OpenFileLayout).getVisibility() == View.VISIBLE) {
+                    scrollerRestart(mainScreen);
+                }
+            }
+        });
     }
 
     public static void setDisabled(MainActivity mainScreen){
@@ -110,13 +139,62 @@ public class OpenFileController {
 
     public static void scrollerRestart(MainActivity mainScreen){
         LinearLayout scroller = mainScreen.findViewById(R.id.OpenFileScrollLayout);
-        scroller.removeAllViews();
-        Map<String, ?> files = FilesController.getAllLocalFiles(mainScreen);
-        for (Map.Entry<String,?> entry : files.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            scroller.addView(createFileButton(key, mainScreen));
+        PathIndex index = DirectoryTreeController.getPathIndex();
+        String query = getEnteredText(mainScreen).trim();
+        int generation = searchGeneration.incrementAndGet();
+        if (index == null || query.isEmpty()) {
+            scroller.removeAllViews();
+            Map<String, ?> files = FilesController.getAllLocalFiles(mainScreen);
+            for (Map.Entry<String,?> entry : files.entrySet()) {
+                String key = entry.getKey();
+                scroller.addView(createFileButton(key, mainScreen));
+            }
+            return;
         }
+        searchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != searchGeneration.get()) {
+                    return;
+                }
+                List<String> matches = index.search(query, PathIndex.DEFAULT_LIMIT);
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != searchGeneration.get()) {
+                            return;
+                        }
+                        scroller.removeAllViews();
+                        for (String match : matches) {
+                            scroller.addView(createMatchButton(new File(index.getRoot(), match), match, mainScreen));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static Button createMatchButton(File file, String relativePath, MainActivity mainScreen){
+        Button button = new Button(mainScreen);
+        button.setText(relativePath);
+        button.setBackground(mainScreen.getDrawable(R.drawable.transperent));
+        button.setTextColor(mainScreen.getColor(R.color.suggestion_yellow));
+        button.setAllCaps(false);
+        button.setGravity(Gravity.LEFT);
+        button.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                try {
+                    mainScreen.setCurrentFileName(file.getPath().substring(file.getPath().indexOf("files/") + 6));
+                } catch (Exception e) {
+                    OpenFileController.setError(e.getMessage(), mainScreen);
+                    return;
+                }
+                OpenFileController.setDisabled(mainScreen);
+                mainScreen.enableMainLayout();
+            }
+        });
+        return button;
     }
 
     private static Button createFileButton(String key, MainActivity mainScreen){
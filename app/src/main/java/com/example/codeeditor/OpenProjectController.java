@@ -7,14 +7,19 @@ import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.example.codeeditor.model.DirectoryEnumerator;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.io.File;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 public class OpenProjectController {
 
+    // Bumped on every restart and close, so batches of an older listing are dropped. UI thread only.
+    private static int scrollerGeneration;
+
     public static void openProjectInitialization(MainActivity mainScreen) {
         mainScreen.findViewById(R.id.OpenProjectButtonSubmit).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -67,6 +72,7 @@ public class OpenProjectController {
         mainScreen.findViewById(R.id.OpenProjectScroll).setEnabled(false);
         mainScreen.findViewById(R.id.OpenProjectScroll).setVisibility(View.INVISIBLE);
         ViewGroup layout = mainScreen.findViewById(R.id.OpenProjectScrollLayout);
+        scrollerGeneration++;
         layout.removeAllViews();
 
         mainScreen.findViewById(R.id.OpenProjectScrollLayout).setEnabled(false);
@@ -112,14 +118,25 @@ public class OpenProjectController {
 
     public static void scrollerRestart(MainActivity mainScreen){
         LinearLayout scroller = mainScreen.findViewById(R.id.OpenProjectScrollLayout);
+        int generation = ++scrollerGeneration;
         scroller.removeAllViews();
-        File[] files = FilesController.getAllLocalFiles(mainScreen, "/Projects");
-        for (File entry : files) {
-            if(entry.isDirectory()) {
-                String key = entry.getName();
-                scroller.addView(createFileButton(key, mainScreen));
+        File projects = new File(mainScreen.getFilesDir(), "Projects");
+        DirectoryEnumerator.shared().enumerate(projects, new Predicate<DirectoryEnumerator.Entry>() {
+            @Override
+            public boolean test(DirectoryEnumerator.Entry entry) {
+                return entry.directory;
+            }
+        }, mainScreen.getMainExecutor(), new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                if (generation != scrollerGeneration) {
+                    return;
+                }
+                for (DirectoryEnumerator.Entry entry : entries) {
+                    scroller.addView(createFileButton(entry.getName(), mainScreen));
+                }
             }
-        }
+        });
     }
 
     private static Button createFileButton(String key, MainActivity mainScreen){
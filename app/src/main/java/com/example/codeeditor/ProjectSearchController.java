@@ -0,0 +1,371 @@
+package com.example.codeeditor;
+
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.text.InputType;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.codeeditor.model.FileOperationQueue;
+import com.example.codeeditor.model.IgnoreMatcher;
+import com.example.codeeditor.model.ProjectReplace;
+import com.example.codeeditor.model.ProjectSearch;
+import com.example.codeeditor.model.TextFinder;
+import com.example.codeeditor.model.TrigramIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.PatternSyntaxException;
+
+public class ProjectSearchController {
+
+    private static final ExecutorService previewExecutor = Executors.newSingleThreadExecutor();
+    private static ProjectSearch.Search currentSearch;
+
+    public static void showSearchDialog(MainActivity mainScreen) {
+        String projectPath = mainScreen.getCurrentProjectPath();
+        if (projectPath == null) {
+            Toast.makeText(mainScreen, "Open a project first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File projectRoot = FilesController.getFileByPath(projectPath, mainScreen);
+
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        layout.setPadding(padding, padding, padding, 0);
+        final EditText queryField = new EditText(mainScreen);
+        queryField.setHint("Text or regex");
+        queryField.setInputType(InputType.TYPE_CLASS_TEXT);
+        final EditText replaceField = new EditText(mainScreen);
+        replaceField.setHint("Replace with");
+        replaceField.setInputType(InputType.TYPE_CLASS_TEXT);
+        final CheckBox regexBox = new CheckBox(mainScreen);
+        regexBox.setText("Regex");
+        final CheckBox caseBox = new CheckBox(mainScreen);
+        caseBox.setText("Match case");
+        final TextView status = new TextView(mainScreen);
+        final ListView results = new ListView(mainScreen);
+        final ArrayAdapter<ProjectSearch.Match> adapter =
+                new ArrayAdapter<>(mainScreen, android.R.layout.simple_list_item_1);
+        results.setAdapter(adapter);
+        layout.addView(queryField);
+        layout.addView(replaceField);
+        layout.addView(regexBox);
+        layout.addView(caseBox);
+        layout.addView(status);
+        layout.addView(results, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 0, 1));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Find in project");
+        builder.setView(layout);
+        builder.setPositiveButton("Search", null);
+        builder.setNeutralButton("Replace...", null);
+        builder.setNegativeButton("Close", null);
+        AlertDialog dialog = builder.create();
+        dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                cancelSearch();
+            }
+        });
+        dialog.show();
+
+        // Set after show() so that pressing Search keeps the dialog open.
+        dialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                String query = queryField.getText().toString();
+                if (query.isEmpty()) {
+                    return;
+                }
+                ProjectSearch.Query searchQuery =
+                        new ProjectSearch.Query(query, regexBox.isChecked(), caseBox.isChecked());
+                startSearch(projectRoot, searchQuery, adapter, status, mainScreen);
+            }
+        });
+
+        dialog.getButton(AlertDialog.BUTTON_NEUTRAL).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                String query = queryField.getText().toString();
+                if (query.isEmpty()) {
+                    return;
+                }
+                ProjectSearch.Query searchQuery =
+                        new ProjectSearch.Query(query, regexBox.isChecked(), caseBox.isChecked());
+                TextFinder finder;
+                try {
+                    finder = new TextFinder(query, regexBox.isChecked(), caseBox.isChecked());
+                } catch (PatternSyntaxException e) {
+                    status.setText("Invalid regex: " + e.getDescription());
+                    return;
+                }
+                cancelSearch();
+                status.setText("Preparing preview...");
+                previewReplace(projectRoot, searchQuery, new ProjectReplace(projectRoot, finder,
+                        replaceField.getText().toString()), finder, replaceField.getText().toString(), status, mainScreen);
+            }
+        });
+
+        results.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                ProjectSearch.Match match = adapter.getItem(position);
+                if (match == null) {
+                    return;
+                }
+                File file = new File(projectRoot, match.path);
+                try {
+                    mainScreen.setCurrentFileName(file.getPath().substring(file.getPath().indexOf("files/") + 6),
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    CodeEditorController.goToLine(match.line, match.column, match.length, mainScreen);
+                                }
+                            });
+                } catch (Exception e) {
+                    Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                dialog.dismiss();
+            }
+        });
+    }
+
+    private static void startSearch(File projectRoot, ProjectSearch.Query query, ArrayAdapter<ProjectSearch.Match> adapter,
+                                    TextView status, MainActivity mainScreen) {
+        cancelSearch();
+        adapter.clear();
+        status.setText("Searching...");
+        long startedAt = System.currentTimeMillis();
+        ProjectSearch search;
+        try {
+            search = new ProjectSearch(projectRoot, IgnoreMatcher.forRoot(projectRoot), query,
+                    ProjectSearch.DEFAULT_MAX_RESULTS, mainScreen.getMainExecutor(), new ProjectSearch.Listener() {
+                @Override
+                public void onMatches(List<ProjectSearch.Match> matches) {
+                    adapter.addAll(matches);
+                    status.setText("Searching... " + adapter.getCount() + " matches");
+                }
+
+                @Override
+                public void onFinished(int filesSearched, int matchCount, boolean cancelled) {
+                    long elapsed = System.currentTimeMillis() - startedAt;
+                    String summary = matchCount + " matches in " + filesSearched + " files, " + elapsed + " ms";
+                    if (cancelled) {
+                        summary += " (stopped)";
+                    } else if (matchCount >= ProjectSearch.DEFAULT_MAX_RESULTS) {
+                        summary += " (limit reached)";
+                    }
+                    status.setText(summary);
+                }
+            });
+        } catch (PatternSyntaxException e) {
+            status.setText("Invalid regex: " + e.getDescription());
+            return;
+        }
+        TrigramIndex index = DirectoryTreeController.getCurrentTrigramIndex();
+        if (index != null) {
+            search.setIndex(index);
+        }
+        currentSearch = search.start();
+    }
+
+    private static void previewReplace(File projectRoot, ProjectSearch.Query query, ProjectReplace replace,
+                                       TextFinder finder, String replacement, TextView status, MainActivity mainScreen) {
+        previewExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> paths = Collections.synchronizedSet(new LinkedHashSet<>());
+                ProjectSearch search = new ProjectSearch(projectRoot, IgnoreMatcher.forRoot(projectRoot), query,
+                        Integer.MAX_VALUE, Runnable::run, new ProjectSearch.Listener() {
+                    @Override
+                    public void onMatches(List<ProjectSearch.Match> matches) {
+                        for (ProjectSearch.Match match : matches) {
+                            paths.add(match.path);
+                        }
+                    }
+
+                    @Override
+                    public void onFinished(int filesSearched, int matchCount, boolean cancelled) {
+                    }
+                });
+                TrigramIndex index = DirectoryTreeController.getCurrentTrigramIndex();
+                if (index != null) {
+                    search.setIndex(index);
+                }
+                List<ProjectReplace.FileChange> changes;
+                try {
+                    search.run();
+                    changes = replace.preview(new ArrayList<>(paths));
+                } catch (Exception e) {
+                    mainScreen.runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            status.setText("Preview failed: " + e.getMessage());
+                        }
+                    });
+                    return;
+                }
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (changes.isEmpty()) {
+                            status.setText("Nothing to replace");
+                            return;
+                        }
+                        status.setText("");
+                        showReplacePreview(projectRoot, replace, changes, finder, replacement, mainScreen);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void showReplacePreview(File projectRoot, ProjectReplace replace, List<ProjectReplace.FileChange> changes,
+                                           TextFinder finder, String replacement, MainActivity mainScreen) {
+        int total = 0;
+        List<String> lines = new ArrayList<>();
+        for (ProjectReplace.FileChange change : changes) {
+            total += change.count;
+            StringBuilder line = new StringBuilder(change.path + " (" + change.count + ")");
+            for (ProjectReplace.Sample sample : change.samples) {
+                line.append("\n").append(sample.line).append(": - ").append(sample.before.trim());
+                line.append("\n").append(sample.line).append(": + ").append(sample.after.trim());
+            }
+            lines.add(line.toString());
+        }
+        ListView list = new ListView(mainScreen);
+        list.setAdapter(new ArrayAdapter<>(mainScreen, android.R.layout.simple_list_item_1, lines));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Replace " + total + " match(es) in " + changes.size() + " file(s)?");
+        builder.setView(list);
+        builder.setPositiveButton("Apply", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                applyReplace(projectRoot, replace, changes, finder, replacement, mainScreen);
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private static void applyReplace(File projectRoot, ProjectReplace replace, List<ProjectReplace.FileChange> changes,
+                                     TextFinder finder, String replacement, MainActivity mainScreen) {
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        layout.setPadding(padding, padding, padding, 0);
+        final TextView status = new TextView(mainScreen);
+        status.setText("Preparing...");
+        final ProgressBar progressBar = new ProgressBar(mainScreen, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(changes.size());
+        layout.addView(status);
+        layout.addView(progressBar);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Replacing...");
+        builder.setView(layout);
+        builder.setCancelable(false);
+        AlertDialog dialog = builder.show();
+
+        // Queued on the project root so no save, copy or checkout touches the files while they are replaced.
+        final ProjectReplace.Result[] results = new ProjectReplace.Result[1];
+        FileOperationQueue.shared().submit("Replace in " + changes.size() + " file(s)",
+                FileOperationQueue.Priority.BACKGROUND, projectRoot, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) throws Exception {
+                results[0] = replace.apply(changes, new ProjectReplace.Listener() {
+                    @Override
+                    public void onProgress(String phase, int done, int total) {
+                        ticket.setProgress(done, total, phase);
+                        mainScreen.runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                status.setText(phase + " " + done + "/" + total);
+                                progressBar.setProgress(done);
+                            }
+                        });
+                    }
+                });
+            }
+        }, new FileOperationQueue.Callback() {
+            @Override
+            public void onFinished(FileOperationQueue.Ticket ticket) {
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        dialog.dismiss();
+                        showReplaceResult(projectRoot, results[0], ticket.getError(), finder, replacement, mainScreen);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void showReplaceResult(File projectRoot, ProjectReplace.Result result, Exception error,
+                                          TextFinder finder, String replacement, MainActivity mainScreen) {
+        if (result == null || !result.success) {
+            String message;
+            if (result == null) {
+                message = "No files were changed.\n" + (error == null || error.getMessage() == null
+                        ? "Interrupted" : error.getMessage());
+            } else if (result.unrestoredPaths.isEmpty()) {
+                message = "No files were changed.\n" + result.error;
+            } else {
+                message = result.error + "\n\nThese files could not be restored and may already contain "
+                        + "the replacement:\n" + String.join("\n", result.unrestoredPaths);
+            }
+            new AlertDialog.Builder(mainScreen)
+                    .setTitle("Replace failed")
+                    .setMessage(message)
+                    .setPositiveButton("OK", null)
+                    .show();
+            return;
+        }
+        syncOpenBuffer(projectRoot, result.changedPaths, finder, replacement, mainScreen);
+        Toast.makeText(mainScreen, "Replaced " + result.replacements + " in " + result.changedPaths.size()
+                + " file(s), " + Math.round(result.filesPerSecond()) + " files/s", Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Apply the same replacement to the open editor buffer when its file was changed, so the
+     * buffer matches the disk and keeps any unsaved edits.
+     */
+    private static void syncOpenBuffer(File projectRoot, List<String> changedPaths, TextFinder finder,
+                                       String replacement, MainActivity mainScreen) {
+        String currentFileName = mainScreen.getCurrentFileName();
+        if (currentFileName == null) {
+            return;
+        }
+        String openPath = new File(mainScreen.getFilesDir(), currentFileName).getAbsolutePath();
+        String rootPath = projectRoot.getAbsolutePath() + "/";
+        if (!openPath.startsWith(rootPath) || !changedPaths.contains(openPath.substring(rootPath.length()))) {
+            return;
+        }
+        CodeEditorController.applyReplacement(finder, replacement, mainScreen);
+    }
+
+    private static void cancelSearch() {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+            currentSearch = null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.codeeditor;
+
+import static android.content.Context.MODE_PRIVATE;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.codeeditor.model.FileOperationQueue;
+import com.example.codeeditor.model.MaintenanceRunner;
+import com.example.codeeditor.model.RepositoryMaintenance;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class RepositoryMaintenanceWorker extends Worker {
+
+    private static final String WORK_NAME = "repository-maintenance";
+    private static final long TOTAL_BUDGET_MILLIS = 5 * 60 * 1000;
+
+    public RepositoryMaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                RepositoryMaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        SharedPreferences stats = context.getSharedPreferences("RepositoryMaintenance", MODE_PRIVATE);
+        File projectsDirectory = new File(context.getFilesDir(), "Projects");
+
+        MaintenanceRunner runner = new MaintenanceRunner(RepositoryMaintenance.Budget.defaults(), TOTAL_BUDGET_MILLIS);
+        // Only the .git folders, so saves and opens in the working trees never wait for gc.
+        List<File> gitDirectories = new ArrayList<>();
+        for (File repository : MaintenanceRunner.findRepositories(projectsDirectory)) {
+            gitDirectories.add(new File(repository, ".git"));
+        }
+        FileOperationQueue.Ticket ticket = FileOperationQueue.shared().submit("Repository maintenance",
+                FileOperationQueue.Priority.MAINTENANCE, gitDirectories, new FileOperationQueue.Task() {
+            @Override
+            public void run(FileOperationQueue.Ticket ticket) {
+                runner.runAll(projectsDirectory, new MaintenanceRunner.Listener() {
+                    @Override
+                    public void onReport(RepositoryMaintenance.Report report) {
+                        Log.i("RepositoryMaintenance", report.toString());
+                        stats.edit()
+                                .putString(report.repository.getName(), report.toString())
+                                .putLong(report.repository.getName() + ".time", System.currentTimeMillis())
+                                .apply();
+                    }
+
+                    @Override
+                    public void onError(File repository, Exception e) {
+                        Log.e("RepositoryMaintenance", "Maintenance failed for " + repository.getName(), e);
+                    }
+                });
+            }
+        }, null);
+        try {
+            ticket.await();
+        } catch (InterruptedException e) {
+            ticket.cancel();
+            return Result.retry();
+        }
+        return Result.success();
+    }
+}
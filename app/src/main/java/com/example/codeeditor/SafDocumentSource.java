@@ -0,0 +1,94 @@
+package com.example.codeeditor;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import com.example.codeeditor.model.DocumentImportJob;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads picked documents and trees through the storage access framework. A folder is listed
+ * with a single child-documents query carrying every column the import needs, instead of a
+ * query per file for its name.
+ */
+public class SafDocumentSource implements DocumentImportJob.Source {
+
+    private static final String[] PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_MIME_TYPE,
+            DocumentsContract.Document.COLUMN_SIZE,
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+    };
+
+    private final ContentResolver resolver;
+    // Null for documents picked one by one, whose ids are their full URIs.
+    private final Uri treeUri;
+
+    private SafDocumentSource(ContentResolver resolver, Uri treeUri) {
+        this.resolver = resolver;
+        this.treeUri = treeUri;
+    }
+
+    public static SafDocumentSource forDocuments(ContentResolver resolver) {
+        return new SafDocumentSource(resolver, null);
+    }
+
+    public static SafDocumentSource forTree(ContentResolver resolver, Uri treeUri) {
+        return new SafDocumentSource(resolver, treeUri);
+    }
+
+    /**
+     * The document a picked URI or a picked tree's top folder stands for.
+     */
+    public DocumentImportJob.Document root(Uri uri) throws IOException {
+        Uri documentUri = treeUri == null ? uri
+                : DocumentsContract.buildDocumentUriUsingTree(treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+        try (Cursor cursor = resolver.query(documentUri, PROJECTION, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                throw new FileNotFoundException("Cannot read " + uri);
+            }
+            String id = treeUri == null ? uri.toString() : cursor.getString(0);
+            return document(cursor, id);
+        }
+    }
+
+    @Override
+    public List<DocumentImportJob.Document> list(DocumentImportJob.Document directory) throws IOException {
+        List<DocumentImportJob.Document> children = new ArrayList<>();
+        if (treeUri == null) {
+            return children;
+        }
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, directory.id);
+        try (Cursor cursor = resolver.query(childrenUri, PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                throw new FileNotFoundException("Cannot list " + directory.name);
+            }
+            while (cursor.moveToNext()) {
+                children.add(document(cursor, cursor.getString(0)));
+            }
+        }
+        return children;
+    }
+
+    @Override
+    public InputStream open(DocumentImportJob.Document file) throws IOException {
+        Uri uri = treeUri == null ? Uri.parse(file.id) : DocumentsContract.buildDocumentUriUsingTree(treeUri, file.id);
+        return resolver.openInputStream(uri);
+    }
+
+    private static DocumentImportJob.Document document(Cursor cursor, String id) {
+        String name = cursor.isNull(1) ? id : cursor.getString(1);
+        boolean directory = DocumentsContract.Document.MIME_TYPE_DIR.equals(cursor.getString(2));
+        long size = cursor.isNull(3) ? -1 : cursor.getLong(3);
+        long lastModified = cursor.isNull(4) ? 0 : cursor.getLong(4);
+        return new DocumentImportJob.Document(id, name, directory, size, lastModified);
+    }
+}
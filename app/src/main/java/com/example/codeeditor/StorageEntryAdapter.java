@@ -0,0 +1,158 @@
+package com.example.codeeditor;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.codeeditor.model.DirectoryEnumerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rows of the internal storage screen. Only the visible rows have views; the folder icon is
+ * decoded once and shared, and the name layouts are measured ahead of scrolling on a
+ * background thread with PrecomputedTextCompat, so binding a row does no text measurement.
+ *
+ * The text direction of a row is only resolved once it is attached, so the measuring
+ * parameters are taken from the first attached row, and names are handed over with
+ * setTextFuture, which applies them at measure time when the row is attached.
+ */
+public class StorageEntryAdapter extends RecyclerView.Adapter<StorageEntryAdapter.EntryViewHolder> {
+
+    private static final int PADDING_HORIZONTAL = 12;
+    private static final int PADDING_VERTICAL = 8;
+    // Two threads, so a row bound ahead of the precompute pass does not wait for the whole list.
+    private static final ExecutorService textExecutor = Executors.newFixedThreadPool(2);
+
+    private final Drawable.ConstantState folderIcon;
+    private final OnEntryClickListener listener;
+    private List<DirectoryEnumerator.Entry> entries = new ArrayList<>();
+    private AtomicReferenceArray<PrecomputedTextCompat> texts = new AtomicReferenceArray<>(0);
+    private PrecomputedTextCompat.Params textParams;
+    private volatile int generation;
+
+    public StorageEntryAdapter(Context context, OnEntryClickListener listener) {
+        this.folderIcon = context.getDrawable(android.R.drawable.sym_contact_card).getConstantState();
+        this.listener = listener;
+    }
+
+    public void setEntries(List<DirectoryEnumerator.Entry> entries) {
+        this.entries = entries;
+        this.texts = new AtomicReferenceArray<>(entries.size());
+        generation++;
+        notifyDataSetChanged();
+        precompute();
+    }
+
+    @NonNull
+    @Override
+    public EntryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        AppCompatTextView row = new AppCompatTextView(parent.getContext());
+        row.setBackgroundResource(android.R.drawable.btn_default);
+        row.setPadding(PADDING_HORIZONTAL, PADDING_VERTICAL, PADDING_HORIZONTAL, PADDING_VERTICAL);
+        row.setSingleLine(true);
+        row.setGravity(Gravity.CENTER_VERTICAL);
+        row.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+        return new EntryViewHolder(row, folderIcon.newDrawable(parent.getResources()));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull EntryViewHolder holder, int position) {
+        DirectoryEnumerator.Entry entry = entries.get(position);
+        if (textParams == null) {
+            holder.name.setText(entry.getName());
+        } else {
+            // Once rows take futures every bind does, so a pending one never overwrites a newer name.
+            PrecomputedTextCompat text = texts.get(position);
+            holder.name.setTextFuture(text != null ? CompletableFuture.completedFuture(text)
+                    : PrecomputedTextCompat.getTextFuture(entry.getName(), textParams,
+                    textExecutor));
+        }
+        holder.name.setCompoundDrawablesRelative(entry.directory ? holder.icon : null, null, null, null);
+    }
+
+    @Override
+    public void onViewAttachedToWindow(@NonNull EntryViewHolder holder) {
+        if (textParams == null) {
+            // Every row is styled the same, so the first attached one tells us how names will be laid out.
+            textParams = TextViewCompat.getTextMetricsParams(holder.name);
+            precompute();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return entries.size();
+    }
+
+    private void precompute() {
+        if (textParams == null || entries.isEmpty()) {
+            return;
+        }
+        final int started = generation;
+        final List<DirectoryEnumerator.Entry> list = entries;
+        final AtomicReferenceArray<PrecomputedTextCompat> target = texts;
+        final PrecomputedTextCompat.Params params = textParams;
+        textExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < list.size() && started == generation; i++) {
+                    if (target.get(i) == null) {
+                        target.compareAndSet(i, null, PrecomputedTextCompat.create(list.get(i).getName(), params));
+                    }
+                }
+            }
+        });
+    }
+
+    public class EntryViewHolder extends RecyclerView.ViewHolder {
+        final AppCompatTextView name;
+        final Drawable icon;
+
+        EntryViewHolder(@NonNull AppCompatTextView name, Drawable icon) {
+            super(name);
+            this.name = name;
+            this.icon = icon;
+            icon.setBounds(0, 0, icon.getIntrinsicWidth(), icon.getIntrinsicHeight());
+            name.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onEntryClick(entries.get(position));
+                    }
+                }
+            });
+            name.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onEntryLongClick(entries.get(position));
+                    }
+                    return true;
+                }
+            });
+        }
+    }
+
+    public interface OnEntryClickListener {
+        void onEntryClick(DirectoryEnumerator.Entry entry);
+
+        void onEntryLongClick(DirectoryEnumerator.Entry entry);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.codeeditor;
+
+import android.app.AlertDialog;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.codeeditor.model.Symbol;
+import com.example.codeeditor.model.SymbolExtractor;
+import com.example.codeeditor.model.SymbolIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SymbolController {
+
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private static final AtomicInteger searchGeneration = new AtomicInteger();
+
+    public static void showGoToSymbol(MainActivity mainScreen) {
+        SymbolIndex index = DirectoryTreeController.getSymbolIndex();
+        if (mainScreen.getCurrentProjectPath() == null || index == null) {
+            Toast.makeText(mainScreen, "Open a project first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        LinearLayout layout = new LinearLayout(mainScreen);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * mainScreen.getResources().getDisplayMetrics().density);
+        layout.setPadding(padding, padding, padding, 0);
+        final EditText queryField = new EditText(mainScreen);
+        queryField.setHint("Class or function name");
+        queryField.setInputType(InputType.TYPE_CLASS_TEXT);
+        final TextView status = new TextView(mainScreen);
+        status.setText(index.isReady() ? "" : "Indexing symbols...");
+        final ListView results = new ListView(mainScreen);
+        final ArrayAdapter<Symbol> adapter = new ArrayAdapter<>(mainScreen, android.R.layout.simple_list_item_1);
+        results.setAdapter(adapter);
+        layout.addView(queryField);
+        layout.addView(status);
+        layout.addView(results, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 0, 1));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Go to symbol");
+        builder.setView(layout);
+        builder.setNegativeButton("Close", null);
+        AlertDialog dialog = builder.show();
+
+        queryField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(index, s.toString().trim(), adapter, status, mainScreen);
+            }
+        });
+        results.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                Symbol symbol = adapter.getItem(position);
+                if (symbol == null) {
+                    return;
+                }
+                File file = new File(index.getRoot(), symbol.path);
+                try {
+                    mainScreen.setCurrentFileName(file.getPath().substring(file.getPath().indexOf("files/") + 6),
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    CodeEditorController.goToLine(symbol.line, symbol.column, symbol.name.length(),
+                                            mainScreen);
+                                }
+                            });
+                } catch (Exception e) {
+                    Toast.makeText(mainScreen, e.getMessage(), Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                dialog.dismiss();
+            }
+        });
+    }
+
+    private static void search(SymbolIndex index, String query, ArrayAdapter<Symbol> adapter, TextView status,
+                               MainActivity mainScreen) {
+        int generation = searchGeneration.incrementAndGet();
+        searchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != searchGeneration.get()) {
+                    return;
+                }
+                List<Symbol> matches = index.search(query, SymbolIndex.DEFAULT_LIMIT);
+                boolean ready = index.isReady();
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != searchGeneration.get()) {
+                            return;
+                        }
+                        adapter.clear();
+                        adapter.addAll(matches);
+                        status.setText(ready ? "" : "Indexing symbols...");
+                    }
+                });
+            }
+        });
+    }
+
+    public static void showOutline(MainActivity mainScreen) {
+        String fileName = mainScreen.getCurrentFileName();
+        if (fileName == null) {
+            return;
+        }
+        if (!SymbolExtractor.isSupported(fileName)) {
+            Toast.makeText(mainScreen, "No outline for this file type", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The live buffer rather than the index, so unsaved edits show up.
+        String code = CodeEditorController.getCode(mainScreen);
+        searchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Symbol> symbols = SymbolExtractor.extract(fileName, code);
+                mainScreen.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (symbols.isEmpty()) {
+                            Toast.makeText(mainScreen, "No symbols found", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        showOutlineDialog(symbols, mainScreen);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void showOutlineDialog(List<Symbol> symbols, MainActivity mainScreen) {
+        List<String> lines = new ArrayList<>(symbols.size());
+        for (Symbol symbol : symbols) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < symbol.depth; i++) {
+                line.append("    ");
+            }
+            line.append(symbol.name).append("  ").append(symbol.kind.label).append(", line ").append(symbol.line);
+            lines.add(line.toString());
+        }
+        ListView list = new ListView(mainScreen);
+        list.setAdapter(new ArrayAdapter<>(mainScreen, android.R.layout.simple_list_item_1, lines));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mainScreen);
+        builder.setTitle("Outline");
+        builder.setView(list);
+        builder.setNegativeButton("Close", null);
+        AlertDialog dialog = builder.show();
+        list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                Symbol symbol = symbols.get(position);
+                dialog.dismiss();
+                CodeEditorController.goToLine(symbol.line, symbol.column, symbol.name.length(), mainScreen);
+            }
+        });
+    }
+}
@@ -19,6 +19,7 @@ import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Modifier
 import androidx.documentfile.provider.DocumentFile
+import com.example.codeeditor.RepositoryMaintenanceWorker
 import com.example.codeeditor.composables.MainScreen
 import com.example.codeeditor.constants.*
 import com.example.codeeditor.model.FileLogic
@@ -121,6 +122,7 @@ class MainActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         requestStoragePermissions()
+        RepositoryMaintenanceWorker.schedule(this)
         setContent {
             CodeEditorTheme {
                 Surface(
@@ -0,0 +1,153 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+/**
+ * Replaces file contents so that readers see either the old or the new file, never a
+ * truncated one: the content goes to a temporary file in the same directory, is synced,
+ * and is then renamed over the target.
+ *
+ * A symlinked target is resolved first, so the link survives and its destination is what
+ * gets replaced. The target's POSIX permissions are copied onto the temporary file before
+ * the rename. When a rename would lose something that cannot be copied (another owner,
+ * other hard links, permissions the filesystem refuses) the content is written in place
+ * instead, which keeps the file but is not atomic.
+ *
+ * The two halves are exposed separately so several files can be prepared first and
+ * committed together.
+ */
+public class AtomicFileWriter {
+
+    public static void write(File target, byte[] content) throws IOException {
+        commit(prepare(target, content), target);
+    }
+
+    /**
+     * Write the content to a synced temporary file next to the target, or next to the file
+     * it links to.
+     */
+    public static File prepare(File target, byte[] content) throws IOException {
+        File directory = realTarget(target).getParent().toFile();
+        File temporary = File.createTempFile("." + target.getName() + ".", ".tmp", directory);
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            out.write(content);
+            out.getFD().sync();
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        return temporary;
+    }
+
+    /**
+     * Move a prepared file over the target, atomically unless the target's permissions,
+     * owner or links could not survive a rename.
+     */
+    public static void commit(File temporary, File target) throws IOException {
+        commit(temporary, target, 1);
+    }
+
+    /**
+     * Like {@link #commit(File, File)} when the caller itself holds hard links to the target,
+     * such as a backup, which the rename may drop.
+     */
+    static void commit(File temporary, File target, int ownLinks) throws IOException {
+        Path real = realTarget(target);
+        try {
+            if (!canRename(temporary, real, ownLinks)) {
+                writeInPlace(temporary, real);
+                temporary.delete();
+                return;
+            }
+            Files.move(temporary.toPath(), real, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether {@link #commit(File, File, int)} would rename the prepared file over the
+     * target rather than write into it. Copies the target's permissions onto the temporary
+     * file, as the commit itself does.
+     */
+    static boolean canRename(File temporary, File target, int ownLinks) throws IOException {
+        return canRename(temporary, realTarget(target), ownLinks);
+    }
+
+    private static boolean canRename(File temporary, Path real, int ownLinks) throws IOException {
+        return !Files.exists(real, LinkOption.NOFOLLOW_LINKS) || copyAttributes(real, temporary.toPath(), ownLinks);
+    }
+
+    public static void discard(File temporary) {
+        if (temporary != null) {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * The file a write should really replace: the end of a symlink chain, also when the
+     * link points at a file that does not exist yet.
+     */
+    static Path realTarget(File target) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        if (Files.exists(path)) {
+            return path.toRealPath();
+        }
+        for (int hops = 0; hops < 40 && Files.isSymbolicLink(path); hops++) {
+            path = path.getParent().resolve(Files.readSymbolicLink(path)).normalize();
+        }
+        return path;
+    }
+
+    /**
+     * Give the temporary file what the target has. False when the rename would lose
+     * something, so the caller writes in place instead.
+     */
+    private static boolean copyAttributes(Path target, Path temporary, int ownLinks) throws IOException {
+        try {
+            Object links = Files.getAttribute(target, "unix:nlink");
+            if (links instanceof Integer && (Integer) links > ownLinks) {
+                return false;
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // No unix view; nothing to compare.
+        }
+        try {
+            if (!Files.getOwner(target).equals(Files.getOwner(temporary))) {
+                return false;
+            }
+        } catch (UnsupportedOperationException e) {
+            // No owners on this filesystem.
+        }
+        Set<PosixFilePermission> permissions;
+        try {
+            permissions = Files.getPosixFilePermissions(target);
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX filesystem; files there carry no permissions to lose.
+            return true;
+        }
+        try {
+            Files.setPosixFilePermissions(temporary, permissions);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeInPlace(File temporary, Path target) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(target.toFile())) {
+            Files.copy(temporary.toPath(), out);
+            out.getFD().sync();
+        }
+    }
+}
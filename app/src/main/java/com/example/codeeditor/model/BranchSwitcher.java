@@ -0,0 +1,628 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.CreateBranchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ListBranchCommand;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.errors.CheckoutConflictException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Branch listing, creation and switching for a working tree.
+ *
+ * Switching diffs the HEAD tree against the target tree first and only rewrites the
+ * paths whose blob IDs differ, so the cost follows the size of the change rather than
+ * the size of the repository. Local changes in those paths are checked before anything is
+ * written, including the tracking branch created for a remote branch. The new files are
+ * written aside before the working tree is touched, and a switch that fails partway puts
+ * the old files, index, HEAD and branches back. Every switch is recorded in the HEAD
+ * reflog like "git checkout" does.
+ */
+public class BranchSwitcher {
+
+    private static final String REMOTE_HEAD = "/HEAD";
+
+    public static class SwitchResult {
+        public final File gitRoot;
+        public final String branch;
+        public final List<String> updatedPaths;
+        public final List<String> removedPaths;
+        public final long elapsedMillis;
+
+        SwitchResult(File gitRoot, String branch, List<String> updatedPaths, List<String> removedPaths,
+                     long elapsedMillis) {
+            this.gitRoot = gitRoot;
+            this.branch = branch;
+            this.updatedPaths = updatedPaths;
+            this.removedPaths = removedPaths;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int touchedFiles() {
+            return updatedPaths.size() + removedPaths.size();
+        }
+    }
+
+    /**
+     * Local branches first, then remote branches that have no local counterpart yet.
+     */
+    public static List<String> listBranches(File directory) throws IOException, GitAPIException {
+        File gitRoot = requireGitRoot(directory);
+        List<String> branches = new ArrayList<>();
+        try (Git git = Git.open(gitRoot)) {
+            Set<String> local = new HashSet<>();
+            for (Ref ref : git.branchList().call()) {
+                String name = Repository.shortenRefName(ref.getName());
+                local.add(name);
+                branches.add(name);
+            }
+            for (Ref ref : git.branchList().setListMode(ListBranchCommand.ListMode.REMOTE).call()) {
+                String name = Repository.shortenRefName(ref.getName());
+                if (name.endsWith(REMOTE_HEAD)) {
+                    continue;
+                }
+                String localName = name.substring(name.indexOf('/') + 1);
+                if (!local.contains(localName)) {
+                    branches.add(name);
+                }
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * Name of the checked out branch, or null when HEAD is detached or unborn.
+     */
+    public static String currentBranch(File directory) throws IOException {
+        File gitRoot = requireGitRoot(directory);
+        try (Git git = Git.open(gitRoot)) {
+            return currentBranch(git.getRepository());
+        }
+    }
+
+    /**
+     * Create a branch at HEAD and switch to it. Both trees are identical, so only HEAD moves.
+     */
+    public static SwitchResult createBranch(File directory, String name) throws IOException, GitAPIException {
+        File gitRoot = requireGitRoot(directory);
+        try (Git git = Git.open(gitRoot)) {
+            git.branchCreate().setName(name).call();
+        }
+        return switchBranch(gitRoot, name);
+    }
+
+    /**
+     * Switch the working tree to the given branch. A remote branch name such as
+     * "origin/feature" gets a local tracking branch named "feature", once the working tree
+     * is known to have no local changes in the way.
+     */
+    public static SwitchResult switchBranch(File directory, String name) throws IOException, GitAPIException {
+        long start = System.nanoTime();
+        File gitRoot = requireGitRoot(directory);
+
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            Target target = resolveTarget(repository, name);
+            String targetRef = Constants.R_HEADS + target.localName;
+
+            ObjectId headCommit = repository.resolve(Constants.HEAD + "^{commit}");
+            List<String> updated = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+
+            if (headCommit == null) {
+                // Unborn HEAD has nothing to diff against, so let JGit materialize everything.
+                createTrackingBranch(git, target);
+                git.checkout().setName(target.localName).call();
+                return new SwitchResult(gitRoot, target.localName, updated, removed, elapsedMillis(start));
+            }
+
+            List<DiffEntry> changes = diffTrees(repository, headCommit, target.commit);
+            List<String> sparsePatterns = changes.isEmpty() ? null : SparseCheckout.readPatterns(gitRoot);
+            if (!changes.isEmpty()) {
+                checkConflicts(git, gitRoot, changes, sparsePatterns);
+            }
+            String from = currentBranch(repository);
+            String fromName = from != null ? from : headCommit.name();
+            createTrackingBranch(git, target);
+            try {
+                if (changes.isEmpty()) {
+                    moveHead(repository, targetRef, null, "checkout: moving from " + fromName + " to " + target.localName);
+                } else {
+                    applyChanges(repository, gitRoot, changes, sparsePatterns, from, headCommit, target.localName,
+                            updated, removed);
+                }
+            } catch (IOException | RuntimeException e) {
+                deleteTrackingBranch(git, target, e);
+                throw e;
+            }
+            return new SwitchResult(gitRoot, target.localName, updated, removed, elapsedMillis(start));
+        }
+    }
+
+    /**
+     * The branch a switch lands on. remoteRef is set when the local branch does not exist
+     * yet and has to be created from it.
+     */
+    private static class Target {
+        final String localName;
+        final ObjectId commit;
+        final Ref remoteRef;
+
+        Target(String localName, ObjectId commit, Ref remoteRef) {
+            this.localName = localName;
+            this.commit = commit;
+            this.remoteRef = remoteRef;
+        }
+    }
+
+    private static Target resolveTarget(Repository repository, String name) throws IOException {
+        String localName = name;
+        Ref remote = null;
+        if (repository.exactRef(Constants.R_HEADS + name) == null) {
+            remote = repository.exactRef(Constants.R_REMOTES + name);
+            if (remote == null) {
+                throw new IOException("Branch " + name + " does not exist");
+            }
+            localName = name.substring(name.indexOf('/') + 1);
+            if (repository.exactRef(Constants.R_HEADS + localName) != null) {
+                remote = null;
+            }
+        }
+        String source = remote != null ? remote.getName() : Constants.R_HEADS + localName;
+        ObjectId commit = repository.resolve(source + "^{commit}");
+        if (commit == null) {
+            throw new IOException("Branch " + name + " does not exist");
+        }
+        return new Target(localName, commit, remote);
+    }
+
+    private static void createTrackingBranch(Git git, Target target) throws GitAPIException {
+        if (target.remoteRef == null) {
+            return;
+        }
+        git.branchCreate()
+                .setName(target.localName)
+                .setStartPoint(target.remoteRef.getName())
+                .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+                .call();
+    }
+
+    private static void deleteTrackingBranch(Git git, Target target, Exception cause) {
+        if (target.remoteRef == null) {
+            return;
+        }
+        try {
+            git.branchDelete().setBranchNames(target.localName).setForce(true).call();
+        } catch (GitAPIException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Point HEAD at a branch, or detach it at a commit when ref is null.
+     */
+    private static void moveHead(Repository repository, String ref, ObjectId commit, String message)
+            throws IOException {
+        RefUpdate headUpdate = repository.updateRef(Constants.HEAD, ref == null);
+        headUpdate.setRefLogMessage(message, false);
+        RefUpdate.Result result;
+        if (ref != null) {
+            result = headUpdate.link(ref);
+        } else {
+            headUpdate.setNewObjectId(commit);
+            result = headUpdate.forceUpdate();
+        }
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED
+                && result != RefUpdate.Result.NO_CHANGE) {
+            throw new IOException("Could not update HEAD: " + result);
+        }
+    }
+
+    private static String currentBranch(Repository repository) throws IOException {
+        Ref head = repository.exactRef(Constants.HEAD);
+        if (head == null || !head.isSymbolic()) {
+            return null;
+        }
+        return Repository.shortenRefName(head.getTarget().getName());
+    }
+
+    private static List<DiffEntry> diffTrees(Repository repository, ObjectId from, ObjectId to) throws IOException {
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            RevCommit fromCommit = revWalk.parseCommit(from);
+            RevCommit toCommit = revWalk.parseCommit(to);
+            treeWalk.addTree(fromCommit.getTree());
+            treeWalk.addTree(toCommit.getTree());
+            treeWalk.setRecursive(true);
+            // ANY_DIFF skips whole subtrees whose tree IDs match, so unchanged directories are never entered.
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            return DiffEntry.scan(treeWalk);
+        }
+    }
+
+    /**
+     * Refuse to switch when a path we are about to rewrite has local changes.
+     * Status is restricted to the changed paths so this stays proportional to the diff.
+     */
+    private static void checkConflicts(Git git, File gitRoot, List<DiffEntry> changes, List<String> sparsePatterns)
+            throws IOException, GitAPIException {
+        StatusCommand statusCommand = git.status();
+        Set<String> paths = new HashSet<>();
+        for (DiffEntry change : changes) {
+            String path = pathOf(change);
+            if (!SparseCheckout.matches(sparsePatterns, path)) {
+                continue;
+            }
+            paths.add(path);
+            statusCommand.addPath(path);
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+        Status status = statusCommand.call();
+
+        List<String> conflicts = new ArrayList<>();
+        for (String path : status.getUncommittedChanges()) {
+            if (paths.contains(path)) {
+                conflicts.add(path);
+            }
+        }
+        for (String path : status.getUntracked()) {
+            if (paths.contains(path) && new File(gitRoot, path).exists()) {
+                conflicts.add(path);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new CheckoutConflictException(conflicts.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Write the diff into the working tree, move HEAD and write the index. Each step is
+     * undone when a later one fails, so the switch happens completely or not at all.
+     */
+    private static void applyChanges(Repository repository, File gitRoot, List<DiffEntry> changes,
+                                     List<String> sparsePatterns, String fromBranch, ObjectId fromCommit,
+                                     String toBranch, List<String> updated, List<String> removed)
+            throws IOException {
+        String fromName = fromBranch != null ? fromBranch : fromCommit.name();
+        DirCache dirCache = repository.lockDirCache();
+        TreeUpdate update = null;
+        boolean keepStaging = false;
+        try (ObjectReader reader = repository.newObjectReader()) {
+            update = new TreeUpdate(gitRoot, repository.getDirectory());
+            DirCacheEditor editor = dirCache.editor();
+            for (DiffEntry change : changes) {
+                if (change.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                    String path = change.getOldPath();
+                    editor.add(new DirCacheEditor.DeletePath(path));
+                    if (SparseCheckout.matches(sparsePatterns, path)) {
+                        update.delete(path);
+                    }
+                    continue;
+                }
+
+                String path = change.getNewPath();
+                FileMode mode = change.getNewMode();
+                if (mode == FileMode.GITLINK) {
+                    continue;
+                }
+                ObjectId blobId = change.getNewId().toObjectId();
+                if (!SparseCheckout.matches(sparsePatterns, path)) {
+                    // Outside the sparse checkout: only the index learns about the new blob.
+                    editor.add(new DirCacheEditor.PathEdit(path) {
+                        @Override
+                        public void apply(DirCacheEntry entry) {
+                            entry.setFileMode(mode);
+                            entry.setObjectId(blobId);
+                        }
+                    });
+                    continue;
+                }
+                update.add(reader, path, mode, blobId);
+            }
+
+            boolean headMoved = false;
+            try {
+                update.install(editor, updated, removed);
+                moveHead(repository, Constants.R_HEADS + toBranch, null,
+                        "checkout: moving from " + fromName + " to " + toBranch);
+                headMoved = true;
+                if (!editor.commit()) {
+                    throw new IOException("Could not write the index");
+                }
+            } catch (IOException | RuntimeException e) {
+                if (headMoved) {
+                    try {
+                        moveHead(repository, fromBranch != null ? Constants.R_HEADS + fromBranch : null, fromCommit,
+                                "checkout: moving from " + toBranch + " to " + fromName);
+                    } catch (IOException headError) {
+                        e.addSuppressed(headError);
+                    }
+                }
+                if (!update.rollback(e)) {
+                    keepStaging = true;
+                    e.addSuppressed(new IOException("Some files could not be put back; their old versions are in "
+                            + update.staging));
+                }
+                throw e;
+            }
+        } finally {
+            if (update != null && !keepStaging) {
+                update.discard();
+            }
+            dirCache.unlock();
+        }
+    }
+
+    /**
+     * The working tree half of a switch. Every new file is first written into a staging
+     * directory inside .git. Installing then moves the old files aside into the same
+     * directory, deletions before additions so a file can give way to a directory of the
+     * same name and back, and moves the new files in. Each move is logged so
+     * {@link #rollback} can put the old tree back.
+     */
+    private static class TreeUpdate {
+
+        private static class Staged {
+            final String path;
+            final FileMode mode;
+            final ObjectId blobId;
+            final Path temp;
+
+            Staged(String path, FileMode mode, ObjectId blobId, Path temp) {
+                this.path = path;
+                this.mode = mode;
+                this.blobId = blobId;
+                this.temp = temp;
+            }
+        }
+
+        /** A path the install changed; backup holds what was there, null when it did not exist. */
+        private static class Moved {
+            final Path file;
+            final Path backup;
+
+            Moved(Path file, Path backup) {
+                this.file = file;
+                this.backup = backup;
+            }
+        }
+
+        final Path staging;
+        private final File gitRoot;
+        private final List<String> deletions = new ArrayList<>();
+        private final List<Staged> additions = new ArrayList<>();
+        private final List<Moved> moved = new ArrayList<>();
+        private int count;
+
+        TreeUpdate(File gitRoot, File gitDirectory) throws IOException {
+            this.gitRoot = gitRoot;
+            this.staging = Files.createTempDirectory(gitDirectory.toPath(), "switch");
+        }
+
+        void delete(String path) {
+            deletions.add(path);
+        }
+
+        void add(ObjectReader reader, String path, FileMode mode, ObjectId blobId) throws IOException {
+            Path temp = staging.resolve(Integer.toString(count++));
+            if (mode == FileMode.SYMLINK) {
+                createSymlink(reader, blobId, temp);
+            } else {
+                createBlob(reader, blobId, temp);
+                if (mode == FileMode.EXECUTABLE_FILE) {
+                    temp.toFile().setExecutable(true);
+                }
+            }
+            additions.add(new Staged(path, mode, blobId, temp));
+        }
+
+        void install(DirCacheEditor editor, List<String> updated, List<String> removed) throws IOException {
+            for (String path : deletions) {
+                File file = new File(gitRoot, path);
+                // Not File.exists(), which follows symlinks and misses a dangling one.
+                if (Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                    moveAside(file.toPath());
+                    deleteEmptyParents(file.getParentFile(), gitRoot);
+                }
+                removed.add(path);
+            }
+            for (Staged staged : additions) {
+                File file = new File(gitRoot, staged.path);
+                File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Could not create " + parent.getPath());
+                }
+                if (Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                    moveAside(file.toPath());
+                } else {
+                    moved.add(new Moved(file.toPath(), null));
+                }
+                Files.move(staged.temp, file.toPath());
+                // The index describes a symlink itself, not what it points to.
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                final long length = attributes.size();
+                final long lastModified = attributes.lastModifiedTime().toMillis();
+                editor.add(new DirCacheEditor.PathEdit(staged.path) {
+                    @Override
+                    public void apply(DirCacheEntry entry) {
+                        entry.setFileMode(staged.mode);
+                        entry.setObjectId(staged.blobId);
+                        entry.setLength(length);
+                        entry.setLastModified(Instant.ofEpochMilli(lastModified));
+                    }
+                });
+                updated.add(staged.path);
+            }
+        }
+
+        private void moveAside(Path file) throws IOException {
+            Path backup = staging.resolve(count++ + ".old");
+            Files.move(file, backup);
+            moved.add(new Moved(file, backup));
+        }
+
+        /**
+         * Undo the install, newest move first. Returns false when some old file could not
+         * be put back; it is then still in the staging directory.
+         */
+        boolean rollback(Exception cause) {
+            boolean complete = true;
+            for (int i = moved.size() - 1; i >= 0; i--) {
+                Moved entry = moved.get(i);
+                try {
+                    // What the install put there; a directory is only there if something else made it.
+                    if (Files.exists(entry.file, LinkOption.NOFOLLOW_LINKS)
+                            && !Files.isDirectory(entry.file, LinkOption.NOFOLLOW_LINKS)) {
+                        Files.delete(entry.file);
+                    }
+                    File parent = entry.file.toFile().getParentFile();
+                    if (entry.backup == null) {
+                        deleteEmptyParents(parent, gitRoot);
+                        continue;
+                    }
+                    if (!parent.isDirectory() && !parent.mkdirs()) {
+                        throw new IOException("Could not create " + parent.getPath());
+                    }
+                    Files.move(entry.backup, entry.file);
+                } catch (IOException e) {
+                    cause.addSuppressed(e);
+                    complete = false;
+                }
+            }
+            return complete;
+        }
+
+        void discard() {
+            deleteTree(staging.toFile());
+        }
+
+        private static void deleteTree(File file) {
+            // Staged symlinks are removed themselves, never followed.
+            if (!Files.isSymbolicLink(file.toPath())) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        deleteTree(child);
+                    }
+                }
+            }
+            file.delete();
+        }
+    }
+
+    static void writeBlob(ObjectReader reader, ObjectId blobId, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent.getPath());
+        }
+        File temp = new File(parent, "." + file.getName() + ".switch");
+        createBlob(reader, blobId, temp.toPath());
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not write " + file.getPath());
+        }
+    }
+
+    /**
+     * Write a symlink blob as a link to the path it holds. Where the filesystem has no
+     * symlinks the path is written as a plain file instead, as git does with
+     * core.symlinks=false.
+     */
+    static void writeSymlink(ObjectReader reader, ObjectId blobId, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent.getPath());
+        }
+        Path temp = new File(parent, "." + file.getName() + ".switch").toPath();
+        Files.deleteIfExists(temp);
+        createSymlink(reader, blobId, temp);
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Could not write " + file.getPath(), e);
+        }
+    }
+
+    private static void createBlob(ObjectReader reader, ObjectId blobId, Path file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file.toFile())) {
+            reader.open(blobId, Constants.OBJ_BLOB).copyTo(out);
+        }
+    }
+
+    /**
+     * A link to the path the blob holds, or a plain file holding the path where the
+     * filesystem has no symlinks, as git does with core.symlinks=false.
+     */
+    private static void createSymlink(ObjectReader reader, ObjectId blobId, Path file) throws IOException {
+        String linkTarget = new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+        try {
+            Files.createSymbolicLink(file, Paths.get(linkTarget));
+        } catch (UnsupportedOperationException | IOException e) {
+            createBlob(reader, blobId, file);
+        }
+    }
+
+    static void deleteEmptyParents(File directory, File gitRoot) {
+        File current = directory;
+        while (current != null && !current.equals(gitRoot)) {
+            String[] children = current.list();
+            if (children == null || children.length > 0 || !current.delete()) {
+                return;
+            }
+            current = current.getParentFile();
+        }
+    }
+
+    private static String pathOf(DiffEntry change) {
+        return change.getChangeType() == DiffEntry.ChangeType.DELETE ? change.getOldPath() : change.getNewPath();
+    }
+
+    private static File requireGitRoot(File directory) throws IOException {
+        File gitRoot = FileLogic.findGitRoot(directory);
+        if (gitRoot == null) {
+            throw new IOException("Not a Git repository.");
+        }
+        return gitRoot;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File, folder and stream copies for the file screens, meant to run on {@link FileOperationQueue}.
+ *
+ * File to file copies go through FileChannel.transferTo, so the kernel moves the data without
+ * it passing through Java buffers. Streams, such as content URIs, go through 256 KB buffers
+ * taken from a small pool so repeated imports do not churn the heap. Every copy adds up its
+ * bytes in a {@link Stats}, which reports the throughput.
+ */
+public class CopyEngine {
+
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final int POOL_SIZE = 4;
+    private static final long TRANSFER_CHUNK = 8L << 20;
+
+    private static final ArrayBlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Running totals of one copy operation. Safe to update from several copying threads.
+     */
+    public static class Stats {
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger files = new AtomicInteger();
+
+        void add(long count) {
+            bytes.addAndGet(count);
+        }
+
+        void addFile() {
+            files.incrementAndGet();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public int getFiles() {
+            return files.get();
+        }
+
+        public long elapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        public long bytesPerSecond() {
+            long millis = Math.max(1, elapsedMillis());
+            return getBytes() * 1000 / millis;
+        }
+
+        /**
+         * For example "3 files, 12.4 MB at 85.0 MB/s".
+         */
+        public String describe() {
+            int files = getFiles();
+            return files + (files == 1 ? " file, " : " files, ") + formatBytes(getBytes())
+                    + " at " + formatBytes(bytesPerSecond()) + "/s";
+        }
+    }
+
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format(Locale.US, "%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    /**
+     * Copy a file or a whole folder into the directory, keeping its name. Returns the copy.
+     *
+     * @throws IOException when a folder would be copied into itself, when the copy would
+     *                     overwrite its own source, or on any read or write error
+     */
+    public static File copyInto(File source, File directory, Stats stats) throws IOException {
+        File target = targetFor(source, directory);
+        copy(source, target, stats);
+        return target;
+    }
+
+    /**
+     * Where copyInto would put the source, checking the copy would not land on itself.
+     */
+    static File targetFor(File source, File directory) throws IOException {
+        File target = new File(directory, source.getName());
+        if (source.isDirectory() && isInside(directory, source)) {
+            throw new IOException("Cannot copy " + source.getName() + " into itself");
+        }
+        if (target.getCanonicalFile().equals(source.getCanonicalFile())) {
+            throw new IOException(source.getName() + " is already in this folder");
+        }
+        return target;
+    }
+
+    private static void copy(File source, File target, Stats stats) throws IOException {
+        if (!source.isDirectory()) {
+            copyFile(source, target, stats);
+            return;
+        }
+        if (!target.isDirectory() && !target.mkdirs()) {
+            throw new IOException("Cannot create " + target.getName());
+        }
+        File[] children = source.listFiles();
+        if (children == null) {
+            throw new IOException("Cannot read " + source.getName());
+        }
+        for (File child : children) {
+            copy(child, new File(target, child.getName()), stats);
+        }
+    }
+
+    /**
+     * Copy one file with FileChannel.transferTo, replacing the target. Returns the bytes copied.
+     */
+    public static long copyFile(File source, File target, Stats stats) throws IOException {
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long moved = in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+                if (moved <= 0) {
+                    // The source was truncated while we copied it.
+                    break;
+                }
+                position += moved;
+                stats.add(moved);
+            }
+            stats.addFile();
+            return position;
+        }
+    }
+
+    /**
+     * Copy a stream through a pooled buffer. Neither stream is closed. Returns the bytes copied.
+     * Stops with an InterruptedIOException once the copying thread is interrupted.
+     */
+    public static long copyStream(InputStream in, OutputStream out, Stats stats) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long total = 0;
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Copy interrupted");
+                }
+                out.write(buffer, 0, length);
+                total += length;
+                stats.add(length);
+            }
+            stats.addFile();
+            return total;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private static byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private static void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    private static boolean isInside(File file, File directory) throws IOException {
+        String path = file.getCanonicalPath() + File.separator;
+        String prefix = directory.getCanonicalPath() + File.separator;
+        return path.startsWith(prefix);
+    }
+}
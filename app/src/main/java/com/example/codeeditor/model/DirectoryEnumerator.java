@@ -0,0 +1,233 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
+
+/**
+ * Lists directories off the main thread.
+ *
+ * Each directory is read in one pass with a DirectoryStream, reading the basic attributes
+ * of every entry as it goes, instead of listFiles() followed by a stat per child. Entries
+ * are handed to the caller in batches while the directory is still being read, and the
+ * finished listing is cached keyed by the directory's modification time, so reopening an
+ * unchanged directory costs a single stat.
+ */
+public class DirectoryEnumerator {
+
+    static final int FIRST_BATCH = 64;
+    static final int BATCH = 512;
+    static final int MAX_CACHED_DIRECTORIES = 1024;
+
+    private static DirectoryEnumerator shared;
+
+    public static class Entry {
+        public final File file;
+        public final boolean directory;
+        public final long length;
+        public final long lastModified;
+
+        Entry(File file, boolean directory, long length, long lastModified) {
+            this.file = file;
+            this.directory = directory;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public String getName() {
+            return file.getName();
+        }
+    }
+
+    public interface Callback {
+        /**
+         * Called on the callback executor for every batch; the last call has last set,
+         * possibly with an empty list.
+         */
+        void onBatch(List<Entry> entries, boolean last);
+    }
+
+    private static class Listing {
+        final long lastModified;
+        final List<Entry> entries;
+
+        Listing(long lastModified, List<Entry> entries) {
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Map<String, Listing> cache = new LinkedHashMap<String, Listing>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+            return size() > MAX_CACHED_DIRECTORIES;
+        }
+    };
+
+    public DirectoryEnumerator(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public static synchronized DirectoryEnumerator shared() {
+        if (shared == null) {
+            shared = new DirectoryEnumerator(Executors.newFixedThreadPool(2, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DirectoryEnumerator");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }));
+        }
+        return shared;
+    }
+
+    /**
+     * Enumerate a directory in the background. The filter runs on the IO thread; the
+     * callback runs on callbackExecutor, e.g. the main thread executor.
+     */
+    public Future<?> enumerate(File directory, Predicate<Entry> filter, Executor callbackExecutor, Callback callback) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<Entry> cached = cached(directory);
+                if (cached != null) {
+                    deliver(filter(cached, filter), true, callbackExecutor, callback);
+                    return;
+                }
+                long lastModified = directory.lastModified();
+                List<Entry> all = new ArrayList<>();
+                List<Entry> batch = new ArrayList<>();
+                int batchSize = FIRST_BATCH;
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+                    for (Path path : stream) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        Entry entry = readEntry(path);
+                        all.add(entry);
+                        if (filter == null || filter.test(entry)) {
+                            batch.add(entry);
+                        }
+                        if (batch.size() >= batchSize) {
+                            deliver(batch, false, callbackExecutor, callback);
+                            batch = new ArrayList<>();
+                            batchSize = BATCH;
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    deliver(batch, true, callbackExecutor, callback);
+                    return;
+                }
+                store(directory, lastModified, all);
+                deliver(batch, true, callbackExecutor, callback);
+            }
+        });
+    }
+
+    /**
+     * Synchronous listing through the same cache, for callers already on a worker thread.
+     */
+    public List<Entry> list(File directory) throws IOException {
+        List<Entry> cached = cached(directory);
+        if (cached != null) {
+            return cached;
+        }
+        long lastModified = directory.lastModified();
+        List<Entry> all = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                all.add(readEntry(path));
+            }
+        }
+        store(directory, lastModified, all);
+        return Collections.unmodifiableList(all);
+    }
+
+    public void invalidate(File directory) {
+        synchronized (cache) {
+            cache.remove(directory.getAbsolutePath());
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private List<Entry> cached(File directory) {
+        Listing listing;
+        synchronized (cache) {
+            listing = cache.get(directory.getAbsolutePath());
+        }
+        if (listing == null || listing.lastModified != directory.lastModified()) {
+            return null;
+        }
+        return listing.entries;
+    }
+
+    private void store(File directory, long lastModified, List<Entry> entries) {
+        if (lastModified == 0L) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(directory.getAbsolutePath(), new Listing(lastModified, Collections.unmodifiableList(entries)));
+        }
+    }
+
+    private static Entry readEntry(Path path) {
+        File file = path.toFile();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            try {
+                // Dangling symlink: describe the link itself.
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ignored) {
+                return new Entry(file, false, 0L, 0L);
+            }
+        }
+        return new Entry(file, attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    private static List<Entry> filter(List<Entry> entries, Predicate<Entry> filter) {
+        if (filter == null) {
+            return entries;
+        }
+        List<Entry> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (filter.test(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static void deliver(List<Entry> entries, boolean last, Executor callbackExecutor, Callback callback) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onBatch(entries, last);
+            }
+        });
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.codeeditor.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports picked documents and document trees from another app into a local folder.
+ *
+ * Where the documents come from is behind {@link Source}, which lists a whole folder per call
+ * with name, type, size and modification time, so a tree costs one query per folder and none
+ * per file. The tree is listed up front for the totals, every folder is created, and files
+ * are streamed through {@link CopyEngine#copyStream} on a small pool, each into a ".part"
+ * file that is renamed once complete.
+ *
+ * Every finished file is appended to a checkpoint file. If an import is interrupted, running
+ * it again with the same checkpoint skips files that were already imported and still match
+ * in size, and the checkpoint is deleted once an import completes. Unlike
+ * {@link TreeCopyJob}, a failed or cancelled import keeps what it has copied, since that is
+ * what a later run resumes from. Existing files with the same names are overwritten, but
+ * documents that share a display name are given distinct ones.
+ *
+ * Progress and the final result are reported through {@link TreeCopyJob.Listener}. Run
+ * {@link #run()} on a background thread, normally a {@link FileOperationQueue} task.
+ */
+public class DocumentImportJob implements Runnable {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+    private static final String PART_SUFFIX = ".part";
+
+    public static class Document {
+        public final String id;
+        public final String name;
+        public final boolean directory;
+        public final long size;
+        /** Milliseconds since the epoch, or 0 when the provider does not say. */
+        public final long lastModified;
+
+        public Document(String id, String name, boolean directory, long size, long lastModified) {
+            this.id = id;
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public interface Source {
+        /** All children of a folder, in as few provider queries as possible. */
+        List<Document> list(Document directory) throws IOException;
+
+        InputStream open(Document file) throws IOException;
+    }
+
+    private final Source source;
+    private final List<Document> roots;
+    private final File directory;
+    private final File checkpoint;
+    private final int parallelism;
+    private final TreeCopyJob.Listener listener;
+    private final CopyEngine.Stats stats = new CopyEngine.Stats();
+    private final AtomicLong lastReport = new AtomicLong();
+
+    private volatile boolean cancelled;
+    private volatile ExecutorService pool;
+    private int totalFiles;
+    private long totalBytes;
+    private int skippedFiles;
+    private long skippedBytes;
+
+    public DocumentImportJob(Source source, List<Document> roots, File directory, File checkpoint, int parallelism,
+                             TreeCopyJob.Listener listener) {
+        this.source = source;
+        this.roots = roots;
+        this.directory = directory;
+        this.checkpoint = checkpoint;
+        this.parallelism = Math.max(1, parallelism);
+        this.listener = listener;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        ExecutorService running = pool;
+        if (running != null) {
+            running.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Files skipped because an earlier, interrupted run already imported them. */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    @Override
+    public void run() {
+        IOException error = null;
+        try {
+            Map<String, String> imported = readCheckpoint();
+            List<Item> directories = new ArrayList<>();
+            List<Item> files = new ArrayList<>();
+            enumerate(directories, files);
+            for (Item item : directories) {
+                if (!item.target.isDirectory() && !item.target.mkdirs()) {
+                    throw new IOException("Cannot create " + item.target.getName());
+                }
+            }
+            List<Item> pending = new ArrayList<>(files.size());
+            for (Item item : files) {
+                if (checkpointKey(item).equals(imported.get(item.relativePath))
+                        && item.target.length() == item.document.size) {
+                    skippedFiles++;
+                    skippedBytes += item.document.size;
+                } else {
+                    pending.add(item);
+                }
+            }
+            report(true);
+            checkpoint.getParentFile().mkdirs();
+            try (Writer writer = new BufferedWriter(new FileWriter(checkpoint, true))) {
+                copyFiles(pending, writer);
+            }
+            if (!cancelled) {
+                for (int i = directories.size() - 1; i >= 0; i--) {
+                    Item item = directories.get(i);
+                    if (item.document.lastModified > 0) {
+                        item.target.setLastModified(item.document.lastModified);
+                    }
+                }
+                checkpoint.delete();
+            }
+        } catch (IOException e) {
+            if (!cancelled) {
+                error = e;
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        listener.onFinished(snapshot(), directory, error, cancelled);
+    }
+
+    private static class Item {
+        final Document document;
+        final String relativePath;
+        final File target;
+
+        Item(Document document, String relativePath, File target) {
+            this.document = document;
+            this.relativePath = relativePath;
+            this.target = target;
+        }
+    }
+
+    private void enumerate(List<Item> directories, List<Item> files) throws IOException, InterruptedException {
+        Deque<Item> folders = new ArrayDeque<>();
+        Set<String> rootNames = new HashSet<>();
+        for (Document root : roots) {
+            add(root, uniqueName(root, rootNames), directories, files, folders);
+        }
+        while (!folders.isEmpty()) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            Item folder = folders.poll();
+            Set<String> names = new HashSet<>();
+            for (Document child : source.list(folder.document)) {
+                add(child, folder.relativePath + "/" + uniqueName(child, names), directories, files, folders);
+            }
+        }
+        totalFiles = files.size();
+    }
+
+    /**
+     * Providers can list two documents with the same display name in one folder, and two
+     * picked roots can share one, so later ones get " (2)", " (3)" before the extension.
+     * Names are compared ignoring case, and a file also claims its ".part" name. The listing
+     * order decides the suffixes, which keeps them stable when an import is resumed.
+     */
+    static String uniqueName(Document document, Set<String> taken) {
+        String name = safeName(document.name);
+        int dot = document.directory ? -1 : name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        String candidate = name;
+        for (int n = 2; isTaken(candidate, document.directory, taken); n++) {
+            candidate = base + " (" + n + ")" + extension;
+        }
+        taken.add(candidate.toLowerCase(Locale.ROOT));
+        if (!document.directory) {
+            taken.add((candidate + PART_SUFFIX).toLowerCase(Locale.ROOT));
+        }
+        return candidate;
+    }
+
+    private static boolean isTaken(String name, boolean directory, Set<String> taken) {
+        return taken.contains(name.toLowerCase(Locale.ROOT))
+                || (!directory && taken.contains((name + PART_SUFFIX).toLowerCase(Locale.ROOT)));
+    }
+
+    private void add(Document document, String relativePath, List<Item> directories, List<Item> files,
+                     Deque<Item> folders) {
+        Item item = new Item(document, relativePath, new File(directory, relativePath));
+        if (document.directory) {
+            directories.add(item);
+            folders.add(item);
+        } else {
+            files.add(item);
+            totalBytes += Math.max(0, document.size);
+        }
+    }
+
+    private void copyFiles(List<Item> files, Writer writer) throws IOException, InterruptedException {
+        if (files.isEmpty() || cancelled) {
+            return;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, files.size()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "DocumentImportJob");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool = workers;
+        if (cancelled) {
+            workers.shutdownNow();
+            return;
+        }
+        CompletionService<Void> completion = new ExecutorCompletionService<>(workers);
+        int submitted = 0;
+        try {
+            for (Item item : files) {
+                completion.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        if (cancelled) {
+                            return null;
+                        }
+                        importFile(item);
+                        synchronized (writer) {
+                            writer.write(item.relativePath + "\t" + checkpointKey(item) + "\n");
+                            writer.flush();
+                        }
+                        report(false);
+                        return null;
+                    }
+                });
+                submitted++;
+            }
+            for (int i = 0; i < submitted && !cancelled; i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // cancel() shut the pool down while files were still being queued.
+        } finally {
+            workers.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private void importFile(Item item) throws IOException {
+        File part = new File(item.target.getPath() + PART_SUFFIX);
+        boolean done = false;
+        try {
+            try (InputStream in = source.open(item.document);
+                 OutputStream out = new FileOutputStream(part)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + item.document.name);
+                }
+                CopyEngine.copyStream(in, out, stats);
+            }
+            if (item.target.exists() && !item.target.delete()) {
+                throw new IOException("Cannot replace " + item.target.getName());
+            }
+            if (!part.renameTo(item.target)) {
+                throw new IOException("Cannot create " + item.target.getName());
+            }
+            if (item.document.lastModified > 0) {
+                item.target.setLastModified(item.document.lastModified);
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                part.delete();
+            }
+        }
+    }
+
+    private Map<String, String> readCheckpoint() throws IOException {
+        Map<String, String> imported = new HashMap<>();
+        if (!checkpoint.isFile()) {
+            return imported;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(checkpoint))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                // A line cut short by a crash has no key and is simply not trusted.
+                if (tab > 0) {
+                    imported.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+        return imported;
+    }
+
+    private static String checkpointKey(Item item) {
+        return item.document.size + "\t" + item.document.lastModified;
+    }
+
+    /**
+     * Display names come from other apps; keep them to one harmless path segment.
+     */
+    static String safeName(String name) {
+        if (name == null || name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return "_";
+        }
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append(c == '/' || c == '\\' || c < ' ' ? '_' : c);
+        }
+        return builder.toString();
+    }
+
+    private void report(boolean force) {
+        long now = System.nanoTime() / 1_000_000;
+        long last = lastReport.get();
+        if (!force && now - last < PROGRESS_INTERVAL_MILLIS) {
+            return;
+        }
+        if (lastReport.compareAndSet(last, now)) {
+            listener.onProgress(snapshot());
+        }
+    }
+
+    private TreeCopyJob.Progress snapshot() {
+        int files = skippedFiles + stats.getFiles();
+        long bytes = skippedBytes + stats.getBytes();
+        // Throughput and time left count only what this run copied, not what it skipped.
+        long bytesPerSecond = stats.elapsedMillis() > 0 ? stats.bytesPerSecond() : 0;
+        long eta = -1;
+        if (bytesPerSecond > 0 && stats.elapsedMillis() >= 500 && bytes < totalBytes) {
+            eta = (totalBytes - bytes) * 1000 / bytesPerSecond;
+        }
+        return new TreeCopyJob.Progress(files, totalFiles, bytes, totalBytes, eta, bytesPerSecond);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.codeeditor.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Which folders of a project are expanded, keyed by project relative path.
+ *
+ * Paths are stored as a trie of path segments, so folders with the same name in different
+ * places are distinct and shared prefixes are stored once. A collapsed folder keeps the
+ * state of its subfolders, so expanding it again restores them as they were.
+ *
+ * {@link #serialize()} writes one segment per line, indented by depth with tabs, which is
+ * what gets persisted per project. Backslashes, tabs and line breaks in names are written
+ * as backslash escapes, so any folder name survives the round trip.
+ */
+public class ExpansionState {
+
+    private static class Node {
+        final Map<String, Node> children = new TreeMap<>();
+        boolean expanded;
+    }
+
+    private final Node root = new Node();
+
+    public ExpansionState() {
+        root.expanded = true;
+    }
+
+    public boolean isExpanded(String path) {
+        if (path.isEmpty()) {
+            return root.expanded;
+        }
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            int slash = path.indexOf('/', start);
+            String segment = slash < 0 ? path.substring(start) : path.substring(start, slash);
+            node = node.children.get(segment);
+            if (slash < 0) {
+                break;
+            }
+            start = slash + 1;
+        }
+        return node != null && node.expanded;
+    }
+
+    public void setExpanded(String path, boolean expanded) {
+        if (path.isEmpty()) {
+            root.expanded = expanded;
+            return;
+        }
+        String[] segments = path.split("/");
+        if (!expanded) {
+            Node node = root;
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return;
+                }
+            }
+            node.expanded = false;
+            prune(root, segments, 0);
+            return;
+        }
+        Node node = root;
+        for (String segment : segments) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.expanded = true;
+    }
+
+    /**
+     * Forget a folder and everything below it, e.g. after it was deleted.
+     */
+    public void remove(String path) {
+        if (path.isEmpty()) {
+            root.children.clear();
+            return;
+        }
+        String[] segments = path.split("/");
+        Node node = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            node = node.children.get(segments[i]);
+            if (node == null) {
+                return;
+            }
+        }
+        node.children.remove(segments[segments.length - 1]);
+        prune(root, segments, 0);
+    }
+
+    public List<String> expandedPaths() {
+        List<String> paths = new ArrayList<>();
+        collect(root, "", paths);
+        return paths;
+    }
+
+    public String serialize() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(root.expanded ? '+' : '-').append('\n');
+        write(root, 0, sb);
+        return sb.toString();
+    }
+
+    public static ExpansionState parse(String text) {
+        ExpansionState state = new ExpansionState();
+        if (text == null || text.isEmpty()) {
+            return state;
+        }
+        String[] lines = text.split("\n");
+        state.root.expanded = !lines[0].equals("-");
+        List<Node> stack = new ArrayList<>();
+        stack.add(state.root);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int depth = 0;
+            while (depth < line.length() && line.charAt(depth) == '\t') {
+                depth++;
+            }
+            if (depth + 1 >= line.length() || depth >= stack.size()) {
+                continue;
+            }
+            Node node = new Node();
+            node.expanded = line.charAt(depth) == '+';
+            stack.get(depth).children.put(unescape(line.substring(depth + 1)), node);
+            while (stack.size() > depth + 1) {
+                stack.remove(stack.size() - 1);
+            }
+            stack.add(node);
+        }
+        return state;
+    }
+
+    private static void write(Node node, int depth, StringBuilder sb) {
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            for (int i = 0; i < depth; i++) {
+                sb.append('\t');
+            }
+            sb.append(entry.getValue().expanded ? '+' : '-');
+            escape(entry.getKey(), sb);
+            sb.append('\n');
+            write(entry.getValue(), depth + 1, sb);
+        }
+    }
+
+    private static void escape(String name, StringBuilder sb) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            if (next == 't') {
+                sb.append('\t');
+            } else if (next == 'n') {
+                sb.append('\n');
+            } else if (next == 'r') {
+                sb.append('\r');
+            } else {
+                sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void collect(Node node, String path, List<String> paths) {
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            String childPath = path.isEmpty() ? entry.getKey() : path + "/" + entry.getKey();
+            if (entry.getValue().expanded) {
+                paths.add(childPath);
+            }
+            collect(entry.getValue(), childPath, paths);
+        }
+    }
+
+    /**
+     * Drop nodes along the path that are collapsed and have nothing expanded below them.
+     */
+    private static boolean prune(Node node, String[] segments, int index) {
+        if (index < segments.length) {
+            Node child = node.children.get(segments[index]);
+            if (child != null && prune(child, segments, index + 1)) {
+                node.children.remove(segments[index]);
+            }
+        }
+        return !node.expanded && node.children.isEmpty();
+    }
+}
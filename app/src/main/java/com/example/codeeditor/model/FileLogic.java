@@ -4,15 +4,19 @@ import android.content.Context;
 import android.net.Uri;
 import androidx.documentfile.provider.DocumentFile;
 
+import org.eclipse.jgit.api.AddCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 
@@ -77,7 +81,7 @@ public class FileLogic {
     /**
      * Find the Git repository root by walking up the directory tree.
      */
-    private static File findGitRoot(File startDir) {
+    static File findGitRoot(File startDir) {
         File current = startDir;
         while (current != null) {
             File gitDir = new File(current, ".git");
@@ -121,6 +125,17 @@ public class FileLogic {
                 git.close();
                 return "File is outside the repository.";
             }
+            if (!SparseCheckout.matches(SparseCheckout.readPatterns(gitRoot), filePattern)) {
+                git.close();
+                return "File is outside the sparse checkout: " + filePattern;
+            }
+            IgnoreMatcher ignoreMatcher = IgnoreMatcher.forRoot(gitRoot);
+            ignoreMatcher.revalidate();
+            if (ignoreMatcher.isIgnored(filePattern, false)
+                    && git.getRepository().readDirCache().findEntry(filePattern) < 0) {
+                git.close();
+                return "File is ignored by .gitignore: " + filePattern;
+            }
             
             git.add()
                     .addFilepattern(filePattern)
@@ -161,16 +176,24 @@ public class FileLogic {
 
             Git git = Git.open(gitRoot);
 
+            // With sparse checkout "." would stage every path that was never materialized as deleted
+            List<String> sparsePatterns = SparseCheckout.readPatterns(gitRoot);
+            List<String> filePatterns = sparsePatterns.isEmpty()
+                    ? Collections.singletonList(".") : sparsePatterns;
+
             // Add all new and modified files
-            git.add()
-                    .addFilepattern(".")
-                    .call();
+            AddCommand addNew = git.add();
+            for (String filePattern : filePatterns) {
+                addNew.addFilepattern(filePattern);
+            }
+            addNew.call();
             
             // Also stage deleted files
-            git.add()
-                    .addFilepattern(".")
-                    .setUpdate(true)
-                    .call();
+            AddCommand addDeleted = git.add().setUpdate(true);
+            for (String filePattern : filePatterns) {
+                addDeleted.addFilepattern(filePattern);
+            }
+            addDeleted.call();
 
             git.close();
             return "All changes staged for commit.";
@@ -202,7 +225,7 @@ public class FileLogic {
             }
 
             Git git = Git.open(gitRoot);
-            Status status = git.status().call();
+            Status status = SparseCheckout.status(git, SparseCheckout.readPatterns(gitRoot)).call();
 
             StringBuilder sb = new StringBuilder();
             
@@ -279,7 +302,7 @@ public class FileLogic {
             Git git = Git.open(gitRoot);
             
             // Check if there are staged changes
-            Status status = git.status().call();
+            Status status = SparseCheckout.status(git, SparseCheckout.readPatterns(gitRoot)).call();
             if (status.getAdded().isEmpty() && 
                 status.getChanged().isEmpty() && 
                 status.getRemoved().isEmpty()) {
@@ -312,6 +335,15 @@ public class FileLogic {
      * Push commits to the remote repository.
      */
     public static String gitPush(Context context, Uri directoryUri, String username, String password) {
+        return gitPush(context, directoryUri, username, password, null);
+    }
+
+    /**
+     * Push the current branch with thin packs, reporting progress to the given monitor.
+     * Cancelling the monitor aborts the push.
+     */
+    public static String gitPush(Context context, Uri directoryUri, String username, String password,
+                                 PushOperation.Monitor monitor) {
         try {
             if (directoryUri == null) {
                 return "No directory selected. Open a folder first.";
@@ -327,27 +359,13 @@ public class FileLogic {
                 return "Not a Git repository.";
             }
 
-            Git git = Git.open(gitRoot);
-            
-            // Check if remote is configured
-            if (git.getRepository().getRemoteNames().isEmpty()) {
-                git.close();
-                return "No remote configured. Add a remote first.";
-            }
-
             // Push with or without credentials
+            CredentialsProvider cp = null;
             if (username != null && !username.isEmpty() && 
                 password != null && !password.isEmpty()) {
-                CredentialsProvider cp = new UsernamePasswordCredentialsProvider(username, password);
-                git.push()
-                        .setCredentialsProvider(cp)
-                        .call();
-            } else {
-                git.push().call();
+                cp = new UsernamePasswordCredentialsProvider(username, password);
             }
-            
-            git.close();
-            return "Push successful!";
+            return PushOperation.push(gitRoot, cp, monitor);
 
         } catch (IOException | GitAPIException e) {
             e.printStackTrace();
@@ -392,7 +410,7 @@ public class FileLogic {
             }
 
             Git git = Git.open(gitRoot);
-            Status status = git.status().call();
+            Status status = SparseCheckout.status(git, SparseCheckout.readPatterns(gitRoot)).call();
 
             // Add untracked files
             files.addAll(status.getUntracked());
@@ -438,15 +456,28 @@ public class FileLogic {
             }
 
             Git git = Git.open(gitRoot);
+            List<String> sparsePatterns = SparseCheckout.readPatterns(gitRoot);
+            IgnoreMatcher ignoreMatcher = IgnoreMatcher.forRoot(gitRoot);
+            ignoreMatcher.revalidate();
+            DirCache index = git.getRepository().readDirCache();
 
+            int added = 0;
             for (String filePath : filePaths) {
+                if (!SparseCheckout.matches(sparsePatterns, filePath)) {
+                    continue;
+                }
+                // Ignored files are only skipped while untracked; tracked ones still stage normally.
+                if (ignoreMatcher.isIgnored(filePath, false) && index.findEntry(filePath) < 0) {
+                    continue;
+                }
                 git.add()
                         .addFilepattern(filePath)
                         .call();
+                added++;
             }
 
             git.close();
-            return "Added " + filePaths.size() + " file(s) to staging.";
+            return "Added " + added + " file(s) to staging.";
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -509,11 +540,8 @@ public class FileLogic {
      * Converts a SAF (Storage Access Framework) content URI to a File object.
      * 
      * This works when the app has MANAGE_EXTERNAL_STORAGE permission (Android 11+)
-     * or appropriate storage permissions on older versions.
-     * 
-     * Content URIs from the external storage provider follow patterns like:
-     * - content://com.android.externalstorage.documents/tree/primary:FolderPath
-     * - content://com.android.externalstorage.documents/document/primary:FilePath
+     * or appropriate storage permissions on older versions. Resolutions are cached;
+     * see {@link UriResolver} for the URI formats understood.
      * 
      * @param context The application context
      * @param uri The content URI to convert
@@ -523,80 +551,7 @@ public class FileLogic {
         if (uri == null) {
             return null;
         }
-
-        String uriString = uri.toString();
-        
-        // Handle file:// URIs directly
-        if ("file".equals(uri.getScheme())) {
-            return new File(uri.getPath());
-        }
-
-        // Handle content:// URIs from external storage provider
-        if ("content".equals(uri.getScheme()) && 
-            uriString.contains("com.android.externalstorage.documents")) {
-            
-            // Extract the path portion (e.g., "primary:FolderName" or "XXXX-XXXX:FolderName")
-            String docId = null;
-            
-            // Try to get the document ID from the URI path
-            String path = uri.getPath();
-            if (path != null) {
-                // Handle /tree/primary:path or /document/primary:path formats
-                if (path.contains("/tree/")) {
-                    int treeIndex = path.indexOf("/tree/");
-                    String afterTree = path.substring(treeIndex + 6);
-                    // If there's also a /document/ part, use that for the actual path
-                    if (afterTree.contains("/document/")) {
-                        int docIndex = afterTree.indexOf("/document/");
-                        docId = afterTree.substring(docIndex + 10);
-                    } else {
-                        docId = afterTree;
-                    }
-                } else if (path.contains("/document/")) {
-                    int docIndex = path.indexOf("/document/");
-                    docId = path.substring(docIndex + 10);
-                }
-            }
-
-            if (docId != null) {
-                // Decode URL encoding (e.g., %20 -> space)
-                try {
-                    docId = java.net.URLDecoder.decode(docId, "UTF-8");
-                } catch (Exception e) {
-                    // Continue with encoded version if decoding fails
-                }
-
-                // Split into volume and path (e.g., "primary:FolderName")
-                String[] split = docId.split(":", 2);
-                String volumeId = split[0];
-                String relativePath = split.length > 1 ? split[1] : "";
-
-                // Map volume ID to actual storage path
-                String basePath;
-                if ("primary".equalsIgnoreCase(volumeId)) {
-                    // Primary external storage
-                    basePath = android.os.Environment.getExternalStorageDirectory().getAbsolutePath();
-                } else {
-                    // Secondary storage (SD card, USB, etc.)
-                    basePath = "/storage/" + volumeId;
-                }
-
-                // Construct the full path
-                if (relativePath.isEmpty()) {
-                    return new File(basePath);
-                } else {
-                    return new File(basePath, relativePath);
-                }
-            }
-        }
-
-        // Fallback: try the path directly (may not work for content URIs)
-        String path = uri.getPath();
-        if (path != null) {
-            return new File(path);
-        }
-
-        return null;
+        return UriResolver.shared(context).resolve(uri.toString());
     }
 
 
@@ -0,0 +1,421 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One scheduler for every file operation the app performs: saves, opens, copies, imports,
+ * deletes, clones and repository maintenance.
+ *
+ * Operations wait in priority lanes and start in lane order, oldest first within a lane.
+ * Each one names the files or folders it touches, and two operations whose paths overlap,
+ * the same path or one inside the other, never run at the same time and always run in the
+ * order they were submitted, so a save and a delete of the same file cannot race. Background
+ * lanes can never take the last worker, which stays free for saves and opens.
+ *
+ * Every operation is a {@link Ticket} with a state and progress; {@link #snapshot()} lists
+ * the queued, running and recently finished ones for display.
+ */
+public class FileOperationQueue {
+
+    public enum Priority {
+        SAVE("Save"),
+        OPEN("Open"),
+        BACKGROUND("Background"),
+        MAINTENANCE("Maintenance");
+
+        public final String label;
+
+        Priority(String label) {
+            this.label = label;
+        }
+
+        boolean isBackground() {
+            return this == BACKGROUND || this == MAINTENANCE;
+        }
+    }
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    public interface Task {
+        /**
+         * Do the work on a queue thread. Report progress through the ticket and return
+         * early when {@link Ticket#isCancelled()}; cancelling also interrupts the thread.
+         */
+        void run(Ticket ticket) throws Exception;
+    }
+
+    public interface Callback {
+        /**
+         * Called once the ticket is done, failed or cancelled: on the queue thread, or on the
+         * cancelling thread for a ticket cancelled before it started.
+         */
+        void onFinished(Ticket ticket);
+    }
+
+    public interface Listener {
+        /** Called on whichever thread changed the queue; post to the UI before touching views. */
+        void onQueueChanged();
+    }
+
+    private static final int WORKERS = 3;
+    private static final int MAX_HISTORY = 20;
+    private static final long NOTIFY_INTERVAL_MILLIS = 100;
+
+    private static FileOperationQueue shared;
+
+    public class Ticket {
+        public final String label;
+        public final Priority priority;
+        private final long sequence;
+        private final List<String> paths;
+        private final Task task;
+        private final Callback callback;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelled;
+        private volatile long done;
+        private volatile long total;
+        private volatile String message = "";
+        private volatile Exception error;
+        private volatile long lastNotify;
+        private Thread runner;
+
+        Ticket(String label, Priority priority, long sequence, List<String> paths, Task task, Callback callback) {
+            this.label = label;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.paths = paths;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** The exception the task threw, when it failed. */
+        public Exception getError() {
+            return error;
+        }
+
+        public long getDone() {
+            return done;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Report progress; total 0 means unknown. Listeners hear about it at most every 100 ms.
+         */
+        public void setProgress(long done, long total, String message) {
+            this.done = done;
+            this.total = total;
+            this.message = message == null ? "" : message;
+            long now = System.nanoTime() / 1_000_000;
+            if (now - lastNotify >= NOTIFY_INTERVAL_MILLIS) {
+                lastNotify = now;
+                notifyListeners();
+            }
+        }
+
+        /**
+         * Drop the ticket if it is still queued, or ask it to stop and interrupt its thread.
+         */
+        public void cancel() {
+            synchronized (FileOperationQueue.this) {
+                if (state == State.RUNNING) {
+                    cancelled = true;
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                    return;
+                }
+                if (state != State.QUEUED) {
+                    return;
+                }
+                cancelled = true;
+                pending.remove(this);
+                finish(this, State.CANCELLED);
+            }
+            completed(this);
+        }
+
+        /**
+         * Block until the ticket is finished and its callback has run. Only for callers that must have the result
+         * before going on, such as reading a file that may have a save queued.
+         */
+        public void await() throws InterruptedException {
+            finished.await();
+        }
+
+        public String describe() {
+            StringBuilder text = new StringBuilder(label);
+            switch (state) {
+                case QUEUED:
+                    text.append(" - queued (").append(priority.label.toLowerCase(Locale.ROOT)).append(")");
+                    break;
+                case RUNNING:
+                    text.append(" - ");
+                    if (total > 0) {
+                        text.append(done * 100 / total).append("%");
+                    } else {
+                        text.append("running");
+                    }
+                    if (!message.isEmpty()) {
+                        text.append(", ").append(message);
+                    }
+                    break;
+                case DONE:
+                    text.append(" - done");
+                    break;
+                case FAILED:
+                    text.append(" - failed: ").append(error == null ? "" : error.getMessage());
+                    break;
+                case CANCELLED:
+                    text.append(" - cancelled");
+                    break;
+            }
+            return text.toString();
+        }
+    }
+
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Ticket> pending = new ArrayList<>();
+    private final List<Ticket> running = new ArrayList<>();
+    private final Deque<Ticket> history = new ArrayDeque<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public FileOperationQueue(int workerCount) {
+        this.workerCount = Math.max(2, workerCount);
+        this.workers = Executors.newFixedThreadPool(this.workerCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FileOperationQueue");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static synchronized FileOperationQueue shared() {
+        if (shared == null) {
+            shared = new FileOperationQueue(WORKERS);
+        }
+        return shared;
+    }
+
+    /**
+     * Queue an operation touching the given files or folders. An empty collection means it
+     * touches nothing the other operations care about. The callback may be null.
+     */
+    public Ticket submit(String label, Priority priority, Collection<File> paths, Task task, Callback callback) {
+        List<String> keys = new ArrayList<>(paths.size());
+        for (File path : paths) {
+            keys.add(path.getAbsolutePath());
+        }
+        Ticket ticket = new Ticket(label, priority, sequence.incrementAndGet(), keys, task, callback);
+        synchronized (this) {
+            pending.add(ticket);
+            dispatch();
+        }
+        notifyListeners();
+        return ticket;
+    }
+
+    public Ticket submit(String label, Priority priority, File path, Task task, Callback callback) {
+        return submit(label, priority, Collections.singletonList(path), task, callback);
+    }
+
+    /**
+     * Queued and running tickets in the order they will run, then the recently finished ones.
+     */
+    public synchronized List<Ticket> snapshot() {
+        List<Ticket> tickets = new ArrayList<>(running);
+        List<Ticket> queued = new ArrayList<>(pending);
+        Collections.sort(queued, (a, b) -> compare(a, b));
+        tickets.addAll(queued);
+        tickets.addAll(history);
+        return tickets;
+    }
+
+    public synchronized int activeCount() {
+        return pending.size() + running.size();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Called with the lock held.
+    private void dispatch() {
+        if (pending.isEmpty() || running.size() >= workerCount) {
+            return;
+        }
+        List<Ticket> ordered = new ArrayList<>(pending);
+        Collections.sort(ordered, (a, b) -> compare(a, b));
+        for (Ticket ticket : ordered) {
+            if (running.size() >= workerCount) {
+                break;
+            }
+            if (ticket.priority.isBackground() && backgroundCount() >= workerCount - 1) {
+                continue;
+            }
+            if (ticket.priority == Priority.MAINTENANCE && count(Priority.MAINTENANCE) > 0) {
+                continue;
+            }
+            if (isBlocked(ticket)) {
+                continue;
+            }
+            pending.remove(ticket);
+            running.add(ticket);
+            ticket.state = State.RUNNING;
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(ticket);
+                }
+            });
+        }
+    }
+
+    private boolean isBlocked(Ticket ticket) {
+        for (Ticket other : running) {
+            if (overlaps(ticket, other)) {
+                return true;
+            }
+        }
+        // An older queued ticket on the same paths goes first, whatever its lane.
+        for (Ticket other : pending) {
+            if (other.sequence < ticket.sequence && overlaps(ticket, other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void execute(Ticket ticket) {
+        synchronized (this) {
+            ticket.runner = Thread.currentThread();
+        }
+        State result;
+        try {
+            ticket.task.run(ticket);
+            result = ticket.cancelled ? State.CANCELLED : State.DONE;
+        } catch (Exception e) {
+            if (ticket.cancelled) {
+                result = State.CANCELLED;
+            } else {
+                ticket.error = e;
+                result = State.FAILED;
+            }
+        }
+        synchronized (this) {
+            ticket.runner = null;
+            // Clear an interrupt from a late cancel so it does not leak into the next ticket.
+            Thread.interrupted();
+            running.remove(ticket);
+            finish(ticket, result);
+            dispatch();
+        }
+        completed(ticket);
+    }
+
+    // Called with the lock held.
+    private void finish(Ticket ticket, State result) {
+        ticket.state = result;
+        history.addFirst(ticket);
+        while (history.size() > MAX_HISTORY) {
+            history.removeLast();
+        }
+    }
+
+    // Called without the lock, so callbacks and listeners may submit or cancel.
+    private void completed(Ticket ticket) {
+        if (ticket.callback != null) {
+            ticket.callback.onFinished(ticket);
+        }
+        ticket.finished.countDown();
+        notifyListeners();
+    }
+
+    private int backgroundCount() {
+        int count = 0;
+        for (Ticket ticket : running) {
+            if (ticket.priority.isBackground()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int count(Priority priority) {
+        int count = 0;
+        for (Ticket ticket : running) {
+            if (ticket.priority == priority) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onQueueChanged();
+        }
+    }
+
+    private static int compare(Ticket a, Ticket b) {
+        if (a.priority != b.priority) {
+            return a.priority.compareTo(b.priority);
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    static boolean overlaps(Ticket a, Ticket b) {
+        for (String first : a.paths) {
+            for (String second : b.paths) {
+                if (contains(first, second) || contains(second, first)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String directory, String path) {
+        return path.equals(directory) || path.startsWith(directory.endsWith(File.separator)
+                ? directory : directory + File.separator);
+    }
+}
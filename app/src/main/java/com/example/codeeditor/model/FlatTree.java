@@ -0,0 +1,421 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * The visible rows of the project tree as one flat list, in display order.
+ *
+ * Expanding a directory inserts its children right after it and collapsing removes the
+ * contiguous run of deeper rows that follows it, so each toggle touches only the affected
+ * range and reports it to the listener for range notifications.
+ *
+ * Children are listed by a {@link DirectoryEnumerator} and merged into place, in sorted
+ * order, batch by batch as they arrive on the callback executor. A listing that arrives
+ * after its directory was collapsed again is dropped.
+ *
+ * Toggles are recorded in an {@link ExpansionState}; children that were expanded before
+ * are expanded again as they arrive, so only expanded folders are ever listed.
+ *
+ * Rows are identified by path. A map from path to row is kept up to date wherever rows
+ * are inserted or removed, so lookups do not scan the list.
+ */
+public class FlatTree {
+
+    public static class Node {
+        public final File file;
+        public final String path;
+        public final int depth;
+        public final boolean directory;
+        boolean expanded;
+        int generation;
+
+        Node(File file, String path, int depth, boolean directory) {
+            this.file = file;
+            this.path = path;
+            this.depth = depth;
+            this.directory = directory;
+        }
+
+        public boolean isExpanded() {
+            return expanded;
+        }
+    }
+
+    public interface Listener {
+        void onRangeInserted(int start, int count);
+
+        void onRangeRemoved(int start, int count);
+
+        void onChanged(int position);
+
+        void onRangeChanged(int start, int count);
+    }
+
+    /**
+     * Directories first, then by name ignoring case. Names that differ only in case, such
+     * as README and Readme, are ordered exactly so they stay distinct rows.
+     */
+    public static final Comparator<Node> ORDER = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            if (a.directory != b.directory) {
+                return a.directory ? -1 : 1;
+            }
+            int order = a.file.getName().compareToIgnoreCase(b.file.getName());
+            return order != 0 ? order : a.file.getName().compareTo(b.file.getName());
+        }
+    };
+
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+    private final ExpansionState expansionState;
+    private final DirectoryEnumerator enumerator;
+    private final Executor callbackExecutor;
+    private final List<Node> rows = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private Listener listener;
+
+    public FlatTree(File root, IgnoreMatcher ignoreMatcher, ExpansionState expansionState,
+                    DirectoryEnumerator enumerator, Executor callbackExecutor) {
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+        this.expansionState = expansionState;
+        this.enumerator = enumerator;
+        this.callbackExecutor = callbackExecutor;
+        rows.add(new Node(root, "", 0, true));
+        positions.put("", 0);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public ExpansionState getExpansionState() {
+        return expansionState;
+    }
+
+    /**
+     * Expand the root if it was expanded last time; saved subfolders follow as they load.
+     */
+    public void restore() {
+        if (expansionState.isExpanded("")) {
+            expand(0);
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public Node get(int position) {
+        return rows.get(position);
+    }
+
+    /**
+     * The row of this node, or -1 once it was removed, even if a new row has its path.
+     */
+    public int indexOf(Node node) {
+        int position = indexOf(node.path);
+        return position >= 0 && rows.get(position) == node ? position : -1;
+    }
+
+    public int indexOf(String path) {
+        Integer position = positions.get(path);
+        return position == null ? -1 : position;
+    }
+
+    public void toggle(int position) {
+        Node node = rows.get(position);
+        if (!node.directory) {
+            return;
+        }
+        if (node.expanded) {
+            collapse(position);
+        } else {
+            expand(position);
+        }
+    }
+
+    public void expand(int position) {
+        Node node = rows.get(position);
+        if (!node.directory || node.expanded) {
+            return;
+        }
+        node.expanded = true;
+        expansionState.setExpanded(node.path, true);
+        int generation = ++node.generation;
+        if (listener != null) {
+            listener.onChanged(position);
+        }
+        enumerator.enumerate(node.file, childFilter(node), callbackExecutor, new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                if (node.expanded && node.generation == generation && !entries.isEmpty()) {
+                    insertChildren(node, entries);
+                }
+            }
+        });
+    }
+
+    public void collapse(int position) {
+        Node node = rows.get(position);
+        if (!node.expanded) {
+            return;
+        }
+        node.expanded = false;
+        node.generation++;
+        expansionState.setExpanded(node.path, false);
+        int end = position + 1;
+        while (end < rows.size() && rows.get(end).depth > node.depth) {
+            end++;
+        }
+        int count = end - position - 1;
+        removeRows(position + 1, end);
+        if (listener != null) {
+            listener.onChanged(position);
+            if (count > 0) {
+                listener.onRangeRemoved(position + 1, count);
+            }
+        }
+    }
+
+    /**
+     * Re-list an expanded directory after a change on disk and apply only the difference:
+     * vanished children are removed with their subtrees, new ones are merged in.
+     */
+    public void refresh(String path) {
+        int position = indexOf(path);
+        if (position < 0) {
+            return;
+        }
+        Node node = rows.get(position);
+        if (!node.expanded) {
+            return;
+        }
+        int generation = node.generation;
+        enumerator.invalidate(node.file);
+        List<DirectoryEnumerator.Entry> listing = new ArrayList<>();
+        enumerator.enumerate(node.file, childFilter(node), callbackExecutor, new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                listing.addAll(entries);
+                if (last && node.expanded && node.generation == generation) {
+                    applyListing(node, listing);
+                }
+            }
+        });
+    }
+
+    /**
+     * {@link #refresh} every expanded directory, e.g. after the ignore rules changed.
+     */
+    public void refreshAll() {
+        List<String> expanded = new ArrayList<>();
+        for (Node node : rows) {
+            if (node.directory && node.expanded) {
+                expanded.add(node.path);
+            }
+        }
+        for (String path : expanded) {
+            refresh(path);
+        }
+    }
+
+    private void applyListing(Node parent, List<DirectoryEnumerator.Entry> listing) {
+        int position = indexOf(parent);
+        if (position < 0) {
+            return;
+        }
+        Set<String> present = new HashSet<>();
+        for (DirectoryEnumerator.Entry entry : listing) {
+            present.add(entry.getName() + (entry.directory ? "/" : ""));
+        }
+
+        // Collect [start, end) ranges of vanished children and their subtrees, then remove back to front.
+        int childDepth = parent.depth + 1;
+        List<int[]> ranges = new ArrayList<>();
+        int row = position + 1;
+        while (row < rows.size() && rows.get(row).depth >= childDepth) {
+            Node child = rows.get(row);
+            int end = row + 1;
+            while (end < rows.size() && rows.get(end).depth > childDepth) {
+                end++;
+            }
+            if (!present.contains(child.file.getName() + (child.directory ? "/" : ""))) {
+                if (child.directory) {
+                    expansionState.remove(child.path);
+                }
+                int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                if (last != null && last[1] == row) {
+                    last[1] = end;
+                } else {
+                    ranges.add(new int[]{row, end});
+                }
+            }
+            row = end;
+        }
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            int[] range = ranges.get(i);
+            removeRows(range[0], range[1]);
+            if (listener != null) {
+                listener.onRangeRemoved(range[0], range[1] - range[0]);
+            }
+        }
+        if (!listing.isEmpty()) {
+            insertChildren(parent, listing);
+        }
+    }
+
+    private Predicate<DirectoryEnumerator.Entry> childFilter(Node parent) {
+        if (ignoreMatcher == null) {
+            return null;
+        }
+        return new Predicate<DirectoryEnumerator.Entry>() {
+            @Override
+            public boolean test(DirectoryEnumerator.Entry entry) {
+                return !ignoreMatcher.isIgnored(childPath(parent, entry.getName()), entry.directory);
+            }
+        };
+    }
+
+    private static String childPath(Node parent, String name) {
+        return parent.path.isEmpty() ? name : parent.path + "/" + name;
+    }
+
+    private void insertChildren(Node parent, List<DirectoryEnumerator.Entry> entries) {
+        int position = indexOf(parent);
+        if (position < 0) {
+            return;
+        }
+        List<Node> batch = new ArrayList<>(entries.size());
+        for (DirectoryEnumerator.Entry entry : entries) {
+            String path = childPath(parent, entry.getName());
+            // Already shown, e.g. a cached listing delivered twice.
+            if (!positions.containsKey(path)) {
+                batch.add(new Node(entry.file, path, parent.depth + 1, entry.directory));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Collections.sort(batch, ORDER);
+
+        int childDepth = parent.depth + 1;
+        int end = position + 1;
+        boolean flat = true;
+        while (end < rows.size() && rows.get(end).depth >= childDepth) {
+            flat &= rows.get(end).depth == childDepth;
+            end++;
+        }
+        if (flat) {
+            mergeFlat(position + 1, end, batch);
+        } else {
+            mergeRuns(position + 1, childDepth, batch);
+        }
+
+        for (Node child : batch) {
+            if (child.directory && expansionState.isExpanded(child.path)) {
+                int index = indexOf(child);
+                if (index >= 0) {
+                    expand(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge a batch of rows not shown yet into the children already shown under the
+     * parent, inserting each run of consecutive new rows with one range notification.
+     */
+    private void mergeRuns(int start, int childDepth, List<Node> batch) {
+        int row = start;
+        int next = 0;
+        while (next < batch.size()) {
+            // Skip shown rows (siblings and their expanded subtrees) that sort before the next new one.
+            while (row < rows.size() && rows.get(row).depth >= childDepth
+                    && (rows.get(row).depth > childDepth || ORDER.compare(rows.get(row), batch.get(next)) < 0)) {
+                row++;
+            }
+            Node sibling = row < rows.size() && rows.get(row).depth == childDepth ? rows.get(row) : null;
+            // No sibling compares equal to a new row, so every run holds at least one row.
+            int runEnd = next;
+            while (runEnd < batch.size() && (sibling == null || ORDER.compare(batch.get(runEnd), sibling) < 0)) {
+                runEnd++;
+            }
+            rows.addAll(row, batch.subList(next, runEnd));
+            if (listener != null) {
+                listener.onRangeInserted(row, runEnd - next);
+            }
+            row += runEnd - next;
+            next = runEnd;
+        }
+        reindex(start);
+    }
+
+    /**
+     * Merge into a run of children none of which is expanded. Interleaved batches would
+     * otherwise produce one notification per gap, so report the old range as changed and
+     * the growth as one insertion at its end.
+     */
+    private void mergeFlat(int start, int end, List<Node> batch) {
+        List<Node> shown = rows.subList(start, end);
+        List<Node> merged = new ArrayList<>(shown.size() + batch.size());
+        int i = 0;
+        int j = 0;
+        while (i < shown.size() || j < batch.size()) {
+            if (j == batch.size()) {
+                merged.add(shown.get(i++));
+            } else if (i == shown.size()) {
+                merged.add(batch.get(j++));
+            } else if (ORDER.compare(shown.get(i), batch.get(j)) < 0) {
+                merged.add(shown.get(i++));
+            } else {
+                merged.add(batch.get(j++));
+            }
+        }
+        int oldCount = shown.size();
+        int added = merged.size() - oldCount;
+        shown.clear();
+        rows.addAll(start, merged);
+        reindex(start);
+        if (listener != null) {
+            if (oldCount > 0) {
+                listener.onRangeChanged(start, oldCount);
+            }
+            listener.onRangeInserted(start + oldCount, added);
+        }
+    }
+
+    private void removeRows(int start, int end) {
+        List<Node> removed = rows.subList(start, end);
+        for (Node node : removed) {
+            positions.remove(node.path);
+        }
+        removed.clear();
+        reindex(start);
+    }
+
+    /**
+     * Record the positions of every row from start on, after rows were inserted or removed
+     * there. Costs about as much as the list splice that shifted them.
+     */
+    private void reindex(int start) {
+        for (int i = start; i < rows.size(); i++) {
+            positions.put(rows.get(i).path, i);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.codeeditor.model;
+
+/**
+ * fzf style subsequence scoring over pre-lowered char arrays.
+ *
+ * A candidate matches when every query character occurs in order. The score rewards
+ * matches at the start of a path segment or word, consecutive runs and matches inside the
+ * file name, and penalizes gaps. Scoring runs on tight windows that contain the match: the
+ * one closest to the end of the path and, when that reaches into the directories, the
+ * earliest one, each found with a forward and a backward scan.
+ */
+public class FuzzyMatcher {
+
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int SCORE_MATCH = 16;
+    private static final int BONUS_BOUNDARY = 10;
+    private static final int BONUS_CAMEL = 8;
+    private static final int BONUS_CONSECUTIVE = 6;
+    private static final int BONUS_FILE_NAME = 6;
+    private static final int PENALTY_GAP_START = 3;
+    private static final int PENALTY_GAP = 1;
+
+    private final char[] query;
+    private final long mask;
+
+    public FuzzyMatcher(String query) {
+        this.query = lower(query.replace(" ", ""));
+        this.mask = mask(this.query);
+    }
+
+    public boolean isEmpty() {
+        return query.length == 0;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * The text lower-cased one char at a time, so it stays as long as the text and index
+     * for index lines up with it whatever the default locale.
+     */
+    public static char[] lower(String text) {
+        char[] lower = new char[text.length()];
+        for (int i = 0; i < lower.length; i++) {
+            lower[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return lower;
+    }
+
+    /**
+     * Bit set of the letters and digits in the text, for cheap rejection before scoring.
+     */
+    public static long mask(char[] lower) {
+        long mask = 0;
+        for (char c : lower) {
+            mask |= bit(c);
+        }
+        return mask;
+    }
+
+    private static long bit(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 1L << (c - 'a');
+        }
+        if (c >= '0' && c <= '9') {
+            return 1L << (26 + c - '0');
+        }
+        if (c == '.') {
+            return 1L << 36;
+        }
+        if (c == '_' || c == '-') {
+            return 1L << 37;
+        }
+        return 0;
+    }
+
+    public int score(char[] original, char[] lower, int nameStart) {
+        return score(original, lower, 0, lower.length, nameStart);
+    }
+
+    /**
+     * Score the text stored at [offset, offset + length) of the arrays, which lets many
+     * paths share one contiguous buffer.
+     *
+     * @param original    the text as shown, used for camelCase boundaries
+     * @param lower       the same text lower-cased
+     * @param nameStart   index, relative to offset, where the file name begins
+     */
+    public int score(char[] original, char[] lower, int offset, int length, int nameStart) {
+        if (query.length == 0) {
+            return 0;
+        }
+        if (query.length > length) {
+            return NO_MATCH;
+        }
+        int limit = offset + length;
+        int name = offset + nameStart;
+
+        // Window closest to the end of the text first: that is usually inside the file name.
+        int q = query.length - 1;
+        int start = -1;
+        for (int i = limit - 1; i >= offset; i--) {
+            if (lower[i] == query[q] && --q < 0) {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return NO_MATCH;
+        }
+        q = 0;
+        int latestEnd = start;
+        while (q < query.length) {
+            if (lower[latestEnd++] == query[q]) {
+                q++;
+            }
+        }
+        int latest = scoreWindow(original, lower, offset, windowStart(lower, offset, latestEnd), latestEnd, name);
+        if (start >= name) {
+            return latest;
+        }
+
+        // The match reaches into the directories, where the earliest window may score better.
+        q = 0;
+        int end = latestEnd;
+        for (int i = offset; i < latestEnd; i++) {
+            if (lower[i] == query[q] && ++q == query.length) {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end == latestEnd) {
+            return latest;
+        }
+        return Math.max(latest, scoreWindow(original, lower, offset, windowStart(lower, offset, end), end, name));
+    }
+
+    /**
+     * Latest start of a match that ends at end.
+     */
+    private int windowStart(char[] lower, int offset, int end) {
+        int q = query.length - 1;
+        for (int i = end - 1; i >= offset; i--) {
+            if (lower[i] == query[q] && --q < 0) {
+                return i;
+            }
+        }
+        return offset;
+    }
+
+    private int scoreWindow(char[] original, char[] lower, int offset, int start, int end, int nameStart) {
+        int score = 0;
+        int run = 0;
+        boolean inGap = false;
+        int q = 0;
+        for (int i = start; i < end && q < query.length; i++) {
+            if (lower[i] != query[q]) {
+                score -= inGap ? PENALTY_GAP : PENALTY_GAP_START;
+                inGap = true;
+                run = 0;
+                continue;
+            }
+            int bonus = boundaryBonus(original, offset, i);
+            if (run > 0) {
+                bonus = Math.max(bonus, BONUS_CONSECUTIVE);
+            }
+            if (q == 0) {
+                bonus *= 2;
+            }
+            if (i >= nameStart) {
+                bonus += BONUS_FILE_NAME;
+            }
+            score += SCORE_MATCH + bonus;
+            inGap = false;
+            run++;
+            q++;
+        }
+        return score;
+    }
+
+    private static int boundaryBonus(char[] text, int offset, int i) {
+        if (i == offset) {
+            return BONUS_BOUNDARY;
+        }
+        char previous = text[i - 1];
+        if (previous == '/' || previous == '_' || previous == '-' || previous == '.' || previous == ' ') {
+            return BONUS_BOUNDARY;
+        }
+        if (Character.isLowerCase(previous) && Character.isUpperCase(text[i])) {
+            return BONUS_CAMEL;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled .gitignore rules for one project, shared by the directory tree, project search
+ * and staging code.
+ *
+ * Every .gitignore (and .git/info/exclude) is parsed once with JGit's rule engine and kept
+ * together with the size and mtime it was parsed from, or as missing. {@link #forRoot(File)}
+ * only looks the matcher up and touches no files, so it is cheap on the UI thread.
+ * {@link #revalidate()} re-stats every ignore file looked up so far and drops the ones
+ * that were changed, created or deleted; background work that wants current rules calls
+ * it first, and a {@link ProjectWatcher} drops the rules itself when a .gitignore changes.
+ *
+ * Paths are relative to the project root and use '/' as separator. The .git directory is
+ * always ignored.
+ */
+public class IgnoreMatcher {
+
+    private static final Map<String, IgnoreMatcher> matchers = new HashMap<>();
+
+    private static final String INFO_EXCLUDE = "info/exclude";
+    private static final String EXCLUDE_KEY = "\0exclude";
+
+    private final File root;
+    private final Map<String, RuleFile> ruleFiles = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> ignoredDirectories = new ConcurrentHashMap<>();
+
+    private static class RuleFile {
+        final IgnoreNode rules;
+        final long lastModified;
+        final long length;
+
+        RuleFile(IgnoreNode rules, long lastModified, long length) {
+            this.rules = rules;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private IgnoreMatcher(File root) {
+        this.root = root;
+    }
+
+    /**
+     * The shared matcher for the given project root. Its rules may be stale; see
+     * {@link #revalidate()}.
+     */
+    public static IgnoreMatcher forRoot(File root) {
+        synchronized (matchers) {
+            IgnoreMatcher matcher = matchers.get(root.getAbsolutePath());
+            if (matcher == null) {
+                matcher = new IgnoreMatcher(root);
+                matchers.put(root.getAbsolutePath(), matcher);
+            }
+            return matcher;
+        }
+    }
+
+    public static void forget(File root) {
+        synchronized (matchers) {
+            matchers.remove(root.getAbsolutePath());
+        }
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Drop the cached rules of one directory, e.g. after its .gitignore was created or deleted.
+     */
+    public void invalidate(String relativeDirectory) {
+        ruleFiles.remove(relativeDirectory);
+        ignoredDirectories.clear();
+    }
+
+    public void invalidateAll() {
+        ruleFiles.clear();
+        ignoredDirectories.clear();
+    }
+
+    public boolean isIgnored(File file, boolean isDirectory) {
+        String rootPath = root.getAbsolutePath();
+        String filePath = file.getAbsolutePath();
+        if (!filePath.startsWith(rootPath) || filePath.length() == rootPath.length()) {
+            return false;
+        }
+        return isIgnored(filePath.substring(rootPath.length() + 1), isDirectory);
+    }
+
+    /**
+     * Whether the path or any of its parent directories is ignored. Directory results are
+     * memoized, so a top-down walk pays one rule evaluation per entry.
+     */
+    public boolean isIgnored(String relativePath, boolean isDirectory) {
+        int slash = relativePath.indexOf('/');
+        while (slash >= 0) {
+            if (isDirectoryIgnored(relativePath.substring(0, slash))) {
+                return true;
+            }
+            slash = relativePath.indexOf('/', slash + 1);
+        }
+        if (isDirectory) {
+            return isDirectoryIgnored(relativePath);
+        }
+        return evaluate(relativePath, false);
+    }
+
+    private boolean isDirectoryIgnored(String relativeDirectory) {
+        Boolean cached = ignoredDirectories.get(relativeDirectory);
+        if (cached != null) {
+            return cached;
+        }
+        boolean ignored = evaluate(relativeDirectory, true);
+        ignoredDirectories.put(relativeDirectory, ignored);
+        return ignored;
+    }
+
+    /**
+     * Rules of the closest .gitignore win, then the parents', then .git/info/exclude.
+     */
+    private boolean evaluate(String path, boolean isDirectory) {
+        int slash = path.lastIndexOf('/');
+        String name = slash < 0 ? path : path.substring(slash + 1);
+        if (name.equals(Constants.DOT_GIT)) {
+            return true;
+        }
+
+        String directory = slash < 0 ? "" : path.substring(0, slash);
+        while (true) {
+            IgnoreNode rules = rulesFor(directory);
+            if (rules != null) {
+                String entryPath = directory.isEmpty() ? path : path.substring(directory.length() + 1);
+                Boolean result = rules.checkIgnored(entryPath, isDirectory);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (directory.isEmpty()) {
+                break;
+            }
+            int parent = directory.lastIndexOf('/');
+            directory = parent < 0 ? "" : directory.substring(0, parent);
+        }
+
+        IgnoreNode exclude = rulesFor(EXCLUDE_KEY);
+        if (exclude != null) {
+            Boolean result = exclude.checkIgnored(path, isDirectory);
+            return result != null && result;
+        }
+        return false;
+    }
+
+    private IgnoreNode rulesFor(String key) {
+        RuleFile ruleFile = ruleFiles.get(key);
+        if (ruleFile == null) {
+            ruleFile = load(fileFor(key));
+            ruleFiles.put(key, ruleFile);
+        }
+        return ruleFile.rules;
+    }
+
+    private File fileFor(String key) {
+        if (key.equals(EXCLUDE_KEY)) {
+            return new File(new File(root, Constants.DOT_GIT), INFO_EXCLUDE);
+        }
+        File directory = key.isEmpty() ? root : new File(root, key);
+        return new File(directory, Constants.GITIGNORE_FILENAME);
+    }
+
+    private static RuleFile load(File file) {
+        long lastModified = file.lastModified();
+        if (lastModified == 0L) {
+            return new RuleFile(null, 0L, 0L);
+        }
+        IgnoreNode rules = new IgnoreNode();
+        try (InputStream in = new FileInputStream(file)) {
+            rules.parse(file.getPath(), in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new RuleFile(null, 0L, 0L);
+        }
+        return new RuleFile(rules.getRules().isEmpty() ? null : rules, lastModified, file.length());
+    }
+
+    /**
+     * Re-stat every ignore file looked up so far and forget the ones that changed on disk.
+     * One stat per rule file, so call it off the UI thread. Returns whether any rules were
+     * dropped, i.e. whether earlier answers may no longer hold.
+     */
+    public boolean revalidate() {
+        boolean changed = false;
+        for (Map.Entry<String, RuleFile> entry : ruleFiles.entrySet()) {
+            RuleFile ruleFile = entry.getValue();
+            // A missing file stats as 0, so this also notices one that was created.
+            File file = fileFor(entry.getKey());
+            if (file.lastModified() != ruleFile.lastModified || file.length() != ruleFile.length) {
+                ruleFiles.remove(entry.getKey());
+                changed = true;
+            }
+        }
+        if (changed) {
+            ignoredDirectories.clear();
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link RepositoryMaintenance} over every repository in a projects directory with
+ * one shared time budget. On the device it is driven by WorkManager; off the device
+ * {@link #schedule} drives it from a plain ScheduledExecutorService.
+ */
+public class MaintenanceRunner {
+
+    public interface Listener {
+        void onReport(RepositoryMaintenance.Report report);
+
+        void onError(File repository, Exception e);
+    }
+
+    private final RepositoryMaintenance.Budget budget;
+    private final long totalMillis;
+
+    public MaintenanceRunner(RepositoryMaintenance.Budget budget, long totalMillis) {
+        this.budget = budget;
+        this.totalMillis = totalMillis;
+    }
+
+    public static List<File> findRepositories(File projectsDirectory) {
+        List<File> repositories = new ArrayList<>();
+        File[] projects = projectsDirectory.listFiles();
+        if (projects == null) {
+            return repositories;
+        }
+        for (File project : projects) {
+            if (new File(project, ".git").isDirectory()) {
+                repositories.add(project);
+            }
+        }
+        return repositories;
+    }
+
+    public List<RepositoryMaintenance.Report> runAll(File projectsDirectory, Listener listener) {
+        List<RepositoryMaintenance.Report> reports = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + totalMillis;
+        for (File repository : findRepositories(projectsDirectory)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            RepositoryMaintenance.Budget repositoryBudget = new RepositoryMaintenance.Budget(
+                    budget.minLooseObjects, budget.maxRepositoryBytes, Math.min(budget.maxMillis, remaining));
+            try {
+                RepositoryMaintenance.Report report = RepositoryMaintenance.run(repository, repositoryBudget);
+                reports.add(report);
+                if (listener != null) {
+                    listener.onReport(report);
+                }
+            } catch (Exception e) {
+                if (listener != null) {
+                    listener.onError(repository, e);
+                }
+            }
+        }
+        return reports;
+    }
+
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, File projectsDirectory,
+                                       long period, TimeUnit unit, Listener listener) {
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                runAll(projectsDirectory, listener);
+            }
+        }, 0, period, unit);
+    }
+}
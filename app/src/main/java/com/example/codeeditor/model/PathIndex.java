@@ -0,0 +1,359 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * All file paths of a project, kept in memory for quick-open.
+ *
+ * Every path is kept with its lower-cased chars and a character mask; queries scan a packed
+ * snapshot of primitive arrays and skip most candidates with one AND. The index is
+ * built once in the background and then kept current from {@link ProjectWatcher} batches.
+ * Queries read an immutable snapshot and may run concurrently with updates.
+ */
+public class PathIndex {
+
+    public static final int DEFAULT_LIMIT = 50;
+    private static final int PARALLEL_CHUNK = 20_000;
+
+    private static class Entry {
+        final String path;
+        final char[] lower;
+        final long mask;
+        final int nameStart;
+
+        Entry(String path) {
+            this.path = path;
+            this.lower = FuzzyMatcher.lower(path);
+            this.mask = FuzzyMatcher.mask(lower);
+            this.nameStart = path.lastIndexOf('/') + 1;
+        }
+    }
+
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private Snapshot snapshot = new Snapshot(new Entry[0]);
+    private boolean dirty;
+
+    /**
+     * Immutable copy of the index: every path packed into one contiguous char buffer (and
+     * a lower-cased twin) with offsets, plus parallel mask and name arrays, so the scan
+     * walks memory sequentially instead of chasing one object per path.
+     */
+    private static class Snapshot {
+        final String[] paths;
+        final char[] originals;
+        final char[] lowers;
+        final int[] offsets;
+        final long[] masks;
+        final int[] nameStarts;
+
+        Snapshot(Entry[] entries) {
+            int count = entries.length;
+            paths = new String[count];
+            offsets = new int[count + 1];
+            masks = new long[count];
+            nameStarts = new int[count];
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                offsets[i] = total;
+                total += entries[i].lower.length;
+            }
+            offsets[count] = total;
+            originals = new char[total];
+            lowers = new char[total];
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries[i];
+                paths[i] = entry.path;
+                entry.path.getChars(0, entry.path.length(), originals, offsets[i]);
+                System.arraycopy(entry.lower, 0, lowers, offsets[i], entry.lower.length);
+                masks[i] = entry.mask;
+                nameStarts[i] = entry.nameStart;
+            }
+        }
+    }
+
+    public PathIndex(File root, IgnoreMatcher ignoreMatcher) {
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Walk the whole project. Runs on the calling thread; call it from a worker.
+     */
+    public void build() {
+        List<String> paths = new ArrayList<>();
+        collect("", paths);
+        load(paths);
+    }
+
+    synchronized void load(List<String> paths) {
+        entries.clear();
+        for (String path : paths) {
+            entries.put(path, new Entry(path));
+        }
+        dirty = true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void add(String path) {
+        File file = new File(root, path);
+        boolean isDirectory = file.isDirectory();
+        if (ignoreMatcher != null && ignoreMatcher.isIgnored(path, isDirectory)) {
+            return;
+        }
+        if (isDirectory) {
+            List<String> paths = new ArrayList<>();
+            collect(path, paths);
+            for (String child : paths) {
+                entries.put(child, new Entry(child));
+            }
+        } else if (file.isFile()) {
+            entries.put(path, new Entry(path));
+        }
+        dirty = true;
+    }
+
+    /**
+     * Remove a file, or a directory with everything below it.
+     */
+    public synchronized void remove(String path) {
+        if (entries.remove(path) == null) {
+            String prefix = path + "/";
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        dirty = true;
+    }
+
+    public void apply(ProjectWatcher.Batch batch) {
+        if (batch.ignoreRulesChanged) {
+            // Any path may have become ignored or visible.
+            build();
+            return;
+        }
+        for (String path : batch.deleted) {
+            remove(path);
+        }
+        for (String path : batch.created) {
+            add(path);
+        }
+        for (String path : batch.rescanned) {
+            remove(path);
+            if (path.isEmpty()) {
+                build();
+            } else {
+                add(path);
+            }
+        }
+    }
+
+    /**
+     * The best matches for the query, best first. An empty query returns nothing. Large
+     * indexes are scanned in parallel chunks, each keeping its own top list.
+     */
+    public List<String> search(String query, int limit) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
+        if (matcher.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Snapshot candidates = snapshot();
+        int count = candidates.paths.length;
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors(),
+                (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK);
+        Top top;
+        if (chunks <= 1) {
+            top = scan(matcher, candidates, 0, count, limit);
+        } else {
+            List<Future<Top>> parts = new ArrayList<>(chunks);
+            int chunkSize = (count + chunks - 1) / chunks;
+            for (int from = 0; from < count; from += chunkSize) {
+                int start = from;
+                int end = Math.min(count, from + chunkSize);
+                parts.add(ForkJoinPool.commonPool().submit(new Callable<Top>() {
+                    @Override
+                    public Top call() {
+                        return scan(matcher, candidates, start, end, limit);
+                    }
+                }));
+            }
+            top = new Top(candidates, limit);
+            for (Future<Top> part : parts) {
+                Top partTop = join(part);
+                for (int i = 0; i < partTop.size; i++) {
+                    top.offer(partTop.scores[i], partTop.indices[i]);
+                }
+            }
+        }
+        return top.drain();
+    }
+
+    private static Top scan(FuzzyMatcher matcher, Snapshot candidates, int from, int to, int limit) {
+        long mask = matcher.getMask();
+        long[] masks = candidates.masks;
+        Top top = new Top(candidates, limit);
+        for (int i = from; i < to; i++) {
+            if ((masks[i] & mask) != mask) {
+                continue;
+            }
+            int offset = candidates.offsets[i];
+            int score = matcher.score(candidates.originals, candidates.lowers, offset,
+                    candidates.offsets[i + 1] - offset, candidates.nameStarts[i]);
+            if (score != FuzzyMatcher.NO_MATCH) {
+                top.offer(score, i);
+            }
+        }
+        return top;
+    }
+
+    private static Top join(Future<Top> part) {
+        try {
+            return part.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized Snapshot snapshot() {
+        if (dirty) {
+            snapshot = new Snapshot(entries.values().toArray(new Entry[0]));
+            dirty = false;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Bounded min-heap on (score, -length) in parallel primitive arrays; the root is the
+     * weakest of the kept candidates.
+     */
+    private static class Top {
+        final Snapshot candidates;
+        final int[] scores;
+        final int[] indices;
+        int size;
+
+        Top(Snapshot candidates, int limit) {
+            this.candidates = candidates;
+            this.scores = new int[limit];
+            this.indices = new int[limit];
+        }
+
+        void offer(int score, int index) {
+            if (size < scores.length) {
+                scores[size] = score;
+                indices[size] = index;
+                siftUp(size++);
+            } else if (size > 0 && better(score, index, scores[0], indices[0])) {
+                scores[0] = score;
+                indices[0] = index;
+                siftDown();
+            }
+        }
+
+        List<String> drain() {
+            String[] result = new String[size];
+            while (size > 0) {
+                result[size - 1] = candidates.paths[indices[0]];
+                size--;
+                scores[0] = scores[size];
+                indices[0] = indices[size];
+                siftDown();
+            }
+            List<String> list = new ArrayList<>(result.length);
+            Collections.addAll(list, result);
+            return list;
+        }
+
+        private boolean better(int score, int index, int otherScore, int otherIndex) {
+            if (score != otherScore) {
+                return score > otherScore;
+            }
+            return candidates.paths[index].length() < candidates.paths[otherIndex].length();
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (!better(scores[parent], indices[parent], scores[position], indices[position])) {
+                    break;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown() {
+            int position = 0;
+            while (true) {
+                int left = 2 * position + 1;
+                if (left >= size) {
+                    break;
+                }
+                int weakest = left;
+                int right = left + 1;
+                if (right < size && better(scores[left], indices[left], scores[right], indices[right])) {
+                    weakest = right;
+                }
+                if (!better(scores[position], indices[position], scores[weakest], indices[weakest])) {
+                    break;
+                }
+                swap(position, weakest);
+                position = weakest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+            int index = indices[a];
+            indices[a] = indices[b];
+            indices[b] = index;
+        }
+    }
+
+    private void collect(String relativePath, List<String> paths) {
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(relativePath);
+        while (!queue.isEmpty()) {
+            String path = queue.poll();
+            File current = path.isEmpty() ? root : new File(root, path);
+            File[] children = current.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                boolean isDirectory = child.isDirectory();
+                String childPath = path.isEmpty() ? child.getName() : path + "/" + child.getName();
+                if (child.getName().equals(Constants.DOT_GIT)
+                        || (ignoreMatcher != null && ignoreMatcher.isIgnored(childPath, isDirectory))) {
+                    continue;
+                }
+                if (isDirectory) {
+                    queue.add(childPath);
+                } else {
+                    paths.add(childPath);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves app relative paths such as "Projects/demo/src/main.cpp" against the files directory.
+ *
+ * A path is normalized and its folders checked for existence once; after that the resolved
+ * File and Path come out of a bounded LRU keyed by the exact string the caller passed, so a
+ * repeated lookup is one hash probe with no allocation and no stat. Only paths whose folders
+ * all exist are cached. Anything that deletes or renames a folder must call
+ * {@link #invalidate}, which drops the path and everything below it.
+ */
+public class PathResolver {
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static PathResolver shared;
+
+    private static class Resolved {
+        final String normalized;
+        final File directory;
+        final File file;
+        final Path path;
+
+        Resolved(String normalized, File directory, File file) {
+            this.normalized = normalized;
+            this.directory = directory;
+            this.file = file;
+            this.path = file.toPath();
+        }
+    }
+
+    private final File root;
+    private final Map<String, Resolved> cache;
+    private long hits;
+    private long misses;
+
+    public PathResolver(File root, int capacity) {
+        this.root = root;
+        this.cache = new LinkedHashMap<String, Resolved>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resolved> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized PathResolver shared(File root) {
+        if (shared == null || !shared.root.equals(root)) {
+            shared = new PathResolver(root, DEFAULT_CAPACITY);
+        }
+        return shared;
+    }
+
+    /**
+     * The file the path names, or null when one of its folders does not exist. The file
+     * itself need not exist.
+     */
+    public File file(String relativePath) {
+        Resolved entry = lookup(relativePath);
+        return entry == null ? null : entry.file;
+    }
+
+    /**
+     * The folder holding the file the path names, or null when it does not exist.
+     */
+    public File directory(String relativePath) {
+        Resolved entry = lookup(relativePath);
+        return entry == null ? null : entry.directory;
+    }
+
+    public Path path(String relativePath) {
+        Resolved entry = lookup(relativePath);
+        return entry == null ? null : entry.path;
+    }
+
+    /**
+     * Forget the path and everything inside it, after it was deleted or renamed.
+     */
+    public void invalidate(String relativePath) {
+        String prefix = normalize(relativePath);
+        synchronized (this) {
+            Iterator<Resolved> entries = cache.values().iterator();
+            while (entries.hasNext()) {
+                String normalized = entries.next().normalized;
+                if (prefix.isEmpty() || normalized.equals(prefix)
+                        || (normalized.startsWith(prefix) && normalized.charAt(prefix.length()) == '/')) {
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Like {@link #invalidate(String)} for an absolute file; files outside the root are ignored.
+     */
+    public void invalidate(File file) {
+        String rootPath = root.getAbsolutePath();
+        String path = file.getAbsolutePath();
+        if (path.equals(rootPath)) {
+            invalidateAll();
+        } else if (path.startsWith(rootPath + File.separator)) {
+            invalidate(path.substring(rootPath.length() + 1));
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private Resolved lookup(String relativePath) {
+        synchronized (this) {
+            Resolved entry = cache.get(relativePath);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+            misses++;
+        }
+        Resolved entry = resolve(relativePath);
+        if (entry != null) {
+            synchronized (this) {
+                cache.put(relativePath, entry);
+            }
+        }
+        return entry;
+    }
+
+    private Resolved resolve(String relativePath) {
+        String normalized = normalize(relativePath);
+        int slash = normalized.lastIndexOf('/');
+        File directory = slash < 0 ? root : new File(root, normalized.substring(0, slash));
+        // One stat for the deepest folder; if it is a directory so are all above it.
+        if (!directory.isDirectory()) {
+            return null;
+        }
+        return new Resolved(normalized, directory, new File(directory, normalized.substring(slash + 1)));
+    }
+
+    /**
+     * Drop empty and "." segments and fold "..", so "a//b/./c/" and "a/b/c" share cache keys
+     * for invalidation. A ".." above the root is kept.
+     */
+    static String normalize(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int length = path.length();
+        while (start <= length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            String segment = path.substring(start, end);
+            if (segment.equals("..") && !segments.isEmpty() && !segments.get(segments.size() - 1).equals("..")) {
+                segments.remove(segments.size() - 1);
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+            start = end + 1;
+        }
+        return String.join("/", segments);
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replace in files across a project, all or nothing.
+ *
+ * {@link #preview(List)} computes per file how many matches would be replaced and a few
+ * sample lines, remembering the size and mtime it saw. {@link #apply(List, Listener)} then
+ * works in two phases. First, in parallel, every file is re-read, checked against the
+ * preview, transformed and written to a synced temporary file next to it; any failure
+ * discards all temporaries and leaves the project untouched. Second, each original is
+ * hard-linked to a backup and the temporary renamed over it; if a rename fails, the files
+ * already replaced, and the one that failed, are restored from their backups. A file that
+ * has to be written in place (other hard links, another owner) is backed up by a copy
+ * instead, since the write would change a linked backup too.
+ */
+public class ProjectReplace {
+
+    private static final int SAMPLES_PER_FILE = 3;
+
+    public interface Listener {
+        /** Called on a worker thread as files are prepared and committed. */
+        void onProgress(String phase, int done, int total);
+    }
+
+    public static class Sample {
+        public final int line;
+        public final String before;
+        public final String after;
+
+        Sample(int line, String before, String after) {
+            this.line = line;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    public static class FileChange {
+        public final String path;
+        public final int count;
+        public final List<Sample> samples;
+        final long length;
+        final long lastModified;
+
+        FileChange(String path, int count, List<Sample> samples, long length, long lastModified) {
+            this.path = path;
+            this.count = count;
+            this.samples = samples;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static class Result {
+        public final boolean success;
+        public final String error;
+        public final List<String> changedPaths;
+        public final int replacements;
+        public final long elapsedMillis;
+        /**
+         * Files a failed apply had already replaced and could not put back; they may hold
+         * the replacement. Empty when the project is unchanged.
+         */
+        public final List<String> unrestoredPaths;
+
+        Result(boolean success, String error, List<String> changedPaths, int replacements, long elapsedMillis) {
+            this(success, error, changedPaths, replacements, elapsedMillis, Collections.emptyList());
+        }
+
+        Result(boolean success, String error, List<String> changedPaths, int replacements, long elapsedMillis,
+               List<String> unrestoredPaths) {
+            this.success = success;
+            this.error = error;
+            this.changedPaths = changedPaths;
+            this.replacements = replacements;
+            this.elapsedMillis = elapsedMillis;
+            this.unrestoredPaths = unrestoredPaths;
+        }
+
+        public double filesPerSecond() {
+            return elapsedMillis == 0 ? changedPaths.size() * 1000.0 : changedPaths.size() * 1000.0 / elapsedMillis;
+        }
+    }
+
+    private final File root;
+    private final TextFinder finder;
+    private final String replacement;
+    private final int threads;
+
+    public ProjectReplace(File root, TextFinder finder, String replacement) {
+        this.root = root;
+        this.finder = finder;
+        this.replacement = replacement;
+        this.threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * What replacing would change in each of the given files; files without a match or
+     * that cannot be read as UTF-8 are left out.
+     */
+    public List<FileChange> preview(List<String> paths) throws InterruptedException {
+        List<FileChange> changes = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<FileChange>> futures = new ArrayList<>();
+            for (String path : paths) {
+                futures.add(executor.submit(() -> previewFile(path)));
+            }
+            for (Future<FileChange> future : futures) {
+                try {
+                    FileChange change = future.get();
+                    if (change != null) {
+                        changes.add(change);
+                    }
+                } catch (ExecutionException e) {
+                    // Unreadable now; it is simply not part of the preview.
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return changes;
+    }
+
+    private FileChange previewFile(String path) throws IOException {
+        File file = new File(root, path);
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String text = read(file);
+        if (text == null) {
+            return null;
+        }
+        int[] matches = finder.findAll(text, 0, text.length(), Integer.MAX_VALUE);
+        if (matches.length == 0) {
+            return null;
+        }
+        List<Sample> samples = new ArrayList<>();
+        int line = 1;
+        int counted = 0;
+        int lastLineStart = -1;
+        for (int i = 0; i < matches.length && samples.size() < SAMPLES_PER_FILE; i += 2) {
+            for (int j = counted; j < matches[i]; j++) {
+                if (text.charAt(j) == '\n') {
+                    line++;
+                }
+            }
+            counted = matches[i];
+            int lineStart = text.lastIndexOf('\n', matches[i] - 1) + 1;
+            if (lineStart == lastLineStart) {
+                continue;
+            }
+            lastLineStart = lineStart;
+            int lineEnd = text.indexOf('\n', matches[i]);
+            String before = text.substring(lineStart, lineEnd < 0 ? text.length() : lineEnd);
+            TextFinder.Replacement edit = finder.replaceAll(before, replacement);
+            String after = edit == null ? before
+                    : before.substring(0, edit.start) + edit.text + before.substring(edit.end);
+            samples.add(new Sample(line, before, after));
+        }
+        return new FileChange(path, matches.length / 2, samples, length, lastModified);
+    }
+
+    /**
+     * Apply previewed changes. Returns a failed result when any file was modified since the
+     * preview or could not be written; nothing is changed on disk then, except the files in
+     * {@link Result#unrestoredPaths} if putting them back failed too.
+     */
+    public Result apply(List<FileChange> changes, Listener listener) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        int total = changes.size();
+        File[] temporaries = new File[total];
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger prepared = new AtomicInteger();
+        AtomicInteger replacements = new AtomicInteger();
+        String[] firstError = new String[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    if (failed.get()) {
+                        return;
+                    }
+                    FileChange change = changes.get(index);
+                    try {
+                        temporaries[index] = prepare(change, replacements);
+                    } catch (IOException e) {
+                        synchronized (firstError) {
+                            if (firstError[0] == null) {
+                                firstError[0] = change.path + ": " + e.getMessage();
+                            }
+                        }
+                        failed.set(true);
+                        return;
+                    }
+                    listener.onProgress("Writing", prepared.incrementAndGet(), total);
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (firstError[0] == null) {
+                        firstError[0] = String.valueOf(e.getCause());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failed.get()) {
+            for (File temporary : temporaries) {
+                AtomicFileWriter.discard(temporary);
+            }
+            return new Result(false, firstError[0], Collections.emptyList(), 0,
+                    System.currentTimeMillis() - start);
+        }
+
+        List<String> committed = new ArrayList<>(total);
+        File[] backups = new File[total];
+        for (int i = 0; i < total; i++) {
+            File target = new File(root, changes.get(i).path);
+            try {
+                backups[i] = backup(target);
+                boolean linked = isLink(backups[i], target);
+                if (linked && !AtomicFileWriter.canRename(temporaries[i], target, 2)) {
+                    File copy = copy(target);
+                    AtomicFileWriter.discard(backups[i]);
+                    backups[i] = copy;
+                    linked = false;
+                }
+                // A hard-linked backup is a second link to the target that the rename is meant to drop.
+                AtomicFileWriter.commit(temporaries[i], target, linked ? 2 : 1);
+                committed.add(changes.get(i).path);
+            } catch (IOException e) {
+                // An in-place write may have failed halfway, so the failed file is restored too.
+                List<String> unrestored = rollback(changes, backups, backups[i] == null ? i : i + 1);
+                for (int j = i; j < total; j++) {
+                    AtomicFileWriter.discard(temporaries[j]);
+                }
+                return new Result(false, changes.get(i).path + ": " + e.getMessage(), Collections.emptyList(), 0,
+                        System.currentTimeMillis() - start, unrestored);
+            }
+            listener.onProgress("Committing", i + 1, total);
+        }
+        for (File backup : backups) {
+            AtomicFileWriter.discard(backup);
+        }
+        return new Result(true, null, committed, replacements.get(), System.currentTimeMillis() - start);
+    }
+
+    private File prepare(FileChange change, AtomicInteger replacements) throws IOException {
+        File file = new File(root, change.path);
+        if (file.length() != change.length || file.lastModified() != change.lastModified) {
+            throw new IOException("changed since the preview");
+        }
+        String text = read(file);
+        if (text == null) {
+            throw new IOException("not valid UTF-8");
+        }
+        TextFinder.Replacement edit = finder.replaceAll(text, replacement);
+        if (edit == null) {
+            throw new IOException("no longer matches");
+        }
+        replacements.addAndGet(edit.count);
+        StringBuilder result = new StringBuilder(text.length() + edit.text.length());
+        result.append(text, 0, edit.start).append(edit.text).append(text, edit.end, text.length());
+        return AtomicFileWriter.prepare(file, result.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static File backup(File target) throws IOException {
+        File backup = File.createTempFile("." + target.getName() + ".", ".bak", target.getAbsoluteFile().getParentFile());
+        backup.delete();
+        try {
+            Files.createLink(backup.toPath(), target.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(target.toPath(), backup.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        return backup;
+    }
+
+    private static File copy(File target) throws IOException {
+        File copy = File.createTempFile("." + target.getName() + ".", ".bak", target.getAbsoluteFile().getParentFile());
+        try {
+            Files.copy(target.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.COPY_ATTRIBUTES);
+        } catch (IOException e) {
+            copy.delete();
+            throw e;
+        }
+        return copy;
+    }
+
+    private static boolean isLink(File backup, File target) {
+        try {
+            return Files.isSameFile(backup.toPath(), target.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Put back the first count files from their backups. A backup is restored through a
+     * copy and only deleted once the file is back, so a failed restore leaves it in place.
+     * Returns the paths that could not be restored.
+     */
+    private List<String> rollback(List<FileChange> changes, File[] backups, int count) {
+        List<String> unrestored = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String path = changes.get(i).path;
+            File target = new File(root, path);
+            try {
+                if (backups[i] == null || !backups[i].isFile()) {
+                    throw new IOException("backup missing");
+                }
+                if (!isLink(backups[i], target)) {
+                    // Still linked means the rename never happened and the file is untouched.
+                    AtomicFileWriter.commit(copy(backups[i]), target);
+                }
+                AtomicFileWriter.discard(backups[i]);
+            } catch (IOException e) {
+                e.printStackTrace();
+                unrestored.add(path + " (" + e.getMessage() + ")");
+            }
+        }
+        return unrestored;
+    }
+
+    private static String read(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (ProjectSearch.isBinary(ByteBuffer.wrap(bytes))) {
+            return null;
+        }
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,698 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Find in project: searches every text file of a project for a literal or a regex.
+ *
+ * The tree is walked with a fork-join pool, one task per directory, skipping .git, ignored
+ * paths, large files and files that look binary (a NUL byte in the first 8000 bytes, as git
+ * does). Each file is read (memory-mapped above {@link #MAP_THRESHOLD}) and searched at the
+ * byte level with Boyer-Moore-Horspool for the query, or for the longest literal a regex
+ * requires; only files that pass are decoded and matched line by line. Results stream to the
+ * listener in small batches while the walk goes on, and {@link Search#cancel()} stops it
+ * between files and between matches inside a file.
+ *
+ * With a {@link TrigramIndex} set, the files to read come from the index instead of a walk
+ * whenever the query has a literal of three or more bytes.
+ */
+public class ProjectSearch {
+
+    public static final int DEFAULT_MAX_RESULTS = 5000;
+    public static final long MAX_FILE_SIZE = 16 * 1024 * 1024;
+    static final int MAP_THRESHOLD = 64 * 1024;
+    private static final int BINARY_PROBE = 8000;
+    private static final int BATCH_SIZE = 64;
+    private static final long BATCH_MILLIS = 100;
+    private static final int MAX_LINE_LENGTH = 400;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    public static class Match {
+        public final String path;
+        /** 1-based line number. */
+        public final int line;
+        /** 0-based column of the match start within the line, in chars. */
+        public final int column;
+        public final int length;
+        public final String lineText;
+
+        Match(String path, int line, int column, int length, String lineText) {
+            this.path = path;
+            this.line = line;
+            this.column = column;
+            this.length = length;
+            this.lineText = lineText;
+        }
+
+        @Override
+        public String toString() {
+            return path + ":" + line + ": " + lineText.trim();
+        }
+    }
+
+    public interface Listener {
+        /** Called on the callback executor, in the order batches were produced. */
+        void onMatches(List<Match> matches);
+
+        void onFinished(int filesSearched, int matchCount, boolean cancelled);
+    }
+
+    public static class Query {
+        final String text;
+        final boolean regex;
+        final boolean caseSensitive;
+
+        public Query(String text, boolean regex, boolean caseSensitive) {
+            this.text = text;
+            this.regex = regex;
+            this.caseSensitive = caseSensitive;
+        }
+    }
+
+    /**
+     * A running search.
+     */
+    public static class Search {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+    private final Pattern pattern;
+    private final byte[] literal;
+    private final int[] shift;
+    private final boolean foldCase;
+    private final boolean literalOnly;
+    private final int maxResults;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+    private final Search search = new Search();
+    private TrigramIndex index;
+
+    private final AtomicInteger filesSearched = new AtomicInteger();
+    private final AtomicInteger matchCount = new AtomicInteger();
+    private final List<Match> pending = new ArrayList<>();
+    private long lastFlush;
+
+    /**
+     * @throws PatternSyntaxException when a regex query does not compile
+     */
+    public ProjectSearch(File root, IgnoreMatcher ignoreMatcher, Query query, int maxResults,
+                         Executor callbackExecutor, Listener listener) {
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+        this.maxResults = maxResults;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+
+        int flags = query.caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        this.pattern = Pattern.compile(query.regex ? query.text : Pattern.quote(query.text), flags);
+        String required = query.regex ? requiredLiteral(query.text) : query.text;
+        // Case folding at the byte level only works for ASCII.
+        boolean ascii = required != null && required.chars().allMatch(c -> c < 0x80);
+        if (required != null && !required.isEmpty() && (query.caseSensitive || ascii)) {
+            byte[] bytes = required.getBytes(StandardCharsets.UTF_8);
+            if (!query.caseSensitive) {
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = lower(bytes[i]);
+                }
+            }
+            this.literal = bytes;
+        } else {
+            this.literal = null;
+        }
+        this.foldCase = !query.caseSensitive;
+        this.shift = literal != null ? shiftTable(literal, foldCase) : null;
+        this.literalOnly = !query.regex && literal != null;
+    }
+
+    public void setIndex(TrigramIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Start searching in the background.
+     */
+    public Search start() {
+        lastFlush = System.currentTimeMillis();
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    revalidateIgnoreRules();
+                    pool.invoke(rootTask());
+                } finally {
+                    flush(true);
+                    int files = filesSearched.get();
+                    int matches = Math.min(matchCount.get(), maxResults);
+                    boolean cancelled = search.isCancelled() && matchCount.get() < maxResults;
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onFinished(files, matches, cancelled);
+                        }
+                    });
+                }
+            }
+        });
+        return search;
+    }
+
+    /**
+     * Search and wait for the result; for tests and benchmarks.
+     */
+    public void run() {
+        lastFlush = System.currentTimeMillis();
+        revalidateIgnoreRules();
+        pool.invoke(rootTask());
+        flush(true);
+        listener.onFinished(filesSearched.get(), Math.min(matchCount.get(), maxResults), search.isCancelled());
+    }
+
+    /**
+     * Pick up .gitignore edits made since the rules were read, here on the worker rather
+     * than where the search was created.
+     */
+    private void revalidateIgnoreRules() {
+        if (ignoreMatcher != null) {
+            ignoreMatcher.revalidate();
+        }
+    }
+
+    private RecursiveAction rootTask() {
+        if (index != null && literal != null && index.getRoot().equals(root)) {
+            List<String> candidates = index.candidates(literal);
+            if (candidates != null) {
+                return new FilesTask(candidates, 0, candidates.size());
+            }
+        }
+        return new DirectoryTask("", root);
+    }
+
+    private class FilesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        static final int SPLIT = 64;
+        final List<String> paths;
+        final int from;
+        final int to;
+
+        FilesTask(List<String> paths, int from, int to) {
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FilesTask(paths, from, middle), new FilesTask(paths, middle, to));
+                return;
+            }
+            for (int i = from; i < to && !search.isCancelled(); i++) {
+                searchFile(paths.get(i), new File(root, paths.get(i)));
+            }
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final String path;
+        final File directory;
+
+        DirectoryTask(String path, File directory) {
+            this.path = path;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            File[] children = directory.listFiles();
+            if (children == null || search.isCancelled()) {
+                return;
+            }
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (File child : children) {
+                if (search.isCancelled()) {
+                    break;
+                }
+                String name = child.getName();
+                String childPath = path.isEmpty() ? name : path + "/" + name;
+                boolean isDirectory = child.isDirectory();
+                if (name.equals(Constants.DOT_GIT)
+                        || (ignoreMatcher != null && ignoreMatcher.isIgnored(childPath, isDirectory))) {
+                    continue;
+                }
+                if (isDirectory) {
+                    DirectoryTask task = new DirectoryTask(childPath, child);
+                    task.fork();
+                    subtasks.add(task);
+                } else {
+                    searchFile(childPath, child);
+                }
+            }
+            for (DirectoryTask task : subtasks) {
+                task.join();
+            }
+        }
+    }
+
+    private void searchFile(String path, File file) {
+        long size = file.length();
+        if (size == 0 || size > MAX_FILE_SIZE) {
+            return;
+        }
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (size >= MAP_THRESHOLD) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                content = ByteBuffer.allocate((int) size);
+                while (content.hasRemaining() && channel.read(content) >= 0) {
+                    // keep reading
+                }
+                content.flip();
+            }
+        } catch (IOException e) {
+            return;
+        }
+        filesSearched.incrementAndGet();
+        if (isBinary(content)) {
+            return;
+        }
+        List<Match> matches;
+        if (literalOnly) {
+            matches = literalMatches(path, content);
+        } else if (literal != null && indexOf(content, 0, literal, shift, foldCase) < 0) {
+            return;
+        } else {
+            matches = regexMatches(path, content);
+        }
+        if (!matches.isEmpty()) {
+            publish(matches);
+        }
+    }
+
+    static boolean isBinary(ByteBuffer content) {
+        int end = Math.min(content.limit(), BINARY_PROBE);
+        for (int i = 0; i < end; i++) {
+            if (content.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Match> literalMatches(String path, ByteBuffer content) {
+        List<Match> matches = Collections.emptyList();
+        int line = 1;
+        int counted = 0;
+        int hit = indexOf(content, 0, literal, shift, foldCase);
+        while (hit >= 0 && !search.isCancelled()) {
+            line += countLines(content, counted, hit);
+            int lineStart = lineStart(content, hit);
+            int lineEnd = lineEnd(content, hit);
+            counted = lineStart;
+            String text = decode(content, lineStart, lineEnd);
+            if (text == null) {
+                return regexMatches(path, content);
+            }
+            if (matches.isEmpty()) {
+                matches = new ArrayList<>();
+            }
+            // Several hits on one line are reported separately, columns in chars.
+            Matcher matcher = pattern.matcher(text);
+            int column = decodedLength(content, lineStart, hit);
+            if (matcher.find(Math.min(column, text.length()))) {
+                matches.add(new Match(path, line, matcher.start(), matcher.end() - matcher.start(), clip(text)));
+            }
+            hit = indexOf(content, hit + literal.length, literal, shift, foldCase);
+        }
+        return matches;
+    }
+
+    private List<Match> regexMatches(String path, ByteBuffer content) {
+        CharSequence text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(content.duplicate());
+        } catch (CharacterCodingException e) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = Collections.emptyList();
+        int line = 1;
+        int lineStart = 0;
+        int length = text.length();
+        while (lineStart <= length && !search.isCancelled()) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            Matcher matcher = pattern.matcher(text).region(lineStart, lineEnd);
+            matcher.useAnchoringBounds(true);
+            while (matcher.find()) {
+                if (matches.isEmpty()) {
+                    matches = new ArrayList<>();
+                }
+                String lineText = text.subSequence(lineStart, lineEnd).toString();
+                matches.add(new Match(path, line, matcher.start() - lineStart, matcher.end() - matcher.start(),
+                        clip(lineText)));
+                if (matcher.end() == matcher.start()) {
+                    break;
+                }
+            }
+            line++;
+            lineStart = next;
+        }
+        return matches;
+    }
+
+    private void publish(List<Match> matches) {
+        int total = matchCount.addAndGet(matches.size());
+        int overflow = total - maxResults;
+        if (overflow >= matches.size()) {
+            search.cancel();
+            return;
+        }
+        if (overflow > 0) {
+            matches = matches.subList(0, matches.size() - overflow);
+        }
+        synchronized (pending) {
+            pending.addAll(matches);
+        }
+        if (overflow >= 0) {
+            search.cancel();
+        }
+        flush(false);
+    }
+
+    private void flush(boolean force) {
+        List<Match> batch;
+        synchronized (pending) {
+            long now = System.currentTimeMillis();
+            if (pending.isEmpty() || (!force && pending.size() < BATCH_SIZE && now - lastFlush < BATCH_MILLIS)) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            lastFlush = now;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onMatches(batch);
+            }
+        });
+    }
+
+    /**
+     * Horspool bad-character table: how far the window may move when its last byte is b.
+     */
+    static int[] shiftTable(byte[] needle, boolean foldCase) {
+        int n = needle.length;
+        int[] shift = new int[256];
+        Arrays.fill(shift, n);
+        for (int i = 0; i < n - 1; i++) {
+            shift[needle[i] & 0xff] = n - 1 - i;
+            if (foldCase) {
+                shift[upper(needle[i]) & 0xff] = n - 1 - i;
+            }
+        }
+        return shift;
+    }
+
+    /**
+     * Boyer-Moore-Horspool over the buffer's absolute positions. With foldCase the needle
+     * must already be lower-cased ASCII.
+     */
+    static int indexOf(ByteBuffer haystack, int from, byte[] needle, int[] shift, boolean foldCase) {
+        int n = needle.length;
+        int end = haystack.limit();
+        byte last = needle[n - 1];
+        int i = from;
+        while (i <= end - n) {
+            byte b = haystack.get(i + n - 1);
+            if ((foldCase ? lower(b) : b) == last) {
+                int j = n - 2;
+                while (j >= 0) {
+                    byte c = haystack.get(i + j);
+                    if ((foldCase ? lower(c) : c) != needle[j]) {
+                        break;
+                    }
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+            }
+            i += shift[b & 0xff];
+        }
+        return -1;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private static byte upper(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+    }
+
+    /**
+     * Escapes that stand for one class or boundary and take no further characters. Any other
+     * letter or digit escape (\x41, \u0041, \0101, \cA, \k&lt;name&gt;, \p{L}, \Q...\E,
+     * back references) carries syntax of its own.
+     */
+    private static final String SIMPLE_ESCAPES = "wWdDsSbBAzZGhHvVRXntrfae";
+
+    /**
+     * The longest run of characters every match of the regex must contain, or null when
+     * there is none worth filtering on. Conservative: alternation, inline flags and escapes
+     * with trailing syntax disable it, groups and classes end a run and a quantifier that
+     * allows zero repetitions drops its atom.
+     */
+    static String requiredLiteral(String regex) {
+        if (regex.contains("|") || hasInlineFlags(regex)) {
+            return null;
+        }
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literalChar;
+            int next;
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    if (SIMPLE_ESCAPES.indexOf(escaped) < 0) {
+                        return null;
+                    }
+                    best = longer(best, run);
+                    run.setLength(0);
+                    i += 2;
+                    continue;
+                }
+                literalChar = escaped;
+                next = i + 2;
+            } else if (c == '[') {
+                best = longer(best, run);
+                run.setLength(0);
+                i = skipClass(regex, i);
+                continue;
+            } else if (c == '(') {
+                best = longer(best, run);
+                run.setLength(0);
+                i = skipGroup(regex, i);
+                continue;
+            } else if (c == '{') {
+                // A counted repetition; its digits are not literals.
+                best = longer(best, run);
+                run.setLength(0);
+                int close = regex.indexOf('}', i);
+                i = close < 0 ? regex.length() : close + 1;
+                continue;
+            } else if (".^$)]}*+?".indexOf(c) >= 0) {
+                best = longer(best, run);
+                run.setLength(0);
+                i++;
+                continue;
+            } else {
+                literalChar = c;
+                next = i + 1;
+            }
+            char quantifier = next < regex.length() ? regex.charAt(next) : 0;
+            if (quantifier == '?' || quantifier == '*' || quantifier == '{') {
+                best = longer(best, run);
+                run.setLength(0);
+            } else if (quantifier == '+') {
+                run.append(literalChar);
+                best = longer(best, run);
+                run.setLength(0);
+            } else {
+                run.append(literalChar);
+            }
+            i = next;
+        }
+        best = longer(best, run);
+        return best.length() >= 2 ? best : null;
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        return run.length() > best.length() ? run.toString() : best;
+    }
+
+    private static int skipClass(String regex, int i) {
+        i++;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < regex.length() && regex.charAt(i) != ']') {
+            i += regex.charAt(i) == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+
+    /**
+     * Whether the regex has a group such as (?i) or (?x:...) that changes how the rest of
+     * it, or of the group, is read.
+     */
+    private static boolean hasInlineFlags(String regex) {
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+            } else if (c == '(' && i + 2 < regex.length() && regex.charAt(i + 1) == '?'
+                    && ":=!<>".indexOf(regex.charAt(i + 2)) < 0) {
+                return true;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int countLines(ByteBuffer content, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (content.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static int lineStart(ByteBuffer content, int position) {
+        while (position > 0 && content.get(position - 1) != '\n') {
+            position--;
+        }
+        return position;
+    }
+
+    private static int lineEnd(ByteBuffer content, int position) {
+        int end = content.limit();
+        while (position < end && content.get(position) != '\n') {
+            position++;
+        }
+        if (position > 0 && position <= end && content.get(position - 1) == '\r') {
+            position--;
+        }
+        return position;
+    }
+
+    private static String decode(ByteBuffer content, int from, int to) {
+        ByteBuffer slice = content.duplicate();
+        slice.limit(to).position(from);
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .decode(slice);
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Number of chars the UTF-8 bytes [from, to) decode to: every byte that does not
+     * continue a sequence starts one char, four-byte sequences make a surrogate pair.
+     */
+    private static int decodedLength(ByteBuffer content, int from, int to) {
+        int chars = 0;
+        for (int i = from; i < to; i++) {
+            int b = content.get(i) & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                chars += b >= 0xf0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private static String clip(String line) {
+        return line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) : line;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches every directory of a project and reports changes in batches.
+ *
+ * The platform specific part is a {@link Backend} that watches single directories
+ * (FileObserver on Android, WatchService on the JVM). This class registers one watch per
+ * directory up to a cap, skipping ignored directories, follows directories as they are
+ * created and deleted, and coalesces raw events over a short window into one
+ * {@link Batch} per window, delivered on the callback executor. When deletions make room
+ * under the cap again, the directories it left out are watched and reported as rescanned.
+ */
+public class ProjectWatcher {
+
+    public static final int CREATED = 1;
+    public static final int DELETED = 2;
+    public static final int MODIFIED = 3;
+    /** Events were lost; the directory has to be listed again. */
+    public static final int OVERFLOW = 4;
+
+    public static final long DEFAULT_WINDOW_MILLIS = 200;
+    public static final int DEFAULT_MAX_WATCHES = 1024;
+
+    public interface Sink {
+        /**
+         * Called by the backend on any thread. name is null for OVERFLOW.
+         */
+        void onEvent(String relativeDirectory, String name, int type);
+    }
+
+    public interface Backend {
+        void start(Sink sink);
+
+        boolean watch(String relativeDirectory, File directory);
+
+        void unwatch(String relativeDirectory);
+
+        void close();
+    }
+
+    public interface Listener {
+        void onChanges(Batch batch);
+    }
+
+    /**
+     * Project relative paths touched during one window.
+     */
+    public static class Batch {
+        public final Set<String> created = new LinkedHashSet<>();
+        public final Set<String> deleted = new LinkedHashSet<>();
+        public final Set<String> modified = new LinkedHashSet<>();
+        public final Set<String> rescanned = new LinkedHashSet<>();
+        public boolean ignoreRulesChanged;
+
+        /**
+         * Directories whose list of children changed.
+         */
+        public Set<String> changedDirectories() {
+            Set<String> directories = new LinkedHashSet<>(rescanned);
+            for (String path : created) {
+                directories.add(parentOf(path));
+            }
+            for (String path : deleted) {
+                directories.add(parentOf(path));
+            }
+            return directories;
+        }
+
+        boolean isEmpty() {
+            return created.isEmpty() && deleted.isEmpty() && modified.isEmpty() && rescanned.isEmpty();
+        }
+    }
+
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+    private final Backend backend;
+    private final long windowMillis;
+    private final int maxWatches;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<String> watched = Collections.synchronizedSet(new HashSet<>());
+    private Batch pending = new Batch();
+    private boolean flushScheduled;
+    private volatile boolean closed;
+    private volatile boolean capReached;
+
+    public ProjectWatcher(File root, IgnoreMatcher ignoreMatcher, Backend backend, long windowMillis,
+                          int maxWatches, Executor callbackExecutor, Listener listener) {
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+        this.backend = backend;
+        this.windowMillis = windowMillis;
+        this.maxWatches = maxWatches;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ProjectWatcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Register the watches in the background and start reporting.
+     */
+    public void start() {
+        backend.start(new Sink() {
+            @Override
+            public void onEvent(String relativeDirectory, String name, int type) {
+                record(relativeDirectory, name, type);
+            }
+        });
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!watchTree("", root, new ArrayList<>())) {
+                    capReached = true;
+                }
+            }
+        });
+    }
+
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        backend.close();
+        watched.clear();
+    }
+
+    public int watchCount() {
+        return watched.size();
+    }
+
+    /**
+     * Whether some directories went unwatched because of the cap.
+     */
+    public boolean isCapReached() {
+        return capReached;
+    }
+
+    private void record(String relativeDirectory, String name, int type) {
+        if (closed) {
+            return;
+        }
+        synchronized (this) {
+            if (name == null || type == OVERFLOW) {
+                pending.rescanned.add(relativeDirectory);
+            } else {
+                String path = relativeDirectory.isEmpty() ? name : relativeDirectory + "/" + name;
+                switch (type) {
+                    case CREATED:
+                        if (!pending.deleted.remove(path)) {
+                            pending.created.add(path);
+                        } else {
+                            // Deleted and recreated within the window, e.g. an atomic save.
+                            pending.modified.add(path);
+                        }
+                        break;
+                    case DELETED:
+                        if (!pending.created.remove(path)) {
+                            pending.deleted.add(path);
+                        }
+                        pending.modified.remove(path);
+                        break;
+                    default:
+                        if (!pending.created.contains(path)) {
+                            pending.modified.add(path);
+                        }
+                        break;
+                }
+                if (name.equals(Constants.GITIGNORE_FILENAME)) {
+                    pending.ignoreRulesChanged = true;
+                }
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        Batch batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new Batch();
+            flushScheduled = false;
+        }
+        if (batch.ignoreRulesChanged && ignoreMatcher != null) {
+            ignoreMatcher.invalidateAll();
+        }
+
+        for (String path : batch.deleted) {
+            unwatchTree(path);
+        }
+        List<String> added = new ArrayList<>();
+        for (String path : batch.created) {
+            File file = new File(root, path);
+            // Anything created inside before the watch was in place produced no event.
+            if (file.isDirectory() && !isSkipped(path, file.getName()) && !watchTree(path, file, added)) {
+                capReached = true;
+            }
+        }
+        if (capReached && watched.size() < maxWatches && !closed) {
+            // Room again: watch what the cap left out. Its changes went unseen until now.
+            if (watchTree("", root, added)) {
+                capReached = false;
+            }
+        }
+        batch.rescanned.addAll(added);
+        if (ignoreMatcher != null && !batch.ignoreRulesChanged) {
+            dropIgnored(batch.created);
+            dropIgnored(batch.deleted);
+            dropIgnored(batch.modified);
+        }
+        if (batch.isEmpty() || closed) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!closed) {
+                    listener.onChanges(batch);
+                }
+            }
+        });
+    }
+
+    private void dropIgnored(Set<String> paths) {
+        List<String> ignored = new ArrayList<>();
+        for (String path : paths) {
+            if (ignoreMatcher.isIgnored(path, new File(root, path).isDirectory())) {
+                ignored.add(path);
+            }
+        }
+        paths.removeAll(ignored);
+    }
+
+    /**
+     * Breadth first, so the cap keeps the shallow directories, which are the ones shown.
+     * Directories already watched are walked through, not watched again. Adds the
+     * directories that were newly watched; returns false when the cap stopped the walk.
+     */
+    private boolean watchTree(String relativePath, File directory, List<String> added) {
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(relativePath);
+        while (!queue.isEmpty() && !closed) {
+            String path = queue.poll();
+            File current = path.isEmpty() ? root : new File(root, path);
+            if (!watched.contains(path)) {
+                if (watched.size() >= maxWatches) {
+                    return false;
+                }
+                if (!backend.watch(path, current)) {
+                    continue;
+                }
+                watched.add(path);
+                added.add(path);
+            }
+            File[] children = current.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                if (!child.isDirectory()) {
+                    continue;
+                }
+                String childPath = path.isEmpty() ? child.getName() : path + "/" + child.getName();
+                if (isSkipped(childPath, child.getName())) {
+                    continue;
+                }
+                queue.add(childPath);
+            }
+        }
+        return true;
+    }
+
+    private boolean isSkipped(String relativePath, String name) {
+        return name.equals(Constants.DOT_GIT)
+                || (ignoreMatcher != null && ignoreMatcher.isIgnored(relativePath, true));
+    }
+
+    private void unwatchTree(String relativePath) {
+        List<String> removed = new ArrayList<>();
+        synchronized (watched) {
+            for (String path : watched) {
+                if (path.equals(relativePath) || path.startsWith(relativePath + "/")) {
+                    removed.add(path);
+                }
+            }
+        }
+        for (String path : removed) {
+            backend.unwatch(path);
+            watched.remove(path);
+        }
+    }
+
+    static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.BranchTrackingStatus;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.RevWalkUtils;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Push of the current branch with a pre-push summary, progress reporting and cancellation.
+ *
+ * The ahead/behind summary is computed from the remote tracking refs already in the
+ * repository, so it costs no network round trip and reflects the state of the last
+ * fetch or push. Pushes always send thin packs.
+ */
+public class PushOperation {
+
+    public static final String SUCCESS = "Push successful!";
+    public static final String CANCELLED = "Push cancelled.";
+    static final String DETACHED_HEAD = "HEAD is detached. Switch to a branch before pushing.";
+
+    public static class AheadBehind {
+        public final String branch;
+        public final String remote;
+        public final String upstream;
+        public final int ahead;
+        public final int behind;
+
+        AheadBehind(String branch, String remote, String upstream, int ahead, int behind) {
+            this.branch = branch;
+            this.remote = remote;
+            this.upstream = upstream;
+            this.ahead = ahead;
+            this.behind = behind;
+        }
+
+        public boolean hasUpstream() {
+            return upstream != null;
+        }
+
+        @Override
+        public String toString() {
+            if (!hasUpstream()) {
+                return branch + " is not on " + remote + " yet, " + ahead + " commit(s) to push";
+            }
+            return branch + " is " + ahead + " ahead and " + behind + " behind " + upstream;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(String task, int done, int total);
+    }
+
+    /**
+     * ProgressMonitor that forwards at most one update per interval to a listener and can
+     * be cancelled from another thread; JGit polls {@link #isCancelled()} while packing
+     * and sending.
+     */
+    public static class Monitor implements ProgressMonitor {
+        private static final long INTERVAL_NANOS = 100_000_000L;
+
+        private final Listener listener;
+        private volatile boolean cancelled;
+        private String task;
+        private int total;
+        private int done;
+        private long lastReport;
+
+        public Monitor(Listener listener) {
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /** Called once JGit's push has returned, before its result is read; a hook for tests. */
+        void pushReturned() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void start(int totalTasks) {
+        }
+
+        @Override
+        public void beginTask(String title, int totalWork) {
+            task = title;
+            total = totalWork;
+            done = 0;
+            report(true);
+        }
+
+        @Override
+        public void update(int completed) {
+            done += completed;
+            report(false);
+        }
+
+        @Override
+        public void endTask() {
+            report(true);
+        }
+
+        @Override
+        public void showDuration(boolean enabled) {
+        }
+
+        private void report(boolean force) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (force || now - lastReport >= INTERVAL_NANOS) {
+                lastReport = now;
+                listener.onProgress(task, done, total);
+            }
+        }
+    }
+
+    public static AheadBehind aheadBehind(File directory) throws IOException {
+        File gitRoot = requireGitRoot(directory);
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            if (isDetached(repository)) {
+                throw new IOException(DETACHED_HEAD);
+            }
+            String branch = repository.getBranch();
+            String remote = remoteFor(repository, branch);
+            if (remote == null) {
+                throw new IOException("No remote configured. Add a remote first.");
+            }
+
+            BranchTrackingStatus tracking = BranchTrackingStatus.of(repository, branch);
+            if (tracking != null) {
+                return new AheadBehind(branch, remote, Repository.shortenRefName(tracking.getRemoteTrackingBranch()),
+                        tracking.getAheadCount(), tracking.getBehindCount());
+            }
+
+            // No upstream configured, e.g. a locally created branch: compare with the
+            // remote branch of the same name if an earlier push left one behind.
+            Ref local = repository.exactRef(Constants.R_HEADS + branch);
+            if (local == null) {
+                return new AheadBehind(branch, remote, null, 0, 0);
+            }
+            Ref remoteRef = repository.exactRef(Constants.R_REMOTES + remote + "/" + branch);
+            try (RevWalk walk = new RevWalk(repository)) {
+                RevCommit localCommit = walk.parseCommit(local.getObjectId());
+                if (remoteRef == null) {
+                    int ahead = RevWalkUtils.count(walk, localCommit, null);
+                    return new AheadBehind(branch, remote, null, ahead, 0);
+                }
+                RevCommit remoteCommit = walk.parseCommit(remoteRef.getObjectId());
+                int ahead = RevWalkUtils.count(walk, localCommit, remoteCommit);
+                int behind = RevWalkUtils.count(walk, remoteCommit, localCommit);
+                return new AheadBehind(branch, remote, Repository.shortenRefName(remoteRef.getName()), ahead, behind);
+            }
+        }
+    }
+
+    /**
+     * Push the current branch to its remote. Returns a message for the user; rejected ref
+     * updates are reported rather than treated as success.
+     */
+    public static String push(File directory, CredentialsProvider credentials, Monitor monitor)
+            throws IOException, GitAPIException {
+        File gitRoot = requireGitRoot(directory);
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            if (isDetached(repository)) {
+                // getBranch() would give the commit id and the check below would call it empty.
+                return DETACHED_HEAD;
+            }
+            String branch = repository.getBranch();
+            String remote = remoteFor(repository, branch);
+            if (remote == null) {
+                return "No remote configured. Add a remote first.";
+            }
+            String ref = Constants.R_HEADS + branch;
+            if (repository.exactRef(ref) == null) {
+                return "Nothing to push: " + branch + " has no commits.";
+            }
+
+            PushCommand push = git.push()
+                    .setRemote(remote)
+                    .setRefSpecs(new RefSpec(ref + ":" + mergeTarget(repository, branch)))
+                    .setThin(true);
+            if (monitor != null) {
+                push.setProgressMonitor(monitor);
+            }
+            if (credentials != null) {
+                push.setCredentialsProvider(credentials);
+            }
+
+            Iterable<PushResult> results;
+            try {
+                results = push.call();
+            } catch (GitAPIException e) {
+                if (monitor != null && monitor.isCancelled()) {
+                    return CANCELLED;
+                }
+                throw e;
+            }
+            if (monitor != null) {
+                monitor.pushReturned();
+            }
+            // The ref updates say what happened; a cancel that came after JGit finished changes nothing.
+            for (PushResult result : results) {
+                for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                    if (update.getStatus() == RemoteRefUpdate.Status.NOT_ATTEMPTED
+                            && monitor != null && monitor.isCancelled()) {
+                        return CANCELLED;
+                    }
+                    String message = describeFailure(update);
+                    if (message != null) {
+                        return message;
+                    }
+                }
+            }
+            return SUCCESS;
+        }
+    }
+
+    private static String describeFailure(RemoteRefUpdate update) {
+        switch (update.getStatus()) {
+            case OK:
+            case UP_TO_DATE:
+                return null;
+            case REJECTED_NONFASTFORWARD:
+                return "Push rejected: the remote has commits you don't have. Fetch and merge first.";
+            case REJECTED_REMOTE_CHANGED:
+                return "Push rejected: the remote changed during the push.";
+            default:
+                String message = update.getMessage();
+                return "Push rejected (" + update.getStatus() + ")" + (message != null ? ": " + message : "");
+        }
+    }
+
+    private static boolean isDetached(Repository repository) throws IOException {
+        String fullBranch = repository.getFullBranch();
+        return fullBranch == null || !fullBranch.startsWith(Constants.R_HEADS);
+    }
+
+    private static String remoteFor(Repository repository, String branch) {
+        String remote = new BranchConfig(repository.getConfig(), branch).getRemote();
+        Set<String> remotes = repository.getRemoteNames();
+        if (remote != null && remotes.contains(remote)) {
+            return remote;
+        }
+        if (remotes.contains(Constants.DEFAULT_REMOTE_NAME)) {
+            return Constants.DEFAULT_REMOTE_NAME;
+        }
+        return remotes.isEmpty() ? null : Collections.min(remotes);
+    }
+
+    private static String mergeTarget(Repository repository, String branch) {
+        String merge = new BranchConfig(repository.getConfig(), branch).getMerge();
+        return merge != null ? merge : Constants.R_HEADS + branch;
+    }
+
+    private static File requireGitRoot(File directory) throws IOException {
+        File gitRoot = FileLogic.findGitRoot(directory);
+        if (gitRoot == null) {
+            throw new IOException("Not a Git repository.");
+        }
+        return gitRoot;
+    }
+}
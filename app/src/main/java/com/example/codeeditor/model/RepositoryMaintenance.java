@@ -0,0 +1,128 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Packs loose objects and loose refs of one repository, within a size and time budget.
+ *
+ * Every gitAdd/gitCommit leaves loose objects behind and status/log slow down as they
+ * pile up. A run is skipped when there is too little to gain or the repository is too
+ * large to repack within the budget; a run that hits its deadline is cancelled through
+ * the progress monitor that JGit's pack writer polls.
+ */
+public class RepositoryMaintenance {
+
+    public static class Budget {
+        public final long minLooseObjects;
+        public final long maxRepositoryBytes;
+        public final long maxMillis;
+
+        public Budget(long minLooseObjects, long maxRepositoryBytes, long maxMillis) {
+            this.minLooseObjects = minLooseObjects;
+            this.maxRepositoryBytes = maxRepositoryBytes;
+            this.maxMillis = maxMillis;
+        }
+
+        public static Budget defaults() {
+            return new Budget(200, 512L * 1024 * 1024, 60_000);
+        }
+    }
+
+    public static class Report {
+        public final File repository;
+        public final boolean performed;
+        public final String message;
+        public final long looseObjectsBefore;
+        public final long looseObjectsAfter;
+        public final long packedObjectsBefore;
+        public final long packedObjectsAfter;
+        public final long looseRefsBefore;
+        public final long looseRefsAfter;
+        public final long elapsedMillis;
+
+        Report(File repository, boolean performed, String message, GC.RepoStatistics before,
+               GC.RepoStatistics after, long elapsedMillis) {
+            this.repository = repository;
+            this.performed = performed;
+            this.message = message;
+            this.looseObjectsBefore = before.numberOfLooseObjects;
+            this.looseObjectsAfter = after.numberOfLooseObjects;
+            this.packedObjectsBefore = before.numberOfPackedObjects;
+            this.packedObjectsAfter = after.numberOfPackedObjects;
+            this.looseRefsBefore = before.numberOfLooseRefs;
+            this.looseRefsAfter = after.numberOfLooseRefs;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return repository.getName() + ": " + message
+                    + ", loose objects " + looseObjectsBefore + " -> " + looseObjectsAfter
+                    + ", packed objects " + packedObjectsBefore + " -> " + packedObjectsAfter
+                    + ", loose refs " + looseRefsBefore + " -> " + looseRefsAfter
+                    + ", " + elapsedMillis + " ms";
+        }
+    }
+
+    private static class DeadlineMonitor extends EmptyProgressMonitor {
+        private final long deadlineNanos;
+
+        DeadlineMonitor(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return System.nanoTime() > deadlineNanos;
+        }
+    }
+
+    public static Report run(File gitRoot, Budget budget) throws IOException {
+        long start = System.nanoTime();
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            if (!(repository instanceof FileRepository)) {
+                throw new IOException("Not a file based repository: " + gitRoot.getPath());
+            }
+            GC gc = new GC((FileRepository) repository);
+            GC.RepoStatistics before = gc.getStatistics();
+
+            if (before.numberOfLooseObjects < budget.minLooseObjects) {
+                return new Report(gitRoot, false, "skipped, " + before.numberOfLooseObjects + " loose objects",
+                        before, before, elapsedMillis(start));
+            }
+            long repositoryBytes = before.sizeOfLooseObjects + before.sizeOfPackedObjects;
+            if (repositoryBytes > budget.maxRepositoryBytes) {
+                return new Report(gitRoot, false, "skipped, " + repositoryBytes + " bytes exceeds size budget",
+                        before, before, elapsedMillis(start));
+            }
+
+            DeadlineMonitor monitor = new DeadlineMonitor(start + budget.maxMillis * 1_000_000);
+            gc.setProgressMonitor(monitor);
+            String message = "packed";
+            try {
+                gc.packRefs();
+                gc.repack();
+                gc.prunePacked();
+            } catch (IOException e) {
+                if (!monitor.isCancelled()) {
+                    throw e;
+                }
+                message = "stopped at time budget";
+            }
+            GC.RepoStatistics after = gc.getStatistics();
+            return new Report(gitRoot, true, message, before, after, elapsedMillis(start));
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
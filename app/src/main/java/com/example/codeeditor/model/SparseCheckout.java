@@ -0,0 +1,277 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Directory based sparse checkout, stored the same way git does it
+ * (core.sparseCheckout plus .git/info/sparse-checkout) so the repository stays usable
+ * from a desktop git client.
+ *
+ * A pattern is a repository relative directory or file path; a path is checked out
+ * when it equals a pattern or lies below one. No patterns means a full checkout.
+ * JGit has no sparse support of its own, so the index keeps every entry and the
+ * working tree only holds the matching ones.
+ *
+ * Only such plain paths are understood. Negations and wildcards, including the "/*"
+ * lines desktop git writes in cone mode, are rejected rather than taken as literal
+ * paths, since getting them wrong would delete files git keeps.
+ */
+public class SparseCheckout {
+
+    private static final String SPARSE_CHECKOUT_FILE = "info/sparse-checkout";
+    private static final String CONFIG_KEY_SPARSE_CHECKOUT = "sparseCheckout";
+
+    public static class Result {
+        public final int materialized;
+        public final int removed;
+        public final List<String> keptModified;
+
+        Result(int materialized, int removed, List<String> keptModified) {
+            this.materialized = materialized;
+            this.removed = removed;
+            this.keptModified = keptModified;
+        }
+    }
+
+    /**
+     * Split user input (one pattern per line or comma separated) into normalized patterns.
+     * Blank lines and "#" comments are skipped.
+     *
+     * @throws IllegalArgumentException for a negated or wildcard pattern
+     */
+    public static List<String> parsePatterns(String text) {
+        List<String> patterns = new ArrayList<>();
+        if (text == null) {
+            return patterns;
+        }
+        for (String raw : text.split("[,\\n]")) {
+            String pattern = raw.trim();
+            if (pattern.startsWith("#")) {
+                continue;
+            }
+            if (pattern.startsWith("!") || pattern.matches(".*[*?\\[\\\\].*")) {
+                throw new IllegalArgumentException("Only plain paths are supported, not \"" + pattern + "\"");
+            }
+            while (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            while (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (!pattern.isEmpty() && !patterns.contains(pattern)) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Patterns of the repository, or an empty list when sparse checkout is off.
+     *
+     * @throws IOException when the file cannot be read or holds patterns this class does
+     *                     not understand, e.g. ones written by git in cone mode
+     */
+    public static List<String> readPatterns(File gitRoot) throws IOException {
+        File file = new File(new File(gitRoot, Constants.DOT_GIT), SPARSE_CHECKOUT_FILE);
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            return parsePatterns(text);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported .git/" + SPARSE_CHECKOUT_FILE + ": " + e.getMessage()
+                    + ". Cone mode and wildcard patterns cannot be applied here.", e);
+        }
+    }
+
+    /**
+     * Store the patterns in git's format. Directories get a trailing slash; files must not,
+     * since git reads "/a.txt/" as a directory and would leave the file out.
+     */
+    public static void writePatterns(File gitRoot, List<String> patterns) throws IOException {
+        File file = new File(new File(gitRoot, Constants.DOT_GIT), SPARSE_CHECKOUT_FILE);
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            StoredConfig config = repository.getConfig();
+            if (patterns.isEmpty()) {
+                config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, CONFIG_KEY_SPARSE_CHECKOUT);
+                config.save();
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Could not delete " + file.getPath());
+                }
+                return;
+            }
+            File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent.getPath());
+            }
+            ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+            StringBuilder sb = new StringBuilder();
+            for (String pattern : patterns) {
+                sb.append('/').append(pattern);
+                if (!isFile(repository, headTree, new File(gitRoot, pattern), pattern)) {
+                    sb.append('/');
+                }
+                sb.append('\n');
+            }
+            Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, CONFIG_KEY_SPARSE_CHECKOUT, true);
+            config.save();
+        }
+    }
+
+    /**
+     * Whether the pattern names a file in HEAD or, for paths HEAD does not have, on disk.
+     * Paths found in neither are taken as directories.
+     */
+    private static boolean isFile(Repository repository, ObjectId headTree, File file, String pattern)
+            throws IOException {
+        if (headTree != null) {
+            try (TreeWalk walk = TreeWalk.forPath(repository, pattern, headTree)) {
+                if (walk != null) {
+                    return (walk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_TREE;
+                }
+            }
+        }
+        return file.isFile();
+    }
+
+    public static boolean matches(List<String> patterns, String path) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        for (String pattern : patterns) {
+            if (path.equals(pattern)
+                    || (path.startsWith(pattern) && path.length() > pattern.length()
+                    && path.charAt(pattern.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Status restricted to the checked out paths, so files that were never materialized
+     * are not reported as missing.
+     */
+    public static StatusCommand status(Git git, List<String> patterns) {
+        StatusCommand command = git.status();
+        for (String pattern : patterns) {
+            command.addPath(pattern);
+        }
+        return command;
+    }
+
+    /**
+     * Bring the working tree in line with the patterns: write matching files that are
+     * missing and remove non-matching files that are unchanged since checkout. Files with
+     * local edits outside the patterns are left alone and reported.
+     */
+    public static Result apply(File gitRoot, List<String> patterns) throws IOException {
+        int materialized = 0;
+        int removed = 0;
+        List<String> keptModified = new ArrayList<>();
+
+        try (Git git = Git.open(gitRoot)) {
+            Repository repository = git.getRepository();
+            DirCache dirCache = repository.lockDirCache();
+            try (ObjectReader reader = repository.newObjectReader()) {
+                if (dirCache.getEntryCount() == 0) {
+                    // A no-checkout clone has no index yet; seed it from HEAD.
+                    ObjectId tree = repository.resolve(Constants.HEAD + "^{tree}");
+                    DirCacheBuilder seed = dirCache.builder();
+                    if (tree != null) {
+                        seed.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, tree);
+                    }
+                    seed.finish();
+                }
+
+                DirCacheBuilder builder = dirCache.builder();
+                for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                    DirCacheEntry entry = dirCache.getEntry(i);
+                    if (entry.getStage() != DirCacheEntry.STAGE_0 || entry.getFileMode() == FileMode.GITLINK) {
+                        builder.add(entry);
+                        continue;
+                    }
+                    String path = entry.getPathString();
+                    File file = new File(gitRoot, path);
+                    // Not File.exists(), which follows symlinks and misses a dangling one.
+                    boolean exists = Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS);
+                    if (matches(patterns, path)) {
+                        if (!exists) {
+                            if (entry.getFileMode() == FileMode.SYMLINK) {
+                                BranchSwitcher.writeSymlink(reader, entry.getObjectId(), file);
+                            } else {
+                                BranchSwitcher.writeBlob(reader, entry.getObjectId(), file);
+                            }
+                            if (entry.getFileMode() == FileMode.EXECUTABLE_FILE) {
+                                file.setExecutable(true);
+                            }
+                            // The index describes a symlink itself, not what it points to.
+                            BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+                                    BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                            entry.setLength(attributes.size());
+                            entry.setLastModified(attributes.lastModifiedTime().toInstant());
+                            materialized++;
+                        }
+                    } else if (exists) {
+                        if (isUnchanged(entry, file) && file.delete()) {
+                            BranchSwitcher.deleteEmptyParents(file.getParentFile(), gitRoot);
+                            removed++;
+                        } else {
+                            keptModified.add(path);
+                        }
+                    }
+                    builder.add(entry);
+                }
+                if (!builder.commit()) {
+                    throw new IOException("Could not write the index");
+                }
+            } finally {
+                dirCache.unlock();
+            }
+        }
+        return new Result(materialized, removed, keptModified);
+    }
+
+    private static boolean isUnchanged(DirCacheEntry entry, File file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+        if (attributes.size() == entry.getLength()
+                && attributes.lastModifiedTime().toMillis() == entry.getLastModifiedInstant().toEpochMilli()) {
+            return true;
+        }
+        // Racily clean entries are smudged when the index is written, so fall back to the content hash.
+        // A symlink's blob is the path it holds.
+        try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            byte[] content = attributes.isSymbolicLink()
+                    ? Files.readSymbolicLink(file.toPath()).toString().getBytes(StandardCharsets.UTF_8)
+                    : Files.readAllBytes(file.toPath());
+            return formatter.idFor(Constants.OBJ_BLOB, content).equals(entry.getObjectId());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.codeeditor.model;
+
+/**
+ * A definition found in a source file: a type, namespace or function.
+ */
+public class Symbol {
+
+    public enum Kind {
+        CLASS("class"),
+        INTERFACE("interface"),
+        ENUM("enum"),
+        STRUCT("struct"),
+        NAMESPACE("namespace"),
+        OBJECT("object"),
+        FUNCTION("function"),
+        METHOD("method");
+
+        public final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    public final String name;
+    public final Kind kind;
+    /** Name of the enclosing type, namespace or function, or null at the top level. */
+    public final String container;
+    /** Path of the file the symbol is in; project relative for indexed symbols. */
+    public final String path;
+    /** 1-based line of the name. */
+    public final int line;
+    /** 0-based column of the name within its line. */
+    public final int column;
+    /** Nesting level, 0 at the top level. */
+    public final int depth;
+
+    public Symbol(String name, Kind kind, String container, String path, int line, int column, int depth) {
+        this.name = name;
+        this.kind = kind;
+        this.container = container;
+        this.path = path;
+        this.line = line;
+        this.column = column;
+        this.depth = depth;
+    }
+
+    public String qualifiedName() {
+        return container == null ? name : container + "." + name;
+    }
+
+    @Override
+    public String toString() {
+        return qualifiedName() + " (" + kind.label + ")" + (path == null ? "" : " " + path + ":" + line);
+    }
+}
@@ -0,0 +1,1068 @@
+package com.example.codeeditor.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds symbol definitions in C/C++, Java, Kotlin and Python sources.
+ *
+ * None of this is a parser. The brace languages share one small lexer that drops comments,
+ * string and char literals and preprocessor lines, and a state machine over its tokens that
+ * tracks brace scopes and recognizes definitions by their shape: a type keyword followed by
+ * a name, or a name followed by a parameter list and a body. Python is read line by line,
+ * with indentation giving the nesting. Whatever does not fit a known shape is skipped
+ * rather than guessed at.
+ */
+public class SymbolExtractor {
+
+    enum Language { C, JAVA, KOTLIN, PYTHON }
+
+    private static final int EOF = 0;
+    private static final int IDENT = 1;
+    private static final int LITERAL = 2;
+    private static final int PUNCT = 3;
+    /** Punctuation value of "::". */
+    private static final char SCOPE = '\u0001';
+
+    // Scope kinds.
+    private static final int BLOCK = 0;
+    private static final int TYPE = 1;
+    private static final int NAMESPACE = 2;
+    private static final int FUNCTION = 3;
+
+    // States of a function candidate.
+    private static final int PARAMETERS = 1;
+    private static final int AFTER_PARAMETERS = 2;
+    private static final int INITIALIZERS = 3;
+
+    /** Names that are followed by '(' without being a function definition. */
+    private static final Set<String> NOT_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "if", "for", "while", "switch", "return", "sizeof", "catch", "synchronized", "alignof", "alignas",
+            "decltype", "typeof", "static_assert", "__attribute__", "__declspec", "defined", "noexcept", "throw",
+            "assert", "super", "this", "new", "delete", "using", "template", "requires", "explicit",
+            "int", "char", "void", "long", "short", "unsigned", "signed", "float", "double", "bool", "auto",
+            "const", "volatile"));
+
+    /** Words that may come right before a call but never before a defined name. */
+    private static final Set<String> NOT_TYPES = new HashSet<>(Arrays.asList(
+            "return", "new", "delete", "throw", "else", "case", "goto", "co_return", "co_yield", "co_await",
+            "sizeof", "typedef", "yield", "await", "instanceof", "do", "using"));
+
+    private static final Set<String> ACCESS_LABELS = new HashSet<>(Arrays.asList(
+            "public", "private", "protected", "signals", "slots", "Q_SIGNALS", "Q_SLOTS"));
+
+    private static final Pattern PYTHON_DEFINITION =
+            Pattern.compile("(?:async\\s+)?(def|class)\\s+([A-Za-z_][A-Za-z_0-9]*)");
+
+    public static boolean isSupported(String fileName) {
+        return languageOf(fileName) != null;
+    }
+
+    static Language languageOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot < fileName.lastIndexOf('/')) {
+            return null;
+        }
+        switch (fileName.substring(dot + 1).toLowerCase()) {
+            case "c":
+            case "h":
+            case "cc":
+            case "cpp":
+            case "cxx":
+            case "c++":
+            case "hh":
+            case "hpp":
+            case "hxx":
+            case "inl":
+                return Language.C;
+            case "java":
+                return Language.JAVA;
+            case "kt":
+            case "kts":
+                return Language.KOTLIN;
+            case "py":
+            case "pyw":
+                return Language.PYTHON;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Definitions in the text, in source order.
+     *
+     * @param path name of the file the text comes from; picks the language and is stored in
+     *             the symbols
+     */
+    public static List<Symbol> extract(String path, CharSequence text) {
+        Language language = languageOf(path);
+        if (language == null) {
+            return new ArrayList<>();
+        }
+        if (language == Language.PYTHON) {
+            return extractPython(path, text);
+        }
+        return new BraceParser(language, path, text).parse();
+    }
+
+    private static List<Symbol> extractPython(String path, CharSequence text) {
+        List<Symbol> symbols = new ArrayList<>();
+        List<Symbol> parents = new ArrayList<>();
+        List<Integer> indents = new ArrayList<>();
+        Matcher matcher = PYTHON_DEFINITION.matcher(text);
+        PythonState state = new PythonState();
+        int length = text.length();
+        int lineStart = 0;
+        int line = 1;
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int position = lineStart;
+            if (!state.inStatement()) {
+                int indent = 0;
+                while (position < lineEnd && (text.charAt(position) == ' ' || text.charAt(position) == '\t')) {
+                    indent = text.charAt(position) == '\t' ? (indent / 8 + 1) * 8 : indent + 1;
+                    position++;
+                }
+                char first = position < lineEnd ? text.charAt(position) : '\n';
+                if (first != '#' && first != '\r' && first != '\n') {
+                    // Any statement ends the blocks indented at least as deep, not only definitions.
+                    while (!indents.isEmpty() && indents.get(indents.size() - 1) >= indent) {
+                        indents.remove(indents.size() - 1);
+                        parents.remove(parents.size() - 1);
+                    }
+                }
+                matcher.region(position, lineEnd);
+                if (matcher.lookingAt()) {
+                    Symbol parent = parents.isEmpty() ? null : parents.get(parents.size() - 1);
+                    Symbol.Kind kind = matcher.group(1).equals("class") ? Symbol.Kind.CLASS
+                            : parent != null && parent.kind == Symbol.Kind.CLASS ? Symbol.Kind.METHOD
+                            : Symbol.Kind.FUNCTION;
+                    Symbol symbol = new Symbol(matcher.group(2), kind, parent == null ? null : parent.name, path,
+                            line, matcher.start(2) - lineStart, parents.size());
+                    symbols.add(symbol);
+                    parents.add(symbol);
+                    indents.add(indent);
+                }
+            }
+            scanPythonLine(text, position, lineEnd, state);
+            lineStart = lineEnd + 1;
+            line++;
+        }
+        return symbols;
+    }
+
+    /**
+     * How a line of Python ends: inside a triple-quoted string (its quote char), inside
+     * brackets, or continued by a backslash. The next line is then part of the same
+     * statement and its indentation means nothing.
+     */
+    private static final class PythonState {
+        char triple;
+        int brackets;
+        boolean continued;
+
+        boolean inStatement() {
+            return triple != 0 || brackets > 0 || continued;
+        }
+    }
+
+    /**
+     * Skip over strings and comments of one line, tracking where it leaves the statement.
+     */
+    private static void scanPythonLine(CharSequence text, int from, int to, PythonState state) {
+        state.continued = false;
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            if (state.triple != 0) {
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == state.triple && isTriple(text, i, to, c)) {
+                    state.triple = 0;
+                    i += 3;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '#') {
+                return;
+            }
+            if (c == '(' || c == '[' || c == '{') {
+                state.brackets++;
+            } else if ((c == ')' || c == ']' || c == '}') && state.brackets > 0) {
+                state.brackets--;
+            } else if (c == '\\' && (i + 1 == to || (i + 2 == to && text.charAt(i + 1) == '\r'))) {
+                state.continued = true;
+                return;
+            }
+            if (c == '"' || c == '\'') {
+                if (isTriple(text, i, to, c)) {
+                    state.triple = c;
+                    i += 3;
+                    continue;
+                }
+                i++;
+                while (i < to && text.charAt(i) != c) {
+                    if (text.charAt(i) == '\\') {
+                        i++;
+                    }
+                    i++;
+                }
+            }
+            i++;
+        }
+    }
+
+    private static boolean isTriple(CharSequence text, int i, int to, char quote) {
+        return i + 2 < to && text.charAt(i + 1) == quote && text.charAt(i + 2) == quote;
+    }
+
+    /**
+     * Tokens of a C-like language. Comments, literals and preprocessor lines never reach the
+     * parser as anything but a LITERAL token or nothing at all.
+     */
+    private static final class Lexer {
+        private final CharSequence text;
+        private final Language language;
+        private final int length;
+        private int position;
+        private int line = 1;
+        private int lineStart;
+        private boolean lineHasToken;
+
+        int type;
+        String ident;
+        char punct;
+        int tokenLine;
+        int tokenColumn;
+
+        Lexer(CharSequence text, Language language) {
+            this.text = text;
+            this.language = language;
+            this.length = text.length();
+        }
+
+        int next() {
+            while (position < length) {
+                char c = text.charAt(position);
+                if (c == '\n') {
+                    newLine(++position);
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    position++;
+                    continue;
+                }
+                char n = position + 1 < length ? text.charAt(position + 1) : 0;
+                if (c == '/' && n == '/') {
+                    skipLine(false);
+                    continue;
+                }
+                if (c == '/' && n == '*') {
+                    skipBlockComment();
+                    continue;
+                }
+                if (c == '#' && language == Language.C && !lineHasToken) {
+                    skipLine(true);
+                    continue;
+                }
+                tokenLine = line;
+                tokenColumn = position - lineStart;
+                lineHasToken = true;
+                if (Character.isJavaIdentifierStart(c)) {
+                    return identifier();
+                }
+                if (c >= '0' && c <= '9') {
+                    skipNumber();
+                    return type = LITERAL;
+                }
+                if (c == '"') {
+                    skipString();
+                    return type = LITERAL;
+                }
+                if (c == '\'') {
+                    skipChar();
+                    return type = LITERAL;
+                }
+                if (c == '`' && language == Language.KOTLIN) {
+                    int start = ++position;
+                    while (position < length && text.charAt(position) != '`' && text.charAt(position) != '\n') {
+                        position++;
+                    }
+                    ident = text.subSequence(start, position).toString();
+                    if (position < length && text.charAt(position) == '`') {
+                        position++;
+                    }
+                    return type = IDENT;
+                }
+                position++;
+                if (c == ':' && n == ':') {
+                    position++;
+                    punct = SCOPE;
+                } else {
+                    punct = c;
+                }
+                return type = PUNCT;
+            }
+            return type = EOF;
+        }
+
+        private int identifier() {
+            int start = position;
+            while (position < length && Character.isJavaIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            ident = text.subSequence(start, position).toString();
+            if (language == Language.C && position < length) {
+                // Encoding prefixes and raw strings: u8"...", L'x', R"(...)".
+                char c = text.charAt(position);
+                boolean prefix = ident.equals("L") || ident.equals("u") || ident.equals("U") || ident.equals("u8");
+                if (c == '"' && (prefix || ident.equals("R") || ident.equals("LR") || ident.equals("uR")
+                        || ident.equals("UR") || ident.equals("u8R"))) {
+                    if (ident.endsWith("R")) {
+                        skipRawString();
+                    } else {
+                        skipString();
+                    }
+                    return type = LITERAL;
+                }
+                if (c == '\'' && prefix) {
+                    skipChar();
+                    return type = LITERAL;
+                }
+            }
+            return type = IDENT;
+        }
+
+        private void newLine(int start) {
+            line++;
+            lineStart = start;
+            lineHasToken = false;
+        }
+
+        private boolean startsWith(String prefix) {
+            if (position + prefix.length() > length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (text.charAt(position + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Skip to the end of the line, not consuming the line break; preprocessor lines go on
+         * after a trailing backslash.
+         */
+        private void skipLine(boolean continued) {
+            while (position < length) {
+                char c = text.charAt(position);
+                if (c == '\n') {
+                    return;
+                }
+                if (continued && c == '\\') {
+                    int next = position + 1;
+                    if (next < length && text.charAt(next) == '\r') {
+                        next++;
+                    }
+                    if (next < length && text.charAt(next) == '\n') {
+                        position = next + 1;
+                        newLine(position);
+                        lineHasToken = true;
+                        continue;
+                    }
+                }
+                position++;
+            }
+        }
+
+        private void skipBlockComment() {
+            position += 2;
+            while (position < length && !startsWith("*/")) {
+                if (text.charAt(position) == '\n') {
+                    newLine(position + 1);
+                }
+                position++;
+            }
+            position = Math.min(length, position + 2);
+        }
+
+        private void skipNumber() {
+            while (position < length) {
+                char c = text.charAt(position);
+                if (!Character.isLetterOrDigit(c) && c != '.' && c != '_' && (c != '\'' || language != Language.C)) {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private void skipString() {
+            if (language != Language.C && startsWith("\"\"\"")) {
+                position += 3;
+                while (position < length && !startsWith("\"\"\"")) {
+                    char c = text.charAt(position);
+                    if (c == '\n') {
+                        newLine(position + 1);
+                    } else if (c == '\\' && language == Language.JAVA) {
+                        position++;
+                        if (position < length && text.charAt(position) == '\n') {
+                            newLine(position + 1);
+                        }
+                    } else if (c == '$' && language == Language.KOTLIN && startsWith("${")) {
+                        position += 2;
+                        skipTemplate();
+                        continue;
+                    }
+                    position++;
+                }
+                position = Math.min(length, position + 3);
+                while (language == Language.KOTLIN && position < length && text.charAt(position) == '"') {
+                    position++;
+                }
+                return;
+            }
+            position++;
+            while (position < length) {
+                char c = text.charAt(position);
+                if (c == '"') {
+                    position++;
+                    return;
+                }
+                if (c == '\n') {
+                    return;
+                }
+                if (c == '\\') {
+                    position++;
+                    if (position < length && text.charAt(position) == '\n') {
+                        newLine(position + 1);
+                    }
+                } else if (c == '$' && language == Language.KOTLIN && startsWith("${")) {
+                    position += 2;
+                    skipTemplate();
+                    continue;
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Skip a Kotlin string template expression up to its closing brace; it may contain
+         * strings of its own.
+         */
+        private void skipTemplate() {
+            int depth = 1;
+            while (next() != EOF) {
+                if (type == PUNCT && punct == '{') {
+                    depth++;
+                } else if (type == PUNCT && punct == '}' && --depth == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void skipRawString() {
+            int open = position + 1;
+            while (open < length && open - position <= 17 && text.charAt(open) != '(') {
+                open++;
+            }
+            if (open >= length || text.charAt(open) != '(') {
+                skipString();
+                return;
+            }
+            String terminator = ")" + text.subSequence(position + 1, open) + "\"";
+            position = open + 1;
+            while (position < length && !startsWith(terminator)) {
+                if (text.charAt(position) == '\n') {
+                    newLine(position + 1);
+                }
+                position++;
+            }
+            position = Math.min(length, position + terminator.length());
+        }
+
+        private void skipChar() {
+            position++;
+            while (position < length) {
+                char c = text.charAt(position);
+                if (c == '\'') {
+                    position++;
+                    return;
+                }
+                if (c == '\n') {
+                    return;
+                }
+                if (c == '\\') {
+                    position++;
+                }
+                position++;
+            }
+        }
+    }
+
+    private static final class Scope {
+        final int kind;
+        final String name;
+        final int savedParenDepth;
+        /** C: kind of an anonymous typedef'd type whose name follows the closing brace. */
+        final Symbol.Kind typedefKind;
+
+        Scope(int kind, String name, int savedParenDepth, Symbol.Kind typedefKind) {
+            this.kind = kind;
+            this.name = name;
+            this.savedParenDepth = savedParenDepth;
+            this.typedefKind = typedefKind;
+        }
+    }
+
+    /**
+     * Declaration shapes over the token stream of C/C++, Java and Kotlin.
+     */
+    private static final class BraceParser {
+        private final Language language;
+        private final String path;
+        private final Lexer lexer;
+        private final List<Symbol> symbols = new ArrayList<>();
+        private final List<Scope> scopes = new ArrayList<>();
+        private int parenDepth;
+        private int braceInitializers;
+
+        // The current statement, reset at ';', '{' and '}'.
+        private boolean reset;
+        private int previousType;
+        private String previousIdent;
+        private char previousPunct;
+        private boolean assigned;
+        private boolean typedef;
+        private boolean externSeen;
+
+        // Identifiers joined by "::" (or a lone identifier) and the token before them.
+        private final StringBuilder chain = new StringBuilder();
+        private boolean chainOpen;
+        private int chainBeforeType;
+        private String chainBeforeIdent;
+        private char chainBeforePunct;
+        private int nameLine;
+        private int nameColumn;
+        private StringBuilder operatorName;
+
+        // Java and Kotlin: a type keyword waiting for its name.
+        private Symbol.Kind typeKeyword;
+
+        // C: a type keyword, its name so far; recorded at '{' or ':'.
+        private Symbol.Kind typeKind;
+        private String typeName;
+        private int typeLine;
+        private int typeColumn;
+        private Symbol.Kind typedefNameKind;
+
+        // What the next '{' opens, when known in advance.
+        private int bodyKind = -1;
+        private String bodyName;
+
+        // A name followed by '(' in a declaration scope.
+        private String candidate;
+        private String candidateContainer;
+        private int candidateLine;
+        private int candidateColumn;
+        private int candidateState;
+
+        // Kotlin "fun" header.
+        private boolean funHeader;
+        private int funAngles;
+        private String funName;
+        private int funLine;
+        private int funColumn;
+
+        BraceParser(Language language, String path, CharSequence text) {
+            this.language = language;
+            this.path = path;
+            this.lexer = new Lexer(text, language);
+        }
+
+        List<Symbol> parse() {
+            scopes.add(new Scope(NAMESPACE, null, 0, null));
+            resetStatement();
+            while (lexer.next() != EOF) {
+                reset = false;
+                handle();
+                if (!reset) {
+                    previousType = lexer.type;
+                    previousIdent = lexer.type == IDENT ? lexer.ident : null;
+                    previousPunct = lexer.type == PUNCT ? lexer.punct : 0;
+                }
+            }
+            return symbols;
+        }
+
+        private void handle() {
+            if (operatorName != null && !continueOperator()) {
+                return;
+            }
+            if (typeKeyword != null) {
+                Symbol.Kind kind = typeKeyword;
+                typeKeyword = null;
+                if (lexer.type == IDENT) {
+                    add(lexer.ident, kind, lexer.tokenLine, lexer.tokenColumn, null);
+                    bodyKind = TYPE;
+                    bodyName = lexer.ident;
+                    return;
+                }
+                if (kind == Symbol.Kind.OBJECT) {
+                    bodyKind = TYPE;
+                    bodyName = null;
+                }
+            }
+            switch (lexer.type) {
+                case IDENT:
+                    identifier(lexer.ident);
+                    break;
+                case PUNCT:
+                    punctuation(lexer.punct);
+                    break;
+                default:
+                    chainOpen = false;
+                    if (language == Language.C && "extern".equals(previousIdent)) {
+                        externSeen = true;
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * Collect the tokens of an operator name after "operator". Returns true when the
+         * current token is the '(' of the parameter list and should be handled as usual.
+         */
+        private boolean continueOperator() {
+            if (lexer.type == PUNCT && lexer.punct == '('
+                    && operatorName.length() > 0 && !"(".contentEquals(operatorName)) {
+                chain.append("operator").append(operatorName);
+                operatorName = null;
+                previousType = IDENT;
+                previousIdent = "operator";
+                return true;
+            }
+            if (lexer.type == IDENT) {
+                operatorName.append(operatorName.length() == 0 ? " " : "").append(lexer.ident);
+            } else if (lexer.type == PUNCT && lexer.punct != ';' && lexer.punct != '{') {
+                operatorName.append(lexer.punct == SCOPE ? "::" : String.valueOf(lexer.punct));
+            } else {
+                operatorName = null;
+                return true;
+            }
+            if (operatorName.length() > 16) {
+                operatorName = null;
+            }
+            reset = true;
+            return false;
+        }
+
+        private void identifier(String word) {
+            if (chainOpen && previousType == PUNCT && (previousPunct == SCOPE || previousPunct == '~')) {
+                chain.append(word);
+            } else {
+                chain.setLength(0);
+                chain.append(word);
+                chainBeforeType = previousType;
+                chainBeforeIdent = previousIdent;
+                chainBeforePunct = previousPunct;
+            }
+            chainOpen = true;
+            nameLine = lexer.tokenLine;
+            nameColumn = lexer.tokenColumn;
+            boolean member = previousType == PUNCT && (previousPunct == '.' || previousPunct == SCOPE);
+
+            if (language == Language.C) {
+                cIdentifier(word);
+                return;
+            }
+            if (language == Language.KOTLIN && funHeader) {
+                if (!word.equals("interface")) {
+                    if (funAngles == 0) {
+                        funName = word;
+                        funLine = lexer.tokenLine;
+                        funColumn = lexer.tokenColumn;
+                    }
+                    return;
+                }
+                funHeader = false;
+            }
+            if (member) {
+                return;
+            }
+            if (language == Language.KOTLIN && parenDepth == 0) {
+                switch (word) {
+                    case "fun":
+                        funHeader = true;
+                        funAngles = 0;
+                        funName = null;
+                        bodyKind = -1;
+                        return;
+                    case "val":
+                    case "var":
+                    case "typealias":
+                    case "init":
+                    case "constructor":
+                        bodyKind = -1;
+                        return;
+                    case "class":
+                        typeKeyword = "enum".equals(previousIdent) ? Symbol.Kind.ENUM : Symbol.Kind.CLASS;
+                        return;
+                    case "interface":
+                        typeKeyword = Symbol.Kind.INTERFACE;
+                        return;
+                    case "object":
+                        typeKeyword = Symbol.Kind.OBJECT;
+                        return;
+                    default:
+                        return;
+                }
+            }
+            if (language == Language.JAVA) {
+                switch (word) {
+                    case "class":
+                        typeKeyword = Symbol.Kind.CLASS;
+                        break;
+                    case "interface":
+                        typeKeyword = Symbol.Kind.INTERFACE;
+                        break;
+                    case "enum":
+                        typeKeyword = Symbol.Kind.ENUM;
+                        break;
+                    case "record":
+                        if (parenDepth == 0) {
+                            typeKeyword = Symbol.Kind.CLASS;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void cIdentifier(String word) {
+            if (word.equals("operator")) {
+                // The name is appended once complete, see continueOperator().
+                chain.setLength(chain.length() - word.length());
+                operatorName = new StringBuilder();
+                return;
+            }
+            if (parenDepth != 0) {
+                return;
+            }
+            if (word.equals("typedef")) {
+                typedef = true;
+                return;
+            }
+            if (typedefNameKind != null) {
+                add(word, typedefNameKind, lexer.tokenLine, lexer.tokenColumn, null);
+                typedefNameKind = null;
+                return;
+            }
+            switch (word) {
+                case "class":
+                case "struct":
+                case "union":
+                case "enum":
+                case "namespace":
+                    if (typeKind == null) {
+                        typeKind = word.equals("enum") ? Symbol.Kind.ENUM
+                                : word.equals("namespace") ? Symbol.Kind.NAMESPACE
+                                : word.equals("class") ? Symbol.Kind.CLASS
+                                : Symbol.Kind.STRUCT;
+                        typeName = null;
+                    }
+                    return;
+                case "final":
+                case "sealed":
+                    return;
+                default:
+                    break;
+            }
+            if (typeKind != null) {
+                typeName = previousType == PUNCT && previousPunct == SCOPE && typeName != null
+                        ? typeName + "::" + word : word;
+                typeLine = lexer.tokenLine;
+                typeColumn = lexer.tokenColumn;
+            }
+        }
+
+        private void punctuation(char c) {
+            if (c != SCOPE && c != '~') {
+                chainOpen = false;
+            } else if (c == SCOPE) {
+                if (chainOpen && previousType == IDENT) {
+                    chain.append("::");
+                } else {
+                    startChain("::");
+                }
+            } else if (chainOpen && previousType == PUNCT && previousPunct == SCOPE) {
+                chain.append('~');
+            } else {
+                startChain("~");
+            }
+
+            if (funHeader) {
+                if (c == '<') {
+                    funAngles++;
+                } else if (c == '>') {
+                    funAngles--;
+                } else if (c == '(' && funAngles <= 0) {
+                    funHeader = false;
+                    if (funName != null) {
+                        add(funName, functionKind(), funLine, funColumn, null);
+                        bodyKind = FUNCTION;
+                        bodyName = funName;
+                    }
+                }
+            }
+            if (language == Language.C && typeKind != null && parenDepth == 0) {
+                if (c == ':' || c == '{') {
+                    if (typeName != null) {
+                        add(typeName, typeKind, typeLine, typeColumn, null);
+                    }
+                    bodyKind = typeKind == Symbol.Kind.NAMESPACE ? NAMESPACE : TYPE;
+                    bodyName = typeName;
+                    typeKind = typeName == null && typedef ? typeKind : null;
+                } else if (c != SCOPE && c != '[' && c != ']') {
+                    typeKind = null;
+                }
+            }
+
+            switch (c) {
+                case '(':
+                    if (candidate == null && parenDepth == 0 && previousType == IDENT) {
+                        startCandidate();
+                    }
+                    parenDepth++;
+                    break;
+                case ')':
+                    if (parenDepth > 0) {
+                        parenDepth--;
+                    }
+                    if (candidateState == PARAMETERS && parenDepth == 0) {
+                        candidateState = AFTER_PARAMETERS;
+                    }
+                    break;
+                case '{':
+                    openBrace();
+                    break;
+                case '}':
+                    closeBrace();
+                    break;
+                case ';':
+                    if (parenDepth == 0) {
+                        if (candidateState == AFTER_PARAMETERS && language == Language.JAVA) {
+                            addCandidate();
+                        }
+                        resetStatement();
+                    }
+                    break;
+                case '=':
+                    if (parenDepth == 0) {
+                        assigned = true;
+                        if (candidateState >= AFTER_PARAMETERS) {
+                            dropCandidate();
+                        }
+                        if (bodyKind == FUNCTION && language == Language.KOTLIN) {
+                            bodyKind = -1;
+                        }
+                    }
+                    break;
+                case ',':
+                    if (parenDepth == 0 && candidateState == AFTER_PARAMETERS && language == Language.C) {
+                        dropCandidate();
+                    }
+                    break;
+                case ':':
+                    if (language != Language.C || parenDepth != 0) {
+                        break;
+                    }
+                    if (candidateState == AFTER_PARAMETERS) {
+                        candidateState = INITIALIZERS;
+                    } else if (candidate == null && previousType == IDENT && ACCESS_LABELS.contains(previousIdent)) {
+                        resetStatement();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void startChain(String start) {
+            chain.setLength(0);
+            chain.append(start);
+            chainOpen = true;
+            chainBeforeType = previousType;
+            chainBeforeIdent = previousIdent;
+            chainBeforePunct = previousPunct;
+        }
+
+        private void startCandidate() {
+            if (language == Language.KOTLIN || bodyKind >= 0 || assigned || !isDeclarationScope()) {
+                return;
+            }
+            String full = chain.toString();
+            int split = full.lastIndexOf("::");
+            String qualifier = split > 0 ? full.substring(0, split) : null;
+            String name = split >= 0 ? full.substring(split + 2) : full;
+            if (name.isEmpty() || NOT_FUNCTIONS.contains(name)) {
+                return;
+            }
+            String container = qualifier != null ? qualifier : container();
+            boolean constructor = name.equals(container)
+                    || (container != null && container.endsWith("::" + name))
+                    || name.equals("~" + container);
+            boolean allowed;
+            switch (chainBeforeType) {
+                case IDENT:
+                    allowed = !NOT_TYPES.contains(chainBeforeIdent);
+                    break;
+                case PUNCT:
+                    allowed = chainBeforePunct == '*' || chainBeforePunct == '&' || chainBeforePunct == '>'
+                            || chainBeforePunct == ']' || (chainBeforePunct == SCOPE && qualifier != null);
+                    break;
+                case EOF:
+                    allowed = qualifier != null || constructor;
+                    break;
+                default:
+                    allowed = false;
+                    break;
+            }
+            if (!allowed) {
+                return;
+            }
+            candidate = name;
+            candidateContainer = qualifier;
+            candidateLine = nameLine;
+            candidateColumn = nameColumn;
+            candidateState = PARAMETERS;
+        }
+
+        private boolean isDeclarationScope() {
+            int kind = scopes.get(scopes.size() - 1).kind;
+            return language == Language.JAVA ? kind == TYPE : kind == TYPE || kind == NAMESPACE;
+        }
+
+        private void openBrace() {
+            if (candidateState == INITIALIZERS && parenDepth == 0
+                    && (previousType == IDENT || (previousType == PUNCT && previousPunct == '>'))) {
+                // Member initialized with braces: Foo() : x{1} {
+                braceInitializers++;
+                return;
+            }
+            int kind = BLOCK;
+            String name = null;
+            Symbol.Kind typedefKind = null;
+            if (candidateState >= AFTER_PARAMETERS) {
+                addCandidate();
+                kind = FUNCTION;
+                name = candidate;
+            } else if (bodyKind >= 0) {
+                kind = bodyKind;
+                name = bodyName;
+                if (language == Language.C && typeKind != null && typedef) {
+                    typedefKind = typeKind;
+                }
+            } else if (language == Language.C && externSeen) {
+                kind = NAMESPACE;
+            }
+            scopes.add(new Scope(kind, name, parenDepth, typedefKind));
+            parenDepth = 0;
+            resetStatement();
+        }
+
+        private void closeBrace() {
+            if (braceInitializers > 0) {
+                braceInitializers--;
+                return;
+            }
+            Symbol.Kind typedefKind = null;
+            if (scopes.size() > 1) {
+                Scope scope = scopes.remove(scopes.size() - 1);
+                parenDepth = scope.savedParenDepth;
+                typedefKind = scope.typedefKind;
+            }
+            resetStatement();
+            typedefNameKind = typedefKind;
+        }
+
+        private void addCandidate() {
+            String container = candidateContainer;
+            Symbol.Kind kind = container != null ? Symbol.Kind.METHOD : functionKind();
+            add(candidate, kind, candidateLine, candidateColumn, container);
+        }
+
+        private void dropCandidate() {
+            candidate = null;
+            candidateState = 0;
+        }
+
+        private void resetStatement() {
+            reset = true;
+            previousType = EOF;
+            previousIdent = null;
+            previousPunct = 0;
+            assigned = false;
+            typedef = false;
+            externSeen = false;
+            chain.setLength(0);
+            chainOpen = false;
+            typeKeyword = null;
+            typeKind = null;
+            typeName = null;
+            typedefNameKind = null;
+            bodyKind = -1;
+            bodyName = null;
+            funHeader = false;
+            operatorName = null;
+            braceInitializers = 0;
+            dropCandidate();
+        }
+
+        private Symbol.Kind functionKind() {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                Scope scope = scopes.get(i);
+                if (scope.name != null) {
+                    return scope.kind == TYPE ? Symbol.Kind.METHOD : Symbol.Kind.FUNCTION;
+                }
+            }
+            return Symbol.Kind.FUNCTION;
+        }
+
+        private String container() {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                if (scopes.get(i).name != null) {
+                    return scopes.get(i).name;
+                }
+            }
+            return null;
+        }
+
+        private int depth() {
+            int depth = 0;
+            for (Scope scope : scopes) {
+                if (scope.name != null) {
+                    depth++;
+                }
+            }
+            return depth;
+        }
+
+        private void add(String name, Symbol.Kind kind, int line, int column, String container) {
+            symbols.add(new Symbol(name, kind, container != null ? container : container(), path, line, column,
+                    depth()));
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Symbol definitions of a project's source files, for go to symbol.
+ *
+ * Symbols are extracted per file with {@link SymbolExtractor} and kept with the size and
+ * mtime the file had when it was read, so opening the index again only re-reads files whose
+ * stats differ. On disk the index is one table next to the trigram index: the file list with
+ * those stats, a pool of names and fixed-size symbol rows sorted by name. The table is
+ * rewritten at most every {@link #SAVE_INTERVAL_MILLIS}; anything newer is recovered from the
+ * stats when the index is opened next.
+ *
+ * Mutating calls are expected to come from one worker thread; queries may run on any.
+ */
+public class SymbolIndex {
+
+    public static final int DEFAULT_LIMIT = 50;
+    static final String FILE_NAME = "symbols.idx";
+    static final long SAVE_INTERVAL_MILLIS = 30_000;
+    private static final int MAGIC = 0x53594d31;
+    private static final int VERSION = 1;
+    private static final long MAX_FILE_SIZE = 2 << 20;
+    private static final Symbol[] NO_SYMBOLS = new Symbol[0];
+
+    private static final Comparator<Symbol> BY_NAME = new Comparator<Symbol>() {
+        @Override
+        public int compare(Symbol a, Symbol b) {
+            int order = String.CASE_INSENSITIVE_ORDER.compare(a.name, b.name);
+            if (order == 0) {
+                order = a.name.compareTo(b.name);
+            }
+            if (order == 0) {
+                order = a.path.compareTo(b.path);
+            }
+            return order != 0 ? order : Integer.compare(a.line, b.line);
+        }
+    };
+
+    private static class FileSymbols {
+        final long length;
+        final long mtime;
+        final Symbol[] symbols;
+
+        FileSymbols(long length, long mtime, Symbol[] symbols) {
+            this.length = length;
+            this.mtime = mtime;
+            this.symbols = symbols;
+        }
+    }
+
+    /**
+     * Immutable view for queries: all symbols sorted by name, and every distinct name once,
+     * packed like the paths of {@link PathIndex}, with the range of symbols carrying it.
+     */
+    private static class Table {
+        final Symbol[] symbols;
+        final int[] firsts;
+        final char[] originals;
+        final char[] lowers;
+        final int[] offsets;
+        final long[] masks;
+
+        Table(Symbol[] symbols) {
+            this.symbols = symbols;
+            int[] starts = new int[symbols.length + 1];
+            int names = 0;
+            int total = 0;
+            for (int i = 0; i < symbols.length; i++) {
+                if (i == 0 || !symbols[i].name.equals(symbols[i - 1].name)) {
+                    starts[names++] = i;
+                    total += symbols[i].name.length();
+                }
+            }
+            starts[names] = symbols.length;
+            firsts = Arrays.copyOf(starts, names + 1);
+            originals = new char[total];
+            lowers = new char[total];
+            offsets = new int[names + 1];
+            masks = new long[names];
+            int offset = 0;
+            for (int n = 0; n < names; n++) {
+                String name = symbols[firsts[n]].name;
+                offsets[n] = offset;
+                name.getChars(0, name.length(), originals, offset);
+                for (int i = 0; i < name.length(); i++) {
+                    lowers[offset + i] = Character.toLowerCase(originals[offset + i]);
+                }
+                masks[n] = FuzzyMatcher.mask(Arrays.copyOfRange(lowers, offset, offset + name.length()));
+                offset += name.length();
+            }
+            offsets[names] = offset;
+        }
+
+        int nameCount() {
+            return masks.length;
+        }
+    }
+
+    private final File indexDirectory;
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+    private final Map<String, FileSymbols> files = new HashMap<>();
+    private Table table = new Table(NO_SYMBOLS);
+    private boolean dirty;
+    private boolean unsaved;
+    private long lastSave;
+    private boolean ready;
+
+    public SymbolIndex(File indexDirectory, File root, IgnoreMatcher ignoreMatcher) {
+        this.indexDirectory = indexDirectory;
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int fileCount() {
+        return files.size();
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (FileSymbols entry : files.values()) {
+            size += entry.symbols.length;
+        }
+        return size;
+    }
+
+    /**
+     * Load the table from disk when there is a readable one, bring it up to date with the
+     * tree and write it back if anything changed.
+     */
+    public void open() throws IOException {
+        load();
+        refreshDirectory("");
+        synchronized (this) {
+            ready = true;
+        }
+        if (isUnsaved()) {
+            save();
+        }
+    }
+
+    /**
+     * Compare the whole tree against the index by size and mtime and re-read what differs.
+     */
+    public void refresh() throws IOException {
+        refreshDirectory("");
+        saveIfDue();
+    }
+
+    /**
+     * Apply a batch of watcher events.
+     */
+    public void apply(ProjectWatcher.Batch batch) throws IOException {
+        if (!isReady()) {
+            return;
+        }
+        if (batch.ignoreRulesChanged) {
+            refresh();
+            return;
+        }
+        for (String path : batch.deleted) {
+            remove(path);
+        }
+        for (String path : batch.created) {
+            if (new File(root, path).isDirectory()) {
+                refreshDirectory(path);
+            } else {
+                update(path);
+            }
+        }
+        for (String path : batch.modified) {
+            update(path);
+        }
+        for (String path : batch.rescanned) {
+            refreshDirectory(path);
+        }
+        saveIfDue();
+    }
+
+    /**
+     * Re-read one file, or drop it when it is gone or not a supported source file.
+     */
+    public void update(String path) {
+        File file = new File(root, path);
+        if (!file.isFile() || !SymbolExtractor.isSupported(path) || isSkipped(file, path, false)) {
+            remove(path);
+            return;
+        }
+        long length = file.length();
+        long mtime = file.lastModified();
+        Symbol[] symbols = extract(file, path, length);
+        synchronized (this) {
+            files.put(path, new FileSymbols(length, mtime, symbols));
+            dirty = true;
+            unsaved = true;
+        }
+    }
+
+    /**
+     * Drop a file, or a directory with everything below it.
+     */
+    public synchronized void remove(String path) {
+        if (files.remove(path) == null) {
+            String prefix = path + "/";
+            files.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        dirty = true;
+        unsaved = true;
+    }
+
+    /**
+     * The symbols whose names best match the query, best first; an empty query returns
+     * nothing. Each distinct name is scored once, so overloads and common names cost no more
+     * than a unique one.
+     */
+    public List<Symbol> search(String query, int limit) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
+        if (matcher.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Table current = table();
+        long mask = matcher.getMask();
+        int names = current.nameCount();
+        int[] scores = new int[names];
+        List<Integer> matched = new ArrayList<>();
+        for (int n = 0; n < names; n++) {
+            if ((current.masks[n] & mask) != mask) {
+                continue;
+            }
+            int offset = current.offsets[n];
+            int score = matcher.score(current.originals, current.lowers, offset, current.offsets[n + 1] - offset, 0);
+            if (score != FuzzyMatcher.NO_MATCH) {
+                scores[n] = score;
+                matched.add(n);
+            }
+        }
+        Collections.sort(matched, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (scores[a] != scores[b]) {
+                    return Integer.compare(scores[b], scores[a]);
+                }
+                return Integer.compare(current.offsets[a + 1] - current.offsets[a],
+                        current.offsets[b + 1] - current.offsets[b]);
+            }
+        });
+        List<Symbol> result = new ArrayList<>();
+        for (int n : matched) {
+            for (int i = current.firsts[n]; i < current.firsts[n + 1] && result.size() < limit; i++) {
+                result.add(current.symbols[i]);
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The symbols of one file in source order, as of the last time it was read.
+     */
+    public synchronized List<Symbol> symbolsIn(String path) {
+        FileSymbols entry = files.get(path);
+        return entry == null ? Collections.<Symbol>emptyList() : Arrays.asList(entry.symbols);
+    }
+
+    private synchronized Table table() {
+        if (dirty) {
+            List<Symbol> all = new ArrayList<>();
+            for (FileSymbols entry : files.values()) {
+                Collections.addAll(all, entry.symbols);
+            }
+            Symbol[] sorted = all.toArray(NO_SYMBOLS);
+            Arrays.sort(sorted, BY_NAME);
+            table = new Table(sorted);
+            dirty = false;
+        }
+        return table;
+    }
+
+    private synchronized boolean isUnsaved() {
+        return unsaved;
+    }
+
+    private void saveIfDue() throws IOException {
+        boolean due;
+        synchronized (this) {
+            due = unsaved && System.currentTimeMillis() - lastSave >= SAVE_INTERVAL_MILLIS;
+        }
+        if (due) {
+            save();
+        }
+    }
+
+    /**
+     * Write the table: magic and version, the files with their stats, the name pool, then the
+     * symbol rows sorted by name.
+     */
+    void save() throws IOException {
+        Table current = table();
+        List<String> paths;
+        List<FileSymbols> entries = new ArrayList<>();
+        synchronized (this) {
+            paths = new ArrayList<>(files.keySet());
+            for (String path : paths) {
+                entries.add(files.get(path));
+            }
+            unsaved = false;
+            lastSave = System.currentTimeMillis();
+        }
+        Map<String, Integer> fileIds = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            fileIds.put(paths.get(i), i);
+        }
+        List<String> pool = new ArrayList<>();
+        Map<String, Integer> poolIds = new HashMap<>();
+        for (Symbol symbol : current.symbols) {
+            poolId(symbol.name, pool, poolIds);
+        }
+        for (Symbol symbol : current.symbols) {
+            if (symbol.container != null) {
+                poolId(symbol.container, pool, poolIds);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            out.writeUTF(paths.get(i));
+            out.writeLong(entries.get(i).length);
+            out.writeLong(entries.get(i).mtime);
+        }
+        out.writeInt(pool.size());
+        for (String name : pool) {
+            out.writeUTF(name);
+        }
+        int rows = 0;
+        for (Symbol symbol : current.symbols) {
+            if (fileIds.containsKey(symbol.path)) {
+                rows++;
+            }
+        }
+        out.writeInt(rows);
+        for (Symbol symbol : current.symbols) {
+            Integer file = fileIds.get(symbol.path);
+            if (file == null) {
+                continue;
+            }
+            out.writeInt(poolIds.get(symbol.name));
+            out.writeInt(symbol.container == null ? -1 : poolIds.get(symbol.container));
+            out.writeInt(file);
+            out.writeInt(symbol.line);
+            out.writeInt(symbol.column);
+            out.writeByte(symbol.kind.ordinal());
+            out.writeByte(Math.min(Byte.MAX_VALUE, symbol.depth));
+        }
+        out.flush();
+        indexDirectory.mkdirs();
+        AtomicFileWriter.write(new File(indexDirectory, FILE_NAME), bytes.toByteArray());
+    }
+
+    private static int poolId(String name, List<String> pool, Map<String, Integer> poolIds) {
+        Integer id = poolIds.get(name);
+        if (id == null) {
+            id = pool.size();
+            pool.add(name);
+            poolIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Read the table from disk. Returns false, leaving the index empty, when there is none
+     * or it cannot be read.
+     */
+    boolean load() {
+        File file = new File(indexDirectory, FILE_NAME);
+        if (!file.isFile()) {
+            return false;
+        }
+        Symbol.Kind[] kinds = Symbol.Kind.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int fileCount = in.readInt();
+            String[] paths = new String[fileCount];
+            long[] lengths = new long[fileCount];
+            long[] mtimes = new long[fileCount];
+            for (int i = 0; i < fileCount; i++) {
+                paths[i] = in.readUTF();
+                lengths[i] = in.readLong();
+                mtimes[i] = in.readLong();
+            }
+            String[] pool = new String[in.readInt()];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = in.readUTF();
+            }
+            List<List<Symbol>> perFile = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                perFile.add(new ArrayList<Symbol>());
+            }
+            int rows = in.readInt();
+            for (int i = 0; i < rows; i++) {
+                String name = pool[in.readInt()];
+                int container = in.readInt();
+                int fileId = in.readInt();
+                int line = in.readInt();
+                int column = in.readInt();
+                Symbol.Kind kind = kinds[in.readByte()];
+                int depth = in.readByte();
+                perFile.get(fileId).add(new Symbol(name, kind, container < 0 ? null : pool[container], paths[fileId],
+                        line, column, depth));
+            }
+            Comparator<Symbol> bySource = new Comparator<Symbol>() {
+                @Override
+                public int compare(Symbol a, Symbol b) {
+                    return a.line != b.line ? Integer.compare(a.line, b.line) : Integer.compare(a.column, b.column);
+                }
+            };
+            synchronized (this) {
+                files.clear();
+                for (int i = 0; i < fileCount; i++) {
+                    List<Symbol> symbols = perFile.get(i);
+                    Collections.sort(symbols, bySource);
+                    files.put(paths[i], new FileSymbols(lengths[i], mtimes[i], symbols.toArray(NO_SYMBOLS)));
+                }
+                dirty = true;
+                lastSave = System.currentTimeMillis();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                files.clear();
+                dirty = true;
+            }
+            return false;
+        }
+    }
+
+    private void refreshDirectory(String relativePath) {
+        Set<String> seen = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(relativePath);
+        while (!queue.isEmpty()) {
+            String directory = queue.poll();
+            File[] children = (directory.isEmpty() ? root : new File(root, directory)).listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                String path = directory.isEmpty() ? child.getName() : directory + "/" + child.getName();
+                boolean isDirectory = child.isDirectory();
+                if (isSkipped(child, path, isDirectory)) {
+                    continue;
+                }
+                if (isDirectory) {
+                    queue.add(path);
+                    continue;
+                }
+                if (!SymbolExtractor.isSupported(path)) {
+                    continue;
+                }
+                seen.add(path);
+                FileSymbols entry;
+                synchronized (this) {
+                    entry = files.get(path);
+                }
+                if (entry == null || entry.length != child.length() || entry.mtime != child.lastModified()) {
+                    update(path);
+                }
+            }
+        }
+
+        // Whatever was indexed below the directory and not seen any more is gone.
+        String prefix = relativePath.isEmpty() ? "" : relativePath + "/";
+        synchronized (this) {
+            Iterator<String> iterator = files.keySet().iterator();
+            while (iterator.hasNext()) {
+                String path = iterator.next();
+                if (path.startsWith(prefix) && !seen.contains(path)) {
+                    iterator.remove();
+                    dirty = true;
+                    unsaved = true;
+                }
+            }
+        }
+    }
+
+    private boolean isSkipped(File file, String path, boolean isDirectory) {
+        return file.getName().equals(Constants.DOT_GIT)
+                || (ignoreMatcher != null && ignoreMatcher.isIgnored(path, isDirectory));
+    }
+
+    /**
+     * Symbols of a file; none for files that are too large, binary or unreadable, which are
+     * still recorded so they are not read again until they change.
+     */
+    private static Symbol[] extract(File file, String path, long length) {
+        if (length == 0 || length > MAX_FILE_SIZE) {
+            return NO_SYMBOLS;
+        }
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            return NO_SYMBOLS;
+        }
+        if (ProjectSearch.isBinary(ByteBuffer.wrap(content))) {
+            return NO_SYMBOLS;
+        }
+        return SymbolExtractor.extract(path, new String(content, StandardCharsets.UTF_8)).toArray(NO_SYMBOLS);
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.codeeditor.model;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Find and replace inside one document, working on the editor's CharSequence directly so
+ * nothing copies the whole text.
+ *
+ * Literal queries are scanned char by char, regex queries go through a Matcher over the
+ * same CharSequence. Searches in a range only read the text up to its end, plus whatever a
+ * match starting inside it needs. Empty matches are skipped. Counting is split into steps of a bounded
+ * number of chars so a caller can spread it over idle time, and replace-all produces one
+ * edit covering the first to the last match, to be applied with a single replace call.
+ */
+public class TextFinder {
+
+    private final String query;
+    private final Pattern pattern;
+    private final boolean caseSensitive;
+
+    /**
+     * Replacement of the range [start, end) with text, covering count matches.
+     */
+    public static class Replacement {
+        public final int start;
+        public final int end;
+        public final CharSequence text;
+        public final int count;
+
+        Replacement(int start, int end, CharSequence text, int count) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Progress of an incremental count.
+     */
+    public static class Count {
+        public int matches;
+        int position;
+        boolean done;
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    /**
+     * @throws PatternSyntaxException when a regex query does not compile
+     */
+    public TextFinder(String query, boolean regex, boolean caseSensitive) {
+        this.query = query;
+        this.caseSensitive = caseSensitive;
+        this.pattern = regex
+                ? Pattern.compile(query, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)
+                : null;
+    }
+
+    public boolean isEmpty() {
+        return query.isEmpty();
+    }
+
+    /**
+     * Matches that start in [from, to) as consecutive start/end pairs, at most max of them.
+     */
+    public int[] findAll(CharSequence text, int from, int to, int max) {
+        int[] found = new int[16];
+        int size = 0;
+        int position = Math.max(0, from);
+        to = Math.min(to, text.length());
+        Matcher matcher = pattern != null ? matcher(text) : null;
+        while (size / 2 < max) {
+            int start;
+            int end;
+            if (matcher != null) {
+                if (!findRegex(matcher, position, to, text.length())) {
+                    break;
+                }
+                start = matcher.start();
+                end = matcher.end();
+            } else {
+                start = indexOf(text, position, Math.min(text.length(), to + query.length() - 1));
+                end = start + query.length();
+            }
+            if (start < 0 || start >= to) {
+                break;
+            }
+            if (size == found.length) {
+                found = Arrays.copyOf(found, size * 2);
+            }
+            found[size++] = start;
+            found[size++] = end;
+            position = end;
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * The match after from (or before it when backwards), wrapping around the ends of the
+     * text; null when there is none.
+     */
+    public int[] next(CharSequence text, int from, boolean forward) {
+        if (isEmpty()) {
+            return null;
+        }
+        if (forward) {
+            int[] match = findAll(text, from, text.length(), 1);
+            if (match.length == 0) {
+                match = findAll(text, 0, from, 1);
+            }
+            return match.length == 0 ? null : match;
+        }
+        int[] match = last(text, 0, from);
+        if (match == null) {
+            match = last(text, from, text.length());
+        }
+        return match;
+    }
+
+    private int[] last(CharSequence text, int from, int to) {
+        int[] last = null;
+        int position = from;
+        while (true) {
+            int[] match = findAll(text, position, to, 1);
+            if (match.length == 0 || match[0] >= to) {
+                return last;
+            }
+            last = match;
+            position = match[1];
+        }
+    }
+
+    /**
+     * Count matches over the next chunk chars of the text. Returns true once the end of the
+     * text is reached. A count has to be restarted when the text changes.
+     */
+    public boolean count(CharSequence text, Count count, int chunk) {
+        if (count.done) {
+            return true;
+        }
+        if (isEmpty()) {
+            count.done = true;
+            return true;
+        }
+        int length = text.length();
+        int chunkEnd = (int) Math.min(length, (long) count.position + chunk);
+        Matcher matcher = pattern != null ? matcher(text) : null;
+        int position = count.position;
+        while (position < chunkEnd) {
+            int start;
+            int end;
+            if (matcher != null) {
+                if (!findRegex(matcher, position, chunkEnd, length)) {
+                    position = chunkEnd;
+                    break;
+                }
+                start = matcher.start();
+                end = matcher.end();
+            } else {
+                start = indexOf(text, position, Math.min(length, chunkEnd + query.length() - 1));
+                end = start + query.length();
+            }
+            if (start < 0 || start >= chunkEnd) {
+                position = chunkEnd;
+                break;
+            }
+            count.matches++;
+            position = end;
+        }
+        count.position = position;
+        count.done = position >= length;
+        return count.done;
+    }
+
+    /**
+     * One edit that replaces every match, or null when there is nothing to replace. Regex
+     * replacements may refer to groups as $1; literal ones are inserted as they are.
+     */
+    public Replacement replaceAll(CharSequence text, String replacement) {
+        if (isEmpty()) {
+            return null;
+        }
+        int count = 0;
+        int first = -1;
+        int copied = 0;
+        StringBuilder result = new StringBuilder();
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                if (matcher.end() == matcher.start()) {
+                    continue;
+                }
+                if (first < 0) {
+                    first = matcher.start();
+                    copied = first;
+                }
+                result.append(text, copied, matcher.start());
+                appendReplacement(result, matcher, replacement);
+                copied = matcher.end();
+                count++;
+            }
+            if (count == 0) {
+                return null;
+            }
+            return new Replacement(first, copied, result, count);
+        }
+        int position = 0;
+        while (true) {
+            int start = indexOf(text, position, text.length());
+            if (start < 0) {
+                break;
+            }
+            if (first < 0) {
+                first = start;
+                copied = start;
+            }
+            result.append(text, copied, start).append(replacement);
+            copied = start + query.length();
+            position = copied;
+            count++;
+        }
+        if (count == 0) {
+            return null;
+        }
+        return new Replacement(first, copied, result, count);
+    }
+
+    /**
+     * What the match [start, end) is replaced with: the replacement itself for a literal
+     * query, with group references expanded for a regex.
+     */
+    public String replacementFor(CharSequence text, int start, int end, String replacement) {
+        if (pattern == null) {
+            return replacement;
+        }
+        Matcher matcher = pattern.matcher(text);
+        matcher.region(start, end);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        if (!matcher.matches()) {
+            return replacement;
+        }
+        StringBuilder result = new StringBuilder();
+        appendReplacement(result, matcher, replacement);
+        return result.toString();
+    }
+
+    /**
+     * Matcher.appendReplacement without copying the text before the match: $n and ${name}
+     * insert groups, a backslash quotes the next char.
+     */
+    private static void appendReplacement(StringBuilder out, Matcher matcher, String replacement) {
+        int i = 0;
+        int length = replacement.length();
+        while (i < length) {
+            char c = replacement.charAt(i++);
+            if (c == '\\' && i < length) {
+                out.append(replacement.charAt(i++));
+            } else if (c == '$' && i < length && replacement.charAt(i) == '{') {
+                int close = replacement.indexOf('}', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed group name in replacement");
+                }
+                appendGroup(out, matcher.group(replacement.substring(i + 1, close)));
+                i = close + 1;
+            } else if (c == '$' && i < length && Character.isDigit(replacement.charAt(i))) {
+                int group = replacement.charAt(i++) - '0';
+                // Take more digits while they still name an existing group, as Matcher does.
+                while (i < length && Character.isDigit(replacement.charAt(i))) {
+                    int next = group * 10 + replacement.charAt(i) - '0';
+                    if (next > matcher.groupCount()) {
+                        break;
+                    }
+                    group = next;
+                    i++;
+                }
+                if (group > matcher.groupCount()) {
+                    throw new IndexOutOfBoundsException("No group " + group);
+                }
+                appendGroup(out, matcher.group(group));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static void appendGroup(StringBuilder out, String group) {
+        if (group != null) {
+            out.append(group);
+        }
+    }
+
+    /**
+     * A matcher whose regions let lookarounds, word boundaries and anchors see the text
+     * around them, so a region only limits where matches are searched.
+     */
+    private Matcher matcher(CharSequence text) {
+        Matcher matcher = pattern.matcher(text);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        return matcher;
+    }
+
+    /**
+     * Next non-empty regex match starting in [position, to), leaving it in the matcher.
+     *
+     * The search region ends at to, so a small range does not scan the rest of the text.
+     * When the engine ran into that bound, a match may have been cut short or need text
+     * past it (with "abc|b", "ab" before the bound matches only "b"), so then the starts up
+     * to the one found are matched again against the whole text.
+     */
+    private static boolean findRegex(Matcher matcher, int position, int to, int length) {
+        int found = -1;
+        boolean hitEnd = false;
+        int start = position;
+        while (start < to) {
+            matcher.region(start, to);
+            boolean matched = matcher.find();
+            hitEnd |= matcher.hitEnd();
+            if (!matched) {
+                break;
+            }
+            if (matcher.end() > matcher.start()) {
+                found = matcher.start();
+                break;
+            }
+            start = matcher.start() + 1;
+        }
+        if (!hitEnd) {
+            return found >= 0;
+        }
+        int last = found >= 0 ? found : to - 1;
+        for (start = position; start <= last; start++) {
+            matcher.region(start, length);
+            if (matcher.lookingAt() && matcher.end() > matcher.start()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First occurrence of the literal query starting in [from, to - query length].
+     */
+    private int indexOf(CharSequence text, int from, int to) {
+        int n = query.length();
+        if (n == 0) {
+            return -1;
+        }
+        char first = query.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        char firstLower = Character.toLowerCase(first);
+        int last = to - n;
+        for (int i = from; i <= last; i++) {
+            char c = text.charAt(i);
+            if (c != first && (caseSensitive || (c != firstUpper && c != firstLower))) {
+                continue;
+            }
+            int j = 1;
+            while (j < n && same(text.charAt(i + j), query.charAt(j))) {
+                j++;
+            }
+            if (j == n) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean same(char a, char b) {
+        if (a == b) {
+            return true;
+        }
+        if (caseSensitive) {
+            return false;
+        }
+        char upperA = Character.toUpperCase(a);
+        char upperB = Character.toUpperCase(b);
+        return upperA == upperB || Character.toLowerCase(upperA) == Character.toLowerCase(upperB);
+    }
+}
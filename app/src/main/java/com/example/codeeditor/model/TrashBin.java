@@ -0,0 +1,202 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes by first renaming into an app-private trash directory, then purging later.
+ *
+ * The rename is a single atomic move on the same filesystem, so even a large build folder
+ * disappears at once and can be put back until its purge starts. Purging runs on one
+ * minimum-priority thread and pauses after every batch of deletions, so removing a tree of
+ * tens of thousands of files does not crowd out the editor's own reads and writes. Anything
+ * left in the trash by a killed process is purged when the bin is first opened.
+ */
+public class TrashBin {
+
+    public static final long UNDO_WINDOW_MILLIS = 10_000;
+    private static final int BATCH = 256;
+    private static final long PAUSE_MILLIS = 20;
+
+    private static TrashBin shared;
+
+    /**
+     * A trashed file or folder. Pass it to {@link #restore(Entry)} to undo the delete.
+     */
+    public static class Entry {
+        public final File original;
+        final File holder;
+        final File trashed;
+        private boolean restored;
+        private boolean purging;
+
+        Entry(File original, File holder) {
+            this.original = original;
+            this.holder = holder;
+            this.trashed = new File(holder, original.getName());
+        }
+    }
+
+    public interface Callback {
+        /** Called on the purge thread once the files are gone, or failed to go. */
+        void onPurged(File original, boolean success);
+    }
+
+    private final File directory;
+    // Holders of this process go in their own folder, so the leftover purge never races them.
+    private final File session;
+    private final int batch;
+    private final long pauseMillis;
+    private final AtomicLong counter = new AtomicLong();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "TrashBin");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    public TrashBin(File directory) {
+        this(directory, BATCH, PAUSE_MILLIS);
+    }
+
+    TrashBin(File directory, int batch, long pauseMillis) {
+        this.directory = directory;
+        this.session = new File(directory, String.valueOf(System.currentTimeMillis()));
+        this.batch = batch;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * The bin for the directory, purging whatever an earlier process left behind in it.
+     */
+    public static synchronized TrashBin shared(File directory) {
+        if (shared == null || !shared.directory.equals(directory)) {
+            shared = new TrashBin(directory);
+            shared.purgeLeftovers();
+        }
+        return shared;
+    }
+
+    /**
+     * Move the file or folder into the trash and schedule its purge after the undo window.
+     *
+     * @throws IOException when it cannot be renamed, typically because it is on another
+     *                     volume; use {@link #purge} on a background thread for those
+     */
+    public Entry moveToTrash(File file, Callback callback) throws IOException {
+        if (!file.exists()) {
+            throw new IOException(file.getName() + " does not exist");
+        }
+        File holder = new File(session, String.valueOf(counter.incrementAndGet()));
+        if (!holder.mkdirs()) {
+            throw new IOException("Cannot create " + holder.getPath());
+        }
+        Entry entry = new Entry(file, holder);
+        try {
+            Files.move(file.toPath(), entry.trashed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            holder.delete();
+            throw e;
+        }
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (entry) {
+                    if (entry.restored) {
+                        return;
+                    }
+                    entry.purging = true;
+                }
+                boolean success = purge(entry.holder);
+                if (callback != null) {
+                    callback.onPurged(entry.original, success);
+                }
+            }
+        }, UNDO_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        return entry;
+    }
+
+    /**
+     * Put a trashed file back where it was. Returns false when its purge has already started.
+     *
+     * @throws IOException when something new now has the original name
+     */
+    public boolean restore(Entry entry) throws IOException {
+        synchronized (entry) {
+            if (entry.purging) {
+                return false;
+            }
+            if (entry.restored) {
+                return true;
+            }
+            if (entry.original.exists()) {
+                throw new IOException(entry.original.getName() + " already exists");
+            }
+            Files.move(entry.trashed.toPath(), entry.original.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            entry.restored = true;
+        }
+        entry.holder.delete();
+        return true;
+    }
+
+    private void purgeLeftovers() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] children = directory.listFiles();
+                if (children == null) {
+                    return;
+                }
+                for (File child : children) {
+                    if (!child.equals(session)) {
+                        purge(child);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete a tree on the calling thread, depth first and pausing after every batch, for
+     * files that cannot be moved into the trash. Returns whether it is all gone.
+     */
+    public boolean purge(File root) {
+        int[] deleted = new int[1];
+        try {
+            delete(root.toPath(), deleted);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !root.exists();
+    }
+
+    private void delete(Path path, int[] deleted) throws IOException, InterruptedException {
+        // Symlinks are removed, never followed, so a link cannot lead the purge out of the trash.
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path child : stream) {
+                    delete(child, deleted);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+        if (++deleted[0] % batch == 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+}
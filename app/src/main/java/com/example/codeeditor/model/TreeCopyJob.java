@@ -0,0 +1,371 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a file or folder tree with several files in flight at once.
+ *
+ * The source is walked once up front, which gives the totals for progress and the whole
+ * directory list, so every directory is created before any file copy starts and the workers
+ * never race on mkdirs. Files are then copied with {@link CopyEngine#copyFile} on a bounded
+ * pool sized by {@link #parallelismFor(File)}; for trees of many small files the time goes
+ * into per-file open and close latency, which overlaps well. Modification times are kept,
+ * directories last since adding files to them changes theirs. Symbolic links are copied as
+ * links, never followed; links the target storage cannot hold and special files such as
+ * pipes are skipped and counted in {@link Progress#skipped}. A failed or cancelled job
+ * removes the folder it created; it never deletes anything that was there before.
+ *
+ * Run {@link #run()} on a background thread, normally a {@link FileOperationQueue} task.
+ */
+public class TreeCopyJob implements Runnable {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    public static class Progress {
+        public final int files;
+        public final int totalFiles;
+        public final long bytes;
+        public final long totalBytes;
+        /** Estimated time left, or -1 while too early to tell. */
+        public final long etaMillis;
+        public final long bytesPerSecond;
+        /** Entries that could not be copied: special files, and links on storage without them. */
+        public final int skipped;
+
+        Progress(int files, int totalFiles, long bytes, long totalBytes, long etaMillis, long bytesPerSecond) {
+            this(files, totalFiles, bytes, totalBytes, etaMillis, bytesPerSecond, 0);
+        }
+
+        Progress(int files, int totalFiles, long bytes, long totalBytes, long etaMillis, long bytesPerSecond,
+                 int skipped) {
+            this.files = files;
+            this.totalFiles = totalFiles;
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.etaMillis = etaMillis;
+            this.bytesPerSecond = bytesPerSecond;
+            this.skipped = skipped;
+        }
+
+        /**
+         * Share of the work done, 0 to 1000. Files and bytes count half each, so neither a
+         * single big file nor thousands of empty ones make the bar stall.
+         */
+        public int permille() {
+            double fileShare = totalFiles == 0 ? 1 : (double) files / totalFiles;
+            double byteShare = totalBytes == 0 ? 1 : (double) bytes / totalBytes;
+            return (int) Math.round((fileShare + byteShare) * 500);
+        }
+
+        public String describe() {
+            String text = files + "/" + totalFiles + " files, " + CopyEngine.formatBytes(bytes) + " of "
+                    + CopyEngine.formatBytes(totalBytes);
+            if (bytesPerSecond > 0) {
+                text += ", " + CopyEngine.formatBytes(bytesPerSecond) + "/s";
+            }
+            if (etaMillis >= 0) {
+                text += ", " + formatDuration(etaMillis) + " left";
+            }
+            if (skipped > 0) {
+                text += ", " + skipped + " skipped";
+            }
+            return text;
+        }
+    }
+
+    public interface Listener {
+        /** Called from worker threads, at most every 100 ms. */
+        void onProgress(Progress progress);
+
+        /**
+         * Called once on the thread that ran the job. error is null on success and when
+         * cancelled.
+         */
+        void onFinished(Progress progress, File target, IOException error, boolean cancelled);
+    }
+
+    private final File source;
+    private final File directory;
+    private final int parallelism;
+    private final Listener listener;
+    private final CopyEngine.Stats stats = new CopyEngine.Stats();
+    private final AtomicLong lastReport = new AtomicLong();
+
+    private volatile boolean cancelled;
+    private volatile ExecutorService pool;
+    private final AtomicInteger links = new AtomicInteger();
+    private volatile int totalFiles;
+    private long totalBytes;
+    private volatile int skipped;
+
+    public TreeCopyJob(File source, File directory, int parallelism, Listener listener) {
+        this.source = source;
+        this.directory = directory;
+        this.parallelism = Math.max(1, parallelism);
+        this.listener = listener;
+    }
+
+    /**
+     * Files in flight for copies into the target. App-private storage is plain flash and
+     * gets one per core up to four; shared storage goes through FUSE, where each open and
+     * close is a round trip, so more help; removable cards do worst with many streams.
+     */
+    public static int parallelismFor(File target) {
+        String path = target.getAbsolutePath();
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (path.startsWith("/storage/emulated/") || path.startsWith("/sdcard/")) {
+            return Math.min(6, Math.max(2, cores));
+        }
+        if (path.startsWith("/storage/")) {
+            return 2;
+        }
+        return Math.min(4, Math.max(2, cores));
+    }
+
+    public void cancel() {
+        cancelled = true;
+        ExecutorService running = pool;
+        if (running != null) {
+            // Interrupting closes the file channels, so a large file stops mid-copy too.
+            running.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void run() {
+        File target = null;
+        boolean created = false;
+        IOException error = null;
+        try {
+            target = CopyEngine.targetFor(source, directory);
+            created = !target.exists();
+            List<Item> directories = new ArrayList<>();
+            List<Item> files = new ArrayList<>();
+            List<Item> symlinks = new ArrayList<>();
+            enumerate(target, directories, files, symlinks);
+            report(true);
+            for (Item item : directories) {
+                if (!item.target.isDirectory() && !item.target.mkdirs()) {
+                    throw new IOException("Cannot create " + item.target.getName());
+                }
+            }
+            copySymlinks(symlinks);
+            copyFiles(files);
+            if (!cancelled) {
+                // Deepest first, so setting a parent's time is not undone by its children.
+                for (int i = directories.size() - 1; i >= 0; i--) {
+                    Item item = directories.get(i);
+                    item.target.setLastModified(item.lastModified);
+                }
+            }
+        } catch (IOException e) {
+            if (!cancelled) {
+                error = e;
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        if ((cancelled || error != null) && created) {
+            deleteRecursively(target);
+        }
+        listener.onFinished(snapshot(), target, error, cancelled);
+    }
+
+    private static class Item {
+        final File source;
+        final File target;
+        final long lastModified;
+
+        Item(File source, File target, long lastModified) {
+            this.source = source;
+            this.target = target;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private void enumerate(File target, List<Item> directories, List<Item> files, List<Item> symlinks)
+            throws IOException {
+        Path sourceRoot = source.toPath();
+        Path targetRoot = target.toPath();
+        Files.walkFileTree(sourceRoot, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (cancelled) {
+                    return FileVisitResult.TERMINATE;
+                }
+                directories.add(new Item(dir.toFile(), targetRoot.resolve(sourceRoot.relativize(dir)).toFile(),
+                        attributes.lastModifiedTime().toMillis()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                Item item = new Item(file.toFile(), targetRoot.resolve(sourceRoot.relativize(file)).toFile(),
+                        attributes.lastModifiedTime().toMillis());
+                if (attributes.isRegularFile()) {
+                    files.add(item);
+                    totalBytes += attributes.size();
+                } else if (attributes.isSymbolicLink()) {
+                    symlinks.add(item);
+                } else {
+                    skipped++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                throw e;
+            }
+        });
+        totalFiles = files.size() + symlinks.size();
+    }
+
+    /**
+     * Recreate each link with the same target, relative or absolute as it was. Storage that
+     * cannot hold links, such as FAT cards, skips them rather than failing the whole copy.
+     */
+    private void copySymlinks(List<Item> symlinks) throws IOException {
+        for (Item item : symlinks) {
+            if (cancelled) {
+                return;
+            }
+            Path target = item.target.toPath();
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)
+                    && !Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                Files.delete(target);
+            }
+            try {
+                Files.createSymbolicLink(target, Files.readSymbolicLink(item.source.toPath()));
+                links.incrementAndGet();
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                skipped++;
+                totalFiles--;
+            }
+            report(false);
+        }
+    }
+
+    private void copyFiles(List<Item> files) throws IOException, InterruptedException {
+        if (files.isEmpty() || cancelled) {
+            return;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, files.size()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "TreeCopyJob");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool = workers;
+        if (cancelled) {
+            workers.shutdownNow();
+            return;
+        }
+        CompletionService<Void> completion = new ExecutorCompletionService<>(workers);
+        int submitted = 0;
+        try {
+            for (Item item : files) {
+                completion.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        if (cancelled) {
+                            return null;
+                        }
+                        CopyEngine.copyFile(item.source, item.target, stats);
+                        item.target.setLastModified(item.lastModified);
+                        report(false);
+                        return null;
+                    }
+                });
+                submitted++;
+            }
+            for (int i = 0; i < submitted && !cancelled; i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // cancel() shut the pool down while files were still being queued.
+        } finally {
+            workers.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private void report(boolean force) {
+        long now = System.nanoTime() / 1_000_000;
+        long last = lastReport.get();
+        if (!force && now - last < PROGRESS_INTERVAL_MILLIS) {
+            return;
+        }
+        if (lastReport.compareAndSet(last, now)) {
+            listener.onProgress(snapshot());
+        }
+    }
+
+    private Progress snapshot() {
+        int files = stats.getFiles() + links.get();
+        long bytes = stats.getBytes();
+        long elapsed = stats.elapsedMillis();
+        Progress partial = new Progress(files, totalFiles, bytes, totalBytes, -1, 0);
+        int permille = partial.permille();
+        long eta = -1;
+        if (permille > 0 && permille < 1000 && elapsed >= 500) {
+            eta = elapsed * (1000 - permille) / permille;
+        }
+        return new Progress(files, totalFiles, bytes, totalBytes, eta, elapsed > 0 ? stats.bytesPerSecond() : 0,
+                skipped);
+    }
+
+    static String formatDuration(long millis) {
+        long seconds = (millis + 999) / 1000;
+        if (seconds < 60) {
+            return seconds + " s";
+        }
+        return seconds / 60 + " min " + seconds % 60 + " s";
+    }
+
+    private static void deleteRecursively(File file) {
+        // A copied link to a folder must go without what it points to.
+        File[] children = Files.isSymbolicLink(file.toPath()) ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,814 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * On-disk trigram index of a project's text files, used to narrow {@link ProjectSearch} to
+ * the files that can contain a literal before any of them is read.
+ *
+ * Every byte trigram of a file (ASCII folded to lower case, none spanning a line break) maps
+ * to the ids of the files containing it. The index file holds the file list with the size
+ * and mtime each file was indexed at, the posting lists as delta-encoded varints and a sorted
+ * trigram table; it is memory-mapped when loaded. Building sorts (trigram, file) pairs in
+ * bounded runs spilled to disk and merges them, so memory stays flat on large trees.
+ *
+ * Changes after the build go to an in-memory overlay: changed files are re-indexed on their
+ * own and their base entries masked, deleted files are masked. The overlay is not persisted;
+ * {@link #refresh()} recreates it from file stats when the index is reopened. Once the overlay
+ * grows past a tenth of the base the index is rebuilt.
+ *
+ * All mutating calls are expected to come from one worker thread; queries may run on any.
+ */
+public class TrigramIndex {
+
+    static final String FILE_NAME = "trigrams.idx";
+    private static final String INDEX_DIRECTORY = "search-index";
+    private static final int MAGIC = 0x54524931;
+    private static final int VERSION = 1;
+    // The run buffer grows with the pairs collected, so small projects never allocate the
+    // full 32 MB; past the cap runs are sorted and spilled.
+    private static final int MIN_RUN_PAIRS = 1 << 14;
+    private static final int MAX_RUN_PAIRS = 4 << 20;
+    private static final int MIN_COMPACT = 256;
+
+    private final File indexDirectory;
+    private final File root;
+    private final IgnoreMatcher ignoreMatcher;
+
+    // Base index, replaced as a whole by build().
+    private String[] paths = new String[0];
+    private long[] lengths = new long[0];
+    private long[] mtimes = new long[0];
+    private int[] trigrams = new int[0];
+    private int[] offsets = new int[0];
+    private int[] counts = new int[0];
+    private MappedByteBuffer postings;
+    private Map<String, Integer> ids = new HashMap<>();
+    private boolean ready;
+
+    // Overlay.
+    private final Map<String, Changed> changed = new HashMap<>();
+    private BitSet masked = new BitSet();
+
+    private final TrigramSet scratch = new TrigramSet();
+
+    private static class Changed {
+        final int[] trigrams;
+        final long length;
+        final long mtime;
+
+        Changed(int[] trigrams, long length, long mtime) {
+            this.trigrams = trigrams;
+            this.length = length;
+            this.mtime = mtime;
+        }
+    }
+
+    public TrigramIndex(File indexDirectory, File root, IgnoreMatcher ignoreMatcher) {
+        this.indexDirectory = indexDirectory;
+        this.root = root;
+        this.ignoreMatcher = ignoreMatcher;
+    }
+
+    /**
+     * Where the index of a project lives under the app's no-backup files directory, out of
+     * the file browsers and out of auto-backup; it can always be rebuilt.
+     */
+    public static File directoryFor(File noBackupFilesDir, File projectRoot) {
+        String key = projectRoot.getAbsolutePath();
+        return new File(new File(noBackupFilesDir, INDEX_DIRECTORY),
+                projectRoot.getName() + "-" + Integer.toHexString(key.hashCode()));
+    }
+
+    /**
+     * Remove indexes left in the files directory by versions that kept them there.
+     */
+    public static void deleteLegacyIndexes(File filesDir) {
+        File legacy = new File(filesDir, INDEX_DIRECTORY);
+        File[] directories = legacy.listFiles();
+        if (directories != null) {
+            for (File directory : directories) {
+                delete(directory);
+            }
+        }
+        legacy.delete();
+    }
+
+    public static void delete(File indexDirectory) {
+        File[] files = indexDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        indexDirectory.delete();
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int fileCount() {
+        return paths.length - masked.cardinality() + changed.size();
+    }
+
+    public synchronized int overlaySize() {
+        return changed.size() + masked.cardinality();
+    }
+
+    /**
+     * Load the index from disk, or build it when there is none or it is unreadable, then
+     * bring it up to date with the tree.
+     */
+    public void open() throws IOException {
+        if (load()) {
+            refresh();
+        } else {
+            build();
+        }
+    }
+
+    /**
+     * Index the whole project from scratch and replace the file on disk.
+     */
+    public void build() throws IOException {
+        indexDirectory.mkdirs();
+        List<String> filePaths = new ArrayList<>();
+        List<long[]> stats = new ArrayList<>();
+        List<File> runs = new ArrayList<>();
+        long[] pairs = new long[MIN_RUN_PAIRS];
+        int pairCount = 0;
+
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add("");
+        while (!queue.isEmpty()) {
+            String directory = queue.poll();
+            File[] children = (directory.isEmpty() ? root : new File(root, directory)).listFiles();
+            if (children == null) {
+                continue;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                String path = directory.isEmpty() ? child.getName() : directory + "/" + child.getName();
+                boolean isDirectory = child.isDirectory();
+                if (isSkipped(child, path, isDirectory)) {
+                    continue;
+                }
+                if (isDirectory) {
+                    queue.add(path);
+                    continue;
+                }
+                long length = child.length();
+                long mtime = child.lastModified();
+                if (!extract(child, length)) {
+                    continue;
+                }
+                int id = filePaths.size();
+                filePaths.add(path);
+                stats.add(new long[]{length, mtime});
+                if (pairCount + scratch.size > pairs.length && pairs.length < MAX_RUN_PAIRS) {
+                    pairs = Arrays.copyOf(pairs, (int) Math.min(MAX_RUN_PAIRS,
+                            Math.max(2L * pairs.length, (long) pairCount + scratch.size)));
+                }
+                for (int i = 0; i < scratch.size; i++) {
+                    if (pairCount == pairs.length) {
+                        runs.add(spill(pairs, pairCount));
+                        pairCount = 0;
+                    }
+                    pairs[pairCount++] = ((long) scratch.values[i] << 32) | id;
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        File target = new File(indexDirectory, FILE_NAME);
+        File temporary = new File(indexDirectory, FILE_NAME + ".tmp");
+        try {
+            write(temporary, filePaths, stats, runs, pairs, pairCount);
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+        synchronized (this) {
+            if (!temporary.renameTo(target)) {
+                temporary.delete();
+                throw new IOException("Cannot replace " + target);
+            }
+            changed.clear();
+            masked = new BitSet();
+            ready = false;
+        }
+        if (!load()) {
+            throw new IOException("Cannot read back " + target);
+        }
+    }
+
+    /**
+     * Map the index file. Returns false when it is missing or not in the current format.
+     */
+    synchronized boolean load() {
+        File file = new File(indexDirectory, FILE_NAME);
+        if (!file.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int limit = buffer.limit();
+            if (limit < 20 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(limit - 4) != MAGIC) {
+                return false;
+            }
+            buffer.position(8);
+            int fileCount = buffer.getInt();
+            String[] newPaths = new String[fileCount];
+            long[] newLengths = new long[fileCount];
+            long[] newMtimes = new long[fileCount];
+            Map<String, Integer> newIds = new HashMap<>(fileCount * 2);
+            for (int i = 0; i < fileCount; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                newPaths[i] = new String(name, StandardCharsets.UTF_8);
+                newLengths[i] = buffer.getLong();
+                newMtimes[i] = buffer.getLong();
+                newIds.put(newPaths[i], i);
+            }
+            buffer.position(buffer.getInt(limit - 8));
+            int trigramCount = buffer.getInt();
+            int[] newTrigrams = new int[trigramCount];
+            int[] newOffsets = new int[trigramCount];
+            int[] newCounts = new int[trigramCount];
+            for (int i = 0; i < trigramCount; i++) {
+                newTrigrams[i] = buffer.getInt();
+                newOffsets[i] = buffer.getInt();
+                newCounts[i] = buffer.getInt();
+            }
+            paths = newPaths;
+            lengths = newLengths;
+            mtimes = newMtimes;
+            ids = newIds;
+            trigrams = newTrigrams;
+            offsets = newOffsets;
+            counts = newCounts;
+            postings = buffer;
+            changed.clear();
+            masked = new BitSet();
+            ready = true;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compare the whole tree against the index by size and mtime and move every difference
+     * into the overlay.
+     */
+    public void refresh() throws IOException {
+        refreshDirectory("");
+        compactIfNeeded();
+    }
+
+    /**
+     * Apply a batch of watcher events.
+     */
+    public void apply(ProjectWatcher.Batch batch) throws IOException {
+        if (!isReady()) {
+            return;
+        }
+        if (batch.ignoreRulesChanged) {
+            build();
+            return;
+        }
+        for (String path : batch.deleted) {
+            remove(path);
+        }
+        for (String path : batch.created) {
+            File file = new File(root, path);
+            if (file.isDirectory()) {
+                refreshDirectory(path);
+            } else {
+                update(path);
+            }
+        }
+        for (String path : batch.modified) {
+            update(path);
+        }
+        for (String path : batch.rescanned) {
+            refreshDirectory(path);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Re-index one file, or drop it when it is gone or no longer indexable.
+     */
+    public void update(String path) {
+        File file = new File(root, path);
+        long length = file.length();
+        long mtime = file.lastModified();
+        if (!file.isFile() || isSkipped(file, path, false) || !extract(file, length)) {
+            remove(path);
+            return;
+        }
+        int[] values = Arrays.copyOf(scratch.values, scratch.size);
+        Arrays.sort(values);
+        synchronized (this) {
+            Integer id = ids.get(path);
+            if (id != null) {
+                masked.set(id);
+            }
+            changed.put(path, new Changed(values, length, mtime));
+        }
+    }
+
+    /**
+     * Drop a file, or a directory with everything below it.
+     */
+    public synchronized void remove(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            masked.set(id);
+        }
+        changed.remove(path);
+        if (id == null) {
+            String prefix = path + "/";
+            for (int i = 0; i < paths.length; i++) {
+                if (paths[i].startsWith(prefix)) {
+                    masked.set(i);
+                }
+            }
+            changed.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * Project relative paths of the files that may contain the literal, or null when the
+     * index cannot narrow the search: it is not loaded or the literal is shorter than a
+     * trigram.
+     */
+    public List<String> candidates(byte[] literal) {
+        int[] wanted = queryTrigrams(literal);
+        if (wanted == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (!ready) {
+                return null;
+            }
+            List<String> result = new ArrayList<>();
+            for (int id : baseCandidates(wanted)) {
+                if (!masked.get(id)) {
+                    result.add(paths[id]);
+                }
+            }
+            for (Map.Entry<String, Changed> entry : changed.entrySet()) {
+                if (containsAll(entry.getValue().trigrams, wanted)) {
+                    result.add(entry.getKey());
+                }
+            }
+            return result;
+        }
+    }
+
+    private static int[] queryTrigrams(byte[] literal) {
+        if (literal == null || literal.length < 3) {
+            return null;
+        }
+        int[] values = new int[literal.length - 2];
+        int count = 0;
+        for (int i = 0; i + 2 < literal.length; i++) {
+            byte a = literal[i];
+            byte b = literal[i + 1];
+            byte c = literal[i + 2];
+            if (a == '\n' || b == '\n' || c == '\n') {
+                continue;
+            }
+            values[count++] = trigram(a, b, c);
+        }
+        if (count == 0) {
+            return null;
+        }
+        values = Arrays.copyOf(values, count);
+        Arrays.sort(values);
+        int distinct = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, distinct);
+    }
+
+    private int[] baseCandidates(int[] wanted) {
+        int[] slots = new int[wanted.length];
+        for (int i = 0; i < wanted.length; i++) {
+            int slot = Arrays.binarySearch(trigrams, wanted[i]);
+            if (slot < 0) {
+                return new int[0];
+            }
+            slots[i] = slot;
+        }
+        // Rarest first keeps the intermediate result small.
+        Integer[] order = new Integer[slots.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = slots[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(counts[a], counts[b]));
+
+        int[] result = decode(order[0]);
+        int size = result.length;
+        for (int i = 1; i < order.length && size > 0; i++) {
+            size = intersect(result, size, order[i]);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private int[] decode(int slot) {
+        int[] ids = new int[counts[slot]];
+        int position = offsets[slot];
+        int id = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.get(position++);
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += delta;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Keep the ids of result[0, size) that also appear in the posting list of slot.
+     */
+    private int intersect(int[] result, int size, int slot) {
+        int position = offsets[slot];
+        int remaining = counts[slot];
+        int id = 0;
+        int kept = 0;
+        int r = 0;
+        while (r < size && remaining > 0) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.get(position++);
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += delta;
+            remaining--;
+            while (r < size && result[r] < id) {
+                r++;
+            }
+            if (r < size && result[r] == id) {
+                result[kept++] = id;
+                r++;
+            }
+        }
+        return kept;
+    }
+
+    private static boolean containsAll(int[] sorted, int[] wanted) {
+        for (int value : wanted) {
+            if (Arrays.binarySearch(sorted, value) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void refreshDirectory(String relativePath) {
+        BitSet seen = new BitSet();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(relativePath);
+        while (!queue.isEmpty()) {
+            String directory = queue.poll();
+            File[] children = (directory.isEmpty() ? root : new File(root, directory)).listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                String path = directory.isEmpty() ? child.getName() : directory + "/" + child.getName();
+                boolean isDirectory = child.isDirectory();
+                if (isSkipped(child, path, isDirectory)) {
+                    continue;
+                }
+                if (isDirectory) {
+                    queue.add(path);
+                    continue;
+                }
+                long length = child.length();
+                long mtime = child.lastModified();
+                Integer id;
+                boolean current;
+                synchronized (this) {
+                    id = ids.get(path);
+                    Changed entry = changed.get(path);
+                    if (entry != null) {
+                        current = entry.length == length && entry.mtime == mtime;
+                    } else {
+                        current = id != null && !masked.get(id) && lengths[id] == length && mtimes[id] == mtime;
+                    }
+                }
+                if (id != null) {
+                    seen.set(id);
+                }
+                if (!current) {
+                    update(path);
+                }
+            }
+        }
+
+        // Whatever was indexed below the directory and not seen any more is gone.
+        String prefix = relativePath.isEmpty() ? "" : relativePath + "/";
+        synchronized (this) {
+            for (int i = 0; i < paths.length; i++) {
+                if (!seen.get(i) && paths[i].startsWith(prefix)) {
+                    masked.set(i);
+                }
+            }
+            Iterator<String> iterator = changed.keySet().iterator();
+            while (iterator.hasNext()) {
+                String path = iterator.next();
+                if (path.startsWith(prefix) && !new File(root, path).isFile()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (overlaySize() > Math.max(MIN_COMPACT, paths.length / 10)) {
+            build();
+        }
+    }
+
+    private boolean isSkipped(File file, String path, boolean isDirectory) {
+        return file.getName().equals(Constants.DOT_GIT)
+                || (ignoreMatcher != null && ignoreMatcher.isIgnored(path, isDirectory));
+    }
+
+    /**
+     * Read a file and collect its distinct trigrams into scratch. Returns false for files
+     * that project search would skip anyway: empty, too large or binary.
+     */
+    private boolean extract(File file, long length) {
+        scratch.clear();
+        if (length == 0 || length > ProjectSearch.MAX_FILE_SIZE) {
+            return false;
+        }
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (length >= ProjectSearch.MAP_THRESHOLD) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } else {
+                content = ByteBuffer.allocate((int) length);
+                while (content.hasRemaining() && channel.read(content) >= 0) {
+                    // keep reading
+                }
+                content.flip();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        if (ProjectSearch.isBinary(content)) {
+            return false;
+        }
+        int end = content.limit();
+        if (end < 3) {
+            return true;
+        }
+        byte a = content.get(0);
+        byte b = content.get(1);
+        for (int i = 2; i < end; i++) {
+            byte c = content.get(i);
+            if (a != '\n' && b != '\n' && c != '\n') {
+                scratch.add(trigram(a, b, c));
+            }
+            a = b;
+            b = c;
+        }
+        return true;
+    }
+
+    private static int trigram(byte a, byte b, byte c) {
+        return (fold(a) & 0xff) << 16 | (fold(b) & 0xff) << 8 | (fold(c) & 0xff);
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private File spill(long[] pairs, int count) throws IOException {
+        Arrays.sort(pairs, 0, count);
+        File run = File.createTempFile("run", ".tmp", indexDirectory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(pairs[i]);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Sorted stream of (trigram, id) pairs: a spilled run or the in-memory tail.
+     */
+    private static class Run {
+        final DataInputStream in;
+        final long[] pairs;
+        int remaining;
+        int position;
+        long head;
+
+        Run(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            pairs = null;
+            remaining = in.readInt();
+        }
+
+        Run(long[] pairs, int count) {
+            in = null;
+            this.pairs = pairs;
+            remaining = count;
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            head = in != null ? in.readLong() : pairs[position++];
+            return true;
+        }
+
+        void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    private void write(File file, List<String> filePaths, List<long[]> stats, List<File> runFiles,
+                       long[] tail, int tailCount) throws IOException {
+        List<Run> runs = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(filePaths.size());
+            for (int i = 0; i < filePaths.size(); i++) {
+                byte[] name = filePaths.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeLong(stats.get(i)[0]);
+                out.writeLong(stats.get(i)[1]);
+            }
+
+            PriorityQueue<Run> heads = new PriorityQueue<>((a, b) -> Long.compare(a.head, b.head));
+            for (File runFile : runFiles) {
+                runs.add(new Run(runFile));
+            }
+            runs.add(new Run(tail, tailCount));
+            for (Run run : runs) {
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+
+            IntList tableTrigrams = new IntList();
+            IntList tableOffsets = new IntList();
+            IntList tableCounts = new IntList();
+            int current = -1;
+            int previousId = 0;
+            while (!heads.isEmpty()) {
+                Run run = heads.poll();
+                int trigram = (int) (run.head >>> 32);
+                int id = (int) run.head;
+                if (trigram != current) {
+                    if (out.size() == Integer.MAX_VALUE) {
+                        throw new IOException("Index larger than 2 GB");
+                    }
+                    current = trigram;
+                    previousId = 0;
+                    tableTrigrams.add(trigram);
+                    tableOffsets.add(out.size());
+                    tableCounts.add(0);
+                }
+                writeVarint(out, id - previousId);
+                previousId = id;
+                tableCounts.increment();
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+
+            int tableOffset = out.size();
+            if (tableOffset == Integer.MAX_VALUE) {
+                throw new IOException("Index larger than 2 GB");
+            }
+            out.writeInt(tableTrigrams.size);
+            for (int i = 0; i < tableTrigrams.size; i++) {
+                out.writeInt(tableTrigrams.values[i]);
+                out.writeInt(tableOffsets.values[i]);
+                out.writeInt(tableCounts.values[i]);
+            }
+            out.writeInt(tableOffset);
+            out.writeInt(MAGIC);
+        } catch (EOFException e) {
+            throw new IOException("Truncated index run", e);
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static class IntList {
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void increment() {
+            values[size - 1]++;
+        }
+    }
+
+    /**
+     * Distinct trigrams of one file: a bit per possible trigram plus the list of set bits,
+     * so clearing costs as much as the file had trigrams.
+     */
+    private static class TrigramSet {
+        final long[] bits = new long[1 << 18];
+        int[] values = new int[4096];
+        int size;
+
+        void add(int trigram) {
+            long bit = 1L << trigram;
+            int word = trigram >>> 6;
+            if ((bits[word] & bit) != 0) {
+                return;
+            }
+            bits[word] |= bit;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = trigram;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] = 0;
+            }
+            size = 0;
+        }
+    }
+}
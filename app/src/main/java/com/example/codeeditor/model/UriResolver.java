@@ -0,0 +1,243 @@
+package com.example.codeeditor.model;
+
+import android.content.Context;
+import android.os.Environment;
+import android.os.storage.StorageManager;
+import android.os.storage.StorageVolume;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps file and storage access framework URIs to filesystem paths.
+ *
+ * Resolved paths are kept in a bounded LRU keyed by the URI string, so git commands that
+ * resolve the same project URI over and over do the parsing once. Volume ids ("primary",
+ * "1234-ABCD") are mapped to mount points from StorageManager once, when the resolver is
+ * created. Understands:
+ * <ul>
+ *     <li>file:///path</li>
+ *     <li>content://com.android.externalstorage.documents/tree/ID, .../document/ID and
+ *     .../tree/ID/document/ID, where ID is "volume:path" or "home:path"</li>
+ *     <li>content://com.android.providers.downloads.documents/document/raw:/path</li>
+ * </ul>
+ * Anything else falls back to the URI's path, as before.
+ */
+public class UriResolver {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    static final String EXTERNAL_STORAGE_AUTHORITY = "com.android.externalstorage.documents";
+    static final String DOWNLOADS_AUTHORITY = "com.android.providers.downloads.documents";
+    // Environment.DIRECTORY_DOCUMENTS, which is not a compile time constant.
+    private static final String DOCUMENTS_DIRECTORY = "Documents";
+
+    private static UriResolver shared;
+
+    private final File primary;
+    private final Map<String, File> volumes;
+    private final Map<String, File> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param volumes mount points by lower case volume id; "primary" falls back to primary
+     */
+    public UriResolver(File primary, Map<String, File> volumes, int capacity) {
+        this.primary = primary;
+        this.volumes = volumes;
+        this.cache = new LinkedHashMap<String, File>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized UriResolver shared(Context context) {
+        if (shared == null) {
+            shared = new UriResolver(Environment.getExternalStorageDirectory(),
+                    volumesOf(context.getApplicationContext()), DEFAULT_CAPACITY);
+        }
+        return shared;
+    }
+
+    private static Map<String, File> volumesOf(Context context) {
+        Map<String, File> volumes = new HashMap<>();
+        StorageManager storageManager = (StorageManager) context.getSystemService(Context.STORAGE_SERVICE);
+        if (storageManager == null) {
+            return volumes;
+        }
+        for (StorageVolume volume : storageManager.getStorageVolumes()) {
+            File directory = volume.getDirectory();
+            if (directory == null) {
+                // Not mounted right now.
+                continue;
+            }
+            if (volume.isPrimary()) {
+                volumes.put("primary", directory);
+            }
+            if (volume.getUuid() != null) {
+                volumes.put(volume.getUuid().toLowerCase(Locale.ROOT), directory);
+            }
+        }
+        return volumes;
+    }
+
+    /**
+     * The file the URI stands for, or null when it has no usable path.
+     */
+    public File resolve(String uri) {
+        synchronized (this) {
+            File file = cache.get(uri);
+            if (file != null) {
+                hits++;
+                return file;
+            }
+            misses++;
+        }
+        File file = parse(uri);
+        if (file != null) {
+            synchronized (this) {
+                cache.put(uri, file);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Forget every resolution, e.g. after a volume was mounted somewhere else.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private File parse(String uri) {
+        int end = uri.length();
+        int query = uri.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = uri.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        String withoutQuery = uri.substring(0, end);
+
+        int colon = withoutQuery.indexOf(':');
+        int firstSlash = withoutQuery.indexOf('/');
+        if (colon < 0 || (firstSlash >= 0 && firstSlash < colon)) {
+            // No scheme, already a path.
+            return withoutQuery.isEmpty() ? null : new File(decode(withoutQuery));
+        }
+        String scheme = withoutQuery.substring(0, colon);
+        String rest = withoutQuery.substring(colon + 1);
+        if (!rest.startsWith("//")) {
+            // Opaque, such as file:/sdcard/a.txt or mailto:.
+            return scheme.equals("file") && !rest.isEmpty() ? new File(decode(rest)) : null;
+        }
+        rest = rest.substring(2);
+        int slash = rest.indexOf('/');
+        if (slash < 0) {
+            return null;
+        }
+        if (!scheme.equals("content")) {
+            return new File(decode(rest.substring(slash)));
+        }
+        String authority = rest.substring(0, slash);
+        // Split before decoding: a document id is one segment with its own slashes encoded.
+        String[] segments = rest.substring(slash + 1).split("/");
+
+        String documentId = null;
+        for (int i = 0; i + 1 < segments.length; i++) {
+            if (segments[i].equals("document") || (documentId == null && segments[i].equals("tree"))) {
+                documentId = decode(segments[i + 1]);
+            }
+        }
+        if (documentId != null) {
+            if (authority.equals(EXTERNAL_STORAGE_AUTHORITY)) {
+                return externalStorageFile(documentId);
+            }
+            if (authority.equals(DOWNLOADS_AUTHORITY) && documentId.startsWith("raw:")) {
+                return new File(documentId.substring("raw:".length()));
+            }
+        }
+        return new File(decode(rest.substring(slash)));
+    }
+
+    private File externalStorageFile(String documentId) {
+        int colon = documentId.indexOf(':');
+        String volumeId = colon < 0 ? documentId : documentId.substring(0, colon);
+        String relativePath = colon < 0 ? "" : documentId.substring(colon + 1);
+
+        File base;
+        if (volumeId.equalsIgnoreCase("home")) {
+            // The provider's "Documents" shortcut on the primary volume.
+            base = new File(volumeFor("primary"), DOCUMENTS_DIRECTORY);
+        } else {
+            base = volumeFor(volumeId);
+        }
+        return relativePath.isEmpty() ? base : new File(base, relativePath);
+    }
+
+    private File volumeFor(String volumeId) {
+        File volume = volumes.get(volumeId.toLowerCase(Locale.ROOT));
+        if (volume != null) {
+            return volume;
+        }
+        if (volumeId.equalsIgnoreCase("primary")) {
+            return primary;
+        }
+        // Not mounted when the resolver was created; removable volumes mount by id.
+        return new File("/storage/" + volumeId);
+    }
+
+    /**
+     * Percent-decode one URI component. Unlike URLDecoder, '+' stays a plus sign.
+     */
+    static String decode(String encoded) {
+        if (encoded.indexOf('%') < 0) {
+            return encoded;
+        }
+        StringBuilder decoded = new StringBuilder(encoded.length());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < encoded.length()) {
+            char c = encoded.charAt(i);
+            if (c == '%' && i + 2 < encoded.length()
+                    && isHex(encoded.charAt(i + 1)) && isHex(encoded.charAt(i + 2))) {
+                // Collect a run of escapes first; together they may form one UTF-8 character.
+                bytes.write(Character.digit(encoded.charAt(i + 1), 16) * 16 + Character.digit(encoded.charAt(i + 2), 16));
+                i += 3;
+                continue;
+            }
+            if (bytes.size() > 0) {
+                decoded.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+                bytes.reset();
+            }
+            decoded.append(c);
+            i++;
+        }
+        if (bytes.size() > 0) {
+            decoded.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+        return decoded.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return Character.digit(c, 16) >= 0;
+    }
+}
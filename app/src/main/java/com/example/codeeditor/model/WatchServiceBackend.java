@@ -0,0 +1,111 @@
+package com.example.codeeditor.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ProjectWatcher.Backend} on java.nio's WatchService, for the JVM and tests.
+ */
+public class WatchServiceBackend implements ProjectWatcher.Backend {
+
+    private final Map<WatchKey, String> directories = new ConcurrentHashMap<>();
+    private final Map<String, WatchKey> keys = new ConcurrentHashMap<>();
+    private WatchService service;
+    private Thread thread;
+
+    @Override
+    public void start(ProjectWatcher.Sink sink) {
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                poll(sink);
+            }
+        }, "WatchServiceBackend");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public boolean watch(String relativeDirectory, File directory) {
+        if (service == null) {
+            return false;
+        }
+        try {
+            WatchKey key = directory.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(key, relativeDirectory);
+            keys.put(relativeDirectory, key);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void unwatch(String relativeDirectory) {
+        WatchKey key = keys.remove(relativeDirectory);
+        if (key != null) {
+            key.cancel();
+            directories.remove(key);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (service == null) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        directories.clear();
+        keys.clear();
+    }
+
+    private void poll(ProjectWatcher.Sink sink) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            String directory = directories.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        sink.onEvent(directory, null, ProjectWatcher.OVERFLOW);
+                        continue;
+                    }
+                    String name = ((Path) event.context()).getFileName().toString();
+                    int type = kind == StandardWatchEventKinds.ENTRY_CREATE ? ProjectWatcher.CREATED
+                            : kind == StandardWatchEventKinds.ENTRY_DELETE ? ProjectWatcher.DELETED
+                            : ProjectWatcher.MODIFIED;
+                    sink.onEvent(directory, name, type);
+                }
+            }
+            if (!key.reset() && directory != null) {
+                directories.remove(key);
+                keys.remove(directory);
+            }
+        }
+    }
+}
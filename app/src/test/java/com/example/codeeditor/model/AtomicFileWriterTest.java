@@ -0,0 +1,81 @@
+package com.example.codeeditor.model;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.*;
+
+public class AtomicFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void requirePosix() {
+        Assume.assumeTrue(folder.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+    }
+
+    @Test
+    public void write_keepsPermissions() throws IOException {
+        File script = folder.newFile("build.sh");
+        Files.setPosixFilePermissions(script.toPath(), PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        AtomicFileWriter.write(script, bytes("#!/bin/sh\necho hi\n"));
+
+        assertEquals("rwxr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(script.toPath())));
+        assertEquals("#!/bin/sh\necho hi\n", read(script.toPath()));
+    }
+
+    @Test
+    public void write_throughSymlinkReplacesTheLinkedFile() throws IOException {
+        File real = folder.newFile("real.txt");
+        Path link = folder.getRoot().toPath().resolve("link.txt");
+        Files.createSymbolicLink(link, real.toPath().getFileName());
+
+        AtomicFileWriter.write(link.toFile(), bytes("new"));
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("new", read(real.toPath()));
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void write_keepsHardLinksByWritingInPlace() throws IOException {
+        File original = folder.newFile("a.txt");
+        Path second = folder.getRoot().toPath().resolve("b.txt");
+        Files.createLink(second, original.toPath());
+
+        AtomicFileWriter.write(original, bytes("shared"));
+
+        assertEquals("shared", read(second));
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void write_createsMissingFile() throws IOException {
+        File created = new File(folder.getRoot(), "new.txt");
+
+        AtomicFileWriter.write(created, bytes("hello"));
+
+        assertEquals("hello", read(created.toPath()));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.codeeditor.model;
+
+import org.junit.Assume;
+
+/**
+ * The timing tests are skipped unless the tests run with -Dbenchmarks=true, so a plain test
+ * run stays fast. The correctness tests next to them always run.
+ */
+final class Benchmarks {
+
+    static final String PROPERTY = "benchmarks";
+
+    private Benchmarks() {
+    }
+
+    static void assumeEnabled() {
+        Assume.assumeTrue("Benchmark skipped; run with -D" + PROPERTY + "=true", Boolean.getBoolean(PROPERTY));
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.CheckoutConflictException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.ReflogEntry;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BranchSwitcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.getRoot();
+        git = Git.init().setDirectory(root).setInitialBranch("main").call();
+        write("README.md", "main\n");
+        write("src/a.txt", "a\n");
+        commit("initial");
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void switch_rewritesChangedPathsAndLogsHead() throws Exception {
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        write("src/a.txt", "feature\n");
+        write("src/b.txt", "b\n");
+        git.rm().addFilepattern("README.md").call();
+        commit("feature");
+        git.checkout().setName("main").call();
+
+        BranchSwitcher.SwitchResult result = BranchSwitcher.switchBranch(root, "feature");
+
+        assertEquals("feature", result.branch);
+        assertEquals(Collections.singletonList("README.md"), result.removedPaths);
+        assertEquals(2, result.updatedPaths.size());
+        assertEquals("feature\n", read("src/a.txt"));
+        assertFalse(new File(root, "README.md").exists());
+        assertEquals("feature", BranchSwitcher.currentBranch(root));
+        assertTrue(git.status().call().isClean());
+
+        ReflogEntry entry = repository().getReflogReader(Constants.HEAD).getLastEntry();
+        assertEquals("checkout: moving from main to feature", entry.getComment());
+        assertEquals(repository().resolve("feature"), entry.getNewId());
+    }
+
+    @Test
+    public void remoteBranch_withConflictingChange_createsNoLocalBranch() throws Exception {
+        ObjectId remoteCommit = remoteBranch("origin/topic", "src/a.txt", "remote\n");
+        write("src/a.txt", "local edit\n");
+
+        try {
+            BranchSwitcher.switchBranch(root, "origin/topic");
+            fail("Expected a conflict");
+        } catch (CheckoutConflictException expected) {
+            assertTrue(expected.getMessage().contains("src/a.txt"));
+        }
+
+        assertNull(repository().exactRef(Constants.R_HEADS + "topic"));
+        assertEquals("main", BranchSwitcher.currentBranch(root));
+        assertEquals("local edit\n", read("src/a.txt"));
+
+        write("src/a.txt", "a\n");
+        BranchSwitcher.SwitchResult result = BranchSwitcher.switchBranch(root, "origin/topic");
+        assertEquals("topic", result.branch);
+        assertEquals(remoteCommit, repository().resolve("topic"));
+        assertEquals("origin", repository().getConfig().getString("branch", "topic", "remote"));
+        assertEquals("remote\n", read("src/a.txt"));
+    }
+
+    @Test
+    public void symlinks_areCheckedOutAsLinks() throws Exception {
+        Path link = root.toPath().resolve("link.txt");
+        try {
+            Files.createSymbolicLink(link, Paths.get("src/a.txt"));
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+        git.checkout().setCreateBranch(true).setName("links").call();
+        git.add().addFilepattern("link.txt").call();
+        commit("link");
+        git.checkout().setName("main").call();
+        assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+
+        BranchSwitcher.switchBranch(root, "links");
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(Paths.get("src/a.txt"), Files.readSymbolicLink(link));
+        assertTrue(git.status().call().isClean());
+
+        // A dangling link is still removed when switching away.
+        Files.delete(root.toPath().resolve("src/a.txt"));
+        BranchSwitcher.switchBranch(root, "main");
+        assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    public void fileReplacedByDirectory_switchesBothWays() throws Exception {
+        git.checkout().setCreateBranch(true).setName("tree").call();
+        git.rm().addFilepattern("src/a.txt").call();
+        write("src/a.txt/inner.txt", "inner\n");
+        commit("file to directory");
+        git.checkout().setName("main").call();
+        assertEquals("a\n", read("src/a.txt"));
+
+        BranchSwitcher.SwitchResult result = BranchSwitcher.switchBranch(root, "tree");
+
+        assertEquals(Collections.singletonList("src/a.txt"), result.removedPaths);
+        assertEquals(Collections.singletonList("src/a.txt/inner.txt"), result.updatedPaths);
+        assertEquals("inner\n", read("src/a.txt/inner.txt"));
+        assertTrue(git.status().call().isClean());
+
+        BranchSwitcher.switchBranch(root, "main");
+
+        assertEquals("a\n", read("src/a.txt"));
+        assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void failedSwitch_leavesTreeIndexAndHeadAsTheyWere() throws Exception {
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        write("README.md", "feature\n");
+        git.rm().addFilepattern("src/a.txt").call();
+        write("lib/x.txt", "x\n");
+        commit("feature");
+        git.checkout().setName("main").call();
+        // An untracked file where the branch needs a directory; it is found only after
+        // README.md and src/a.txt were dealt with.
+        write("lib", "in the way\n");
+
+        try {
+            BranchSwitcher.switchBranch(root, "feature");
+            fail("Expected the switch to fail");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("lib"));
+        }
+
+        assertEquals("main", BranchSwitcher.currentBranch(root));
+        assertEquals("main\n", read("README.md"));
+        assertEquals("a\n", read("src/a.txt"));
+        assertEquals("in the way\n", read("lib"));
+        assertTrue(git.status().call().getUncommittedChanges().isEmpty());
+        for (String name : repository().getDirectory().list()) {
+            assertFalse(name, name.startsWith("switch"));
+        }
+    }
+
+    private ObjectId remoteBranch(String name, String path, String content) throws Exception {
+        git.checkout().setCreateBranch(true).setName("tmp").call();
+        write(path, content);
+        ObjectId commit = commit("remote");
+        RefUpdate update = repository().updateRef(Constants.R_REMOTES + name);
+        update.setNewObjectId(commit);
+        update.forceUpdate();
+        git.checkout().setName("main").call();
+        git.branchDelete().setBranchNames("tmp").setForce(true).call();
+        repository().getConfig().setString("remote", "origin", "url", "https://example.com/repo.git");
+        repository().getConfig().setString("remote", "origin", "fetch", "+refs/heads/*:refs/remotes/origin/*");
+        repository().getConfig().save();
+        return commit;
+    }
+
+    private Repository repository() {
+        return git.getRepository();
+    }
+
+    private ObjectId commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).setAuthor("a", "a@a").setCommitter("a", "a@a").call();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(root, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
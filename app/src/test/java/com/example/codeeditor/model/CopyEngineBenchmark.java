@@ -0,0 +1,176 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Copy correctness plus throughput against the old 1 KB buffer loop.
+ * The timing test runs with -Dbenchmarks=true; its file is 64 MB by default, and
+ * -Dcopy.benchmark.mb=512 makes a larger one.
+ */
+public class CopyEngineBenchmark {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("copy-engine");
+    }
+
+    @Test
+    public void copyInto_copiesTheWholeTree() throws IOException {
+        write("src/project/a.txt", "alpha\n");
+        write("src/project/lib/b.txt", "beta\n");
+        new File(root, "src/project/empty").mkdirs();
+        File destination = new File(root, "dest");
+        destination.mkdirs();
+
+        CopyEngine.Stats stats = new CopyEngine.Stats();
+        File copy = CopyEngine.copyInto(new File(root, "src/project"), destination, stats);
+
+        assertEquals(new File(destination, "project"), copy);
+        assertEquals("alpha\n", read(new File(copy, "a.txt")));
+        assertEquals("beta\n", read(new File(copy, "lib/b.txt")));
+        assertTrue(new File(copy, "empty").isDirectory());
+        assertEquals(2, stats.getFiles());
+        assertEquals(11, stats.getBytes());
+    }
+
+    @Test
+    public void copyInto_rejectsCopiesOntoThemselves() throws IOException {
+        write("project/a.txt", "alpha\n");
+        File project = new File(root, "project");
+        try {
+            CopyEngine.copyInto(project, new File(project, "nested"), new CopyEngine.Stats());
+            fail("copied a folder into itself");
+        } catch (IOException expected) {
+            assertFalse(new File(project, "nested").exists());
+        }
+        try {
+            CopyEngine.copyInto(new File(project, "a.txt"), project, new CopyEngine.Stats());
+            fail("copied a file onto itself");
+        } catch (IOException expected) {
+            assertEquals("alpha\n", read(new File(project, "a.txt")));
+        }
+    }
+
+    @Test
+    public void copyStream_countsBytes() throws IOException {
+        byte[] data = new byte[CopyEngine.BUFFER_SIZE * 3 + 17];
+        new Random(7).nextBytes(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CopyEngine.Stats stats = new CopyEngine.Stats();
+
+        assertEquals(data.length, CopyEngine.copyStream(new ByteArrayInputStream(data), out, stats));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(data.length, stats.getBytes());
+        assertEquals(1, stats.getFiles());
+    }
+
+    @Test
+    public void benchmark_engineVersusOneKilobyteLoop() throws IOException {
+        Benchmarks.assumeEnabled();
+        long megabytes = Long.getLong("copy.benchmark.mb", 64);
+        File source = new File(root, "source.bin");
+        generateFile(source, megabytes * 1024 * 1024);
+        long expected = crc(source);
+
+        // Warm the page cache so every run reads from memory.
+        legacyCopy(source, new File(root, "warmup.bin"));
+
+        File legacyTarget = new File(root, "legacy.bin");
+        long start = System.nanoTime();
+        legacyCopy(source, legacyTarget);
+        long legacyNanos = System.nanoTime() - start;
+
+        File channelTarget = new File(root, "channel.bin");
+        start = System.nanoTime();
+        CopyEngine.copyFile(source, channelTarget, new CopyEngine.Stats());
+        long channelNanos = System.nanoTime() - start;
+
+        File streamTarget = new File(root, "stream.bin");
+        start = System.nanoTime();
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new FileOutputStream(streamTarget)) {
+            CopyEngine.copyStream(in, out, new CopyEngine.Stats());
+        }
+        long streamNanos = System.nanoTime() - start;
+
+        for (File target : new File[]{legacyTarget, channelTarget, streamTarget}) {
+            assertEquals(source.length(), target.length());
+            assertEquals(expected, crc(target));
+        }
+        System.out.println("CopyEngine " + megabytes + " MB: 1 KB loop " + rate(megabytes, legacyNanos)
+                + " MB/s, transferTo " + rate(megabytes, channelNanos)
+                + " MB/s, pooled stream " + rate(megabytes, streamNanos) + " MB/s");
+    }
+
+    private static long rate(long megabytes, long nanos) {
+        return megabytes * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    // The loop the file screens used before CopyEngine.
+    private static void legacyCopy(File source, File target) throws IOException {
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+    }
+
+    private static void generateFile(File file, long size) throws IOException {
+        Random random = new Random(42);
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+
+    private static long crc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.codeeditor.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class DirectoryEnumeratorTest {
+
+    private static final long THEN = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private DirectoryEnumerator enumerator;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        enumerator = new DirectoryEnumerator(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void listing_isCachedUntilTheDirectoryChanges() throws IOException {
+        File directory = folder.newFolder("dir");
+        new File(directory, "a.txt").createNewFile();
+        directory.setLastModified(THEN);
+        assertEquals(Arrays.asList("a.txt"), names(enumerator.list(directory)));
+
+        // Same modification time: the cached listing is returned without reading the directory.
+        addUnnoticed(directory, "b.txt");
+        assertEquals(Arrays.asList("a.txt"), names(enumerator.list(directory)));
+
+        directory.setLastModified(THEN + 1000);
+        assertEquals(Arrays.asList("a.txt", "b.txt"), names(enumerator.list(directory)));
+
+        addUnnoticed(directory, "c.txt");
+        enumerator.invalidate(directory);
+        assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt"), names(enumerator.list(directory)));
+    }
+
+    @Test
+    public void enumerate_deliversGrowingBatchesThenOneCachedBatch() throws Exception {
+        File directory = folder.newFolder("dir");
+        int count = DirectoryEnumerator.FIRST_BATCH + DirectoryEnumerator.BATCH + 10;
+        for (int i = 0; i < count; i++) {
+            new File(directory, "f" + i).createNewFile();
+        }
+        new File(directory, "sub").mkdir();
+        directory.setLastModified(THEN);
+
+        List<String> batches = new ArrayList<>();
+        enumerator.enumerate(directory, null, Runnable::run, new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                batches.add(entries.size() + (last ? " last" : ""));
+            }
+        }).get();
+        assertEquals(Arrays.asList(String.valueOf(DirectoryEnumerator.FIRST_BATCH),
+                String.valueOf(DirectoryEnumerator.BATCH), "11 last"), batches);
+
+        batches.clear();
+        List<DirectoryEnumerator.Entry> directories = new ArrayList<>();
+        enumerator.enumerate(directory, entry -> entry.directory, Runnable::run, new DirectoryEnumerator.Callback() {
+            @Override
+            public void onBatch(List<DirectoryEnumerator.Entry> entries, boolean last) {
+                batches.add(entries.size() + (last ? " last" : ""));
+                directories.addAll(entries);
+            }
+        }).get();
+        // From the cache, filtered, in one go.
+        assertEquals(Arrays.asList("1 last"), batches);
+        assertEquals(Arrays.asList("sub"), names(directories));
+    }
+
+    @Test
+    public void cache_evictsTheLeastRecentlyUsedDirectory() throws IOException {
+        File root = folder.newFolder("root");
+        File[] directories = new File[DirectoryEnumerator.MAX_CACHED_DIRECTORIES + 1];
+        for (int i = 0; i < directories.length; i++) {
+            directories[i] = new File(root, "d" + i);
+            directories[i].mkdir();
+            directories[i].setLastModified(THEN);
+        }
+        for (int i = 0; i < directories.length - 1; i++) {
+            enumerator.list(directories[i]);
+        }
+        // Touch d0 so that d1 is now the eldest, then overflow the cache by one.
+        enumerator.list(directories[0]);
+        enumerator.list(directories[directories.length - 1]);
+
+        addUnnoticed(directories[0], "new.txt");
+        addUnnoticed(directories[1], "new.txt");
+        assertTrue(enumerator.list(directories[0]).isEmpty());
+        assertEquals(Arrays.asList("new.txt"), names(enumerator.list(directories[1])));
+    }
+
+    /** Add a file and put the directory's modification time back, so only a real read sees it. */
+    private static void addUnnoticed(File directory, String name) throws IOException {
+        long lastModified = directory.lastModified();
+        assertTrue(new File(directory, name).createNewFile());
+        directory.setLastModified(lastModified);
+    }
+
+    private static List<String> names(List<DirectoryEnumerator.Entry> entries) {
+        List<String> names = new ArrayList<>();
+        for (DirectoryEnumerator.Entry entry : entries) {
+            names.add(entry.getName());
+        }
+        names.sort(null);
+        return names;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Imports from an in-memory document tree. The throughput test runs with -Dbenchmarks=true
+ * and uses 200 files of 64 KB by default; -Ddocumentimport.benchmark.files=N imports more.
+ */
+public class DocumentImportJobTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File target;
+    private File checkpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        target = folder.newFolder("document-import");
+        checkpoint = new File(folder.getRoot(), "import.checkpoint");
+    }
+
+    @Test
+    public void tree_isImportedWithOneListingPerFolder() {
+        FakeSource source = new FakeSource();
+        DocumentImportJob.Document root = source.folder(null, "project");
+        DocumentImportJob.Document src = source.folder(root, "src");
+        source.file(root, "README.md", 100);
+        source.file(src, "main.cpp", 5000);
+        source.file(src, "bad/name", 10);
+
+        Result result = run(source, root);
+
+        assertNull(result.error);
+        assertFalse(result.cancelled);
+        assertEquals(3, result.progress.files);
+        assertEquals(5110, result.progress.bytes);
+        assertEquals(5000, new File(target, "project/src/main.cpp").length());
+        assertTrue(new File(target, "project/src/bad_name").isFile());
+        assertEquals(2, source.listings.get());
+        assertFalse(new File(target, "project/src/main.cpp.part").exists());
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void interruptedImport_resumesWithoutCopyingFinishedFilesAgain() throws IOException {
+        FakeSource source = new FakeSource();
+        DocumentImportJob.Document root = source.folder(null, "big");
+        for (int i = 0; i < 20; i++) {
+            source.file(root, "file" + i + ".txt", 1000);
+        }
+        source.failing.add("file13.txt");
+
+        Result first = run(source, root);
+        assertNotNull(first.error);
+        assertTrue(checkpoint.exists());
+        assertFalse(new File(target, "big/file13.txt").exists());
+        assertFalse(new File(target, "big/file13.txt.part").exists());
+        // Files still in flight when file13 failed are interrupted and not checkpointed.
+        int checkpointed = Files.readAllLines(checkpoint.toPath()).size();
+        assertTrue(checkpointed > 0 && checkpointed < 20);
+
+        source.failing.clear();
+        source.opened.clear();
+        Result second = run(source, root);
+
+        assertNull(second.error);
+        assertEquals(20, second.progress.files);
+        assertEquals(20 - checkpointed, source.opened.size());
+        assertTrue(source.opened.contains("file13.txt"));
+        assertEquals(20, new File(target, "big").list().length);
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void cancel_keepsWhatWasImported() {
+        FakeSource source = new FakeSource();
+        DocumentImportJob.Document root = source.folder(null, "folder");
+        for (int i = 0; i < 50; i++) {
+            source.file(root, "f" + i, 100);
+        }
+        final DocumentImportJob[] job = new DocumentImportJob[1];
+        final Result result = new Result();
+        job[0] = new DocumentImportJob(source, Collections.singletonList(root), target, checkpoint, 1,
+                new TreeCopyJob.Listener() {
+                    @Override
+                    public void onProgress(TreeCopyJob.Progress progress) {
+                        job[0].cancel();
+                    }
+
+                    @Override
+                    public void onFinished(TreeCopyJob.Progress progress, File target, IOException error,
+                                           boolean cancelled) {
+                        result.progress = progress;
+                        result.error = error;
+                        result.cancelled = cancelled;
+                    }
+                });
+        job[0].run();
+
+        assertTrue(result.cancelled);
+        assertNull(result.error);
+        assertTrue(new File(target, "folder").isDirectory());
+        assertTrue(checkpoint.exists());
+    }
+
+    @Test
+    public void duplicateNames_getDistinctSuffixes() {
+        FakeSource source = new FakeSource();
+        DocumentImportJob.Document first = source.folder(null, "project");
+        source.file(first, "a.txt", 10);
+        source.file(first, "A.txt", 20);
+        source.file(first, "a.txt", 30);
+        source.file(first, "bad/name", 1);
+        source.file(first, "bad_name", 2);
+        source.file(first, "x", 3);
+        source.file(first, "x.part", 4);
+        source.file(source.folder(first, "lib"), "one", 5);
+        source.file(source.folder(first, "lib"), "one", 6);
+        DocumentImportJob.Document second = source.folder(null, "project");
+        source.file(second, "a.txt", 7);
+
+        Result result = run(source, Arrays.asList(first, second));
+
+        assertNull(result.error);
+        assertEquals(10, result.progress.files);
+        assertEquals(10, new File(target, "project/a.txt").length());
+        assertEquals(20, new File(target, "project/A (2).txt").length());
+        assertEquals(30, new File(target, "project/a (3).txt").length());
+        assertEquals(1, new File(target, "project/bad_name").length());
+        assertEquals(2, new File(target, "project/bad_name (2)").length());
+        assertEquals(3, new File(target, "project/x").length());
+        assertEquals(4, new File(target, "project/x (2).part").length());
+        assertEquals(5, new File(target, "project/lib/one").length());
+        assertEquals(6, new File(target, "project/lib (2)/one").length());
+        assertEquals(7, new File(target, "project (2)/a.txt").length());
+    }
+
+    @Test
+    public void safeName_keepsNamesToOneSegment() {
+        assertEquals("a_b", DocumentImportJob.safeName("a/b"));
+        assertEquals("_", DocumentImportJob.safeName(".."));
+        assertEquals("_", DocumentImportJob.safeName(null));
+        assertEquals("tab_name", DocumentImportJob.safeName("tab\tname"));
+    }
+
+    @Test
+    public void benchmark_throughput() {
+        Benchmarks.assumeEnabled();
+        int count = Integer.getInteger("documentimport.benchmark.files", 200);
+        FakeSource source = new FakeSource();
+        DocumentImportJob.Document root = source.folder(null, "bench");
+        for (int i = 0; i < count; i++) {
+            source.file(root, "file" + i, 64 * 1024);
+        }
+
+        long start = System.nanoTime();
+        Result result = run(source, root);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        assertNull(result.error);
+        assertEquals(count, result.progress.files);
+        System.out.println("DocumentImportJob " + count + " files, " + CopyEngine.formatBytes(result.progress.bytes)
+                + " in " + millis + " ms, " + CopyEngine.formatBytes(result.progress.bytes * 1000 / millis) + "/s");
+    }
+
+    private Result run(FakeSource source, DocumentImportJob.Document root) {
+        return run(source, Collections.singletonList(root));
+    }
+
+    private Result run(FakeSource source, List<DocumentImportJob.Document> roots) {
+        final Result result = new Result();
+        new DocumentImportJob(source, roots, target, checkpoint, 2,
+                new TreeCopyJob.Listener() {
+                    @Override
+                    public void onProgress(TreeCopyJob.Progress progress) {
+                    }
+
+                    @Override
+                    public void onFinished(TreeCopyJob.Progress progress, File target, IOException error,
+                                           boolean cancelled) {
+                        result.progress = progress;
+                        result.error = error;
+                        result.cancelled = cancelled;
+                    }
+                }).run();
+        return result;
+    }
+
+    private static class Result {
+        TreeCopyJob.Progress progress;
+        IOException error;
+        boolean cancelled;
+    }
+
+    private static class FakeSource implements DocumentImportJob.Source {
+        final Map<String, List<DocumentImportJob.Document>> children = new HashMap<>();
+        final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+        final Set<String> opened = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger listings = new AtomicInteger();
+        private int nextId;
+
+        DocumentImportJob.Document folder(DocumentImportJob.Document parent, String name) {
+            DocumentImportJob.Document folder = new DocumentImportJob.Document("d" + nextId++, name, true, 0, 0);
+            children.put(folder.id, new ArrayList<>());
+            if (parent != null) {
+                children.get(parent.id).add(folder);
+            }
+            return folder;
+        }
+
+        void file(DocumentImportJob.Document parent, String name, int size) {
+            children.get(parent.id).add(new DocumentImportJob.Document("f" + nextId++, name, false, size,
+                    1_600_000_000_000L));
+        }
+
+        @Override
+        public List<DocumentImportJob.Document> list(DocumentImportJob.Document directory) {
+            listings.incrementAndGet();
+            return children.get(directory.id);
+        }
+
+        @Override
+        public InputStream open(DocumentImportJob.Document file) throws IOException {
+            if (failing.contains(file.name)) {
+                throw new IOException("Provider went away");
+            }
+            opened.add(file.name);
+            return new ByteArrayInputStream(new byte[(int) file.size]);
+        }
+    }
+}
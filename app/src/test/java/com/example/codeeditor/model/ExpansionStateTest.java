@@ -0,0 +1,50 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ExpansionStateTest {
+
+    @Test
+    public void serialize_roundTripsNestedFolders() {
+        ExpansionState state = new ExpansionState();
+        state.setExpanded("src/main/java", true);
+        state.setExpanded("src/test", true);
+        state.setExpanded("docs", true);
+        state.setExpanded("src/main/java", false);
+
+        ExpansionState parsed = ExpansionState.parse(state.serialize());
+
+        assertEquals(Arrays.asList("docs", "src/test"), parsed.expandedPaths());
+        assertFalse(parsed.isExpanded("src/main/java"));
+        assertEquals(state.serialize(), parsed.serialize());
+    }
+
+    @Test
+    public void serialize_roundTripsNamesWithTabsNewlinesAndBackslashes() {
+        ExpansionState state = new ExpansionState();
+        state.setExpanded("a\tb/\tindented", true);
+        state.setExpanded("line\nbreak/-minus", true);
+        state.setExpanded("back\\slash/\\t", true);
+        state.setExpanded("cr\r", true);
+
+        ExpansionState parsed = ExpansionState.parse(state.serialize());
+
+        assertEquals(state.expandedPaths(), parsed.expandedPaths());
+        assertTrue(parsed.isExpanded("a\tb/\tindented"));
+        assertTrue(parsed.isExpanded("line\nbreak/-minus"));
+        assertTrue(parsed.isExpanded("back\\slash/\\t"));
+        assertFalse(parsed.isExpanded("back\\slash/\t"));
+        assertTrue(parsed.isExpanded("cr\r"));
+    }
+
+    @Test
+    public void parse_acceptsEmptyAndCollapsedRoot() {
+        assertTrue(ExpansionState.parse(null).isExpanded(""));
+        assertTrue(ExpansionState.parse("").expandedPaths().isEmpty());
+        assertFalse(ExpansionState.parse("-\n").isExpanded(""));
+    }
+}
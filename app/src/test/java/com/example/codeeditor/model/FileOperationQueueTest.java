@@ -0,0 +1,133 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FileOperationQueueTest {
+
+    private static final File PROJECT = new File("/files/Projects/demo");
+
+    @Test
+    public void overlappingPaths_runOneAtATimeInSubmissionOrder() throws Exception {
+        FileOperationQueue queue = new FileOperationQueue(3);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+
+        FileOperationQueue.Task blocker = ticket -> {
+            release.await();
+            order.add("delete");
+        };
+        queue.submit("delete", FileOperationQueue.Priority.BACKGROUND, PROJECT, blocker, null);
+        // Higher priority, but it touches a file inside the folder being deleted, so it waits.
+        FileOperationQueue.Ticket save = queue.submit("save", FileOperationQueue.Priority.SAVE,
+                new File(PROJECT, "src/main.cpp"), ticket -> {
+                    maxConcurrent.set(Math.max(maxConcurrent.get(), concurrent.incrementAndGet()));
+                    order.add("save");
+                    concurrent.decrementAndGet();
+                }, null);
+        FileOperationQueue.Ticket other = queue.submit("other", FileOperationQueue.Priority.SAVE,
+                new File("/files/Projects/other/a.txt"), ticket -> order.add("other"), null);
+
+        other.await();
+        assertEquals(FileOperationQueue.State.QUEUED, save.getState());
+        release.countDown();
+        save.await();
+
+        assertEquals(Arrays.asList("other", "delete", "save"), order);
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    public void backgroundWork_leavesAWorkerForSaves() throws Exception {
+        FileOperationQueue queue = new FileOperationQueue(3);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FileOperationQueue.Ticket> copies = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            copies.add(queue.submit("copy " + i, FileOperationQueue.Priority.BACKGROUND, new File("/copy" + i),
+                    ticket -> release.await(), null));
+        }
+        FileOperationQueue.Ticket save = queue.submit("save", FileOperationQueue.Priority.SAVE, new File("/save"),
+                ticket -> {
+                }, null);
+
+        save.await();
+        assertEquals(FileOperationQueue.State.DONE, save.getState());
+        int running = 0;
+        for (FileOperationQueue.Ticket copy : copies) {
+            if (copy.getState() == FileOperationQueue.State.RUNNING) {
+                running++;
+            }
+        }
+        assertEquals(2, running);
+        release.countDown();
+        for (FileOperationQueue.Ticket copy : copies) {
+            copy.await();
+        }
+    }
+
+    @Test
+    public void queuedWork_startsInPriorityOrder() throws Exception {
+        FileOperationQueue queue = new FileOperationQueue(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        FileOperationQueue.Ticket first = queue.submit("hold", FileOperationQueue.Priority.SAVE, new File("/hold"),
+                ticket -> release.await(), null);
+        FileOperationQueue.Ticket holdOpen = queue.submit("hold open", FileOperationQueue.Priority.OPEN,
+                new File("/hold2"), ticket -> release.await(), null);
+        List<FileOperationQueue.Ticket> tickets = new ArrayList<>();
+        tickets.add(queue.submit("maintenance", FileOperationQueue.Priority.MAINTENANCE, new File("/m"),
+                ticket -> order.add("maintenance"), null));
+        tickets.add(queue.submit("copy", FileOperationQueue.Priority.BACKGROUND, new File("/c"),
+                ticket -> order.add("copy"), null));
+        tickets.add(queue.submit("open", FileOperationQueue.Priority.OPEN, new File("/o"),
+                ticket -> order.add("open"), null));
+        tickets.add(queue.submit("save", FileOperationQueue.Priority.SAVE, new File("/s"),
+                ticket -> order.add("save"), null));
+
+        assertEquals("save", queue.snapshot().get(2).label);
+        release.countDown();
+        first.await();
+        holdOpen.await();
+        for (FileOperationQueue.Ticket ticket : tickets) {
+            ticket.await();
+        }
+        assertEquals("save", order.get(0));
+        assertEquals("open", order.get(1));
+    }
+
+    @Test
+    public void cancel_dropsQueuedAndInterruptsRunning() throws Exception {
+        FileOperationQueue queue = new FileOperationQueue(2);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger callbacks = new AtomicInteger();
+        FileOperationQueue.Ticket running = queue.submit("long", FileOperationQueue.Priority.BACKGROUND, PROJECT,
+                ticket -> {
+                    started.countDown();
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                }, ticket -> callbacks.incrementAndGet());
+        FileOperationQueue.Ticket queued = queue.submit("next", FileOperationQueue.Priority.SAVE,
+                new File(PROJECT, "a.txt"), ticket -> fail("cancelled ticket ran"), ticket -> callbacks.incrementAndGet());
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queued.cancel();
+        assertEquals(FileOperationQueue.State.CANCELLED, queued.getState());
+        running.cancel();
+        running.await();
+        assertEquals(FileOperationQueue.State.CANCELLED, running.getState());
+        assertNull(running.getError());
+        assertEquals(2, callbacks.get());
+        assertEquals(0, queue.activeCount());
+    }
+}
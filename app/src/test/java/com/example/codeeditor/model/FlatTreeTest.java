@@ -0,0 +1,221 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+public class FlatTreeTest {
+
+    private static final File ROOT = new File("/project");
+
+    private FakeEnumerator enumerator;
+    private FlatTree tree;
+    private List<String> events;
+
+    @Before
+    public void setUp() {
+        enumerator = new FakeEnumerator();
+        tree = new FlatTree(ROOT, null, new ExpansionState(), enumerator, Runnable::run);
+        events = new ArrayList<>();
+        tree.setListener(new FlatTree.Listener() {
+            @Override
+            public void onRangeInserted(int start, int count) {
+                events.add("insert " + start + "+" + count);
+            }
+
+            @Override
+            public void onRangeRemoved(int start, int count) {
+                events.add("remove " + start + "+" + count);
+            }
+
+            @Override
+            public void onChanged(int position) {
+            }
+
+            @Override
+            public void onRangeChanged(int start, int count) {
+                events.add("change " + start + "+" + count);
+            }
+        });
+    }
+
+    @Test
+    public void batches_areMergedInDisplayOrder() {
+        tree.expand(0);
+        enumerator.deliver("", false, file("b.txt"), dir("src"));
+        enumerator.deliver("", false, file("a.txt"), file("c.txt"));
+        enumerator.deliver("", true, dir("docs"));
+
+        assertEquals(Arrays.asList("", "docs", "src", "a.txt", "b.txt", "c.txt"), paths());
+        assertEquals(Arrays.asList("insert 1+2", "change 1+2", "insert 3+2", "change 1+4", "insert 5+1"), events);
+    }
+
+    @Test
+    public void namesDifferingOnlyInCase_inSeparateBatches_areBothShown() {
+        tree.expand(0);
+        enumerator.deliver("", false, file("README"));
+        enumerator.deliver("", true, file("Readme"), file("readme.md"));
+
+        assertEquals(Arrays.asList("", "README", "Readme", "readme.md"), paths());
+    }
+
+    @Test
+    public void listingDeliveredTwice_addsNothing() {
+        tree.expand(0);
+        enumerator.deliver("", false, file("a"), file("B"));
+        events.clear();
+        enumerator.deliver("", true, file("a"), file("B"));
+
+        assertEquals(Arrays.asList("", "a", "B"), paths());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void mergeNextToExpandedSubtree_insertsRuns() {
+        tree.expand(0);
+        enumerator.deliver("", false, dir("b"), file("z.txt"));
+        tree.expand(tree.indexOf("b"));
+        enumerator.deliver("b", true, file("inner"));
+        events.clear();
+
+        enumerator.deliver("", true, dir("a"), dir("B"), dir("c"), file("Z.txt"));
+
+        assertEquals(Arrays.asList("", "a", "B", "b", "b/inner", "c", "Z.txt", "z.txt"), paths());
+        assertEquals(Arrays.asList("insert 1+2", "insert 5+2"), events);
+        assertIndexConsistent();
+    }
+
+    @Test
+    public void collapseAndRefresh_keepPathIndexInStep() {
+        tree.expand(0);
+        enumerator.deliver("", true, dir("a"), dir("b"), file("c"));
+        tree.expand(tree.indexOf("a"));
+        enumerator.deliver("a", true, file("x"), file("y"));
+        FlatTree.Node b = tree.get(tree.indexOf("b"));
+        assertEquals(4, tree.indexOf(b));
+
+        tree.collapse(tree.indexOf("a"));
+        assertEquals(-1, tree.indexOf("a/x"));
+        assertEquals(2, tree.indexOf(b));
+
+        tree.refresh("");
+        enumerator.deliver("", true, dir("b"), file("c"), file("d"));
+        assertEquals(Arrays.asList("", "b", "c", "d"), paths());
+        assertEquals(-1, tree.indexOf("a"));
+        assertEquals(1, tree.indexOf(b));
+        assertIndexConsistent();
+    }
+
+    @Test
+    public void removedNode_isNotFoundEvenIfItsPathReturns() {
+        tree.expand(0);
+        enumerator.deliver("", true, file("a"));
+        FlatTree.Node old = tree.get(1);
+
+        tree.refresh("");
+        enumerator.deliver("", true);
+        tree.refresh("");
+        enumerator.deliver("", true, file("a"));
+
+        assertEquals(1, tree.indexOf("a"));
+        assertEquals(-1, tree.indexOf(old));
+    }
+
+    @Test
+    public void order_putsDirectoriesFirstAndIgnoresCaseWithExactTiebreak() {
+        List<FlatTree.Node> nodes = new ArrayList<>(Arrays.asList(
+                node("b", false), node("B", false), node("a", false), node("z", true), node("A", true)));
+        nodes.sort(FlatTree.ORDER);
+
+        List<String> names = new ArrayList<>();
+        for (FlatTree.Node node : nodes) {
+            names.add(node.path);
+        }
+        assertEquals(Arrays.asList("A", "z", "a", "B", "b"), names);
+        assertNotEquals(0, FlatTree.ORDER.compare(node("README", false), node("Readme", false)));
+    }
+
+    private void assertIndexConsistent() {
+        for (int i = 0; i < tree.size(); i++) {
+            assertEquals(i, tree.indexOf(tree.get(i).path));
+            assertEquals(i, tree.indexOf(tree.get(i)));
+        }
+    }
+
+    private List<String> paths() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < tree.size(); i++) {
+            paths.add(tree.get(i).path);
+        }
+        return paths;
+    }
+
+    private static FlatTree.Node node(String name, boolean directory) {
+        return new FlatTree.Node(new File(ROOT, name), name, 1, directory);
+    }
+
+    private static Child file(String name) {
+        return new Child(name, false);
+    }
+
+    private static Child dir(String name) {
+        return new Child(name, true);
+    }
+
+    private static class Child {
+        final String name;
+        final boolean directory;
+
+        Child(String name, boolean directory) {
+            this.name = name;
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Holds on to each enumeration so the test decides how its listing is split into batches.
+     */
+    private static class FakeEnumerator extends DirectoryEnumerator {
+        private final Map<String, Callback> pending = new HashMap<>();
+
+        FakeEnumerator() {
+            super(null);
+        }
+
+        @Override
+        public Future<?> enumerate(File directory, Predicate<DirectoryEnumerator.Entry> filter,
+                                   Executor callbackExecutor, Callback callback) {
+            pending.put(relative(directory), callback);
+            return null;
+        }
+
+        @Override
+        public void invalidate(File directory) {
+        }
+
+        void deliver(String path, boolean last, Child... entries) {
+            File directory = path.isEmpty() ? ROOT : new File(ROOT, path);
+            List<DirectoryEnumerator.Entry> batch = new ArrayList<>();
+            for (Child child : entries) {
+                batch.add(new DirectoryEnumerator.Entry(new File(directory, child.name), child.directory, 0L, 0L));
+            }
+            Callback callback = last ? pending.remove(path) : pending.get(path);
+            callback.onBatch(batch, last);
+        }
+
+        private static String relative(File directory) {
+            return directory.equals(ROOT) ? "" : directory.getPath().substring(ROOT.getPath().length() + 1);
+        }
+    }
+}
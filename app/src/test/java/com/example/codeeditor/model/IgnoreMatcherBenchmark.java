@@ -0,0 +1,128 @@
+package com.example.codeeditor.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rule correctness plus timing of cold and warm lookups over a synthetic 100k-path tree.
+ * Only the ignore files exist on disk; the paths themselves are generated in memory. The
+ * timing test runs with -Dbenchmarks=true.
+ */
+public class IgnoreMatcherBenchmark {
+
+    private static final int PATH_COUNT = 100_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("ignore-bench");
+        write(".gitignore", "build/\nnode_modules/\n*.log\n!keep.log\n");
+        write("module0/src/.gitignore", "*.tmp\n");
+    }
+
+    @After
+    public void tearDown() {
+        IgnoreMatcher.forget(root);
+    }
+
+    @Test
+    public void rules_areApplied() {
+        IgnoreMatcher matcher = IgnoreMatcher.forRoot(root);
+        assertTrue(matcher.isIgnored("build", true));
+        assertTrue(matcher.isIgnored("module3/build/classes/A.class", false));
+        assertTrue(matcher.isIgnored("module1/node_modules/x/index.js", false));
+        assertTrue(matcher.isIgnored("module1/debug.log", false));
+        assertFalse(matcher.isIgnored("module1/keep.log", false));
+        assertTrue(matcher.isIgnored("module0/src/a.tmp", false));
+        assertFalse(matcher.isIgnored("module1/src/a.tmp", false));
+        assertFalse(matcher.isIgnored("module1/src/Main.java", false));
+        assertTrue(matcher.isIgnored(".git", true));
+    }
+
+    @Test
+    public void changedIgnoreFile_isReparsed() throws IOException {
+        IgnoreMatcher matcher = IgnoreMatcher.forRoot(root);
+        assertFalse(matcher.isIgnored("notes.txt", false));
+        write(".gitignore", "build/\nnode_modules/\n*.log\n!keep.log\n*.txt\n");
+        new File(root, ".gitignore").setLastModified(System.currentTimeMillis() + 2000);
+        // Looking the matcher up does not touch the disk; revalidating does.
+        assertFalse(IgnoreMatcher.forRoot(root).isIgnored("notes.txt", false));
+        assertTrue(matcher.revalidate());
+        assertTrue(matcher.isIgnored("notes.txt", false));
+        assertFalse(matcher.revalidate());
+    }
+
+    @Test
+    public void createdAndDeletedIgnoreFiles_arePickedUp() throws IOException {
+        IgnoreMatcher matcher = IgnoreMatcher.forRoot(root);
+        assertFalse(matcher.isIgnored("module1/src/a.tmp", false));
+        assertFalse(matcher.isIgnored("module1/notes.md", false));
+
+        write("module1/.gitignore", "*.tmp\n");
+        write(".git/info/exclude", "notes.md\n");
+        assertTrue(matcher.revalidate());
+        assertTrue(matcher.isIgnored("module1/src/a.tmp", false));
+        assertTrue(matcher.isIgnored("module1/notes.md", false));
+
+        assertTrue(new File(root, "module1/.gitignore").delete());
+        assertTrue(matcher.revalidate());
+        assertFalse(matcher.isIgnored("module1/src/a.tmp", false));
+    }
+
+    @Test
+    public void benchmark_100kPaths() {
+        Benchmarks.assumeEnabled();
+        List<String> paths = new ArrayList<>(PATH_COUNT);
+        String[] kinds = {"src", "build", "node_modules", "docs"};
+        String[] extensions = {".java", ".log", ".tmp", ".kt"};
+        for (int i = 0; i < PATH_COUNT; i++) {
+            paths.add("module" + (i % 100) + "/" + kinds[i % 4] + "/dir" + (i % 37) + "/file" + i + extensions[(i / 4) % 4]);
+        }
+
+        long start = System.nanoTime();
+        IgnoreMatcher matcher = IgnoreMatcher.forRoot(root);
+        int coldIgnored = countIgnored(matcher, paths);
+        long coldNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int warmIgnored = countIgnored(IgnoreMatcher.forRoot(root), paths);
+        long warmNanos = System.nanoTime() - start;
+
+        assertEquals(coldIgnored, warmIgnored);
+        assertTrue(warmIgnored > PATH_COUNT / 2);
+        System.out.println("IgnoreMatcher " + PATH_COUNT + " paths: cold " + coldNanos / 1_000_000 + " ms, warm "
+                + warmNanos / 1_000_000 + " ms (" + warmNanos / PATH_COUNT + " ns/path), ignored " + warmIgnored);
+    }
+
+    private static int countIgnored(IgnoreMatcher matcher, List<String> paths) {
+        int ignored = 0;
+        for (String path : paths) {
+            if (matcher.isIgnored(path, false)) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        File file = new File(root, relativePath);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ranking checks plus query timing over 200k synthetic paths held in memory. The timing
+ * test runs with -Dbenchmarks=true.
+ */
+public class PathIndexBenchmark {
+
+    private static final int PATH_COUNT = 200_000;
+    private static final String[] DIRECTORIES = {"src/main/java/com/example", "src/test/java/com/example",
+            "app/src/main/res/layout", "lib/core/include", "docs/guide", "third_party/zlib"};
+    private static final String[] NAMES = {"Controller", "Adapter", "Manager", "Activity", "Utils", "Parser", "Index"};
+    private static final String[] EXTENSIONS = {".java", ".kt", ".xml", ".h", ".cpp", ".md"};
+
+    @Test
+    public void search_ranksFileNameAndBoundaryMatches() {
+        PathIndex index = new PathIndex(null, null);
+        List<String> paths = new ArrayList<>();
+        paths.add("app/src/main/java/com/example/codeeditor/MainActivity.java");
+        paths.add("app/src/main/java/com/example/codeeditor/model/FileLogic.java");
+        paths.add("app/src/main/res/layout/activity_main.xml");
+        paths.add("docs/manual/action_items.md");
+        paths.add("app/src/main/java/com/example/codeeditor/DirectoryTreeController.java");
+        index.load(paths);
+
+        assertEquals("app/src/main/java/com/example/codeeditor/MainActivity.java",
+                index.search("mainact", 50).get(0));
+        assertEquals("app/src/main/java/com/example/codeeditor/DirectoryTreeController.java",
+                index.search("dtc", 50).get(0));
+        assertEquals("app/src/main/java/com/example/codeeditor/model/FileLogic.java",
+                index.search("filelog", 50).get(0));
+        assertTrue(index.search("zzz", 50).isEmpty());
+        assertTrue(index.search("", 50).isEmpty());
+    }
+
+    @Test
+    public void search_returnsBestFirst() {
+        PathIndex index = new PathIndex(null, null);
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            paths.add("module" + i + "/src/Other" + i + ".java");
+        }
+        paths.add("module7/src/Parser.java");
+        index.load(paths);
+
+        List<String> matches = index.search("parser", 10);
+        assertEquals("module7/src/Parser.java", matches.get(0));
+        assertTrue(matches.size() <= 10);
+    }
+
+    @Test
+    public void search_foldsCaseTheSameInEveryLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            PathIndex index = new PathIndex(null, null);
+            List<String> paths = new ArrayList<>();
+            paths.add("src/Index.java");
+            // Lower-cased as a string, the dotted capital I grows to two chars.
+            paths.add("docs/\u0130stanbul/Intro.md");
+            index.load(paths);
+
+            assertEquals("src/Index.java", index.search("index", 50).get(0));
+            assertEquals("docs/\u0130stanbul/Intro.md", index.search("istintro", 50).get(0));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    public void benchmark_200kPaths() {
+        Benchmarks.assumeEnabled();
+        PathIndex index = new PathIndex(null, null);
+        List<String> paths = new ArrayList<>(PATH_COUNT);
+        for (int i = 0; i < PATH_COUNT; i++) {
+            paths.add("module" + (i % 400) + "/" + DIRECTORIES[i % DIRECTORIES.length] + "/"
+                    + NAMES[(i / 7) % NAMES.length] + i + EXTENSIONS[i % EXTENSIONS.length]);
+        }
+        index.load(paths);
+
+        String[] queries = {"ctrl", "mainjava", "adapter123", "m42utils", "zlibh", "docsguidemd"};
+        for (int round = 0; round < 10; round++) {
+            for (String query : queries) {
+                index.search(query, PathIndex.DEFAULT_LIMIT);
+            }
+        }
+        long worst = 0;
+        long total = 0;
+        for (String query : queries) {
+            long start = System.nanoTime();
+            List<String> matches = index.search(query, PathIndex.DEFAULT_LIMIT);
+            long nanos = System.nanoTime() - start;
+            worst = Math.max(worst, nanos);
+            total += nanos;
+            assertTrue(matches.size() <= PathIndex.DEFAULT_LIMIT);
+        }
+        System.out.println("PathIndex " + PATH_COUNT + " paths: average " + total / queries.length / 1_000
+                + " us, worst " + worst / 1_000 + " us per query");
+    }
+}
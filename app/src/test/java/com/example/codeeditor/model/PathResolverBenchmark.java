@@ -0,0 +1,168 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolution correctness plus cached lookups against the old walk with an exists() per
+ * folder, which runs with -Dbenchmarks=true. 200000 lookups by default;
+ * -Dpathresolver.benchmark.lookups=N does more.
+ */
+public class PathResolverBenchmark {
+
+    private static final String[] PATHS = {
+            "Projects/demo/src/main/java/com/example/App.java",
+            "Projects/demo/src/main/java/com/example/util/Strings.java",
+            "Projects/demo/README.md",
+            "Projects/other/lib/core.cpp",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("path-resolver");
+        for (String path : PATHS) {
+            new File(root, path).getParentFile().mkdirs();
+        }
+    }
+
+    @Test
+    public void normalize_foldsSeparatorsAndDots() {
+        assertEquals("a/b/c", PathResolver.normalize("a//b/./c/"));
+        assertEquals("a/c", PathResolver.normalize("/a/b/../c"));
+        assertEquals("../a", PathResolver.normalize("../a"));
+        assertEquals("", PathResolver.normalize(""));
+    }
+
+    @Test
+    public void file_resolvesAndCachesOnlyExistingFolders() {
+        PathResolver resolver = new PathResolver(root, 16);
+
+        assertEquals(new File(root, "Projects/demo/README.md"), resolver.file("Projects/demo/README.md"));
+        assertEquals(new File(root, "Projects/demo"), resolver.directory("Projects/demo/README.md"));
+        assertEquals(new File(root, "Projects/demo/README.md"), resolver.file("Projects//demo/./README.md"));
+        assertNull(resolver.file("Projects/missing/a.txt"));
+        assertEquals(2, resolver.size());
+
+        new File(root, "Projects/missing").mkdirs();
+        assertNotNull(resolver.file("Projects/missing/a.txt"));
+    }
+
+    @Test
+    public void invalidate_dropsThePathAndEverythingBelow() {
+        PathResolver resolver = new PathResolver(root, 16);
+        for (String path : PATHS) {
+            assertNotNull(resolver.file(path));
+        }
+        deleteRecursively(new File(root, "Projects/demo/src"));
+
+        resolver.invalidate(new File(root, "Projects/demo/src"));
+        assertNull(resolver.file(PATHS[0]));
+        assertNull(resolver.file(PATHS[1]));
+        assertNotNull(resolver.file(PATHS[2]));
+
+        resolver.invalidate("Projects/dem");
+        assertEquals(2, resolver.size());
+        resolver.invalidate(new File("/elsewhere"));
+        assertEquals(2, resolver.size());
+        resolver.invalidate(root);
+        assertEquals(0, resolver.size());
+    }
+
+    @Test
+    public void capacity_evictsLeastRecentlyUsed() {
+        PathResolver resolver = new PathResolver(root, 2);
+        resolver.file(PATHS[0]);
+        resolver.file(PATHS[1]);
+        resolver.file(PATHS[0]);
+        resolver.file(PATHS[2]);
+
+        assertEquals(2, resolver.size());
+        long misses = resolver.getMisses();
+        resolver.file(PATHS[0]);
+        assertEquals(misses, resolver.getMisses());
+        resolver.file(PATHS[1]);
+        assertEquals(misses + 1, resolver.getMisses());
+    }
+
+    @Test
+    public void benchmark_cachedVersusWalk() {
+        Benchmarks.assumeEnabled();
+        int lookups = Integer.getInteger("pathresolver.benchmark.lookups", 200_000);
+        PathResolver resolver = new PathResolver(root, PathResolver.DEFAULT_CAPACITY);
+        int found = 0;
+        for (int i = 0; i < 10_000; i++) {
+            found += legacyDirectory(PATHS[i % PATHS.length]) != null ? 1 : 0;
+            found += resolver.file(PATHS[i % PATHS.length]) != null ? 1 : 0;
+        }
+        assertEquals(20_000, found);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            legacyDirectory(PATHS[i % PATHS.length]);
+        }
+        long walkNanos = System.nanoTime() - start;
+
+        long allocatedBefore = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            resolver.file(PATHS[i % PATHS.length]);
+        }
+        long cachedNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.println("PathResolver " + lookups + " lookups: walk " + walkNanos / lookups + " ns, cached "
+                + cachedNanos / lookups + " ns, " + (allocatedBefore < 0 ? "allocation not measured"
+                : allocated + " bytes allocated by cached lookups"));
+        if (allocatedBefore >= 0) {
+            // Far below one object per lookup; a little slack for the counters themselves.
+            assertTrue(allocated < lookups);
+        }
+    }
+
+    // FilesController.getDirectory before PathResolver.
+    private File legacyDirectory(String fileName) {
+        String fileNameCopy = String.copyValueOf(fileName.toCharArray());
+        File currentDirectory = root;
+        while (fileNameCopy.contains("/")) {
+            String subDirectoryName = fileNameCopy.substring(0, fileNameCopy.indexOf('/'));
+            File subDirectory = new File(currentDirectory, subDirectoryName);
+            if (!subDirectory.exists()) {
+                return null;
+            }
+            currentDirectory = subDirectory;
+            fileNameCopy = fileNameCopy.substring(fileNameCopy.indexOf('/') + 1);
+        }
+        return currentDirectory;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
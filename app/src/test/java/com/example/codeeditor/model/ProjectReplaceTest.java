@@ -0,0 +1,163 @@
+package com.example.codeeditor.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProjectReplaceTest {
+
+    private static final List<String> PATHS = Arrays.asList("a.txt", "b.txt", "src/c.txt", "src/d.txt");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    private void createProject() throws IOException {
+        root = folder.getRoot();
+        for (String path : PATHS) {
+            File file = new File(root, path);
+            file.getParentFile().mkdirs();
+            write(file, "old value in " + path + "\nold again\n");
+        }
+    }
+
+    @Test
+    public void apply_replacesEveryPreviewedFile() throws Exception {
+        createProject();
+        ProjectReplace replace = new ProjectReplace(root, new TextFinder("old", false, true), "new");
+
+        List<ProjectReplace.FileChange> changes = replace.preview(PATHS);
+        assertEquals(4, changes.size());
+        assertEquals(2, changes.get(0).count);
+        ProjectReplace.Result result = replace.apply(changes, (phase, done, total) -> {
+        });
+
+        assertTrue(result.success);
+        assertEquals(8, result.replacements);
+        for (String path : PATHS) {
+            assertEquals("new value in " + path + "\nnew again\n", read(new File(root, path)));
+        }
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void failedCommitMidway_restoresEveryFile() throws Exception {
+        createProject();
+        ProjectReplace replace = new ProjectReplace(root, new TextFinder("old", false, true), "new");
+        List<ProjectReplace.FileChange> changes = replace.preview(PATHS);
+
+        ProjectReplace.Result result = replace.apply(changes, (phase, done, total) -> {
+            if (phase.equals("Committing") && done == 2) {
+                // Two files are replaced; take away the third one's prepared content.
+                deleteMatching(new File(root, "src"), ".c.txt.", ".tmp");
+            }
+        });
+
+        assertFalse(result.success);
+        assertTrue(result.error.startsWith("src/c.txt"));
+        assertTrue(result.unrestoredPaths.isEmpty());
+        for (String path : PATHS) {
+            assertEquals("old value in " + path + "\nold again\n", read(new File(root, path)));
+        }
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void failedRestore_isReported() throws Exception {
+        createProject();
+        ProjectReplace replace = new ProjectReplace(root, new TextFinder("old", false, true), "new");
+        List<ProjectReplace.FileChange> changes = replace.preview(PATHS);
+
+        ProjectReplace.Result result = replace.apply(changes, (phase, done, total) -> {
+            if (phase.equals("Committing") && done == 2) {
+                deleteMatching(root, ".a.txt.", ".bak");
+                deleteMatching(new File(root, "src"), ".c.txt.", ".tmp");
+            }
+        });
+
+        assertFalse(result.success);
+        assertEquals(1, result.unrestoredPaths.size());
+        assertTrue(result.unrestoredPaths.get(0).startsWith("a.txt"));
+        assertEquals("old value in b.txt\nold again\n", read(new File(root, "b.txt")));
+    }
+
+    @Test
+    public void failedCommit_restoresHardLinkedFilesWrittenInPlace() throws Exception {
+        createProject();
+        // Both have a second link, so their new content is written in place.
+        Files.createLink(new File(root, "a-link.txt").toPath(), new File(root, "a.txt").toPath());
+        Files.createLink(new File(root, "src/c-link.txt").toPath(), new File(root, "src/c.txt").toPath());
+        ProjectReplace replace = new ProjectReplace(root, new TextFinder("old", false, true), "new");
+        List<ProjectReplace.FileChange> changes = replace.preview(PATHS);
+
+        ProjectReplace.Result result = replace.apply(changes, (phase, done, total) -> {
+            if (phase.equals("Committing") && done == 2) {
+                // The third file's write truncates it and then finds a directory to copy from.
+                for (File file : new File(root, "src").listFiles()) {
+                    if (file.getName().startsWith(".c.txt.") && file.getName().endsWith(".tmp")) {
+                        assertTrue(file.delete() && file.mkdir());
+                    }
+                }
+            }
+        });
+
+        assertFalse(result.success);
+        assertTrue(result.error.startsWith("src/c.txt"));
+        assertTrue(result.unrestoredPaths.isEmpty());
+        for (String path : PATHS) {
+            assertEquals("old value in " + path + "\nold again\n", read(new File(root, path)));
+        }
+        assertEquals("old value in a.txt\nold again\n", read(new File(root, "a-link.txt")));
+        assertEquals("old value in src/c.txt\nold again\n", read(new File(root, "src/c-link.txt")));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void fileChangedSincePreview_leavesProjectUntouched() throws Exception {
+        createProject();
+        ProjectReplace replace = new ProjectReplace(root, new TextFinder("old", false, true), "new");
+        List<ProjectReplace.FileChange> changes = replace.preview(PATHS);
+        write(new File(root, "b.txt"), "edited meanwhile, old\n");
+
+        ProjectReplace.Result result = replace.apply(changes, (phase, done, total) -> {
+        });
+
+        assertFalse(result.success);
+        assertEquals("old value in a.txt\nold again\n", read(new File(root, "a.txt")));
+        assertNoLeftovers();
+    }
+
+    private void assertNoLeftovers() {
+        for (String directory : new String[]{"", "src"}) {
+            for (String name : new File(root, directory).list()) {
+                assertFalse(name, name.startsWith("."));
+            }
+        }
+    }
+
+    private static void deleteMatching(File directory, String prefix, String suffix) {
+        for (File file : directory.listFiles()) {
+            if (file.getName().startsWith(prefix) && file.getName().endsWith(suffix)) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.codeeditor.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ProjectSearchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void requiredLiteral_isTheLongestRunEveryMatchContains() {
+        assertEquals("foo.bar", ProjectSearch.requiredLiteral("foo\\.bar"));
+        assertEquals("abc", ProjectSearch.requiredLiteral("x?abc"));
+        assertEquals("Value", ProjectSearch.requiredLiteral("get[A-Z]\\w+Value"));
+        assertEquals("cd]", ProjectSearch.requiredLiteral("[]ab]cd\\]"));
+        // A run ends with an atom repeated by +, since more copies may follow.
+        assertEquals("ab", ProjectSearch.requiredLiteral("ab+c"));
+        // The first of equally long runs is kept; an optional group splits them.
+        assertEquals("foo", ProjectSearch.requiredLiteral("\\bfoo(bar)?baz"));
+        // Counted repetitions are skipped whole, their digits are not literals.
+        assertEquals("ab", ProjectSearch.requiredLiteral("abc{0,1}"));
+        assertEquals("de", ProjectSearch.requiredLiteral("(xy){10}de"));
+        // Groups that only look around or do not capture end a run like any other.
+        assertEquals("abc", ProjectSearch.requiredLiteral("(?:x)abc(?=y)d"));
+        assertEquals("name", ProjectSearch.requiredLiteral("(?<id>\\d+)name"));
+    }
+
+    @Test
+    public void requiredLiteral_givesUpWhereAMatchMightNotContainIt() {
+        assertNull(ProjectSearch.requiredLiteral("foo|bar"));
+        assertNull(ProjectSearch.requiredLiteral("^(a|b)+end$"));
+        assertNull(ProjectSearch.requiredLiteral("(?i)foo"));
+        assertNull(ProjectSearch.requiredLiteral("a.b"));
+        assertNull(ProjectSearch.requiredLiteral("x*y*z*"));
+        assertNull(ProjectSearch.requiredLiteral("[abc]+\\d"));
+        assertNull(ProjectSearch.requiredLiteral(""));
+    }
+
+    @Test
+    public void requiredLiteral_givesUpOnEscapesWithTrailingSyntax() {
+        // Their trailing characters are not literals: \x41bc matches "Abc", not "41bc".
+        assertNull(ProjectSearch.requiredLiteral("\\x41bc"));
+        assertNull(ProjectSearch.requiredLiteral("\\u0041bcd"));
+        assertNull(ProjectSearch.requiredLiteral("\\0101bc"));
+        assertNull(ProjectSearch.requiredLiteral("\\cAbc"));
+        assertNull(ProjectSearch.requiredLiteral("(?<w>x)\\k<w>abc"));
+        assertNull(ProjectSearch.requiredLiteral("\\p{Lu}abc"));
+        assertNull(ProjectSearch.requiredLiteral("(ab)\\12cd"));
+        assertNull(ProjectSearch.requiredLiteral("\\Qa.b\\E"));
+        for (String regex : new String[]{"\\x41bc", "\\u0041bcd", "\\0101bc", "\\cAbc"}) {
+            assertTrue(regex, Pattern.compile(regex).matcher("Abcd\u0001bc").find());
+        }
+    }
+
+    @Test
+    public void requiredLiteral_givesUpOnInlineFlagsAnywhere() {
+        assertNull(ProjectSearch.requiredLiteral("ab(?i)cd"));
+        assertNull(ProjectSearch.requiredLiteral("xy(?i:abc)"));
+        assertNull(ProjectSearch.requiredLiteral("abc(?x) d"));
+        // Inside a class or escaped, "(?" is plain text.
+        assertEquals("abcd", ProjectSearch.requiredLiteral("[(?i]abcd"));
+        assertEquals("(abcd", ProjectSearch.requiredLiteral("x\\(?\\(abcd"));
+    }
+
+    @Test
+    public void indexOf_foldsAsciiCaseOnly() {
+        ByteBuffer haystack = utf8("Ärger: Hello WORLD, hello wörld");
+        int offset = "Ärger: ".getBytes(StandardCharsets.UTF_8).length;
+
+        assertEquals(offset, find(haystack, 0, "hello", true));
+        assertEquals(offset + 6, find(haystack, 0, "world", true));
+        assertEquals(offset + 13, find(haystack, 0, "hello", false));
+        assertEquals(offset + 13, find(haystack, offset + 1, "hello", true));
+        assertEquals(-1, find(haystack, 0, "world", false));
+        // Bytes of non-ASCII characters are compared as they are.
+        assertEquals(2, find(haystack, 0, "rger", true));
+        assertEquals(-1, find(haystack, 0, "ärger", false));
+        assertEquals(haystack.limit() - 1, find(haystack, 0, "d", false));
+    }
+
+    @Test
+    public void indexOf_stopsAtTheLimit() {
+        ByteBuffer haystack = utf8("abc needle xyz");
+        haystack.limit(9);
+
+        assertEquals(-1, find(haystack, 0, "needle", false));
+        assertEquals(4, find(haystack, 0, "need", false));
+    }
+
+    @Test
+    public void indexOf_agreesWithStringSearch() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            String text = randomText(random, random.nextInt(60));
+            String needle = randomText(random, 1 + random.nextInt(4));
+            ByteBuffer haystack = utf8(text);
+            for (boolean foldCase : new boolean[]{false, true}) {
+                String expectedIn = foldCase ? text.toLowerCase(Locale.ROOT) : text;
+                String expectedNeedle = foldCase ? needle.toLowerCase(Locale.ROOT) : needle;
+                assertEquals(text + " / " + needle, expectedIn.indexOf(expectedNeedle),
+                        find(haystack, 0, needle, foldCase));
+            }
+        }
+    }
+
+    @Test
+    public void isBinary_looksForNulInTheFirst8000Bytes() {
+        byte[] bytes = new byte[10_000];
+        Arrays.fill(bytes, (byte) 'a');
+        assertFalse(ProjectSearch.isBinary(ByteBuffer.wrap(bytes)));
+        assertFalse(ProjectSearch.isBinary(ByteBuffer.allocate(0)));
+
+        bytes[7999] = 0;
+        assertTrue(ProjectSearch.isBinary(ByteBuffer.wrap(bytes)));
+        bytes[7999] = 'a';
+        bytes[8000] = 0;
+        assertFalse(ProjectSearch.isBinary(ByteBuffer.wrap(bytes)));
+
+        ByteBuffer limited = ByteBuffer.wrap(new byte[]{'a', 'b', 0});
+        limited.limit(2);
+        assertFalse(ProjectSearch.isBinary(limited));
+    }
+
+    @Test
+    public void run_findsLiteralAndRegexMatchesAndSkipsBinaryFiles() throws IOException {
+        write("src/Main.java", "class Main {\n    String greeting = \"Hello\";\r\n    // hello again, HELLO\n}\n");
+        write("src/Other.java", "class Other {}\n");
+        write("data.bin", "hello\0binary");
+        write(".git/config", "hello\n");
+
+        List<String> literal = search(new ProjectSearch.Query("hello", false, false));
+        assertEquals(Arrays.asList(
+                "src/Main.java:2:23:5", "src/Main.java:3:20:5", "src/Main.java:3:7:5"), literal);
+
+        assertEquals(Arrays.asList("src/Main.java:3:7:5"),
+                search(new ProjectSearch.Query("hello", false, true)));
+        assertEquals(Arrays.asList("src/Main.java:1:0:10", "src/Other.java:1:0:11"),
+                search(new ProjectSearch.Query("class \\w+", true, true)));
+        assertEquals(Arrays.asList("src/Main.java:2:4:6"),
+                search(new ProjectSearch.Query("String\\b", true, true)));
+    }
+
+    private List<String> search(ProjectSearch.Query query) {
+        List<String> found = new ArrayList<>();
+        int[] finished = {-1};
+        ProjectSearch search = new ProjectSearch(folder.getRoot(), null, query, ProjectSearch.DEFAULT_MAX_RESULTS,
+                Runnable::run, new ProjectSearch.Listener() {
+            @Override
+            public void onMatches(List<ProjectSearch.Match> matches) {
+                synchronized (found) {
+                    for (ProjectSearch.Match match : matches) {
+                        found.add(match.path + ":" + match.line + ":" + match.column + ":" + match.length);
+                    }
+                }
+            }
+
+            @Override
+            public void onFinished(int filesSearched, int matchCount, boolean cancelled) {
+                finished[0] = matchCount;
+                assertFalse(cancelled);
+            }
+        });
+        search.run();
+        assertEquals(found.size(), finished[0]);
+        found.sort(null);
+        return found;
+    }
+
+    private static int find(ByteBuffer haystack, int from, String needle, boolean foldCase) {
+        byte[] bytes = needle.getBytes(StandardCharsets.UTF_8);
+        if (foldCase) {
+            bytes = needle.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        }
+        return ProjectSearch.indexOf(haystack, from, bytes, ProjectSearch.shiftTable(bytes, foldCase), foldCase);
+    }
+
+    private static String randomText(Random random, int length) {
+        String alphabet = "abAB-";
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
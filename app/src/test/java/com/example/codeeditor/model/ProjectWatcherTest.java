@@ -0,0 +1,217 @@
+package com.example.codeeditor.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link ProjectWatcher} with the real {@link WatchServiceBackend}. Events of one
+ * change may land in two windows, so every check merges batches until it is satisfied.
+ */
+public class ProjectWatcherTest {
+
+    private static final long WINDOW_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<ProjectWatcher.Batch> batches = new LinkedBlockingQueue<>();
+    private File root;
+    private ProjectWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.getRoot();
+        write("src/Main.java", "class Main {}\n");
+        write("README.md", "readme\n");
+        write(".git/HEAD", "ref: refs/heads/main\n");
+    }
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void createModifyAndDelete_areReportedInBatches() throws Exception {
+        start(null, ProjectWatcher.DEFAULT_MAX_WATCHES, 2);
+
+        write("src/New.java", "class New {}\n");
+        ProjectWatcher.Batch batch = await(b -> b.created.contains("src/New.java"));
+        assertTrue(batch.changedDirectories().contains("src"));
+
+        write("README.md", "changed\n");
+        await(b -> b.modified.contains("README.md"));
+
+        assertTrue(new File(root, "src/Main.java").delete());
+        batch = await(b -> b.deleted.contains("src/Main.java"));
+        assertFalse(batch.modified.contains("src/Main.java"));
+    }
+
+    @Test
+    public void shortLivedFile_isNotReported() throws Exception {
+        start(null, ProjectWatcher.DEFAULT_MAX_WATCHES, 2);
+
+        write("src/tmp.swp", "x");
+        assertTrue(new File(root, "src/tmp.swp").delete());
+        write("src/marker.txt", "done\n");
+        ProjectWatcher.Batch batch = await(b -> b.created.contains("src/marker.txt"));
+
+        assertFalse(batch.created.contains("src/tmp.swp"));
+        assertFalse(batch.deleted.contains("src/tmp.swp"));
+    }
+
+    @Test
+    public void newDirectory_isWatchedAndRescanned() throws Exception {
+        start(null, ProjectWatcher.DEFAULT_MAX_WATCHES, 2);
+
+        assertTrue(new File(root, "lib/inner").mkdirs());
+        ProjectWatcher.Batch batch = await(b -> b.rescanned.contains("lib/inner"));
+        assertTrue(batch.created.contains("lib"));
+        assertTrue(batch.rescanned.contains("lib"));
+        assertEquals(4, watcher.watchCount());
+
+        write("lib/inner/util.py", "pass\n");
+        await(b -> b.created.contains("lib/inner/util.py"));
+
+        deleteTree(new File(root, "lib"));
+        await(b -> b.deleted.contains("lib"));
+        awaitWatchCount(2);
+    }
+
+    @Test
+    public void ignoreRuleChange_isFlaggedAndAppliesToLaterEvents() throws Exception {
+        start(IgnoreMatcher.forRoot(root), ProjectWatcher.DEFAULT_MAX_WATCHES, 2);
+
+        write(".gitignore", "build/\n*.log\n");
+        ProjectWatcher.Batch batch = await(b -> b.ignoreRulesChanged);
+        assertTrue(batch.created.contains(".gitignore") || batch.modified.contains(".gitignore"));
+        settle();
+
+        assertTrue(new File(root, "build").mkdir());
+        write("src/debug.log", "noise\n");
+        write("src/Kept.java", "class Kept {}\n");
+        batch = await(b -> b.created.contains("src/Kept.java"));
+
+        assertFalse(batch.created.contains("build"));
+        assertFalse(batch.created.contains("src/debug.log"));
+        assertFalse(batch.ignoreRulesChanged);
+        assertEquals(2, watcher.watchCount());
+    }
+
+    @Test
+    public void ignoredAndGitDirectories_areNotWatched() throws Exception {
+        write(".gitignore", "out/\n");
+        assertTrue(new File(root, "out/classes").mkdirs());
+        start(IgnoreMatcher.forRoot(root), ProjectWatcher.DEFAULT_MAX_WATCHES, 2);
+
+        assertFalse(watcher.isCapReached());
+    }
+
+    @Test
+    public void cap_leavesDeepDirectoriesUnwatched() throws Exception {
+        assertTrue(new File(root, "a/b/c").mkdirs());
+        start(null, 3, 3);
+
+        assertTrue(watcher.isCapReached());
+
+        // The shallow directories are the ones watched.
+        write("a/shallow.txt", "x");
+        await(b -> b.created.contains("a/shallow.txt"));
+    }
+
+    @Test
+    public void cap_isLiftedOnceDeletionsMakeRoom() throws Exception {
+        assertTrue(new File(root, "a/b/c").mkdirs());
+        start(null, 4, 4);
+        assertTrue(watcher.isCapReached());
+
+        deleteTree(new File(root, "src"));
+        ProjectWatcher.Batch batch = await(b -> b.rescanned.contains("a/b/c"));
+        assertTrue(batch.deleted.contains("src"));
+        assertFalse(watcher.isCapReached());
+        assertEquals(4, watcher.watchCount());
+
+        write("a/b/c/deep.txt", "x");
+        await(b -> b.created.contains("a/b/c/deep.txt"));
+    }
+
+    private void start(IgnoreMatcher ignoreMatcher, int maxWatches, int expectedWatches) throws Exception {
+        watcher = new ProjectWatcher(root, ignoreMatcher, new WatchServiceBackend(), WINDOW_MILLIS,
+                maxWatches, Runnable::run, batches::add);
+        watcher.start();
+        awaitWatchCount(expectedWatches);
+        // Nothing may be reported for the tree as it was.
+        assertNull(batches.poll(WINDOW_MILLIS * 4, TimeUnit.MILLISECONDS));
+        assertEquals(expectedWatches, watcher.watchCount());
+    }
+
+    /**
+     * Drops batches until a few windows pass without one.
+     */
+    private void settle() throws InterruptedException {
+        while (batches.poll(WINDOW_MILLIS * 4, TimeUnit.MILLISECONDS) != null) {
+            // Late events of the previous change.
+        }
+    }
+
+    private void awaitWatchCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (watcher.watchCount() != expected) {
+            assertTrue("watch count " + watcher.watchCount() + ", expected " + expected,
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Merges batches until the merged one satisfies the condition.
+     */
+    private ProjectWatcher.Batch await(Predicate<ProjectWatcher.Batch> condition) throws InterruptedException {
+        ProjectWatcher.Batch merged = new ProjectWatcher.Batch();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.test(merged)) {
+            long remaining = deadline - System.currentTimeMillis();
+            ProjectWatcher.Batch batch = remaining > 0 ? batches.poll(remaining, TimeUnit.MILLISECONDS) : null;
+            assertNotNull("no matching batch in time", batch);
+            merged.created.addAll(batch.created);
+            merged.deleted.addAll(batch.deleted);
+            merged.modified.addAll(batch.modified);
+            merged.rescanned.addAll(batch.rescanned);
+            merged.ignoreRulesChanged |= batch.ignoreRulesChanged;
+        }
+        return merged;
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+}
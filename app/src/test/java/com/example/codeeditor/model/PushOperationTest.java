@@ -0,0 +1,184 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.URIish;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PushOperationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File remote;
+    private File clone;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.newFolder("push");
+        remote = new File(root, "remote.git");
+        clone = new File(root, "clone");
+        Git.init().setBare(true).setDirectory(remote).setInitialBranch("main").call().close();
+
+        File seed = new File(root, "seed");
+        try (Git git = Git.init().setDirectory(seed).setInitialBranch("main").call()) {
+            commit(git, "README.md", "seed", "initial");
+            git.remoteAdd().setName("origin").setUri(new URIish(remote.toURI().toURL())).call();
+            git.push().setRemote("origin").add("main").call();
+        }
+        Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(clone).call().close();
+    }
+
+    @Test
+    public void aheadBehind_countsFromTrackingRefs() throws Exception {
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+            commit(git, "b.txt", "b", "second");
+        }
+
+        PushOperation.AheadBehind aheadBehind = PushOperation.aheadBehind(clone);
+
+        assertTrue(aheadBehind.hasUpstream());
+        assertEquals("origin/main", aheadBehind.upstream);
+        assertEquals(2, aheadBehind.ahead);
+        assertEquals(0, aheadBehind.behind);
+    }
+
+    @Test
+    public void push_updatesRemoteAndReportsProgress() throws Exception {
+        ObjectId head;
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+            head = git.getRepository().resolve("HEAD");
+        }
+        List<String> tasks = new ArrayList<>();
+        PushOperation.Monitor monitor = new PushOperation.Monitor(new PushOperation.Listener() {
+            @Override
+            public void onProgress(String task, int done, int total) {
+                tasks.add(task);
+            }
+        });
+
+        String result = PushOperation.push(clone, null, monitor);
+
+        assertEquals(PushOperation.SUCCESS, result);
+        assertFalse(tasks.isEmpty());
+        assertEquals(head, remoteHead());
+        assertEquals(0, PushOperation.aheadBehind(clone).ahead);
+    }
+
+    @Test
+    public void push_newBranchWithoutUpstream() throws Exception {
+        try (Git git = Git.open(clone)) {
+            git.checkout().setCreateBranch(true).setName("feature").call();
+            commit(git, "f.txt", "f", "feature");
+        }
+
+        PushOperation.AheadBehind before = PushOperation.aheadBehind(clone);
+        assertFalse(before.hasUpstream());
+
+        assertEquals(PushOperation.SUCCESS, PushOperation.push(clone, null, null));
+
+        PushOperation.AheadBehind after = PushOperation.aheadBehind(clone);
+        assertEquals("origin/feature", after.upstream);
+        assertEquals(0, after.ahead);
+        try (Repository repository = Git.open(remote).getRepository()) {
+            assertNotNull(repository.exactRef("refs/heads/feature"));
+        }
+    }
+
+    @Test
+    public void push_rejectedWhenBehind() throws Exception {
+        File other = new File(root, "other");
+        try (Git git = Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(other).call()) {
+            commit(git, "other.txt", "other", "other");
+            git.push().call();
+        }
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+            git.fetch().call();
+        }
+
+        PushOperation.AheadBehind aheadBehind = PushOperation.aheadBehind(clone);
+        assertEquals(1, aheadBehind.ahead);
+        assertEquals(1, aheadBehind.behind);
+        assertTrue(PushOperation.push(clone, null, null).startsWith("Push rejected"));
+    }
+
+    @Test
+    public void push_cancelledLeavesRemoteUntouched() throws Exception {
+        ObjectId before = remoteHead();
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+        }
+        PushOperation.Monitor monitor = new PushOperation.Monitor(null);
+        monitor.cancel();
+
+        assertEquals(PushOperation.CANCELLED, PushOperation.push(clone, null, monitor));
+        assertEquals(before, remoteHead());
+    }
+
+    @Test
+    public void push_cancelAfterJGitFinished_stillReportsSuccess() throws Exception {
+        ObjectId head;
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+            head = git.getRepository().resolve("HEAD");
+        }
+        PushOperation.Monitor monitor = new PushOperation.Monitor(null) {
+            @Override
+            void pushReturned() {
+                // The user taps Cancel just as JGit finishes.
+                cancel();
+            }
+        };
+
+        assertEquals(PushOperation.SUCCESS, PushOperation.push(clone, null, monitor));
+        assertEquals(head, remoteHead());
+    }
+
+    @Test
+    public void push_detachedHead_saysSoInsteadOfPushing() throws Exception {
+        ObjectId before = remoteHead();
+        try (Git git = Git.open(clone)) {
+            commit(git, "a.txt", "a", "first");
+            git.checkout().setName(git.getRepository().resolve("HEAD").name()).call();
+        }
+
+        try {
+            PushOperation.aheadBehind(clone);
+            fail("Expected a detached HEAD to be refused");
+        } catch (IOException expected) {
+            assertEquals(PushOperation.DETACHED_HEAD, expected.getMessage());
+        }
+        assertEquals(PushOperation.DETACHED_HEAD, PushOperation.push(clone, null, null));
+        assertEquals(before, remoteHead());
+    }
+
+    private ObjectId remoteHead() throws Exception {
+        try (Repository repository = Git.open(remote).getRepository()) {
+            return repository.resolve("refs/heads/main");
+        }
+    }
+
+    private static void commit(Git git, String name, String content, String message) throws Exception {
+        File file = new File(git.getRepository().getWorkTree(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(name).call();
+        git.commit().setMessage(message).setAuthor("a", "a@a").setCommitter("a", "a@a").call();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RepositoryMaintenanceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File projects;
+    private File repository;
+
+    @Before
+    public void setUp() throws Exception {
+        projects = folder.newFolder("maintenance");
+        repository = new File(projects, "repo");
+        try (Git git = Git.init().setDirectory(repository).call()) {
+            for (int i = 0; i < 30; i++) {
+                File file = new File(repository, "file" + i + ".txt");
+                Files.write(file.toPath(), ("content " + i).getBytes(StandardCharsets.UTF_8));
+                git.add().addFilepattern(file.getName()).call();
+                git.commit().setMessage("commit " + i).setAuthor("a", "a@a").setCommitter("a", "a@a").call();
+            }
+        }
+    }
+
+    @Test
+    public void run_packsLooseObjects() throws IOException {
+        RepositoryMaintenance.Report report = RepositoryMaintenance.run(repository,
+                new RepositoryMaintenance.Budget(10, Long.MAX_VALUE, 60_000));
+
+        assertTrue(report.performed);
+        assertTrue(report.looseObjectsBefore >= 90);
+        assertEquals(0, report.looseObjectsAfter);
+        assertTrue(report.packedObjectsAfter >= report.looseObjectsBefore);
+    }
+
+    @Test
+    public void run_skipsBelowThreshold() throws IOException {
+        RepositoryMaintenance.Report report = RepositoryMaintenance.run(repository,
+                new RepositoryMaintenance.Budget(10_000, Long.MAX_VALUE, 60_000));
+
+        assertFalse(report.performed);
+        assertEquals(report.looseObjectsBefore, report.looseObjectsAfter);
+    }
+
+    @Test
+    public void scheduler_runsAllRepositories() throws Exception {
+        MaintenanceRunner runner = new MaintenanceRunner(new RepositoryMaintenance.Budget(10, Long.MAX_VALUE, 60_000), 60_000);
+        CountDownLatch done = new CountDownLatch(1);
+        final RepositoryMaintenance.Report[] result = new RepositoryMaintenance.Report[1];
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScheduledFuture<?> future = runner.schedule(executor, projects, 1, TimeUnit.HOURS, new MaintenanceRunner.Listener() {
+                @Override
+                public void onReport(RepositoryMaintenance.Report report) {
+                    result[0] = report;
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(File repository, Exception e) {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            future.cancel(false);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNotNull(result[0]);
+        assertEquals(0, result[0].looseObjectsAfter);
+
+        List<RepositoryMaintenance.Report> second = runner.runAll(projects, null);
+        assertEquals(1, second.size());
+        assertFalse(second.get(0).performed);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.codeeditor.model;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SparseCheckoutTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.getRoot();
+        git = Git.init().setDirectory(root).setInitialBranch("main").call();
+        write("README.md", "readme\n");
+        write("src/main/a.txt", "a\n");
+        write("src/b.txt", "b\n");
+        write("docs/guide.md", "guide\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("initial").setAuthor("a", "a@a").setCommitter("a", "a@a").call();
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void parsePatterns_normalizesAndDeduplicates() {
+        assertEquals(Arrays.asList("src", "docs/api", "README.md"),
+                SparseCheckout.parsePatterns(" /src/ ,docs/api//\n\nREADME.md,src\n,"));
+        assertTrue(SparseCheckout.parsePatterns(null).isEmpty());
+        assertTrue(SparseCheckout.parsePatterns(" / , ").isEmpty());
+    }
+
+    @Test
+    public void parsePatterns_skipsCommentsAndRejectsWildcards() {
+        assertEquals(Collections.singletonList("src"), SparseCheckout.parsePatterns("# generated\n/src/\n"));
+        for (String text : Arrays.asList("/*", "!/*/", "src/*.java", "docs/?", "[ab]")) {
+            try {
+                SparseCheckout.parsePatterns(text);
+                fail("Expected " + text + " to be rejected");
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().contains(text));
+            }
+        }
+    }
+
+    @Test
+    public void readPatterns_rejectsConeModeFile() throws Exception {
+        // What "git sparse-checkout set src" writes in cone mode; read literally, "/*" and
+        // "!/*/" would not match README.md and apply() would delete it.
+        write(".git/info/sparse-checkout", "/*\n!/*/\n/src/\n");
+        try {
+            SparseCheckout.readPatterns(root);
+            fail("Expected the cone mode file to be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("sparse-checkout"));
+        }
+        assertTrue(new File(root, "README.md").isFile());
+    }
+
+    @Test
+    public void matches_acceptsThePathAndEverythingBelowIt() {
+        List<String> patterns = Arrays.asList("src/main", "README.md");
+
+        assertTrue(SparseCheckout.matches(patterns, "src/main"));
+        assertTrue(SparseCheckout.matches(patterns, "src/main/a.txt"));
+        assertTrue(SparseCheckout.matches(patterns, "README.md"));
+        assertFalse(SparseCheckout.matches(patterns, "src"));
+        assertFalse(SparseCheckout.matches(patterns, "src/mainline.txt"));
+        assertFalse(SparseCheckout.matches(patterns, "README.md.orig"));
+        assertTrue(SparseCheckout.matches(Collections.emptyList(), "anything"));
+    }
+
+    @Test
+    public void writePatterns_slashesDirectoriesOnly() throws Exception {
+        write("notes.txt", "untracked\n");
+        SparseCheckout.writePatterns(root, Arrays.asList("src", "README.md", "notes.txt", "future"));
+
+        assertEquals("/src/\n/README.md\n/notes.txt\n/future/\n", read(".git/info/sparse-checkout"));
+        assertTrue(git.getRepository().getConfig().getBoolean("core", "sparseCheckout", false));
+        assertEquals(Arrays.asList("src", "README.md", "notes.txt", "future"), SparseCheckout.readPatterns(root));
+
+        SparseCheckout.writePatterns(root, Collections.emptyList());
+        assertFalse(new File(root, ".git/info/sparse-checkout").exists());
+        git.getRepository().getConfig().load();
+        assertFalse(git.getRepository().getConfig().getBoolean("core", "sparseCheckout", false));
+        assertTrue(SparseCheckout.readPatterns(root).isEmpty());
+    }
+
+    @Test
+    public void apply_removesAndMaterializesToMatchThePatterns() throws Exception {
+        List<String> narrow = Arrays.asList("src/main", "README.md");
+        SparseCheckout.Result first = SparseCheckout.apply(root, narrow);
+
+        assertEquals(0, first.materialized);
+        assertEquals(2, first.removed);
+        assertTrue(first.keptModified.isEmpty());
+        assertFalse(new File(root, "docs").exists());
+        assertFalse(new File(root, "src/b.txt").exists());
+        assertTrue(new File(root, "src/main/a.txt").isFile());
+        assertTrue(SparseCheckout.status(git, narrow).call().isClean());
+
+        write("src/main/a.txt", "edited\n");
+        SparseCheckout.Result second = SparseCheckout.apply(root, Collections.singletonList("docs"));
+
+        assertEquals(1, second.materialized);
+        assertEquals("guide\n", read("docs/guide.md"));
+        assertEquals(Collections.singletonList("src/main/a.txt"), second.keptModified);
+        assertEquals("edited\n", read("src/main/a.txt"));
+        assertFalse(new File(root, "README.md").exists());
+        // The index still has every entry.
+        assertEquals(4, git.getRepository().readDirCache().getEntryCount());
+    }
+
+    @Test
+    public void apply_checksOutSymlinksAsLinks() throws Exception {
+        Path link = root.toPath().resolve("link.txt");
+        try {
+            Files.createSymbolicLink(link, Paths.get("src/b.txt"));
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+        git.add().addFilepattern("link.txt").call();
+        git.commit().setMessage("link").setAuthor("a", "a@a").setCommitter("a", "a@a").call();
+
+        SparseCheckout.apply(root, Collections.singletonList("README.md"));
+        assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+
+        // src/b.txt stays out, so the link comes back dangling.
+        SparseCheckout.Result result = SparseCheckout.apply(root, Arrays.asList("README.md", "link.txt"));
+        assertEquals(1, result.materialized);
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(Paths.get("src/b.txt"), Files.readSymbolicLink(link));
+        assertTrue(SparseCheckout.status(git, Arrays.asList("README.md", "link.txt")).call().isClean());
+
+        result = SparseCheckout.apply(root, Collections.singletonList("README.md"));
+        assertEquals(1, result.removed);
+        assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(root, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SymbolExtractorTest {
+
+    @Test
+    public void java_skipsCommentsStringsAndLambdas() {
+        List<String> symbols = describe("src/Outer.java",
+                "package x;",
+                "/* class Fake { void hidden() {} } */",
+                "public class Outer<T extends Comparable<T>> {",
+                "    // void commented() {}",
+                "    private String s = \"class NotAType { void no() {} }\";",
+                "    private char c = '{';",
+                "    interface Listener { void onEvent(int x); }",
+                "    enum Mode { A, B; int weight() { return 1; } }",
+                "    static class Inner {",
+                "        Inner(int x) { this.x = x; }",
+                "    }",
+                "    public <R> R map(java.util.function.Function<T, R> f) {",
+                "        Runnable r = () -> { helper(); };",
+                "        new Thread(new Runnable() { public void run() {} }).start();",
+                "        if (f != null) { return f.apply(null); }",
+                "        return null;",
+                "    }",
+                "    @Override public String toString() { return \"\"\"",
+                "        text block void fake() {}",
+                "        \"\"\"; }",
+                "}");
+
+        assertEquals(Arrays.asList(
+                "CLASS Outer 3:13 0",
+                "INTERFACE Outer.Listener 7:14 1",
+                "METHOD Listener.onEvent 7:30 2",
+                "ENUM Outer.Mode 8:9 1",
+                "METHOD Mode.weight 8:26 2",
+                "CLASS Outer.Inner 9:17 1",
+                "METHOD Inner.Inner 10:8 2",
+                "METHOD Outer.map 12:17 1",
+                "METHOD Outer.toString 18:28 1"), symbols);
+    }
+
+    @Test
+    public void kotlin_handlesObjectsExtensionsAndTemplates() {
+        List<String> symbols = describe("Shapes.kt",
+                "package y",
+                "/* fun hidden() = 1 */",
+                "data class Point(val x: Int, val y: Int) {",
+                "    fun length(): Double = Math.sqrt((x * x + y * y).toDouble())",
+                "    companion object { fun origin() = Point(0, 0) }",
+                "}",
+                "object Registry { fun register(name: String) {} }",
+                "interface Shape { fun area(): Double }",
+                "enum class Color { RED, GREEN }",
+                "fun <T> List<T>.second(): T = this[1]",
+                "fun main() {",
+                "    val s = \"fun notAFunction() ${Point(1, \"}\")} \"",
+                "    val f = { x: Int -> x + 1 }",
+                "    fun local() {}",
+                "}",
+                "fun `quoted name`() {}");
+
+        assertEquals(Arrays.asList(
+                "CLASS Point 3:11 0",
+                "METHOD Point.length 4:8 1",
+                "METHOD Point.origin 5:27 1",
+                "OBJECT Registry 7:7 0",
+                "METHOD Registry.register 7:22 1",
+                "INTERFACE Shape 8:10 0",
+                "METHOD Shape.area 8:22 1",
+                "ENUM Color 9:11 0",
+                "FUNCTION second 10:16 0",
+                "FUNCTION main 11:4 0",
+                "FUNCTION main.local 14:8 1",
+                "FUNCTION quoted name 16:4 0"), symbols);
+    }
+
+    @Test
+    public void cpp_handlesNamespacesOutOfClassDefinitionsAndPreprocessor() {
+        List<String> symbols = describe("widget.cpp",
+                "#include <vector>",
+                "#define MACRO(x) void macro_fn() { \\",
+                "    }",
+                "namespace app {",
+                "namespace detail { int helper(int a) { return a; } }",
+                "struct Point { int x; int y; };",
+                "typedef struct { int v; } Value;",
+                "class Widget : public Base {",
+                "public:",
+                "    Widget();",
+                "    void draw() const override { auto f = [](int x) { return x; }; }",
+                "    bool operator==(const Widget& o) const { return true; }",
+                "};",
+                "Widget::Widget() : Base(), size(0) {}",
+                "static const char* s = \"void str() {}\"; // void comment() {}",
+                "const char* raw = R\"x(int fake() {})x\";",
+                "/* int block() {} */",
+                "template <typename T> T max(T a, T b) { return a > b ? a : b; }",
+                "enum class Mode { A, B };",
+                "}",
+                "int main(int argc, char** argv) { if (argc) { return 0; } return 1; }");
+
+        assertEquals(Arrays.asList(
+                "NAMESPACE app 4:10 0",
+                "NAMESPACE app.detail 5:10 1",
+                "FUNCTION detail.helper 5:23 2",
+                "STRUCT app.Point 6:7 1",
+                "STRUCT app.Value 7:26 1",
+                "CLASS app.Widget 8:6 1",
+                "METHOD Widget.draw 11:9 2",
+                "METHOD Widget.operator== 12:9 2",
+                "METHOD Widget.Widget 14:8 1",
+                "FUNCTION app.max 18:24 1",
+                "ENUM app.Mode 19:11 1",
+                "FUNCTION main 21:4 0"), symbols);
+    }
+
+    @Test
+    public void python_nestsByIndentationAndSkipsStrings() {
+        List<String> symbols = describe("tool.py",
+                "import os",
+                "# def commented(): pass",
+                "class Base:",
+                "    \"\"\"",
+                "    def in_docstring(self): pass",
+                "    \"\"\"",
+                "    def method(self):",
+                "        def inner():",
+                "            pass",
+                "        return inner",
+                "",
+                "    async def fetch(self):",
+                "        s = 'def in_string(): pass'",
+                "",
+                "def top(a,",
+                "        b):",
+                "    class Local:",
+                "        def m(self): pass",
+                "    return Local",
+                "lam = lambda x: x");
+
+        assertEquals(Arrays.asList(
+                "CLASS Base 3:6 0",
+                "METHOD Base.method 7:8 1",
+                "FUNCTION method.inner 8:12 2",
+                "METHOD Base.fetch 12:14 1",
+                "FUNCTION top 15:4 0",
+                "CLASS top.Local 17:10 1",
+                "METHOD Local.m 18:12 2"), symbols);
+    }
+
+    @Test
+    public void python_anyDedentedStatementClosesTheBlock() {
+        List<String> symbols = describe("debug.py",
+                "def outer():",
+                "    pass",
+                "if DEBUG:",
+                "    def helper(): pass",
+                "class A:",
+                "\tdef tabbed(self):",
+                "\t\tx = call(1,",
+                "  2)",
+                "\t\tdef nested(): pass",
+                "    # a comment does not end the class",
+                "        ",
+                "        def still_in_a(self): \\",
+                "pass",
+                "\tdef after_continuation(self): pass");
+
+        assertEquals(Arrays.asList(
+                "FUNCTION outer 1:4 0",
+                "FUNCTION helper 4:8 0",
+                "CLASS A 5:6 0",
+                "METHOD A.tabbed 6:5 1",
+                "FUNCTION tabbed.nested 9:6 2",
+                "METHOD A.still_in_a 12:12 1",
+                "METHOD A.after_continuation 14:5 1"), symbols);
+    }
+
+    @Test
+    public void unsupportedFiles_haveNoSymbols() {
+        assertFalse(SymbolExtractor.isSupported("notes.txt"));
+        assertFalse(SymbolExtractor.isSupported("dir.java/README"));
+        assertTrue(SymbolExtractor.isSupported("a/b/Main.KT"));
+        assertTrue(SymbolExtractor.extract("notes.txt", "class A {}").isEmpty());
+    }
+
+    private static List<String> describe(String path, String... lines) {
+        List<String> described = new ArrayList<>();
+        for (Symbol symbol : SymbolExtractor.extract(path, String.join("\n", lines))) {
+            assertEquals(path, symbol.path);
+            described.add(symbol.kind + " " + symbol.qualifiedName() + " " + symbol.line + ":" + symbol.column
+                    + " " + symbol.depth);
+        }
+        return described;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SymbolIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File project;
+    private File indexDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        project = folder.newFolder("project");
+        indexDirectory = new File(folder.getRoot(), "index");
+        write("src/Main.java", "class Main {\n    static class Inner { void run() {} }\n    void main() {}\n}\n");
+        write("lib/util.py", "def helper():\n    pass\n\nclass Tool:\n    def use(self): pass\n");
+        write("native/engine.cpp", "namespace engine { int start(int argc) { return argc; } }\n");
+        write("README.md", "class NotSource {}\n");
+    }
+
+    @Test
+    public void saveAndLoad_roundTripsEverySymbol() throws IOException {
+        SymbolIndex built = new SymbolIndex(indexDirectory, project, null);
+        built.open();
+        assertEquals(3, built.fileCount());
+        assertEquals(9, built.size());
+        assertTrue(new File(indexDirectory, SymbolIndex.FILE_NAME).isFile());
+
+        SymbolIndex loaded = new SymbolIndex(indexDirectory, project, null);
+        assertTrue(loaded.load());
+
+        assertEquals(built.fileCount(), loaded.fileCount());
+        for (String path : new String[]{"src/Main.java", "lib/util.py", "native/engine.cpp"}) {
+            assertSameSymbols(built.symbolsIn(path), loaded.symbolsIn(path));
+        }
+        assertSameSymbols(built.search("run", 10), loaded.search("run", 10));
+        assertEquals("Inner.run", loaded.search("run", 10).get(0).qualifiedName());
+        assertEquals("engine.start", loaded.search("start", 10).get(0).qualifiedName());
+    }
+
+    @Test
+    public void reopen_rereadsOnlyChangedFilesAndDropsDeletedOnes() throws IOException {
+        new SymbolIndex(indexDirectory, project, null).open();
+        write("lib/util.py", "def renamed():\n    pass\n");
+        assertTrue(new File(project, "native/engine.cpp").delete());
+
+        SymbolIndex reopened = new SymbolIndex(indexDirectory, project, null);
+        reopened.open();
+
+        assertEquals(2, reopened.fileCount());
+        assertEquals(1, reopened.symbolsIn("lib/util.py").size());
+        assertEquals("renamed", reopened.symbolsIn("lib/util.py").get(0).name);
+        assertTrue(reopened.symbolsIn("native/engine.cpp").isEmpty());
+        assertTrue(reopened.search("start", 10).isEmpty());
+    }
+
+    @Test
+    public void damagedTable_isRebuiltFromTheTree() throws IOException {
+        new SymbolIndex(indexDirectory, project, null).open();
+        File table = new File(indexDirectory, SymbolIndex.FILE_NAME);
+        byte[] bytes = Files.readAllBytes(table.toPath());
+        Files.write(table.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+        SymbolIndex damaged = new SymbolIndex(indexDirectory, project, null);
+        assertFalse(damaged.load());
+        assertEquals(0, damaged.fileCount());
+
+        damaged.open();
+        assertEquals(9, damaged.size());
+        assertTrue(new SymbolIndex(indexDirectory, project, null).load());
+    }
+
+    private static void assertSameSymbols(List<Symbol> expected, List<Symbol> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Symbol a = expected.get(i);
+            Symbol b = actual.get(i);
+            assertEquals(a.toString(), b.toString());
+            assertEquals(a.kind, b.kind);
+            assertEquals(a.container, b.container);
+            assertEquals(a.column, b.column);
+            assertEquals(a.depth, b.depth);
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(project, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextFinderTest {
+
+    private static final String TEXT = "let total = 0; // Total\nfor x in items: total += x\nprint(TOTAL)\n";
+
+    @Test
+    public void count_matchesAcrossChunkBoundariesAreCountedOnce() {
+        String text = repeat("abcab", 200);
+        for (TextFinder finder : new TextFinder[]{
+                new TextFinder("cab", false, true),
+                new TextFinder("c[a-z]b", true, true),
+                new TextFinder("CAB", false, false)}) {
+            for (int chunk : new int[]{1, 2, 3, 7, 64, 10_000}) {
+                TextFinder.Count count = new TextFinder.Count();
+                int steps = 0;
+                while (!finder.count(text, count, chunk)) {
+                    steps++;
+                }
+                assertEquals("chunk " + chunk, 200, count.matches);
+                assertEquals(chunk >= text.length(), steps == 0);
+            }
+        }
+    }
+
+    @Test
+    public void count_regexWithoutMatchesFinishesChunkByChunk() {
+        TextFinder finder = new TextFinder("x+", true, true);
+        TextFinder.Count count = new TextFinder.Count();
+        String text = repeat("ab", 50);
+
+        assertFalse(finder.count(text, count, 30));
+        assertFalse(finder.count(text, count, 30));
+        assertFalse(finder.count(text, count, 30));
+        assertTrue(finder.count(text, count, 30));
+        assertEquals(0, count.matches);
+    }
+
+    @Test
+    public void findAll_literalStopsNearTheRangeButKeepsMatchesCrossingIt() {
+        TextFinder finder = new TextFinder("total", false, false);
+
+        assertArrayEquals(new int[]{4, 9, 18, 23}, finder.findAll(TEXT, 0, 20, 10));
+        // A match that starts just before the end of the range is still whole.
+        assertArrayEquals(new int[]{4, 9}, finder.findAll(TEXT, 0, 5, 10));
+        assertArrayEquals(new int[0], finder.findAll(TEXT, 5, 17, 10));
+        assertArrayEquals(new int[]{4, 9, 18, 23}, finder.findAll(TEXT, 0, TEXT.length(), 2));
+    }
+
+    @Test
+    public void findAll_regexMatchesNeedingTextPastTheRange() {
+        String text = "xxabcxx";
+        // Inside [0, 4) only "b" would match; the whole text has "abc" starting at 2.
+        assertArrayEquals(new int[]{2, 5}, new TextFinder("abc|b", true, true).findAll(text, 0, 4, 10));
+        // Greedy matches run to where they would without a range.
+        assertArrayEquals(new int[]{2, 7}, new TextFinder("a.*", true, true).findAll(text, 0, 3, 10));
+        // Lookarounds and word boundaries see past the range.
+        assertArrayEquals(new int[0], new TextFinder("ab(?!c)", true, true).findAll(text, 0, 4, 10));
+        assertArrayEquals(new int[0], new TextFinder("\\bxx\\b", true, true).findAll("xx yxxy", 4, 6, 10));
+        // Anchors only match at real line ends.
+        assertArrayEquals(new int[0], new TextFinder("a$", true, true).findAll("ab", 0, 1, 10));
+    }
+
+    @Test
+    public void findAll_readsNoFurtherThanTheRangeNeeds() {
+        String text = repeat("-", 100) + "needle" + repeat("-", 10_000);
+        for (TextFinder finder : new TextFinder[]{
+                new TextFinder("needle", false, true), new TextFinder("ne+dle", true, true)}) {
+            TrackingText tracking = new TrackingText(text);
+            assertArrayEquals(new int[0], finder.findAll(tracking, 0, 50, 10));
+            assertTrue(tracking.furthest < 60);
+
+            tracking = new TrackingText(text);
+            assertArrayEquals(new int[]{100, 106, 10_106, 10_112}, finder.findAll(
+                    new TrackingText(text + "needle"), 0, text.length() + 1, 10));
+            assertArrayEquals(new int[]{100, 106}, finder.findAll(tracking, 0, 101, 10));
+            assertTrue(tracking.furthest < 200);
+        }
+    }
+
+    @Test
+    public void replaceAll_expandsGroupsInRegexReplacements() {
+        TextFinder finder = new TextFinder("(?<name>[a-z]+)=(\\d+)", true, true);
+        TextFinder.Replacement replacement = finder.replaceAll("a=1, bc=22;", "$2:${name}\\$$10");
+
+        assertEquals(0, replacement.start);
+        assertEquals(10, replacement.end);
+        assertEquals(2, replacement.count);
+        // $10 is group 1 followed by a literal 0, since there is no group 10.
+        assertEquals("1:a$a0, 22:bc$bc0", replacement.text.toString());
+    }
+
+    @Test
+    public void replaceAll_literalReplacementIsInsertedAsIs() {
+        TextFinder finder = new TextFinder("total", false, false);
+        TextFinder.Replacement replacement = finder.replaceAll(TEXT, "$1");
+
+        assertEquals(4, replacement.start);
+        assertEquals(4, replacement.count);
+        assertEquals(TEXT.replaceAll("(?i)total", "\\$1"),
+                TEXT.substring(0, replacement.start) + replacement.text + TEXT.substring(replacement.end));
+        assertNull(new TextFinder("missing", false, true).replaceAll(TEXT, "x"));
+    }
+
+    @Test
+    public void replacementFor_expandsTheGivenMatch() {
+        TextFinder finder = new TextFinder("(\\w)(\\w+)", true, true);
+
+        assertEquals("ott", finder.replacementFor("let total", 4, 7, "$2$1"));
+        assertEquals("$2$1", new TextFinder("tot", false, true).replacementFor("let total", 4, 7, "$2$1"));
+    }
+
+    @Test
+    public void next_wrapsAroundTheEnds() {
+        TextFinder finder = new TextFinder("total", false, true);
+        int last = TEXT.lastIndexOf("total");
+
+        assertArrayEquals(new int[]{4, 9}, finder.next(TEXT, last + 1, true));
+        assertArrayEquals(new int[]{last, last + 5}, finder.next(TEXT, 4, false));
+        assertArrayEquals(new int[]{4, 9}, finder.next(TEXT, last, false));
+        assertNull(new TextFinder("nothing", false, true).next(TEXT, 3, true));
+        assertNull(new TextFinder("", false, true).next(TEXT, 3, true));
+    }
+
+    /**
+     * Remembers the furthest index read, to check that a search stays near its range.
+     */
+    private static class TrackingText implements CharSequence {
+        private final String text;
+        int furthest = -1;
+
+        TrackingText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            furthest = Math.max(furthest, index);
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            furthest = Math.max(furthest, end - 1);
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            furthest = text.length() - 1;
+            return text;
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
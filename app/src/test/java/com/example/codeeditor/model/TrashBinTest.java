@@ -0,0 +1,81 @@
+package com.example.codeeditor.model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class TrashBinTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File trash;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("trash-files");
+        trash = folder.newFolder("trash-bin");
+    }
+
+    @Test
+    public void moveToTrash_isUndoable() throws IOException {
+        write("build/out/a.o", "object");
+        File build = new File(root, "build");
+        TrashBin bin = new TrashBin(trash, 2, 0);
+
+        TrashBin.Entry entry = bin.moveToTrash(build, null);
+        assertFalse(build.exists());
+
+        assertTrue(bin.restore(entry));
+        assertEquals("object", read(new File(root, "build/out/a.o")));
+        assertTrue(bin.restore(entry));
+    }
+
+    @Test
+    public void restore_refusesToOverwrite() throws IOException {
+        write("a.txt", "old");
+        TrashBin bin = new TrashBin(trash, 2, 0);
+        TrashBin.Entry entry = bin.moveToTrash(new File(root, "a.txt"), null);
+        write("a.txt", "new");
+
+        try {
+            bin.restore(entry);
+            fail("restored over a newer file");
+        } catch (IOException expected) {
+            assertEquals("new", read(new File(root, "a.txt")));
+        }
+    }
+
+    @Test
+    public void purge_deletesTheTreeButNotLinkTargets() throws IOException {
+        write("keep/precious.txt", "keep me");
+        for (int i = 0; i < 20; i++) {
+            write("doomed/d" + i % 3 + "/f" + i + ".txt", "x");
+        }
+        File doomed = new File(root, "doomed");
+        Files.createSymbolicLink(new File(doomed, "link").toPath(), new File(root, "keep").toPath());
+
+        assertTrue(new TrashBin(trash, 4, 1).purge(doomed));
+        assertFalse(doomed.exists());
+        assertEquals("keep me", read(new File(root, "keep/precious.txt")));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
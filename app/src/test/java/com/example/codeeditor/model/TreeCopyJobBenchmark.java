@@ -0,0 +1,208 @@
+package com.example.codeeditor.model;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tree copy correctness and cancellation, plus a many-small-files copy at one worker against
+ * the pool, which runs with -Dbenchmarks=true. 5000 files by default;
+ * -Dtreecopy.benchmark.files=50000 copies more.
+ */
+public class TreeCopyJobBenchmark {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("tree-copy");
+    }
+
+    @Test
+    public void run_copiesTreeAndKeepsTimestamps() throws IOException {
+        write("src/project/a.txt", "alpha\n");
+        write("src/project/lib/b.txt", "beta\n");
+        new File(root, "src/project/empty").mkdirs();
+        long then = 1_600_000_000_000L;
+        new File(root, "src/project/lib/b.txt").setLastModified(then);
+        new File(root, "src/project/lib").setLastModified(then);
+        File destination = new File(root, "dest");
+        destination.mkdirs();
+
+        Result result = run(new File(root, "src/project"), destination, 3);
+
+        File copy = new File(destination, "project");
+        assertNull(result.error.get());
+        assertEquals(copy, result.target.get());
+        assertEquals("alpha\n", read(new File(copy, "a.txt")));
+        assertEquals("beta\n", read(new File(copy, "lib/b.txt")));
+        assertTrue(new File(copy, "empty").isDirectory());
+        assertEquals(then, new File(copy, "lib/b.txt").lastModified());
+        assertEquals(then, new File(copy, "lib").lastModified());
+        TreeCopyJob.Progress progress = result.progress.get();
+        assertEquals(2, progress.files);
+        assertEquals(2, progress.totalFiles);
+        assertEquals(11, progress.totalBytes);
+        assertEquals(1000, progress.permille());
+        assertTrue(result.reports.get() > 0);
+    }
+
+    @Test
+    public void run_copiesSymlinksAsLinks() throws IOException {
+        write("src/project/a.txt", "alpha\n");
+        write("outside/keep.txt", "keep\n");
+        Path project = root.toPath().resolve("src/project");
+        try {
+            Files.createSymbolicLink(project.resolve("link.txt"), Paths.get("a.txt"));
+            Files.createSymbolicLink(project.resolve("outside"), root.toPath().resolve("outside"));
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+        File destination = new File(root, "dest");
+        destination.mkdirs();
+
+        Result result = run(project.toFile(), destination, 2);
+
+        assertNull(result.error.get());
+        Path copy = destination.toPath().resolve("project");
+        assertTrue(Files.isSymbolicLink(copy.resolve("link.txt")));
+        assertEquals(Paths.get("a.txt"), Files.readSymbolicLink(copy.resolve("link.txt")));
+        assertTrue(Files.isSymbolicLink(copy.resolve("outside")));
+        assertEquals(root.toPath().resolve("outside"), Files.readSymbolicLink(copy.resolve("outside")));
+        TreeCopyJob.Progress progress = result.progress.get();
+        assertEquals(3, progress.files);
+        assertEquals(3, progress.totalFiles);
+        assertEquals(0, progress.skipped);
+        assertEquals(1000, progress.permille());
+    }
+
+    @Test
+    public void run_failsWithoutTouchingTheSource() throws IOException {
+        write("project/a.txt", "alpha\n");
+        File project = new File(root, "project");
+
+        Result result = run(project, new File(project, "nested"), 2);
+
+        assertNotNull(result.error.get());
+        assertFalse(new File(project, "nested").exists());
+        assertEquals("alpha\n", read(new File(project, "a.txt")));
+    }
+
+    @Test
+    public void cancel_removesThePartialCopy() throws IOException {
+        generateTree(new File(root, "src/project"), 500);
+        File destination = new File(root, "dest");
+        destination.mkdirs();
+        Result result = new Result();
+        TreeCopyJob[] job = new TreeCopyJob[1];
+        job[0] = new TreeCopyJob(new File(root, "src/project"), destination, 2, new TreeCopyJob.Listener() {
+            @Override
+            public void onProgress(TreeCopyJob.Progress progress) {
+                // The first report comes once the tree is counted, before any file is copied.
+                job[0].cancel();
+            }
+
+            @Override
+            public void onFinished(TreeCopyJob.Progress progress, File target, IOException error, boolean cancelled) {
+                result.cancelled.set(cancelled);
+                result.error.set(error);
+            }
+        });
+        job[0].run();
+
+        assertTrue(result.cancelled.get());
+        assertNull(result.error.get());
+        assertFalse(new File(destination, "project").exists());
+    }
+
+    @Test
+    public void benchmark_poolVersusOneWorker() throws IOException {
+        Benchmarks.assumeEnabled();
+        int fileCount = Integer.getInteger("treecopy.benchmark.files", 5000);
+        File source = new File(root, "source");
+        generateTree(source, fileCount);
+        File warmup = new File(root, "warmup");
+        warmup.mkdirs();
+        run(source, warmup, 1);
+
+        File single = new File(root, "single");
+        single.mkdirs();
+        long start = System.nanoTime();
+        Result singleResult = run(source, single, 1);
+        long singleMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int parallelism = TreeCopyJob.parallelismFor(root);
+        File pooled = new File(root, "pooled");
+        pooled.mkdirs();
+        start = System.nanoTime();
+        Result pooledResult = run(source, pooled, parallelism);
+        long pooledMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(fileCount, singleResult.progress.get().files);
+        assertEquals(fileCount, pooledResult.progress.get().files);
+        assertNull(pooledResult.error.get());
+        System.out.println("TreeCopyJob " + fileCount + " files: 1 worker " + singleMillis + " ms, "
+                + parallelism + " workers " + pooledMillis + " ms");
+    }
+
+    private static class Result {
+        final AtomicReference<TreeCopyJob.Progress> progress = new AtomicReference<>();
+        final AtomicReference<File> target = new AtomicReference<>();
+        final AtomicReference<IOException> error = new AtomicReference<>();
+        final AtomicReference<Boolean> cancelled = new AtomicReference<>(false);
+        final AtomicInteger reports = new AtomicInteger();
+    }
+
+    private static Result run(File source, File directory, int parallelism) {
+        Result result = new Result();
+        new TreeCopyJob(source, directory, parallelism, new TreeCopyJob.Listener() {
+            @Override
+            public void onProgress(TreeCopyJob.Progress progress) {
+                result.reports.incrementAndGet();
+            }
+
+            @Override
+            public void onFinished(TreeCopyJob.Progress progress, File target, IOException error, boolean cancelled) {
+                result.progress.set(progress);
+                result.target.set(target);
+                result.error.set(error);
+                result.cancelled.set(cancelled);
+            }
+        }).run();
+        return result;
+    }
+
+    private void generateTree(File directory, int fileCount) throws IOException {
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(directory, "d" + i / 100 + "/f" + i + ".txt");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), ("file " + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
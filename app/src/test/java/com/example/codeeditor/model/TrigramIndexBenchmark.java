@@ -0,0 +1,182 @@
+package com.example.codeeditor.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Index correctness plus query latency against brute-force scanning over a synthetic tree.
+ * The timing test runs with -Dbenchmarks=true; its tree is 64 MB by default, and
+ * -Dtrigram.benchmark.mb=1024 gives the 1 GB case.
+ */
+public class TrigramIndexBenchmark {
+
+    private static final int FILE_SIZE = 32 * 1024;
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int WORD_COUNT = 20_000;
+    private static final String[] QUERIES = {"needle_alpha", "needle_beta", "needle_gamma", "needle_delta"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File indexDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("trigram-tree");
+        indexDirectory = folder.newFolder("trigram-index");
+    }
+
+    @After
+    public void tearDown() {
+        IgnoreMatcher.forget(root);
+    }
+
+    @Test
+    public void candidates_narrowToFilesWithTheLiteral() throws IOException {
+        write("src/A.java", "class A { void parseHeader() {} }\n");
+        write("src/B.java", "class B { void render() {} }\n");
+        write("docs/notes.md", "The PARSEHEADER step\nruns first.\n");
+        write("build/A.class", "parseHeader");
+        write(".gitignore", "build/\n");
+        Files.write(new File(root, "blob.bin").toPath(), new byte[]{'p', 'a', 'r', 's', 'e', 0});
+
+        TrigramIndex index = new TrigramIndex(indexDirectory, root, IgnoreMatcher.forRoot(root));
+        index.open();
+
+        List<String> candidates = index.candidates(bytes("parseheader"));
+        assertTrue(candidates.contains("src/A.java"));
+        assertTrue(candidates.contains("docs/notes.md"));
+        assertFalse(candidates.contains("src/B.java"));
+        assertFalse(candidates.contains("build/A.class"));
+        assertFalse(candidates.contains("blob.bin"));
+        assertTrue(index.candidates(bytes("nowhere to be found")).isEmpty());
+        assertNull(index.candidates(bytes("pa")));
+        // A literal spanning a line break only constrains the trigrams on either side.
+        assertTrue(index.candidates(bytes("step\nruns")).contains("docs/notes.md"));
+    }
+
+    @Test
+    public void overlay_followsChangesAndSurvivesReopen() throws IOException {
+        write("a.txt", "alpha\n");
+        write("b.txt", "beta\n");
+        TrigramIndex index = new TrigramIndex(indexDirectory, root, null);
+        index.open();
+
+        write("a.txt", "alpha omega\n");
+        index.update("a.txt");
+        assertTrue(index.candidates(bytes("omega")).contains("a.txt"));
+        index.remove("b.txt");
+        assertTrue(index.candidates(bytes("beta")).isEmpty());
+
+        // A fresh instance reads the file on disk and rediscovers the changes from file stats.
+        write("c.txt", "gamma\n");
+        new File(root, "a.txt").setLastModified(System.currentTimeMillis() + 5000);
+        TrigramIndex reopened = new TrigramIndex(indexDirectory, root, null);
+        reopened.open();
+        assertTrue(reopened.candidates(bytes("omega")).contains("a.txt"));
+        assertTrue(reopened.candidates(bytes("gamma")).contains("c.txt"));
+        assertEquals(3, reopened.fileCount());
+    }
+
+    @Test
+    public void benchmark_indexedVersusBruteForce() throws IOException {
+        Benchmarks.assumeEnabled();
+        long megabytes = Long.getLong("trigram.benchmark.mb", 64);
+        int fileCount = (int) (megabytes * 1024 * 1024 / FILE_SIZE);
+        generateTree(fileCount);
+
+        TrigramIndex index = new TrigramIndex(indexDirectory, root, null);
+        long buildStart = System.nanoTime();
+        index.build();
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        long indexBytes = new File(indexDirectory, TrigramIndex.FILE_NAME).length();
+
+        // Warm both paths once so the page cache holds the tree for either.
+        for (String query : QUERIES) {
+            search(query, null);
+            search(query, index);
+        }
+        long bruteTotal = 0;
+        long indexedTotal = 0;
+        for (String query : QUERIES) {
+            long start = System.nanoTime();
+            int bruteMatches = search(query, null);
+            bruteTotal += System.nanoTime() - start;
+            start = System.nanoTime();
+            int indexedMatches = search(query, index);
+            indexedTotal += System.nanoTime() - start;
+            assertEquals(bruteMatches, indexedMatches);
+            assertTrue(bruteMatches > 0);
+        }
+        System.out.println("TrigramIndex " + megabytes + " MB in " + fileCount + " files: build " + buildMillis
+                + " ms, index " + indexBytes / 1024 + " KB; query brute force "
+                + bruteTotal / QUERIES.length / 1_000_000 + " ms, indexed "
+                + indexedTotal / QUERIES.length / 1_000_000 + " ms");
+    }
+
+    private int search(String query, TrigramIndex index) {
+        final int[] count = new int[1];
+        ProjectSearch search = new ProjectSearch(root, null, new ProjectSearch.Query(query, false, false),
+                ProjectSearch.DEFAULT_MAX_RESULTS, Runnable::run, new ProjectSearch.Listener() {
+            @Override
+            public void onMatches(List<ProjectSearch.Match> matches) {
+            }
+
+            @Override
+            public void onFinished(int filesSearched, int matchCount, boolean cancelled) {
+                count[0] = matchCount;
+            }
+        });
+        search.setIndex(index);
+        search.run();
+        return count[0];
+    }
+
+    private void generateTree(int fileCount) throws IOException {
+        Random random = new Random(42);
+        String[] words = new String[WORD_COUNT];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        StringBuilder content = new StringBuilder(FILE_SIZE + 64);
+        for (int i = 0; i < fileCount; i++) {
+            content.setLength(0);
+            while (content.length() < FILE_SIZE) {
+                content.append(words[random.nextInt(words.length)]);
+                content.append(random.nextInt(12) == 0 ? '\n' : ' ');
+            }
+            if (i % 101 == 0) {
+                content.append(QUERIES[(i / 101) % QUERIES.length]).append('\n');
+            }
+            write("d" + i / FILES_PER_DIRECTORY + "/f" + i + ".txt", content.toString());
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
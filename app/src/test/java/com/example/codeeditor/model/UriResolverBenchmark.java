@@ -0,0 +1,122 @@
+package com.example.codeeditor.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * URI formats plus cached resolution against the old parse-and-decode on every call.
+ * The timing test runs with -Dbenchmarks=true, 200000 lookups by default;
+ * -Duriresolver.benchmark.lookups=N does more.
+ */
+public class UriResolverBenchmark {
+
+    private static final File PRIMARY = new File("/storage/emulated/0");
+    private static final String TREE = "content://com.android.externalstorage.documents/tree/primary%3AProjects%2Fdemo";
+    private static final String[] URIS = {
+            TREE,
+            TREE + "/document/primary%3AProjects%2Fdemo%2Fsrc%2Fmain.cpp",
+            "content://com.android.externalstorage.documents/document/1234-ABCD%3ACode%2FC%2B%2B",
+            "file:///storage/emulated/0/Projects/demo/README.md",
+    };
+
+    private static UriResolver resolver(int capacity) {
+        Map<String, File> volumes = new HashMap<>();
+        volumes.put("primary", PRIMARY);
+        volumes.put("1234-abcd", new File("/mnt/media_rw/1234-ABCD"));
+        return new UriResolver(PRIMARY, volumes, capacity);
+    }
+
+    @Test
+    public void externalStorageDocuments_mapThroughTheVolumeTable() {
+        UriResolver resolver = resolver(16);
+
+        assertEquals(new File(PRIMARY, "Projects/demo"), resolver.resolve(URIS[0]));
+        assertEquals(new File(PRIMARY, "Projects/demo/src/main.cpp"), resolver.resolve(URIS[1]));
+        // '+' is a literal plus, not a space as with URLDecoder.
+        assertEquals(new File("/mnt/media_rw/1234-ABCD/Code/C++"), resolver.resolve(URIS[2]));
+        assertEquals(new File("/storage/5678-EF01/x"), resolver.resolve(
+                "content://com.android.externalstorage.documents/document/5678-EF01%3Ax"));
+        assertEquals(new File(PRIMARY, "Documents/notes.txt"), resolver.resolve(
+                "content://com.android.externalstorage.documents/document/home%3Anotes.txt"));
+        assertEquals(PRIMARY, resolver.resolve("content://com.android.externalstorage.documents/tree/primary%3A"));
+    }
+
+    @Test
+    public void otherFormats() {
+        UriResolver resolver = resolver(16);
+
+        assertEquals(new File("/storage/emulated/0/Projects/demo/README.md"), resolver.resolve(URIS[3]));
+        assertEquals(new File("/sdcard/a b.txt"), resolver.resolve("file:/sdcard/a%20b.txt"));
+        assertEquals(new File("/storage/emulated/0/Download/app.zip"), resolver.resolve(
+                "content://com.android.providers.downloads.documents/document/raw%3A%2Fstorage%2Femulated%2F0%2FDownload%2Fapp.zip"));
+        assertEquals(new File("/storage/emulated/0/x"), resolver.resolve("/storage/emulated/0/x"));
+        assertEquals(new File("/document/msf:12"), resolver.resolve(
+                "content://com.android.providers.downloads.documents/document/msf%3A12?x=1"));
+        assertNull(resolver.resolve("mailto:someone"));
+    }
+
+    @Test
+    public void decode_handlesMultiByteAndBrokenEscapes() {
+        assertEquals("Größe ✓", UriResolver.decode("Gr%C3%B6%C3%9Fe%20%E2%9C%93"));
+        assertEquals("100%", UriResolver.decode("100%"));
+        assertEquals("%zz", UriResolver.decode("%zz"));
+    }
+
+    @Test
+    public void capacity_evictsLeastRecentlyUsed() {
+        UriResolver resolver = resolver(2);
+        resolver.resolve(URIS[0]);
+        resolver.resolve(URIS[1]);
+        resolver.resolve(URIS[0]);
+        resolver.resolve(URIS[2]);
+
+        long misses = resolver.getMisses();
+        resolver.resolve(URIS[0]);
+        assertEquals(misses, resolver.getMisses());
+        resolver.resolve(URIS[1]);
+        assertEquals(misses + 1, resolver.getMisses());
+    }
+
+    @Test
+    public void benchmark_cachedVersusParse() throws Exception {
+        Benchmarks.assumeEnabled();
+        int lookups = Integer.getInteger("uriresolver.benchmark.lookups", 200_000);
+        UriResolver resolver = resolver(UriResolver.DEFAULT_CAPACITY);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(legacyResolve(URIS[i % 2]), resolver.resolve(URIS[i % 2]));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            legacyResolve(URIS[i % 2]);
+        }
+        long parseNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            resolver.resolve(URIS[i % 2]);
+        }
+        long cachedNanos = System.nanoTime() - start;
+
+        System.out.println("UriResolver " + lookups + " lookups: parse " + parseNanos / lookups + " ns, cached "
+                + cachedNanos / lookups + " ns");
+    }
+
+    // The document id part of FileLogic.getFileFromUri before UriResolver, minus the Uri parsing.
+    private static File legacyResolve(String uri) throws Exception {
+        String path = URLDecoder.decode(uri.substring(uri.indexOf("/tree/")), "UTF-8");
+        String afterTree = path.substring(6);
+        String docId = afterTree.contains("/document/")
+                ? afterTree.substring(afterTree.indexOf("/document/") + 10) : afterTree;
+        docId = URLDecoder.decode(docId, "UTF-8");
+        String[] split = docId.split(":", 2);
+        String relativePath = split.length > 1 ? split[1] : "";
+        return relativePath.isEmpty() ? PRIMARY : new File(PRIMARY.getAbsolutePath(), relativePath);
+    }
+}